@@ -0,0 +1,468 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compact binary protocol of MatrixHandler. It is carried in the same
+ * length-prefixed frames as the object protocol, and every multi-byte value
+ * inside a frame is little-endian.
+ * <pre>
+ * request: [byte version][byte opcode][int requestId][arguments of the command]
+ * reply:   [byte version][byte value tag][int requestId][value]
+ *
+ * matrix:        [int rows][int columns][rows * columns int cells, row by row]
+ * index:         [int row * columns + column] of the current matrix
+ * count:         [int]
+ * long:          [long]
+ * index pairs:   [int count] then per pair [index source][index destination]
+ * index groups:  [int groups] then per group [int size][size indices]
+ * text:          [int length][length bytes of UTF-8]
+ * error:         a text, the message
+ * boolean:       [byte 0 or 1]
+ * big integer:   [int length][length bytes, two's complement, most significant first]
+ * path summary:  [int distance][big integer count]
+ * counters:      [int count] then per counter [int length][length bytes of UTF-8 name][long value]
+ * pair result:   [int pair] then the whole reply frame of that pair
+ * </pre>
+ * Replies carry the id of their request, so a client may pipeline requests and
+ * match replies that arrive out of order. A batch request gets one pair result
+ * per pair, in the order the pairs are done; each names the position of its pair.
+ * A binary frame always starts with VERSION, while a serialized Java object
+ * starts with 0xAC, so the server can tell the protocols apart by the first byte.
+ */
+public final class BinaryProtocol {
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 2 + Integer.BYTES;
+
+    public static final byte TAG_INT = 1;
+    public static final byte TAG_INDEX_GROUPS = 2;
+    public static final byte TAG_ERROR = 3;
+    public static final byte TAG_COUNTERS = 4;
+    public static final byte TAG_TEXT = 5;
+    public static final byte TAG_BOOLEAN = 6;
+    public static final byte TAG_BIG_INTEGER = 7;
+    public static final byte TAG_PATH_SUMMARY = 8;
+    public static final byte TAG_PAIR_RESULT = 9;
+    public static final byte TAG_LONG = 10;
+
+    /**
+     * A decoded request frame.
+     *
+     * @param command   the requested command
+     * @param requestId the id the client tagged the request with
+     * @param args      the decoded arguments, in the types the object protocol uses
+     */
+    public record Request(@NotNull MatrixCommand command, int requestId, @NotNull Object[] args) {
+    }
+
+    /**
+     * A decoded reply frame.
+     *
+     * @param requestId the id of the request this reply answers
+     * @param failed    true if the server could not serve the request
+     * @param value     the decoded value, or the error message if the request failed
+     */
+    public record Reply(int requestId, boolean failed, @NotNull Object value) {
+    }
+
+    /**
+     * The decoded value of a pair result.
+     *
+     * @param pair  the position of the pair in the batch request
+     * @param value the decoded value of the pair, or the error message if the pair failed
+     */
+    public record PairResult(int pair, @NotNull Object value) {
+    }
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Checks if a frame payload is a binary protocol frame.
+     *
+     * @param i_Frame the frame payload
+     * @return true if the frame is binary, false if it is a serialized object
+     */
+    public static boolean isBinaryFrame(@NotNull byte[] i_Frame) {
+        return i_Frame.length >= HEADER_SIZE && i_Frame[0] == VERSION;
+    }
+
+    /**
+     * Encodes a request frame.
+     *
+     * @param i_Command   the command to send
+     * @param i_RequestId the id to tag the request with
+     * @param i_Args      the arguments of the command
+     * @param i_Columns   the number of columns of the matrix the indices refer to
+     * @return the frame payload
+     */
+    public static @NotNull byte[] encodeRequest(@NotNull MatrixCommand i_Command, int i_RequestId,
+                                                @NotNull Object[] i_Args, int i_Columns) {
+        long size = HEADER_SIZE;
+        for (int i = 0; i < i_Command.getArgCount(); i++) {
+            size += switch (i_Command.getArgType(i)) {
+                case MATRIX -> matrixSize((int[][]) i_Args[i]);
+                case INDEX, COUNT -> Integer.BYTES;
+                case TEXT -> textSize((String) i_Args[i]);
+                case INDEX_PAIRS -> Integer.BYTES + 2L * Integer.BYTES * ((Index[][]) i_Args[i]).length;
+            };
+        }
+
+        ByteBuffer buffer = allocate(size);
+        buffer.put(VERSION).put(i_Command.getOpcode()).putInt(i_RequestId);
+        for (int i = 0; i < i_Command.getArgCount(); i++) {
+            switch (i_Command.getArgType(i)) {
+                case MATRIX -> putMatrix(buffer, (int[][]) i_Args[i]);
+                case INDEX -> buffer.putInt(packIndex((Index) i_Args[i], i_Columns));
+                case TEXT -> putText(buffer, (String) i_Args[i]);
+                case COUNT -> buffer.putInt((Integer) i_Args[i]);
+                case INDEX_PAIRS -> {
+                    Index[][] pairs = (Index[][]) i_Args[i];
+                    buffer.putInt(pairs.length);
+                    for (Index[] pair : pairs) {
+                        buffer.putInt(packIndex(pair[0], i_Columns)).putInt(packIndex(pair[1], i_Columns));
+                    }
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a request frame.
+     *
+     * @param i_Frame   the frame payload
+     * @param i_Columns the number of columns of the session's current matrix
+     * @return the decoded request
+     */
+    public static @NotNull Request decodeRequest(@NotNull byte[] i_Frame, int i_Columns) throws IOException {
+        ByteBuffer buffer = wrap(i_Frame);
+        try {
+            byte opcode = buffer.get(1);
+            MatrixCommand command = MatrixCommand.fromOpcode(opcode);
+            if (command == null) {
+                throw new IOException("unknown opcode " + opcode);
+            }
+            int requestId = buffer.getInt(2);
+            buffer.position(HEADER_SIZE);
+
+            Object[] args = new Object[command.getArgCount()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = switch (command.getArgType(i)) {
+                    case MATRIX -> getMatrix(buffer);
+                    case INDEX -> unpackIndex(buffer.getInt(), i_Columns);
+                    case TEXT -> getText(buffer);
+                    case COUNT -> buffer.getInt();
+                    case INDEX_PAIRS -> getIndexPairs(buffer, i_Columns);
+                };
+            }
+            return new Request(command, requestId, args);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("truncated request frame", e);
+        }
+    }
+
+    /**
+     * Encodes the result of a command as a reply frame.
+     *
+     * @param i_RequestId the id of the request
+     * @param i_Result    the result of the command
+     * @param i_Columns   the number of columns of the matrix the indices refer to
+     * @return the frame payload
+     */
+    public static @NotNull byte[] encodeReply(int i_RequestId, @NotNull Object i_Result, int i_Columns) throws IOException {
+        if (i_Result instanceof Integer value) {
+            ByteBuffer buffer = allocate(HEADER_SIZE + Integer.BYTES);
+            buffer.put(VERSION).put(TAG_INT).putInt(i_RequestId).putInt(value);
+            return buffer.array();
+        }
+        if (i_Result instanceof Long value) {
+            ByteBuffer buffer = allocate(HEADER_SIZE + Long.BYTES);
+            buffer.put(VERSION).put(TAG_LONG).putInt(i_RequestId).putLong(value);
+            return buffer.array();
+        }
+        if (i_Result instanceof Boolean value) {
+            ByteBuffer buffer = allocate(HEADER_SIZE + 1);
+            buffer.put(VERSION).put(TAG_BOOLEAN).putInt(i_RequestId).put((byte) (value ? 1 : 0));
+            return buffer.array();
+        }
+        if (i_Result instanceof BigInteger value) {
+            byte[] magnitude = value.toByteArray();
+            ByteBuffer buffer = allocate(HEADER_SIZE + Integer.BYTES + magnitude.length);
+            buffer.put(VERSION).put(TAG_BIG_INTEGER).putInt(i_RequestId).putInt(magnitude.length).put(magnitude);
+            return buffer.array();
+        }
+        if (i_Result instanceof PathSummary summary) {
+            byte[] count = summary.count().toByteArray();
+            ByteBuffer buffer = allocate(HEADER_SIZE + 2L * Integer.BYTES + count.length);
+            buffer.put(VERSION).put(TAG_PATH_SUMMARY).putInt(i_RequestId).putInt(summary.distance()).putInt(count.length).put(count);
+            return buffer.array();
+        }
+        if (i_Result instanceof String text) {
+            ByteBuffer buffer = allocate(HEADER_SIZE + textSize(text));
+            buffer.put(VERSION).put(TAG_TEXT).putInt(i_RequestId);
+            putText(buffer, text);
+            return buffer.array();
+        }
+        if (i_Result instanceof Collection<?> groups) {
+            long size = HEADER_SIZE + Integer.BYTES;
+            for (Object group : groups) {
+                size += Integer.BYTES + (long) Integer.BYTES * ((Collection<?>) group).size();
+            }
+            ByteBuffer buffer = allocate(size);
+            buffer.put(VERSION).put(TAG_INDEX_GROUPS).putInt(i_RequestId).putInt(groups.size());
+            for (Object group : groups) {
+                Collection<?> indices = (Collection<?>) group;
+                buffer.putInt(indices.size());
+                for (Object index : indices) {
+                    buffer.putInt(packIndex((Index) index, i_Columns));
+                }
+            }
+            return buffer.array();
+        }
+        if (i_Result instanceof Map<?, ?> counters) {
+            List<byte[]> names = new ArrayList<>(counters.size());
+            long size = HEADER_SIZE + Integer.BYTES;
+            for (Object name : counters.keySet()) {
+                byte[] encodedName = name.toString().getBytes(StandardCharsets.UTF_8);
+                names.add(encodedName);
+                size += Integer.BYTES + encodedName.length + Long.BYTES;
+            }
+            ByteBuffer buffer = allocate(size);
+            buffer.put(VERSION).put(TAG_COUNTERS).putInt(i_RequestId).putInt(counters.size());
+            Iterator<?> values = counters.values().iterator();
+            for (byte[] name : names) {
+                buffer.putInt(name.length).put(name).putLong(((Number) values.next()).longValue());
+            }
+            return buffer.array();
+        }
+        throw new IOException("no binary encoding for " + i_Result.getClass().getName());
+    }
+
+    /**
+     * Encodes a reply telling the client that a request failed.
+     *
+     * @param i_RequestId the id of the request
+     * @param i_Message   the reason of the failure
+     * @return the frame payload
+     */
+    public static @NotNull byte[] encodeError(int i_RequestId, @NotNull String i_Message) {
+        ByteBuffer buffer = allocate(HEADER_SIZE + textSize(i_Message));
+        buffer.put(VERSION).put(TAG_ERROR).putInt(i_RequestId);
+        putText(buffer, i_Message);
+        return buffer.array();
+    }
+
+    /**
+     * Encodes the reply to one pair of a batch request.
+     *
+     * @param i_RequestId the id of the batch request
+     * @param i_Pair      the position of the pair in the request
+     * @param i_Reply     the reply frame of the pair, from encodeReply or encodeError
+     * @return the frame payload
+     */
+    public static @NotNull byte[] encodePairReply(int i_RequestId, int i_Pair, @NotNull byte[] i_Reply) {
+        ByteBuffer buffer = allocate(HEADER_SIZE + Integer.BYTES + (long) i_Reply.length);
+        buffer.put(VERSION).put(TAG_PAIR_RESULT).putInt(i_RequestId).putInt(i_Pair).put(i_Reply);
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a reply frame. Index groups are decoded as a list of lists of indices,
+     * counters as a map from name to value, and the reply to a pair as a PairResult
+     * that failed if the pair failed.
+     *
+     * @param i_Frame   the frame payload
+     * @param i_Columns the number of columns of the matrix the indices refer to
+     * @return the decoded reply
+     */
+    public static @NotNull Reply decodeReply(@NotNull byte[] i_Frame, int i_Columns) throws IOException {
+        ByteBuffer buffer = wrap(i_Frame);
+        try {
+            byte tag = buffer.get(1);
+            int requestId = buffer.getInt(2);
+            buffer.position(HEADER_SIZE);
+            switch (tag) {
+                case TAG_INT -> {
+                    return new Reply(requestId, false, buffer.getInt());
+                }
+                case TAG_LONG -> {
+                    return new Reply(requestId, false, buffer.getLong());
+                }
+                case TAG_ERROR -> {
+                    return new Reply(requestId, true, getText(buffer));
+                }
+                case TAG_TEXT -> {
+                    return new Reply(requestId, false, getText(buffer));
+                }
+                case TAG_BOOLEAN -> {
+                    return new Reply(requestId, false, buffer.get() != 0);
+                }
+                case TAG_BIG_INTEGER -> {
+                    return new Reply(requestId, false, getBigInteger(buffer));
+                }
+                case TAG_PATH_SUMMARY -> {
+                    int distance = buffer.getInt();
+                    return new Reply(requestId, false, new PathSummary(distance, getBigInteger(buffer)));
+                }
+                case TAG_INDEX_GROUPS -> {
+                    int numOfGroups = buffer.getInt();
+                    List<List<Index>> groups = new ArrayList<>(numOfGroups);
+                    for (int i = 0; i < numOfGroups; i++) {
+                        int groupSize = buffer.getInt();
+                        List<Index> group = new ArrayList<>(groupSize);
+                        for (int j = 0; j < groupSize; j++) {
+                            group.add(unpackIndex(buffer.getInt(), i_Columns));
+                        }
+                        groups.add(group);
+                    }
+                    return new Reply(requestId, false, groups);
+                }
+                case TAG_COUNTERS -> {
+                    int numOfCounters = buffer.getInt();
+                    Map<String, Long> counters = new LinkedHashMap<>();
+                    for (int i = 0; i < numOfCounters; i++) {
+                        byte[] name = new byte[buffer.getInt()];
+                        buffer.get(name);
+                        counters.put(new String(name, StandardCharsets.UTF_8), buffer.getLong());
+                    }
+                    return new Reply(requestId, false, counters);
+                }
+                case TAG_PAIR_RESULT -> {
+                    int pair = buffer.getInt();
+                    Reply reply = decodeReply(Arrays.copyOfRange(i_Frame, buffer.position(), i_Frame.length), i_Columns);
+                    return new Reply(requestId, reply.failed(), new PairResult(pair, reply.value()));
+                }
+                default -> throw new IOException("unknown value tag " + tag);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("truncated reply frame", e);
+        }
+    }
+
+    /**
+     * Packs an index into a single int: its position in a row-by-row scan of the matrix.
+     *
+     * @param i_Index   the index to pack
+     * @param i_Columns the number of columns of the matrix
+     * @return the packed index
+     */
+    public static int packIndex(@NotNull Index i_Index, int i_Columns) {
+        return i_Index.getRow() * i_Columns + i_Index.getColumn();
+    }
+
+    /**
+     * Unpacks an index packed by packIndex.
+     *
+     * @param i_Packed  the packed index
+     * @param i_Columns the number of columns of the matrix
+     * @return the index
+     */
+    public static @NotNull Index unpackIndex(int i_Packed, int i_Columns) {
+        return i_Columns > 0 ? new Index(i_Packed / i_Columns, i_Packed % i_Columns) : new Index(i_Packed, 0);
+    }
+
+    private static @NotNull Index[][] getIndexPairs(@NotNull ByteBuffer i_Buffer, int i_Columns) throws IOException {
+        int count = i_Buffer.getInt();
+        if (count < 0 || 2L * Integer.BYTES * count > i_Buffer.remaining()) {
+            throw new IOException("illegal number of pairs " + count);
+        }
+        Index[][] pairs = new Index[count][];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = new Index[]{unpackIndex(i_Buffer.getInt(), i_Columns), unpackIndex(i_Buffer.getInt(), i_Columns)};
+        }
+        return pairs;
+    }
+
+    private static long matrixSize(int[][] i_Matrix) {
+        long cells = 0;
+        for (int[] row : i_Matrix) {
+            cells += row.length;
+        }
+        return 2L * Integer.BYTES + cells * Integer.BYTES;
+    }
+
+    private static void putMatrix(@NotNull ByteBuffer i_Buffer, int[][] i_Matrix) {
+        int columns = i_Matrix.length > 0 ? i_Matrix[0].length : 0;
+        i_Buffer.putInt(i_Matrix.length).putInt(columns);
+        for (int[] row : i_Matrix) {
+            if (row.length != columns) {
+                throw new IllegalArgumentException("all rows of a matrix must have the same length");
+            }
+            // bulk copy, the view keeps the little-endian order of the buffer
+            i_Buffer.asIntBuffer().put(row);
+            i_Buffer.position(i_Buffer.position() + row.length * Integer.BYTES);
+        }
+    }
+
+    private static int[][] getMatrix(@NotNull ByteBuffer i_Buffer) throws IOException {
+        int rows = i_Buffer.getInt();
+        int columns = i_Buffer.getInt();
+        if (rows <= 0 || columns <= 0 || (long) rows * columns * Integer.BYTES > i_Buffer.remaining()) {
+            throw new IOException("illegal matrix size " + rows + "x" + columns);
+        }
+        int[][] matrix = new int[rows][columns];
+        for (int[] row : matrix) {
+            i_Buffer.asIntBuffer().get(row);
+            i_Buffer.position(i_Buffer.position() + columns * Integer.BYTES);
+        }
+        return matrix;
+    }
+
+    private static long textSize(@NotNull String i_Text) {
+        return Integer.BYTES + (long) i_Text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putText(@NotNull ByteBuffer i_Buffer, @NotNull String i_Text) {
+        byte[] text = i_Text.getBytes(StandardCharsets.UTF_8);
+        i_Buffer.putInt(text.length).put(text);
+    }
+
+    private static @NotNull String getText(@NotNull ByteBuffer i_Buffer) throws IOException {
+        int length = i_Buffer.getInt();
+        if (length < 0 || length > i_Buffer.remaining()) {
+            throw new IOException("illegal text length " + length);
+        }
+        byte[] text = new byte[length];
+        i_Buffer.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static @NotNull BigInteger getBigInteger(@NotNull ByteBuffer i_Buffer) throws IOException {
+        int length = i_Buffer.getInt();
+        if (length <= 0 || length > i_Buffer.remaining()) {
+            throw new IOException("illegal number length " + length);
+        }
+        byte[] value = new byte[length];
+        i_Buffer.get(value);
+        return new BigInteger(value);
+    }
+
+    private static @NotNull ByteBuffer allocate(long i_Size) {
+        if (i_Size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("frame too large: " + i_Size + " bytes");
+        }
+        return ByteBuffer.allocate((int) i_Size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static @NotNull ByteBuffer wrap(@NotNull byte[] i_Frame) throws IOException {
+        if (!isBinaryFrame(i_Frame)) {
+            throw new IOException("not a binary frame of version " + VERSION);
+        }
+        return ByteBuffer.wrap(i_Frame).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,206 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The result of labeling the connected components of a matrix.
+ * Every cell holds the label of its component (1..numOfComponents) or 0 if
+ * it does not belong to any component. Labels are numbered in the order the
+ * components are first met when scanning the matrix row by row.
+ * <p>
+ * The size and the bounding box of every component are gathered in the same pass,
+ * so questions about a component's shape are answered without rescanning the grid.
+ */
+public final class ComponentLabels {
+    private final int numOfRows;
+    private final int numOfColumns;
+    private final int numOfComponents;
+    // row-major: the label of (row, column) is at row * numOfColumns + column
+    private final @NotNull int[] labels;
+    private final @NotNull int[] componentSizes;
+    // the bounding box of label l is at 4 * l: first row, last row, first column, last column
+    private final @NotNull int[] boundingBoxes;
+
+    /**
+     * Constructs the labeling of a matrix.
+     *
+     * @param i_NumOfRows       the number of rows of the labeled matrix
+     * @param i_NumOfColumns    the number of columns of the labeled matrix
+     * @param i_Labels          the row-major label of every cell
+     * @param i_NumOfComponents the number of components
+     */
+    ComponentLabels(int i_NumOfRows, int i_NumOfColumns, @NotNull int[] i_Labels, int i_NumOfComponents) {
+        this(i_NumOfRows, i_NumOfColumns, i_Labels, i_NumOfComponents, new int[i_NumOfComponents + 1],
+                new int[4 * (i_NumOfComponents + 1)]);
+        gather(i_Labels, i_NumOfColumns, 0, i_NumOfRows, componentSizes, boundingBoxes);
+    }
+
+    /**
+     * Constructs the labeling of a matrix whose component sizes and bounding boxes are known already.
+     *
+     * @param i_NumOfRows       the number of rows of the labeled matrix
+     * @param i_NumOfColumns    the number of columns of the labeled matrix
+     * @param i_Labels          the row-major label of every cell
+     * @param i_NumOfComponents the number of components
+     * @param i_ComponentSizes  the number of cells of every label
+     * @param i_BoundingBoxes   the bounding box of every label, as gather leaves them
+     */
+    ComponentLabels(int i_NumOfRows, int i_NumOfColumns, @NotNull int[] i_Labels, int i_NumOfComponents,
+                    @NotNull int[] i_ComponentSizes, @NotNull int[] i_BoundingBoxes) {
+        this.numOfRows = i_NumOfRows;
+        this.numOfColumns = i_NumOfColumns;
+        this.labels = i_Labels;
+        this.numOfComponents = i_NumOfComponents;
+        this.componentSizes = i_ComponentSizes;
+        this.boundingBoxes = i_BoundingBoxes;
+    }
+
+    /**
+     * Adds the cells of a range of rows to the sizes and bounding boxes of their labels.
+     * The bounding box of label l is at 4 * l: first row, last row, first column, last column.
+     * Ranges gathered into the same arrays must be gathered from the top down.
+     *
+     * @param i_Labels   the row-major labels
+     * @param i_Columns  the number of columns
+     * @param i_FirstRow the first row of the range
+     * @param i_EndRow   the row after the last row of the range
+     * @param i_Sizes    the number of cells of every label, 0 for a label not met yet
+     * @param i_Boxes    the bounding box of every label
+     */
+    static void gather(@NotNull int[] i_Labels, int i_Columns, int i_FirstRow, int i_EndRow,
+                       @NotNull int[] i_Sizes, @NotNull int[] i_Boxes) {
+        for (int row = i_FirstRow, cell = i_FirstRow * i_Columns; row < i_EndRow; row++) {
+            for (int column = 0; column < i_Columns; column++, cell++) {
+                int label = i_Labels[cell];
+                if (label == 0) {
+                    continue;
+                }
+                int box = 4 * label;
+                // the rows are scanned from the top, so the first cell of a label opens its box
+                if (i_Sizes[label]++ == 0) {
+                    i_Boxes[box] = row;
+                    i_Boxes[box + 2] = column;
+                    i_Boxes[box + 3] = column;
+                } else if (column < i_Boxes[box + 2]) {
+                    i_Boxes[box + 2] = column;
+                } else if (column > i_Boxes[box + 3]) {
+                    i_Boxes[box + 3] = column;
+                }
+                i_Boxes[box + 1] = row;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of rows of the labeled matrix.
+     *
+     * @return the number of rows
+     */
+    public int getNumOfRows() {
+        return numOfRows;
+    }
+
+    /**
+     * Gets the number of columns of the labeled matrix.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return numOfColumns;
+    }
+
+    /**
+     * Gets the number of connected components.
+     *
+     * @return the number of components
+     */
+    public int getNumOfComponents() {
+        return numOfComponents;
+    }
+
+    /**
+     * Gets the label of a cell.
+     *
+     * @param i_Row    the row of the cell
+     * @param i_Column the column of the cell
+     * @return the label of the cell's component, or 0 if the cell is not part of one
+     */
+    public int getLabel(int i_Row, int i_Column) {
+        return labels[i_Row * numOfColumns + i_Column];
+    }
+
+    /**
+     * Gets the number of cells in a component.
+     *
+     * @param i_Label the label of the component
+     * @return the number of cells with this label
+     */
+    public int getComponentSize(int i_Label) {
+        return componentSizes[i_Label];
+    }
+
+    /**
+     * Checks if a component fills its bounding rectangle, i.e. the rectangle holds
+     * no cell outside the component. This is the case exactly when the number of
+     * cells of the component equals the area of the rectangle.
+     *
+     * @param i_Label the label of the component
+     * @return true if the component is a filled rectangle
+     */
+    public boolean fillsBoundingBox(int i_Label) {
+        int box = 4 * i_Label;
+        long area = (long) (boundingBoxes[box + 1] - boundingBoxes[box] + 1)
+                * (boundingBoxes[box + 3] - boundingBoxes[box + 2] + 1);
+        return area == componentSizes[i_Label];
+    }
+
+    /**
+     * Checks if the bounding rectangle of a component holds no cell whose value is 0,
+     * in constant time from the zero counts of the labeled matrix.
+     *
+     * @param i_Zeros the zero counts of the labeled matrix
+     * @param i_Label the label of the component
+     * @return true if no cell of the rectangle is 0
+     */
+    boolean boundingBoxHoldsNoZero(@NotNull ZeroCounts i_Zeros, int i_Label) {
+        int box = 4 * i_Label;
+        return i_Zeros.holdsNoZero(boundingBoxes[box], boundingBoxes[box + 1], boundingBoxes[box + 2], boundingBoxes[box + 3]);
+    }
+
+    /**
+     * Gets the labels as a grid with the shape of the labeled matrix.
+     *
+     * @return a new 2D array of labels
+     */
+    public @NotNull int[][] toLabelGrid() {
+        int[][] grid = new int[numOfRows][numOfColumns];
+        for (int row = 0; row < numOfRows; row++) {
+            System.arraycopy(labels, row * numOfColumns, grid[row], 0, numOfColumns);
+        }
+        return grid;
+    }
+
+    /**
+     * Gets the cells of every component.
+     *
+     * @return the list of components, where the component with label l is at position l-1
+     */
+    public @NotNull List<Set<Index>> getComponents() {
+        List<Set<Index>> components = new ArrayList<>(numOfComponents);
+        for (int label = 1; label <= numOfComponents; label++) {
+            // presize so the sets never rehash
+            components.add(new HashSet<>(componentSizes[label] * 4 / 3 + 1));
+        }
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (labels[cell] != 0) {
+                components.get(labels[cell] - 1).add(new Index(cell / numOfColumns, cell % numOfColumns));
+            }
+        }
+        return components;
+    }
+}
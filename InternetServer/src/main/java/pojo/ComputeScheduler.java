@@ -0,0 +1,190 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The server-wide pool that runs the algorithms. Requests run as tasks of one
+ * work-stealing ForkJoinPool, and an algorithm that splits its work (for example
+ * labeling a large matrix in bands) forks its parts into the same pool.
+ * <p>
+ * A single request never runs more than getRequestParallelism() parts at once,
+ * so one huge query leaves workers free for the other clients. Parts write their
+ * results to their own slot, and the caller combines the slots in order, so the
+ * result does not depend on how the parts were scheduled.
+ */
+public final class ComputeScheduler {
+    private static volatile ComputeScheduler instance;
+
+    private final @NotNull ForkJoinPool pool;
+    private volatile int requestParallelism;
+
+    /**
+     * Gets the shared scheduler, creating it with one worker per core if it was not configured.
+     *
+     * @return the shared scheduler
+     */
+    public static @NotNull ComputeScheduler getInstance() {
+        if (instance == null) {
+            synchronized (ComputeScheduler.class) {
+                if (instance == null) {
+                    int parallelism = Runtime.getRuntime().availableProcessors();
+                    instance = new ComputeScheduler(parallelism, (parallelism + 1) / 2);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the shared scheduler with the given sizes. Must be called before its first use.
+     *
+     * @param i_Parallelism        the number of worker threads
+     * @param i_RequestParallelism the number of parts a single request may run at once
+     * @return the shared scheduler
+     * @throws IllegalStateException if the shared scheduler already exists
+     */
+    public static @NotNull ComputeScheduler configure(int i_Parallelism, int i_RequestParallelism) {
+        synchronized (ComputeScheduler.class) {
+            if (instance != null) {
+                throw new IllegalStateException("the compute scheduler is already running");
+            }
+            instance = new ComputeScheduler(i_Parallelism, i_RequestParallelism);
+            return instance;
+        }
+    }
+
+    /**
+     * Constructs a scheduler with its own pool; the server uses the shared one from getInstance.
+     *
+     * @param i_Parallelism        the number of worker threads
+     * @param i_RequestParallelism the number of parts a single request may run at once
+     */
+    public ComputeScheduler(int i_Parallelism, int i_RequestParallelism) {
+        // async mode runs the submitted requests in arrival order
+        this.pool = new ForkJoinPool(Math.max(1, i_Parallelism), pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("matrix-compute-" + worker.getPoolIndex());
+            return worker;
+        }, null, true);
+        setRequestParallelism(i_RequestParallelism);
+    }
+
+    /**
+     * Gets the pool the requests are submitted to.
+     *
+     * @return the work-stealing pool
+     */
+    public @NotNull ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Gets the number of worker threads.
+     *
+     * @return the parallelism of the pool
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Gets the number of parts a single request may run at once.
+     *
+     * @return the parallelism limit of a request
+     */
+    public int getRequestParallelism() {
+        return requestParallelism;
+    }
+
+    /**
+     * Sets the number of parts a single request may run at once. Requests that are already running keep their limit.
+     *
+     * @param i_RequestParallelism the parallelism limit of a request, capped by the parallelism of the pool
+     */
+    public void setRequestParallelism(int i_RequestParallelism) {
+        this.requestParallelism = Math.max(1, Math.min(i_RequestParallelism, pool.getParallelism()));
+    }
+
+    /**
+     * Runs an action for every part 0..count-1 and waits until all of them are done.
+     * The parts are split into at most getRequestParallelism() contiguous ranges that
+     * run at the same time; the parts of a range run in order on one thread.
+     *
+     * @param i_Count  the number of parts
+     * @param i_Action the action, called once with every part number
+     */
+    public void forEach(int i_Count, @NotNull IntConsumer i_Action) {
+        int ranges = Math.min(i_Count, requestParallelism);
+        if (ranges <= 1) {
+            for (int part = 0; part < i_Count; part++) {
+                i_Action.accept(part);
+            }
+            return;
+        }
+
+        RangeAction action = new RangeAction(0, ranges, ranges, i_Count, i_Action);
+        if (isWorkerThread()) {
+            action.invoke();
+        } else {
+            pool.invoke(action);
+        }
+    }
+
+    /**
+     * Stops the workers once the submitted requests are done.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Checks if the calling thread is a worker of this scheduler, which can fork into the pool directly.
+     *
+     * @return true if the caller runs on the pool, false otherwise
+     */
+    private boolean isWorkerThread() {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool;
+    }
+
+    /**
+     * Runs the parts of a group of ranges, splitting the group in halves until single ranges are left.
+     */
+    private static class RangeAction extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final int firstRange;
+        private final int endRange;
+        private final int numOfRanges;
+        private final int numOfParts;
+        // tasks are never serialized; the field only satisfies the Serializable contract of ForkJoinTask
+        private final transient @NotNull IntConsumer action;
+
+        RangeAction(int i_FirstRange, int i_EndRange, int i_NumOfRanges, int i_NumOfParts, @NotNull IntConsumer i_Action) {
+            this.firstRange = i_FirstRange;
+            this.endRange = i_EndRange;
+            this.numOfRanges = i_NumOfRanges;
+            this.numOfParts = i_NumOfParts;
+            this.action = i_Action;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRange - firstRange == 1) {
+                int end = (int) ((long) endRange * numOfParts / numOfRanges);
+                for (int part = (int) ((long) firstRange * numOfParts / numOfRanges); part < end; part++) {
+                    action.accept(part);
+                }
+                return;
+            }
+            int middle = (firstRange + endRange) >>> 1;
+            invokeAll(new RangeAction(firstRange, middle, numOfRanges, numOfParts, action),
+                    new RangeAction(middle, endRange, numOfRanges, numOfParts, action));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A class that labels the connected components of a matrix.
+ * A component is a maximal group of cells whose value is 1 and that touch each
+ * other horizontally, vertically or diagonally.
+ * <p>
+ * The matrix is scanned once, row by row. Every cell looks only at its
+ * neighbours that were already scanned (west, north-west, north and north-east),
+ * takes a label from them or starts a new provisional label, and records in a
+ * union-find when two provisional labels turn out to be the same component.
+ * A second pass over the labels replaces every provisional label by the final
+ * label of its set. Both passes are linear, so large grids are labeled in
+ * milliseconds. The engine keeps no state, so it can label several matrices at once.
+ * <p>
+ * Large matrices are split into bands of rows that are labeled in parallel on the
+ * ComputeScheduler. The labels of neighbouring bands are then merged across the
+ * border rows, and the result is the same as labeling the matrix in one scan.
+ */
+public class ConnectedComponents {
+    // matrices with fewer cells are labeled in one scan on the calling thread
+    public static final int PARALLEL_THRESHOLD = 1 << 22;
+    // aim for bands of about this many cells
+    private static final int BAND_CELLS = 1 << 18;
+    private volatile static ConnectedComponents instance;
+
+    public static @NotNull ConnectedComponents getInstance() {
+        if (instance == null) {
+            synchronized (ConnectedComponents.class) {
+                if (instance == null) {
+                    instance = new ConnectedComponents();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ConnectedComponents() {
+    }
+
+    /**
+     * Labels the connected components of a matrix. Matrices of at least
+     * PARALLEL_THRESHOLD cells are labeled in bands on the shared ComputeScheduler.
+     * A matrix that was labeled while it was uploaded in bands is not labeled again.
+     *
+     * @param i_Matrix the matrix to label
+     * @return the label of every cell
+     */
+    public @NotNull ComponentLabels label(@NotNull Matrix i_Matrix) {
+        ComponentLabels uploadLabels = i_Matrix.componentLabels;
+        if (uploadLabels != null) {
+            return uploadLabels;
+        }
+        ComputeScheduler scheduler = ComputeScheduler.getInstance();
+        if (i_Matrix.getNumOfCells() < PARALLEL_THRESHOLD || scheduler.getRequestParallelism() < 2) {
+            return label(i_Matrix, i_Matrix.getNumOfRows(), scheduler);
+        }
+        return label(i_Matrix, defaultBandRows(i_Matrix.getNumOfColumns()), scheduler);
+    }
+
+    /**
+     * Labels the connected components of a matrix in bands of rows.
+     *
+     * @param i_Matrix    the matrix to label
+     * @param i_BandRows  the number of rows in a band; a matrix with no more rows is labeled on the calling thread
+     * @param i_Scheduler the scheduler that labels the bands, whose request parallelism bounds the number of bands labeled at once
+     * @return the label of every cell
+     */
+    public @NotNull ComponentLabels label(@NotNull Matrix i_Matrix, int i_BandRows, @NotNull ComputeScheduler i_Scheduler) {
+        int rows = i_Matrix.getNumOfRows();
+        int columns = i_Matrix.getNumOfColumns();
+        int[] labels = new int[rows * columns];
+        int bandRows = Math.max(1, i_BandRows);
+        if (bandRows >= rows) {
+            int numOfComponents = labelBand(i_Matrix, labels, 0, rows);
+            return new ComponentLabels(rows, columns, labels, numOfComponents);
+        }
+
+        // label every band on its own; band b uses the labels 1..bandComponents[b]
+        int numOfBands = (rows + bandRows - 1) / bandRows;
+        int[] bandStarts = new int[numOfBands + 1];
+        for (int band = 0; band < numOfBands; band++) {
+            bandStarts[band] = band * bandRows;
+        }
+        bandStarts[numOfBands] = rows;
+        int[] bandComponents = new int[numOfBands];
+        i_Scheduler.forEach(numOfBands, band -> bandComponents[band] = labelBand(i_Matrix, labels,
+                bandStarts[band], bandStarts[band + 1]));
+        BandMerge merge = mergeBands(labels, columns, bandStarts, bandComponents, i_Scheduler);
+        return new ComponentLabels(rows, columns, labels, merge.numOfComponents());
+    }
+
+    /**
+     * How the labels of bands that were labeled on their own became the labels of the whole matrix.
+     *
+     * @param bandOffsets     the labels of band b are the global labels bandOffsets[b]..bandOffsets[b]+n-1
+     * @param finalLabels     the final label of every global label
+     * @param numOfComponents the number of components of the whole matrix
+     */
+    record BandMerge(@NotNull int[] bandOffsets, @NotNull int[] finalLabels, int numOfComponents) {
+    }
+
+    /**
+     * Merges bands of rows that were labeled on their own by labelBand into the labeling
+     * of the whole matrix, the same as labeling the matrix in one scan. The labels of
+     * neighbouring bands are joined across the border rows, and every label is then
+     * replaced by its final label.
+     *
+     * @param i_Labels         the row-major labels of every band, replaced by the final labels
+     * @param i_Columns        the number of columns
+     * @param i_BandStarts     the first row of every band, followed by the number of rows
+     * @param i_BandComponents the number of components labelBand found in every band
+     * @param i_Scheduler      the scheduler that relabels the bands
+     * @return how the band labels map to the final labels
+     */
+    @NotNull BandMerge mergeBands(@NotNull int[] i_Labels, int i_Columns, @NotNull int[] i_BandStarts,
+                                  @NotNull int[] i_BandComponents, @NotNull ComputeScheduler i_Scheduler) {
+        // give every band its own range of global labels
+        int numOfBands = i_BandComponents.length;
+        int[] bandOffsets = new int[numOfBands];
+        int numOfLabels = 0;
+        for (int band = 0; band < numOfBands; band++) {
+            bandOffsets[band] = numOfLabels;
+            numOfLabels += i_BandComponents[band];
+        }
+
+        // merge the labels that touch across the border between two bands
+        UnionFind sets = new UnionFind(numOfLabels);
+        for (int label = 0; label < numOfLabels; label++) {
+            sets.makeSet();
+        }
+        for (int band = 1; band < numOfBands; band++) {
+            int upper = (i_BandStarts[band] - 1) * i_Columns;
+            int lower = i_BandStarts[band] * i_Columns;
+            for (int column = 0; column < i_Columns; column++) {
+                int label = i_Labels[lower + column];
+                if (label == 0) {
+                    continue;
+                }
+                int global = bandOffsets[band] + label - 1;
+                for (int neighbour = Math.max(0, column - 1); neighbour <= Math.min(i_Columns - 1, column + 1); neighbour++) {
+                    int above = i_Labels[upper + neighbour];
+                    if (above != 0) {
+                        sets.union(global, bandOffsets[band - 1] + above - 1);
+                    }
+                }
+            }
+        }
+
+        // band labels follow the scan order, so numbering the sets in the order of
+        // their smallest global label gives the same labels as a single scan
+        int[] finalLabels = new int[numOfLabels];
+        int[] rootLabels = new int[numOfLabels];
+        int numOfComponents = 0;
+        for (int global = 0; global < numOfLabels; global++) {
+            int root = sets.find(global);
+            if (rootLabels[root] == 0) {
+                rootLabels[root] = ++numOfComponents;
+            }
+            finalLabels[global] = rootLabels[root];
+        }
+
+        i_Scheduler.forEach(numOfBands, band -> {
+            int offset = bandOffsets[band] - 1;
+            int end = i_BandStarts[band + 1] * i_Columns;
+            for (int cell = i_BandStarts[band] * i_Columns; cell < end; cell++) {
+                if (i_Labels[cell] != 0) {
+                    i_Labels[cell] = finalLabels[offset + i_Labels[cell]];
+                }
+            }
+        });
+        return new BandMerge(bandOffsets, finalLabels, numOfComponents);
+    }
+
+    /**
+     * Gets the band height used for a matrix of the given width.
+     *
+     * @param i_NumOfColumns the number of columns of the matrix
+     * @return the number of rows in a band
+     */
+    public static int defaultBandRows(int i_NumOfColumns) {
+        return Math.max(1, BAND_CELLS / Math.max(1, i_NumOfColumns));
+    }
+
+    /**
+     * Labels the components of a band of rows as if the rest of the matrix was empty.
+     *
+     * The values are read a row at a time, so the cells may be on or off the heap.
+     *
+     * @param i_Matrix the matrix
+     * @param i_Labels the row-major labels, written for the rows of the band
+     * @param i_First  the first row of the band
+     * @param i_End    the row after the last row of the band
+     * @return the number of components in the band, labeled 1..n in scan order
+     */
+    int labelBand(@NotNull Matrix i_Matrix, @NotNull int[] i_Labels, int i_First, int i_End) {
+        int columns = i_Matrix.getNumOfColumns();
+        int[] values = new int[columns];
+        // provisional labels are union-find elements plus one, so 0 stays "no component"
+        UnionFind sets = new UnionFind();
+        for (int row = i_First; row < i_End; row++) {
+            int offset = row * columns;
+            int above = offset - columns;
+            boolean hasAbove = row > i_First;
+            i_Matrix.getRow(row, values);
+            for (int column = 0; column < columns; column++) {
+                if (values[column] != 1) {
+                    continue;
+                }
+                int label = hasAbove ? i_Labels[above + column] : 0;
+                if (label == 0) {
+                    // without a north neighbour, north-west and west touch each other
+                    // but north-east may belong to a different provisional label
+                    if (hasAbove && column > 0) {
+                        label = i_Labels[above + column - 1];
+                    }
+                    if (label == 0 && column > 0) {
+                        label = i_Labels[offset + column - 1];
+                    }
+                    if (hasAbove && column + 1 < columns) {
+                        int northEast = i_Labels[above + column + 1];
+                        if (northEast != 0) {
+                            if (label == 0) {
+                                label = northEast;
+                            } else {
+                                sets.union(label - 1, northEast - 1);
+                            }
+                        }
+                    }
+                    if (label == 0) {
+                        label = sets.makeSet() + 1;
+                    }
+                }
+                i_Labels[offset + column] = label;
+            }
+        }
+
+        // number the sets in the order they are first met
+        int[] finalLabels = new int[sets.size()];
+        int numOfComponents = 0;
+        int end = i_End * columns;
+        for (int cell = i_First * columns; cell < end; cell++) {
+            int label = i_Labels[cell];
+            if (label != 0) {
+                int root = sets.find(label - 1);
+                if (finalLabels[root] == 0) {
+                    finalLabels[root] = ++numOfComponents;
+                }
+                i_Labels[cell] = finalLabels[root];
+            }
+        }
+        return numOfComponents;
+    }
+}
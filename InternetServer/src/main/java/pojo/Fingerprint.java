@@ -0,0 +1,107 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A 128-bit fingerprint of the content of a matrix, together with its shape.
+ * Two matrices with the same fingerprint are treated as equal, which lets
+ * results computed for one be reused for the other.
+ * <p>
+ * The fingerprint is the first half of the SHA-256 digest of the shape and the
+ * cells, so a client can not craft a matrix that shares the fingerprint of a
+ * matrix of another client and get its cached results or registered matrix.
+ *
+ * @param numOfRows    the number of rows of the matrix
+ * @param numOfColumns the number of columns of the matrix
+ * @param high         the first 64 bits of the content digest
+ * @param low          the second 64 bits of the content digest
+ */
+public record Fingerprint(int numOfRows, int numOfColumns, long high, long low) implements Serializable {
+
+    /**
+     * Computes the fingerprint of row-major cells.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @param i_Cells        the cells, row by row
+     * @return the fingerprint of the cells
+     */
+    public static @NotNull Fingerprint of(int i_NumOfRows, int i_NumOfColumns, @NotNull int[] i_Cells) {
+        Hasher hasher = new Hasher(i_NumOfRows, i_NumOfColumns);
+        hasher.update(i_Cells, 0, i_Cells.length);
+        return hasher.finish();
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return String.format("%dx%d:%016x%016x", numOfRows, numOfColumns, high, low);
+    }
+
+    /**
+     * Computes a fingerprint over cells that arrive in order, a range at a time,
+     * so a matrix can be fingerprinted while it is still being received.
+     * The result is the same as that of Fingerprint.of on all the cells.
+     */
+    static final class Hasher {
+        // the cells that are turned into bytes at once
+        private static final int BUFFER_CELLS = 1 << 14;
+
+        private final int numOfRows;
+        private final int numOfColumns;
+        private final @NotNull MessageDigest digest;
+        private final @NotNull ByteBuffer buffer;
+
+        /**
+         * Constructs a hasher for a matrix of the given shape.
+         *
+         * @param i_NumOfRows    the number of rows
+         * @param i_NumOfColumns the number of columns
+         */
+        Hasher(int i_NumOfRows, int i_NumOfColumns) {
+            this.numOfRows = i_NumOfRows;
+            this.numOfColumns = i_NumOfColumns;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform has SHA-256
+                throw new IllegalStateException(e);
+            }
+            this.buffer = ByteBuffer.allocate(BUFFER_CELLS * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            // the shape is hashed first, so matrices of different shapes with the same cells differ
+            buffer.putInt(i_NumOfRows).putInt(i_NumOfColumns);
+            digest.update(buffer.array(), 0, buffer.position());
+        }
+
+        /**
+         * Adds the next cells, the ones that follow the cells added so far.
+         *
+         * @param i_Cells the array that holds the cells
+         * @param i_From  the position of the first cell to add
+         * @param i_To    the position after the last cell to add
+         */
+        void update(@NotNull int[] i_Cells, int i_From, int i_To) {
+            for (int position = i_From; position < i_To; position += BUFFER_CELLS) {
+                int count = Math.min(BUFFER_CELLS, i_To - position);
+                buffer.clear();
+                buffer.asIntBuffer().put(i_Cells, position, count);
+                digest.update(buffer.array(), 0, count * Integer.BYTES);
+            }
+        }
+
+        /**
+         * Gets the fingerprint of the cells added so far.
+         *
+         * @return the fingerprint
+         */
+        @NotNull Fingerprint finish() {
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+            return new Fingerprint(numOfRows, numOfColumns, hash.getLong(), hash.getLong());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The lowest weights from a few landmark cells of a weighted matrix to every cell,
+ * which give the A* search of LightestPaths a lower bound far closer to the real
+ * weight than the Chebyshev distance (the ALT technique: A*, landmarks and the
+ * triangle inequality). They are computed once for a registered matrix and then
+ * used by every query on it.
+ * <p>
+ * A path may be walked both ways, so the lowest weight of a path between two cells,
+ * both ends included, is the same from either end. For a landmark L, the weight still
+ * to go from a cell v to the destination t is then at least W(L,t) - W(L,v), and at
+ * least (W(L,v) - w(v)) - (W(L,t) - w(t)), where W is the lowest path weight and w
+ * the value of a cell. Both bounds, like the Chebyshev bound, never drop by more
+ * than a step costs, so their maximum keeps the A* order consistent.
+ * <p>
+ * The landmarks are spread by the farthest-point rule: every next landmark is the
+ * reachable cell whose lowest weight from the nearest landmark so far is the highest.
+ * The weights are kept as ints, interleaved per cell, so the bound of a cell reads one
+ * cache line. The landmarks never change once computed, so any number of searches may read them.
+ */
+public final class Landmarks {
+    public static final int DEFAULT_NUM_OF_LANDMARKS = 8;
+    public static final int MAX_NUM_OF_LANDMARKS = 16;
+    // the weight of a cell a landmark can not reach
+    private static final int UNREACHABLE = -1;
+
+    private final @NotNull Fingerprint fingerprint;
+    private final @NotNull int[] landmarkCells;
+    // the lowest weight from every landmark to every cell, landmark by landmark within a cell
+    private final @NotNull int[] weights;
+    private final long preprocessingNanos;
+
+    private Landmarks(@NotNull Fingerprint i_Fingerprint, @NotNull int[] i_LandmarkCells, @NotNull int[] i_Weights,
+                      long i_PreprocessingNanos) {
+        this.fingerprint = i_Fingerprint;
+        this.landmarkCells = i_LandmarkCells;
+        this.weights = i_Weights;
+        this.preprocessingNanos = i_PreprocessingNanos;
+    }
+
+    /**
+     * Chooses landmarks of a weighted matrix and computes the lowest weights from them,
+     * which takes one full lowest weight search for every landmark, and one more to find the first.
+     *
+     * @param i_Traversable    the matrix and the values a path may step on
+     * @param i_NumOfLandmarks the number of landmarks, at most MAX_NUM_OF_LANDMARKS
+     * @return the landmarks of the matrix
+     * @throws IllegalArgumentException if the number of landmarks is out of range
+     * @throws IllegalStateException    if the weights or the tables do not fit into ints
+     */
+    public static @NotNull Landmarks select(@NotNull TraversableMatrix i_Traversable, int i_NumOfLandmarks) {
+        if (i_NumOfLandmarks < 1 || i_NumOfLandmarks > MAX_NUM_OF_LANDMARKS) {
+            throw new IllegalArgumentException("the number of landmarks must be between 1 and " + MAX_NUM_OF_LANDMARKS);
+        }
+        long start = System.nanoTime();
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        int numOfCells = matrix.getNumOfCells();
+        if ((long) numOfCells * i_NumOfLandmarks > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("the matrix is too large for " + i_NumOfLandmarks + " landmarks");
+        }
+
+        int first = firstCorrectCell(i_Traversable);
+        if (first < 0) {
+            return new Landmarks(matrix.getFingerprint(), new int[0], new int[0], System.nanoTime() - start);
+        }
+        LightestPaths engine = LightestPaths.getInstance();
+        long[] fromLandmark = new long[numOfCells];
+        // the lowest weight from the nearest landmark so far, or UNREACHABLE
+        long[] fromNearest = new long[numOfCells];
+        Arrays.fill(fromNearest, UNREACHABLE);
+        engine.findLowestWeights(i_Traversable, first, fromLandmark);
+        int candidate = farthestCell(fromLandmark);
+
+        int[] landmarkCells = new int[i_NumOfLandmarks];
+        int[] weights = new int[numOfCells * i_NumOfLandmarks];
+        for (int landmark = 0; landmark < i_NumOfLandmarks; landmark++) {
+            landmarkCells[landmark] = candidate;
+            engine.findLowestWeights(i_Traversable, candidate, fromLandmark);
+            for (int cell = 0; cell < numOfCells; cell++) {
+                long weight = fromLandmark[cell];
+                if (weight > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("the weights of the matrix are too large for landmarks");
+                }
+                weights[cell * i_NumOfLandmarks + landmark] = (int) weight;
+                if (weight >= 0 && (fromNearest[cell] < 0 || weight < fromNearest[cell])) {
+                    fromNearest[cell] = weight;
+                }
+            }
+            candidate = farthestCell(fromNearest);
+        }
+        return new Landmarks(matrix.getFingerprint(), landmarkCells, weights, System.nanoTime() - start);
+    }
+
+    /**
+     * Checks if the landmarks were computed for a matrix with the content of the given one.
+     *
+     * @param i_Matrix the matrix
+     * @return true if the landmarks belong to the matrix
+     */
+    public boolean isFor(@NotNull Matrix i_Matrix) {
+        return fingerprint.equals(i_Matrix.getFingerprint());
+    }
+
+    /**
+     * Gets the number of landmarks.
+     *
+     * @return the number of landmarks
+     */
+    public int getNumOfLandmarks() {
+        return landmarkCells.length;
+    }
+
+    /**
+     * Gets the memory the landmark weights take.
+     *
+     * @return the number of bytes
+     */
+    public long getNumOfBytes() {
+        return (long) Integer.BYTES * (weights.length + landmarkCells.length);
+    }
+
+    /**
+     * Gets the counters of the landmarks.
+     *
+     * @return the counters by name, in a fixed order
+     */
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("landmarks.count", (long) landmarkCells.length);
+        stats.put("landmarks.bytes", getNumOfBytes());
+        stats.put("landmarks.preprocessingMillis", preprocessingNanos / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * Prepares the lower bounds of the weight to one destination.
+     *
+     * @param i_Destination      the id of the destination cell
+     * @param i_DestinationValue the value of the destination cell
+     * @return the lower bounds
+     */
+    @NotNull Target towards(int i_Destination, int i_DestinationValue) {
+        int numOfLandmarks = landmarkCells.length;
+        return new Target(Arrays.copyOfRange(weights, i_Destination * numOfLandmarks, (i_Destination + 1) * numOfLandmarks),
+                i_DestinationValue);
+    }
+
+    /**
+     * Finds the first cell a path may step on, looking from the middle of the matrix.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @return the id of the cell, or -1 if there is none
+     */
+    private static int firstCorrectCell(@NotNull TraversableMatrix i_Traversable) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        int numOfCells = matrix.getNumOfCells();
+        int middle = matrix.getCellId(matrix.getNumOfRows() / 2, matrix.getNumOfColumns() / 2);
+        for (int i = 0; i < numOfCells; i++) {
+            int cell = (middle + i) % numOfCells;
+            if (i_Traversable.correctData(matrix.getValue(cell))) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the cell with the highest weight.
+     *
+     * @param i_Weights the weight of every cell, negative if it was not reached
+     * @return the id of the cell
+     */
+    private static int farthestCell(@NotNull long[] i_Weights) {
+        int farthest = 0;
+        for (int cell = 1; cell < i_Weights.length; cell++) {
+            if (i_Weights[cell] > i_Weights[farthest]) {
+                farthest = cell;
+            }
+        }
+        return farthest;
+    }
+
+    /**
+     * The lower bounds of the weight still to go to one destination.
+     */
+    final class Target {
+        private final @NotNull int[] destinationWeights;
+        private final int destinationValue;
+
+        private Target(@NotNull int[] i_DestinationWeights, int i_DestinationValue) {
+            this.destinationWeights = i_DestinationWeights;
+            this.destinationValue = i_DestinationValue;
+        }
+
+        /**
+         * Gets a lower bound of the weight of a path from a cell to the destination,
+         * without the cell itself and with the destination.
+         *
+         * @param i_Cell      the id of the cell
+         * @param i_CellValue the value of the cell
+         * @return the lower bound, 0 if no landmark reaches both cells
+         */
+        long lowerBound(int i_Cell, int i_CellValue) {
+            int numOfLandmarks = destinationWeights.length;
+            int offset = i_Cell * numOfLandmarks;
+            long bound = 0;
+            for (int landmark = 0; landmark < numOfLandmarks; landmark++) {
+                long toDestination = destinationWeights[landmark];
+                long toCell = weights[offset + landmark];
+                if (toDestination < 0 || toCell < 0) {
+                    continue;
+                }
+                bound = Math.max(bound, toDestination - toCell);
+                bound = Math.max(bound, (toCell - i_CellValue) - (toDestination - destinationValue));
+            }
+            return bound;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the lowest weight paths between two cells of a weighted matrix.
+ * The weight of a path is the sum of the values of all its cells, both ends included,
+ * and a path may only step on cells whose value is correct data of the matrix.
+ * <p>
+ * Dijkstra's algorithm runs over the cell ids with an indexed binary heap, so a
+ * query costs O(cells log cells) instead of copying every path the way the old
+ * path queue did. Every cell keeps the lowest weight of a path to it in a long
+ * (a sum of many ints does not fit an int), and the directions of all its
+ * neighbours through which a path of that weight arrives. The search stops once no
+ * cell left in the heap is lighter than the destination, so every tie is recorded.
+ * <p>
+ * In the A* mode the heap is ordered by the weight of a cell plus a lower bound of
+ * the weight still to go: every step costs at least the lowest non-negative value
+ * of the matrix, and at least the Chebyshev distance to the destination steps are
+ * left, because a step may go diagonally. The bound never decreases by more than a
+ * step costs, so a cell still leaves the heap with its lowest weight, and every cell
+ * of a lowest weight path leaves it before the search stops: the paths are exactly
+ * those of Dijkstra's algorithm, found while expanding fewer cells away from the
+ * destination. A matrix with cells of weight 0 gives no bound and is searched as before.
+ * Landmarks prepared for the matrix give a closer bound, which is used as well.
+ * <p>
+ * The lowest weight paths are then listed by walking back from the destination
+ * along the recorded directions. Cells of weight 0 can tie with their neighbours
+ * and make those directions circular, so the walk never steps on a cell that is
+ * already on the path: the paths are the same simple paths the old search found.
+ * <p>
+ * The weights, heap positions and directions are kept in the longs, the values and the
+ * scratch of the SearchContext of the calling thread.
+ */
+public final class LightestPaths {
+    private volatile static LightestPaths instance;
+
+    // the heap position of a cell that left the heap, and the mark of a cell on the walked path
+    private static final int SETTLED = -1;
+    private static final int ON_PATH = -2;
+
+    /**
+     * How the engine orders the cells it expands.
+     */
+    public enum SearchMode {
+        /** by the weight from the source */
+        DIJKSTRA,
+        /** by the weight from the source plus a lower bound of the weight to the destination */
+        A_STAR
+    }
+
+    private volatile @NotNull SearchMode searchMode;
+    private final @NotNull LongAdder expandedCells;
+
+    private LightestPaths() {
+        this.searchMode = SearchMode.A_STAR;
+        this.expandedCells = new LongAdder();
+    }
+
+    public static @NotNull LightestPaths getInstance() {
+        if (instance == null) {
+            synchronized (LightestPaths.class) {
+                if (instance == null) {
+                    instance = new LightestPaths();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the way the searches run.
+     *
+     * @return the search mode
+     */
+    public @NotNull SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    /**
+     * Sets the way the searches run. Searches that are already running keep their mode.
+     *
+     * @param i_SearchMode the search mode
+     */
+    public void setSearchMode(@NotNull SearchMode i_SearchMode) {
+        this.searchMode = i_SearchMode;
+    }
+
+    /**
+     * Gets the number of cells whose neighbours were scanned by all searches so far.
+     *
+     * @return the number of expanded cells
+     */
+    public long getNumOfExpandedCells() {
+        return expandedCells.sum();
+    }
+
+    /**
+     * Finds all the lowest weight paths from a source cell to a destination cell.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the lowest weight paths, or an empty set if the destination can not be reached
+     */
+    public @NotNull HashSet<List<Index>> findLowestWeightPaths(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                               @NotNull Index i_Destination) {
+        return findLowestWeightPaths(i_Traversable, i_Source, i_Destination, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the lowest weight paths from a source cell to a destination cell, up to a maximum number of paths.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @param i_MaxPaths    the maximum number of paths to return
+     * @return the lowest weight paths, or an empty set if the destination can not be reached
+     */
+    public @NotNull HashSet<List<Index>> findLowestWeightPaths(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                               @NotNull Index i_Destination, int i_MaxPaths) {
+        return findLowestWeightPaths(i_Traversable, i_Source, i_Destination, i_MaxPaths, null);
+    }
+
+    /**
+     * Finds the lowest weight paths from a source cell to a destination cell, up to a maximum number of paths,
+     * guided by landmarks in the A* mode.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @param i_MaxPaths    the maximum number of paths to return
+     * @param i_Landmarks   the landmarks of the matrix, or null to search without them
+     * @return the lowest weight paths, or an empty set if the destination can not be reached
+     */
+    public @NotNull HashSet<List<Index>> findLowestWeightPaths(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                               @NotNull Index i_Destination, int i_MaxPaths,
+                                                               @Nullable Landmarks i_Landmarks) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        HashSet<List<Index>> lightestPaths = new HashSet<>();
+        if (i_MaxPaths <= 0 || !matrix.contains(i_Source.getRow(), i_Source.getColumn())
+                || !matrix.contains(i_Destination.getRow(), i_Destination.getColumn())) {
+            return lightestPaths;
+        }
+
+        int source = matrix.getCellId(i_Source);
+        int destination = matrix.getCellId(i_Destination);
+        if (source == destination) {
+            lightestPaths.add(List.of(i_Source));
+            return lightestPaths;
+        }
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            if (search(i_Traversable, source, new int[]{destination}, context, i_Landmarks) >= 0) {
+                collectPaths(matrix, source, destination, context, i_MaxPaths, lightestPaths);
+            }
+        }
+        return lightestPaths;
+    }
+
+    /**
+     * Finds the lowest weight of a path from a source cell to a destination cell.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the path
+     * @param i_Destination the last cell of the path
+     * @return the weight of a lowest weight path, or -1 if the destination can not be reached
+     */
+    public long findLowestWeight(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        if (!matrix.contains(i_Source.getRow(), i_Source.getColumn())
+                || !matrix.contains(i_Destination.getRow(), i_Destination.getColumn())) {
+            return -1;
+        }
+
+        int source = matrix.getCellId(i_Source);
+        int destination = matrix.getCellId(i_Destination);
+        if (source == destination) {
+            return matrix.getValue(source);
+        }
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            return search(i_Traversable, source, new int[]{destination}, context, null);
+        }
+    }
+
+    /**
+     * Finds the lowest weight paths from one source cell to several destination cells with a single
+     * Dijkstra search, which stops once every destination and every cell as light as one is settled.
+     *
+     * @param i_Traversable  the matrix and the values a path may step on
+     * @param i_Source       the first cell of the paths
+     * @param i_Destinations the last cells of the paths
+     * @param i_MaxPaths     the maximum number of paths to return for each destination
+     * @return the lowest weight paths to every destination, in the order of the destinations
+     */
+    public @NotNull List<HashSet<List<Index>>> findLowestWeightPathsFrom(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                                         @NotNull List<Index> i_Destinations, int i_MaxPaths) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        List<HashSet<List<Index>>> lightestPaths = new ArrayList<>(i_Destinations.size());
+        int[] destinations = new int[i_Destinations.size()];
+        int numOfDestinations = 0;
+        boolean sourceInside = matrix.contains(i_Source.getRow(), i_Source.getColumn());
+        int source = sourceInside ? matrix.getCellId(i_Source) : -1;
+        for (Index destination : i_Destinations) {
+            lightestPaths.add(new HashSet<>());
+            if (matrix.contains(destination.getRow(), destination.getColumn()) && matrix.getCellId(destination) != source) {
+                destinations[numOfDestinations++] = matrix.getCellId(destination);
+            }
+        }
+        if (i_MaxPaths <= 0 || !sourceInside) {
+            return lightestPaths;
+        }
+        Arrays.sort(destinations, 0, numOfDestinations);
+        destinations = Arrays.stream(destinations, 0, numOfDestinations).distinct().toArray();
+
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            if (destinations.length > 0) {
+                search(i_Traversable, source, destinations, context, null);
+            }
+            for (int i = 0; i < i_Destinations.size(); i++) {
+                Index destination = i_Destinations.get(i);
+                if (!matrix.contains(destination.getRow(), destination.getColumn())) {
+                    continue;
+                }
+                int cell = matrix.getCellId(destination);
+                if (cell == source) {
+                    lightestPaths.get(i).add(List.of(i_Source));
+                } else if (context.isMarked(cell)) {
+                    collectPaths(matrix, source, cell, context, i_MaxPaths, lightestPaths.get(i));
+                }
+            }
+        }
+        return lightestPaths;
+    }
+
+    /**
+     * Finds the lowest weight of a path from a source cell to every cell.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the id of the source cell
+     * @param i_Weights     gets the weight of every cell, both ends included, or -1 if it can not be reached
+     */
+    void findLowestWeights(@NotNull TraversableMatrix i_Traversable, int i_Source, @NotNull long[] i_Weights) {
+        int numOfCells = i_Traversable.getInnerMatrix().getNumOfCells();
+        try (SearchContext context = SearchContext.acquire(numOfCells)) {
+            search(i_Traversable, i_Source, new int[0], context, null);
+            long[] weights = context.getLongs();
+            for (int cell = 0; cell < numOfCells; cell++) {
+                i_Weights[cell] = context.isMarked(cell) ? weights[cell] : -1;
+            }
+        }
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source until every destination is settled and no cell left in
+     * the heap can be on a path as light as the one to the last of them; a single destination is searched
+     * with A* in the A* mode. The context then holds the weight of every reached destination and settled
+     * cell in its longs, and the directions of the neighbours a lowest weight path arrives from in its scratch.
+     *
+     * @param i_Traversable  the matrix and the values a path may step on
+     * @param i_Source       the id of the source cell
+     * @param i_Destinations the ids of the destination cells, sorted and distinct and without the source,
+     *                       or none to reach every cell
+     * @param i_Context      the context of the search
+     * @param i_Landmarks    the landmarks of the matrix, or null to search without them
+     * @return the weight of the lowest weight paths to the heaviest destination, or -1 if a destination can not be reached
+     */
+    private long search(@NotNull TraversableMatrix i_Traversable, int i_Source, @NotNull int[] i_Destinations,
+                        @NotNull SearchContext i_Context, @Nullable Landmarks i_Landmarks) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        int columns = matrix.getNumOfColumns();
+        long[] weights = i_Context.getLongs();
+        int[] predecessors = i_Context.getScratch(matrix.getNumOfCells());
+        CellHeap heap = new CellHeap(i_Context);
+        long lowestWeight = -1;
+        long expanded = 0;
+        int numOfPending = i_Destinations.length;
+        boolean goalDirected = searchMode == SearchMode.A_STAR && i_Destinations.length == 1;
+        int destination = goalDirected ? i_Destinations[0] : 0;
+        // the least weight of a step, which turns the Chebyshev distance into a lower bound
+        long stepWeight = goalDirected ? matrix.getLowestNonNegativeValue() : 0;
+        Landmarks.Target target = goalDirected && i_Landmarks != null && i_Landmarks.isFor(matrix)
+                ? i_Landmarks.towards(destination, matrix.getValue(destination)) : null;
+        int destinationRow = destination / columns;
+        int destinationColumn = destination - destinationRow * columns;
+
+        // a source that is not correct data has no steps, so only a path of one cell could start on it
+        if (!i_Traversable.correctData(matrix.getValue(i_Source))) {
+            return -1;
+        }
+        weights[i_Source] = matrix.getValue(i_Source);
+        predecessors[i_Source] = 0;
+        heap.push(i_Source, weights[i_Source] + lowerBound(i_Source, matrix.getValue(i_Source), columns, stepWeight,
+                destinationRow, destinationColumn, target));
+        while (!heap.isEmpty()) {
+            if (lowestWeight >= 0 && heap.peekKey() > lowestWeight) {
+                break;
+            }
+            int cell = heap.pop();
+            if (numOfPending > 0 && Arrays.binarySearch(i_Destinations, cell) >= 0 && --numOfPending == 0) {
+                // keep settling the cells as light as the last destination: they may be tied predecessors of it
+                lowestWeight = weights[cell];
+                if (i_Destinations.length == 1) {
+                    // the paths end here, while through a cell of weight 0 one destination may lead to another
+                    continue;
+                }
+            }
+
+            expanded++;
+            int row = cell / columns;
+            int column = cell - row * columns;
+            for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+                int neighbor = matrix.getNeighbor(cell, row, column, direction);
+                if (neighbor < 0 || !i_Traversable.correctData(matrix.getValue(neighbor))) {
+                    continue;
+                }
+                long weight = weights[cell] + matrix.getValue(neighbor);
+                int back = 1 << Matrix.getOppositeDirection(direction);
+                boolean reached = i_Context.isMarked(neighbor);
+                if (reached && weight > weights[neighbor]) {
+                    continue;
+                }
+                if (reached && weight == weights[neighbor]) {
+                    predecessors[neighbor] |= back;
+                    continue;
+                }
+                long bound = lowerBound(neighbor, matrix.getValue(neighbor), columns, stepWeight,
+                        destinationRow, destinationColumn, target);
+                weights[neighbor] = weight;
+                predecessors[neighbor] = back;
+                if (!reached) {
+                    heap.push(neighbor, weight + bound);
+                } else {
+                    // the bound keeps the order consistent, so a cell that gets lighter is still in the heap
+                    heap.decrease(neighbor, weight + bound);
+                }
+            }
+        }
+        expandedCells.add(expanded);
+        return lowestWeight;
+    }
+
+    /**
+     * Gets a lower bound of the weight of a path from a cell to the destination, without the cell itself.
+     *
+     * @param i_Cell              the id of the cell
+     * @param i_CellValue         the value of the cell
+     * @param i_Columns           the number of columns of the matrix
+     * @param i_StepWeight        the least weight of a step, 0 if the Chebyshev distance gives no bound
+     * @param i_DestinationRow    the row of the destination
+     * @param i_DestinationColumn the column of the destination
+     * @param i_Target            the landmark bounds towards the destination, or null if there are none
+     * @return the lower bound
+     */
+    private static long lowerBound(int i_Cell, int i_CellValue, int i_Columns, long i_StepWeight, int i_DestinationRow,
+                                   int i_DestinationColumn, @Nullable Landmarks.Target i_Target) {
+        long bound = 0;
+        if (i_StepWeight > 0) {
+            int row = i_Cell / i_Columns;
+            bound = i_StepWeight * chebyshevDistance(row, i_Cell - row * i_Columns, i_DestinationRow, i_DestinationColumn);
+        }
+        if (i_Target != null) {
+            bound = Math.max(bound, i_Target.lowerBound(i_Cell, i_CellValue));
+        }
+        return bound;
+    }
+
+    /**
+     * Gets the number of steps between two cells when a step may also go diagonally.
+     *
+     * @param i_Row          the row of the first cell
+     * @param i_Column       the column of the first cell
+     * @param i_OtherRow     the row of the second cell
+     * @param i_OtherColumn  the column of the second cell
+     * @return the Chebyshev distance
+     */
+    private static int chebyshevDistance(int i_Row, int i_Column, int i_OtherRow, int i_OtherColumn) {
+        return Math.max(Math.abs(i_Row - i_OtherRow), Math.abs(i_Column - i_OtherColumn));
+    }
+
+    /**
+     * Lists the lowest weight paths: every simple walk back from the destination to the source
+     * along the recorded directions. The walk keeps its cells marked in the context values.
+     *
+     * @param i_Matrix      the matrix
+     * @param i_Source      the id of the source cell
+     * @param i_Destination the id of the destination cell, which is not the source
+     * @param i_Context     the context of the search
+     * @param i_MaxPaths    the maximum number of paths to list
+     * @param i_Paths       the set to add the paths to
+     */
+    private void collectPaths(@NotNull Matrix i_Matrix, int i_Source, int i_Destination, @NotNull SearchContext i_Context,
+                              int i_MaxPaths, @NotNull HashSet<List<Index>> i_Paths) {
+        int columns = i_Matrix.getNumOfColumns();
+        int[] predecessors = i_Context.getScratch(i_Matrix.getNumOfCells());
+        // the walked cells from the destination back, and the directions each of them has left to try
+        int[] path = new int[16];
+        int[] pending = new int[16];
+        int top = 0;
+        path[0] = i_Destination;
+        pending[0] = predecessors[i_Destination];
+        i_Context.setValue(i_Destination, ON_PATH);
+
+        while (top >= 0) {
+            int cell = path[top];
+            int mask = pending[top];
+            if (mask == 0) {
+                i_Context.setValue(cell, SETTLED);
+                top--;
+                continue;
+            }
+            pending[top] = mask & (mask - 1);
+            int row = cell / columns;
+            int predecessor = i_Matrix.getNeighbor(cell, row, cell - row * columns, Integer.numberOfTrailingZeros(mask));
+            if (i_Context.getValue(predecessor, SETTLED) == ON_PATH) {
+                continue;
+            }
+            if (predecessor == i_Source) {
+                List<Index> lightestPath = new ArrayList<>(top + 2);
+                lightestPath.add(i_Matrix.getIndex(i_Source));
+                for (int step = top; step >= 0; step--) {
+                    lightestPath.add(i_Matrix.getIndex(path[step]));
+                }
+                i_Paths.add(lightestPath);
+                if (i_Paths.size() >= i_MaxPaths) {
+                    // leave no cell marked, another destination of the same search may be walked next
+                    for (int step = top; step >= 0; step--) {
+                        i_Context.setValue(path[step], SETTLED);
+                    }
+                    return;
+                }
+                continue;
+            }
+
+            top++;
+            if (top == path.length) {
+                path = Arrays.copyOf(path, 2 * top);
+                pending = Arrays.copyOf(pending, 2 * top);
+            }
+            path[top] = predecessor;
+            pending[top] = predecessors[predecessor];
+            i_Context.setValue(predecessor, ON_PATH);
+        }
+    }
+
+    /**
+     * An indexed binary min-heap of cell ids. The position of every cell in the heap is kept
+     * in the context values, so the key of a cell can be decreased in O(log cells).
+     */
+    private static class CellHeap {
+        private final @NotNull SearchContext context;
+        private @NotNull int[] cells;
+        private @NotNull long[] keys;
+        private int size;
+
+        CellHeap(@NotNull SearchContext i_Context) {
+            this.context = i_Context;
+            this.cells = new int[64];
+            this.keys = new long[64];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peekKey() {
+            return keys[0];
+        }
+
+        /**
+         * Adds a cell that was not in the heap, and marks it in the context.
+         *
+         * @param i_Cell the id of the cell
+         * @param i_Key  its key
+         */
+        void push(int i_Cell, long i_Key) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, 2 * size);
+                keys = Arrays.copyOf(keys, 2 * size);
+            }
+            siftUp(size++, i_Cell, i_Key);
+        }
+
+        /**
+         * Lowers the key of a cell in the heap.
+         *
+         * @param i_Cell the id of the cell
+         * @param i_Key  its new key, which is not larger than the current one
+         */
+        void decrease(int i_Cell, long i_Key) {
+            siftUp(context.getValue(i_Cell, SETTLED), i_Cell, i_Key);
+        }
+
+        /**
+         * Removes the cell with the lowest key; its heap position becomes SETTLED.
+         *
+         * @return the id of the cell
+         */
+        int pop() {
+            int top = cells[0];
+            context.setValue(top, SETTLED);
+            size--;
+            if (size > 0) {
+                siftDown(0, cells[size], keys[size]);
+            }
+            return top;
+        }
+
+        private void siftUp(int i_Position, int i_Cell, long i_Key) {
+            int position = i_Position;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[parent] <= i_Key) {
+                    break;
+                }
+                place(position, cells[parent], keys[parent]);
+                position = parent;
+            }
+            place(position, i_Cell, i_Key);
+        }
+
+        private void siftDown(int i_Position, int i_Cell, long i_Key) {
+            int position = i_Position;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= i_Key) {
+                    break;
+                }
+                place(position, cells[child], keys[child]);
+                position = child;
+            }
+            place(position, i_Cell, i_Key);
+        }
+
+        private void place(int i_Position, int i_Cell, long i_Key) {
+            cells[i_Position] = i_Cell;
+            keys[i_Position] = i_Key;
+            context.setValue(i_Cell, i_Position);
+        }
+    }
+}
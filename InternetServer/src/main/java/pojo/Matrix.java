@@ -1,32 +1,222 @@
 package pojo;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 
+/**
+ * A matrix of ints. The cells are kept in one row-major array and every cell
+ * also has a linear id (row * numOfColumns + column), which lets the
+ * algorithms work on plain ints instead of Index objects.
+ * <p>
+ * Matrices of at least OFF_HEAP_THRESHOLD cells are kept outside the Java heap
+ * (OffHeapCells), so the garbage collector neither copies nor scans them. Both kinds
+ * are read through the same methods, and the algorithms run on either without copying.
+ */
 public class Matrix implements Serializable {
     private static final @NotNull Long serialVersionUID = 1L;
-    @NotNull
-    int[][] primitiveMatrix;
+    /** The number of neighbours a cell has at most. */
+    public static final int NUM_OF_DIRECTIONS = 8;
+    // the row and column steps to every neighbour, in the order getNeighbors returns them
+    private static final int[] ROW_STEPS = {-1, -1, -1, 1, 1, 1, 0, 0};
+    private static final int[] COLUMN_STEPS = {0, -1, 1, 0, 1, -1, -1, 1};
+    // the direction that leads back, for every direction
+    private static final int[] OPPOSITE_DIRECTIONS = {3, 4, 5, 0, 1, 2, 7, 6};
+    /** Matrices with at least this many cells are kept off the heap by Matrix.of. */
+    public static final int OFF_HEAP_THRESHOLD = 1 << 24;
+
+    // the cells on the heap, or null if they are off the heap
+    @Nullable
+    int[] cells;
+    // the cells off the heap, or null if they are on the heap; a copy on the heap is serialized instead
+    private final transient @Nullable OffHeapCells offHeapCells;
     int numOfRows;
     int numOfColumns;
+    // the id difference to the neighbour in every direction
+    private transient @Nullable int[] neighborOffsets;
+    private transient volatile @Nullable Fingerprint fingerprint;
+    // the lowest value that is not negative, or -1 until it is computed
+    private transient volatile int lowestNonNegativeValue = -1;
+    // 1 if every cell is 0 or 1, 0 if not, or -1 until it is computed
+    private transient volatile int binary = -1;
+    // the labels found while the matrix was uploaded in bands, so labeling it again is free;
+    // they are as large as the cells, so a server keeps them only until it counted the submarines
+    transient volatile @Nullable ComponentLabels componentLabels;
 
     /**
      * Constructs a new instance of the Matrix class with the given 2D array.
      *
      * @param oArray the 2D array representing the matrix
+     * @throws IllegalArgumentException if the array has no rows or its rows differ in length
      */
     public Matrix(int[][] oArray){
-        List<int[]> list = new ArrayList<>();
         setNumOfRows(oArray.length);
-        setNumOfColumns(oArray[0].length);
-        for (int[] row : oArray) {
-            int[] clone = row.clone();
-            list.add(clone);
+        setNumOfColumns(numOfColumnsOf(oArray));
+        cells = new int[numOfCellsOf(numOfRows, numOfColumns)];
+        for (int row = 0; row < oArray.length; row++) {
+            System.arraycopy(oArray[row], 0, cells, row * numOfColumns, numOfColumns);
+        }
+        offHeapCells = null;
+    }
+
+    /**
+     * Constructs a matrix that takes over row-major cells, without copying them.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @param i_Cells        the cells, row by row
+     * @param i_Fingerprint  the fingerprint of the cells, or null to compute it on first use
+     */
+    Matrix(int i_NumOfRows, int i_NumOfColumns, @NotNull int[] i_Cells, @Nullable Fingerprint i_Fingerprint) {
+        setNumOfRows(i_NumOfRows);
+        setNumOfColumns(i_NumOfColumns);
+        this.cells = i_Cells;
+        this.offHeapCells = null;
+        this.fingerprint = i_Fingerprint;
+    }
+
+    /**
+     * Constructs a matrix over cells that are kept off the heap.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @param i_Cells        the cells, row by row
+     * @param i_Fingerprint  the fingerprint of the cells, or null to compute it on first use
+     */
+    Matrix(int i_NumOfRows, int i_NumOfColumns, @NotNull OffHeapCells i_Cells, @Nullable Fingerprint i_Fingerprint) {
+        setNumOfRows(i_NumOfRows);
+        setNumOfColumns(i_NumOfColumns);
+        this.cells = null;
+        this.offHeapCells = i_Cells;
+        this.fingerprint = i_Fingerprint;
+    }
+
+    /**
+     * Creates a matrix of the given shape whose cells are all 0, to be filled with setRow
+     * before it is shared. It is kept off the heap if it has at least OFF_HEAP_THRESHOLD cells.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @return the new matrix
+     */
+    static @NotNull Matrix allocate(int i_NumOfRows, int i_NumOfColumns) {
+        int numOfCells = numOfCellsOf(i_NumOfRows, i_NumOfColumns);
+        if (numOfCells >= OFF_HEAP_THRESHOLD) {
+            return new Matrix(i_NumOfRows, i_NumOfColumns, OffHeapCells.allocate(numOfCells), null);
+        }
+        return new Matrix(i_NumOfRows, i_NumOfColumns, new int[numOfCells], null);
+    }
+
+    /**
+     * Gets a matrix over the same cells that knows their fingerprint already.
+     *
+     * @param i_Fingerprint the fingerprint of the cells
+     * @return the new matrix
+     */
+    @NotNull Matrix withFingerprint(@NotNull Fingerprint i_Fingerprint) {
+        if (cells != null) {
+            return new Matrix(numOfRows, numOfColumns, cells, i_Fingerprint);
+        }
+        return new Matrix(numOfRows, numOfColumns, offHeapCells, i_Fingerprint);
+    }
+
+    /**
+     * Creates a matrix from a 2D array, kept off the heap if it has at least OFF_HEAP_THRESHOLD cells.
+     *
+     * @param i_Rows the 2D array representing the matrix
+     * @return the new matrix
+     * @throws IllegalArgumentException if the array has no rows or its rows differ in length
+     */
+    public static @NotNull Matrix of(@NotNull int[][] i_Rows) {
+        if ((long) i_Rows.length * numOfColumnsOf(i_Rows) >= OFF_HEAP_THRESHOLD) {
+            return offHeap(i_Rows);
+        }
+        return new Matrix(i_Rows);
+    }
+
+    /**
+     * Creates a matrix from a 2D array whose cells are kept off the heap.
+     * The rows are copied straight into the off-heap cells.
+     *
+     * @param i_Rows the 2D array representing the matrix
+     * @return the new matrix
+     * @throws IllegalArgumentException if the array has no rows or its rows differ in length
+     */
+    public static @NotNull Matrix offHeap(@NotNull int[][] i_Rows) {
+        int columns = numOfColumnsOf(i_Rows);
+        OffHeapCells cells = OffHeapCells.allocate(numOfCellsOf(i_Rows.length, columns));
+        for (int row = 0; row < i_Rows.length; row++) {
+            cells.copyFrom(i_Rows[row], 0, row * columns, columns);
+        }
+        return new Matrix(i_Rows.length, columns, cells, null);
+    }
+
+    /**
+     * Gets the number of columns of a 2D array, checking that it is a rectangle.
+     *
+     * @param i_Rows the 2D array
+     * @return the length of its rows
+     * @throws IllegalArgumentException if the array has no rows, or a row is missing or differs in length from the first
+     */
+    private static int numOfColumnsOf(@NotNull int[][] i_Rows) {
+        if (i_Rows.length == 0 || i_Rows[0] == null) {
+            throw new IllegalArgumentException("a matrix needs at least one row");
+        }
+        int columns = i_Rows[0].length;
+        for (int row = 1; row < i_Rows.length; row++) {
+            if (i_Rows[row] == null || i_Rows[row].length != columns) {
+                throw new IllegalArgumentException("row " + row + " has " + (i_Rows[row] == null ? "no" : i_Rows[row].length)
+                        + " cells, but row 0 has " + columns);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Gets the number of cells of a matrix of the given shape.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @return the number of cells
+     * @throws IllegalArgumentException if the cells do not fit into an array
+     */
+    private static int numOfCellsOf(int i_NumOfRows, int i_NumOfColumns) {
+        long numOfCells = (long) i_NumOfRows * i_NumOfColumns;
+        if (numOfCells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("a " + i_NumOfRows + "x" + i_NumOfColumns + " matrix has too many cells");
         }
-        primitiveMatrix = list.toArray(new int[0][]);
+        return (int) numOfCells;
+    }
+
+    /**
+     * Checks if the cells are kept off the heap.
+     *
+     * @return true if the cells are off the heap, false if they are in an array
+     */
+    public boolean isOffHeap() {
+        return offHeapCells != null;
+    }
+
+    /**
+     * Checks if the cells are a read-only mapping of a matrix file (see MatrixFile).
+     *
+     * @return true if the cells map a file, false otherwise
+     */
+    public boolean isMapped() {
+        return offHeapCells != null && offHeapCells.isMapped();
+    }
+
+    /**
+     * Gets the memory the cells take, on or off the heap.
+     *
+     * @return the number of bytes
+     */
+    public long getNumOfBytes() {
+        return (long) Integer.BYTES * getNumOfCells();
     }
 
     /**
@@ -47,6 +237,15 @@ public class Matrix implements Serializable {
         return numOfColumns;
     }
 
+    /**
+     * Gets the number of cells in the matrix, which is also the first id that is not a cell.
+     *
+     * @return the number of cells
+     */
+    public int getNumOfCells() {
+        return cells != null ? cells.length : offHeapCells.size();
+    }
+
     /**
      * Sets the number of rows in the matrix.
      *
@@ -60,6 +259,9 @@ public class Matrix implements Serializable {
         else{
             this.numOfRows = 1;
         }
+        fingerprint = null;
+        componentLabels = null;
+        binary = -1;
 
     }
 
@@ -71,23 +273,69 @@ public class Matrix implements Serializable {
     public void setNumOfColumns(int i_NumOfColumns) {
         if(i_NumOfColumns > 0)
         {
-            this.numOfColumns = numOfRows;
+            this.numOfColumns = i_NumOfColumns;
         }
         else{
             this.numOfColumns = 1;
         }
+        neighborOffsets = null;
+        fingerprint = null;
+        componentLabels = null;
+        binary = -1;
     }
 
     @Override
     public @NotNull String toString(){
         StringBuilder stringBuilder = new StringBuilder();
-        for (int[] row : primitiveMatrix) {
-            stringBuilder.append(Arrays.toString(row));
+        for (int row = 0; row < numOfRows; row++) {
+            stringBuilder.append(rowToString(row));
             stringBuilder.append("\n");
         }
         return stringBuilder.toString();
     }
 
+    /**
+     * Checks if the given row and column are inside the matrix.
+     *
+     * @param i_Row    the row
+     * @param i_Column the column
+     * @return true if the cell exists, false otherwise
+     */
+    public boolean contains(int i_Row, int i_Column) {
+        return i_Row >= 0 && i_Row < numOfRows && i_Column >= 0 && i_Column < numOfColumns;
+    }
+
+    /**
+     * Gets the id of a cell.
+     *
+     * @param i_Row    the row of the cell
+     * @param i_Column the column of the cell
+     * @return the linear id of the cell
+     */
+    public int getCellId(int i_Row, int i_Column) {
+        return i_Row * numOfColumns + i_Column;
+    }
+
+    /**
+     * Gets the id of the cell at an index.
+     *
+     * @param i_Index the index in the matrix
+     * @return the linear id of the cell
+     */
+    public int getCellId(@NotNull Index i_Index) {
+        return i_Index.row * numOfColumns + i_Index.column;
+    }
+
+    /**
+     * Gets the index of a cell id.
+     *
+     * @param i_CellId the linear id of the cell
+     * @return a new index of the cell
+     */
+    public @NotNull Index getIndex(int i_CellId) {
+        return new Index(i_CellId / numOfColumns, i_CellId % numOfColumns);
+    }
+
     /**
      * Gets the neighbors of the given index in the matrix.
      *
@@ -95,24 +343,63 @@ public class Matrix implements Serializable {
      * @return a collection of neighbor indices
      */
     public @NotNull Collection<Index> getNeighbors(Index i_Index) {
-        Collection<Index> list = new ArrayList<>();
+        Collection<Index> list = new ArrayList<>(NUM_OF_DIRECTIONS);
+        forEachNeighbor(getCellId(i_Index), neighbor -> list.add(getIndex(neighbor)));
+        return list;
+    }
 
-        if(i_Index.row > 0){
-            list.add(new Index(i_Index.row-1,i_Index.column));
-            if(i_Index.column > 0){list.add(new Index(i_Index.row-1,i_Index.column-1));}
-            if(i_Index.column + 1 < numOfColumns) {list.add(new Index(i_Index.row-1 ,i_Index.column+1));}
+    /**
+     * Calls a visitor with the id of every neighbor of a cell, horizontally,
+     * vertically and diagonally. Nothing is allocated.
+     *
+     * @param i_CellId  the id of the cell
+     * @param i_Visitor the visitor to call with every neighbor id
+     */
+    public void forEachNeighbor(int i_CellId, @NotNull IntConsumer i_Visitor) {
+        int row = i_CellId / numOfColumns;
+        int column = i_CellId - row * numOfColumns;
+        for (int direction = 0; direction < NUM_OF_DIRECTIONS; direction++) {
+            int neighbor = getNeighbor(i_CellId, row, column, direction);
+            if (neighbor >= 0) {
+                i_Visitor.accept(neighbor);
+            }
         }
+    }
 
-        if(i_Index.row + 1 < numOfRows) {
-            list.add(new Index(i_Index.row+1,i_Index.column));
-            if(i_Index.column + 1 < numOfColumns) {list.add(new Index(i_Index.row+1 ,i_Index.column+1));}
-            if(i_Index.column > 0) {list.add(new Index(i_Index.row+1 ,i_Index.column-1));}
+    /**
+     * Gets the neighbor of a cell in one direction.
+     *
+     * @param i_CellId    the id of the cell
+     * @param i_Row       the row of the cell
+     * @param i_Column    the column of the cell
+     * @param i_Direction the direction, from 0 to NUM_OF_DIRECTIONS - 1
+     * @return the id of the neighbor, or -1 if it is outside the matrix
+     */
+    public int getNeighbor(int i_CellId, int i_Row, int i_Column, int i_Direction) {
+        int[] offsets = neighborOffsets;
+        if (offsets == null) {
+            offsets = new int[NUM_OF_DIRECTIONS];
+            for (int direction = 0; direction < NUM_OF_DIRECTIONS; direction++) {
+                offsets[direction] = ROW_STEPS[direction] * numOfColumns + COLUMN_STEPS[direction];
+            }
+            neighborOffsets = offsets;
         }
+        int row = i_Row + ROW_STEPS[i_Direction];
+        int column = i_Column + COLUMN_STEPS[i_Direction];
+        if (row < 0 || row >= numOfRows || column < 0 || column >= numOfColumns) {
+            return -1;
+        }
+        return i_CellId + offsets[i_Direction];
+    }
 
-        if(i_Index.column > 0) {list.add(new Index(i_Index.row,i_Index.column-1));}
-        if(i_Index.column + 1 < numOfColumns) {list.add(new Index(i_Index.row,i_Index.column+1));}
-
-        return list;
+    /**
+     * Gets the direction that leads back to a cell from its neighbor in the given direction.
+     *
+     * @param i_Direction the direction, from 0 to NUM_OF_DIRECTIONS - 1
+     * @return the opposite direction
+     */
+    public static int getOppositeDirection(int i_Direction) {
+        return OPPOSITE_DIRECTIONS[i_Direction];
     }
 
     /**
@@ -122,26 +409,163 @@ public class Matrix implements Serializable {
      * @return the value at the specified index
      */
     public int getValue(final Index i_Index){
-        return primitiveMatrix[i_Index.row][i_Index.column];
+        return getValue(i_Index.row * numOfColumns + i_Index.column);
+    }
+
+    /**
+     * Gets the value of a cell.
+     *
+     * @param i_CellId the id of the cell
+     * @return the value of the cell
+     */
+    public int getValue(int i_CellId) {
+        return cells != null ? cells[i_CellId] : offHeapCells.get(i_CellId);
+    }
+
+    /**
+     * Copies the values of a row into an array.
+     *
+     * @param i_Row         the row
+     * @param i_Destination the array, with room for a row from position 0
+     */
+    public void getRow(int i_Row, @NotNull int[] i_Destination) {
+        if (cells != null) {
+            System.arraycopy(cells, i_Row * numOfColumns, i_Destination, 0, numOfColumns);
+        } else {
+            offHeapCells.copyTo(i_Row * numOfColumns, i_Destination, 0, numOfColumns);
+        }
+    }
+
+    /**
+     * Sets the values of a row, while a new matrix is filled and before it is shared.
+     *
+     * @param i_Row    the row
+     * @param i_Values the values, a row from position 0
+     */
+    void setRow(int i_Row, @NotNull int[] i_Values) {
+        if (cells != null) {
+            System.arraycopy(i_Values, 0, cells, i_Row * numOfColumns, numOfColumns);
+        } else {
+            offHeapCells.copyFrom(i_Values, 0, i_Row * numOfColumns, numOfColumns);
+        }
+    }
+
+    /**
+     * Gets the fingerprint of the content of the matrix. It is computed on the first call.
+     *
+     * @return the fingerprint
+     */
+    public @NotNull Fingerprint getFingerprint() {
+        Fingerprint current = fingerprint;
+        if (current == null) {
+            if (cells != null) {
+                current = Fingerprint.of(numOfRows, numOfColumns, cells);
+            } else {
+                Fingerprint.Hasher hasher = new Fingerprint.Hasher(numOfRows, numOfColumns);
+                int[] row = new int[numOfColumns];
+                for (int i = 0; i < numOfRows; i++) {
+                    getRow(i, row);
+                    hasher.update(row, 0, numOfColumns);
+                }
+                current = hasher.finish();
+            }
+            fingerprint = current;
+        }
+        return current;
+    }
+
+    /**
+     * Gets the lowest value of the cells that are not negative. It is computed on the first call.
+     *
+     * @return the lowest non-negative value, or 0 if every cell is negative
+     */
+    public int getLowestNonNegativeValue() {
+        int current = lowestNonNegativeValue;
+        if (current < 0) {
+            current = Integer.MAX_VALUE;
+            int[] row = new int[numOfColumns];
+            for (int i = 0; i < numOfRows; i++) {
+                getRow(i, row);
+                for (int cell : row) {
+                    if (cell >= 0 && cell < current) {
+                        current = cell;
+                    }
+                }
+            }
+            if (current == Integer.MAX_VALUE) {
+                current = 0;
+            }
+            lowestNonNegativeValue = current;
+        }
+        return current;
+    }
+
+    /**
+     * Checks if every cell is 0 or 1. It is computed on the first call.
+     *
+     * @return true if no cell holds another value
+     */
+    public boolean holdsOnlyZerosAndOnes() {
+        int current = binary;
+        if (current < 0) {
+            current = 1;
+            int[] row = new int[numOfColumns];
+            for (int i = 0; i < numOfRows && current == 1; i++) {
+                getRow(i, row);
+                for (int cell : row) {
+                    if (cell != 0 && cell != 1) {
+                        current = 0;
+                        break;
+                    }
+                }
+            }
+            binary = current;
+        }
+        return current == 1;
     }
 
     /**
      * Prints the matrix to the console.
      */
     public void printMatrix(){
-        for (int[] row : primitiveMatrix) {
-            String s = Arrays.toString(row);
-            System.out.println(s);
+        for (int row = 0; row < numOfRows; row++) {
+            System.out.println(rowToString(row));
         }
     }
 
     /**
-     * Gets the primitive matrix.
+     * Formats a row the way Arrays.toString formats an int[].
+     *
+     * @param i_Row the row to format
+     * @return the values of the row
+     */
+    private @NotNull String rowToString(int i_Row) {
+        int[] row = new int[numOfColumns];
+        getRow(i_Row, row);
+        return Arrays.toString(row);
+    }
+
+    /**
+     * Gets a copy of the matrix as a 2D array.
      *
-     * @return the primitive matrix
+     * @return a new 2D array with the values of the matrix
      */
     public final int[][] getPrimitiveMatrix() {
+        int[][] primitiveMatrix = new int[numOfRows][];
+        for (int row = 0; row < numOfRows; row++) {
+            primitiveMatrix[row] = new int[numOfColumns];
+            getRow(row, primitiveMatrix[row]);
+        }
         return primitiveMatrix;
     }
 
+    /**
+     * Serializes a matrix that is off the heap as a copy on the heap.
+     *
+     * @return the matrix to serialize
+     */
+    private Object writeReplace() {
+        return offHeapCells != null ? new Matrix(getPrimitiveMatrix()) : this;
+    }
+
 }
@@ -0,0 +1,184 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The commands a client can send to a MatrixHandler, together with the
+ * arguments each command expects after its name (or opcode in the binary
+ * protocol) and whether it runs a (CPU-heavy) algorithm.
+ * <p>
+ * A batch command takes a list of (source, destination) pairs and answers each
+ * pair the way its pair command answers a single query, with one reply per pair.
+ * <p>
+ * A submarine stream counts the valid submarines of a matrix that is never held
+ * whole: it is begun with the number of columns, fed bands of rows in order, and
+ * its end is answered with the count. The rows of a stream must hold only 0 and 1 cells
+ * (see SubmarineStream); a band with another value is refused whole, with an error reply
+ * in the binary protocol, after which the stream goes on from the rows before the band.
+ * In the object protocol a refused band ends the connection.
+ * <p>
+ * A banded upload sends a matrix the same way, with cells of any value, and the server
+ * labels the bands that arrived while the later ones are still on their way.
+ * <p>
+ * Loading a matrix maps a matrix file (MatrixFile) from the data directory of the server
+ * instead of sending the matrix, and registers it like an uploaded matrix.
+ */
+public enum MatrixCommand {
+    MATRIX("matrix", 0x01, false, ArgType.MATRIX),
+    ALL_CONNECTED_COMPONENTS("all connected components", 0x02, true),
+    ALL_SHORTEST_PATHS("all shortest paths", 0x03, true, ArgType.INDEX, ArgType.INDEX),
+    SUBMARINES("submarines", 0x04, true),
+    LOWEST_WEIGHT_PATHS("find the lowest weight paths", 0x05, true, ArgType.INDEX, ArgType.INDEX),
+    SERVER_STATS("server stats", 0x06, false),
+    UPLOAD_MATRIX("upload matrix", 0x07, false, ArgType.MATRIX),
+    USE_MATRIX("use matrix", 0x08, false, ArgType.TEXT),
+    SHORTEST_PATHS("shortest paths", 0x09, true, ArgType.INDEX, ArgType.INDEX, ArgType.COUNT),
+    SHORTEST_DISTANCE("shortest distance", 0x0A, true, ArgType.INDEX, ArgType.INDEX),
+    COUNT_SHORTEST_PATHS("count shortest paths", 0x0B, true, ArgType.INDEX, ArgType.INDEX),
+    SHORTEST_PATHS_SUMMARY("shortest paths summary", 0x0C, true, ArgType.INDEX, ArgType.INDEX),
+    PREPARE_LANDMARKS("prepare landmarks", 0x0D, true, ArgType.COUNT),
+    BATCH_ALL_SHORTEST_PATHS("batch all shortest paths", 0x0E, ALL_SHORTEST_PATHS),
+    BATCH_LOWEST_WEIGHT_PATHS("batch lowest weight paths", 0x0F, LOWEST_WEIGHT_PATHS),
+    BEGIN_SUBMARINE_STREAM("begin submarine stream", 0x10, false, ArgType.COUNT),
+    // a band of rows of 0 and 1 cells only
+    SUBMARINE_ROWS("submarine rows", 0x11, false, ArgType.MATRIX),
+    END_SUBMARINE_STREAM("end submarine stream", 0x12, false),
+    BEGIN_MATRIX_UPLOAD("begin matrix upload", 0x13, false, ArgType.COUNT, ArgType.COUNT),
+    MATRIX_BAND("matrix band", 0x14, false, ArgType.MATRIX),
+    END_MATRIX_UPLOAD("end matrix upload", 0x15, false),
+    LOAD_MATRIX("load matrix", 0x16, false, ArgType.TEXT),
+    STOP("stop", 0x7F, false);
+
+    /**
+     * The types of the arguments a command can take.
+     */
+    public enum ArgType {
+        /** an int[][] */
+        MATRIX,
+        /** an Index of the current matrix */
+        INDEX,
+        /** a String, such as the handle of a registered matrix or the name of a matrix file */
+        TEXT,
+        /** an Integer, such as the maximum number of results */
+        COUNT,
+        /** an Index[][] of (source, destination) pairs of the current matrix */
+        INDEX_PAIRS
+    }
+
+    private final @NotNull String commandName;
+    private final byte opcode;
+    private final boolean computation;
+    private final @NotNull ArgType[] argTypes;
+    private final @Nullable MatrixCommand pairCommand;
+
+    MatrixCommand(@NotNull String i_CommandName, int i_Opcode, boolean i_Computation, @NotNull ArgType... i_ArgTypes) {
+        this.commandName = i_CommandName;
+        this.opcode = (byte) i_Opcode;
+        this.computation = i_Computation;
+        this.argTypes = i_ArgTypes;
+        this.pairCommand = null;
+    }
+
+    MatrixCommand(@NotNull String i_CommandName, int i_Opcode, @NotNull MatrixCommand i_PairCommand) {
+        this.commandName = i_CommandName;
+        this.opcode = (byte) i_Opcode;
+        this.computation = true;
+        this.argTypes = new ArgType[]{ArgType.INDEX_PAIRS};
+        this.pairCommand = i_PairCommand;
+    }
+
+    /**
+     * Gets the textual name of the command, as sent by clients.
+     *
+     * @return the command name
+     */
+    public @NotNull String getCommandName() {
+        return commandName;
+    }
+
+    /**
+     * Gets the number of arguments that follow the command name.
+     *
+     * @return the number of arguments
+     */
+    public int getArgCount() {
+        return argTypes.length;
+    }
+
+    /**
+     * Gets the type of the argument at the given position.
+     *
+     * @param i_Position the position of the argument
+     * @return the type of the argument
+     */
+    public @NotNull ArgType getArgType(int i_Position) {
+        return argTypes[i_Position];
+    }
+
+    /**
+     * Gets the opcode that identifies the command in the binary protocol.
+     *
+     * @return the opcode
+     */
+    public byte getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * Checks if the command runs an algorithm, as opposed to only changing the session state.
+     *
+     * @return true if the command is a computation, false otherwise
+     */
+    public boolean isComputation() {
+        return computation;
+    }
+
+    /**
+     * Checks if the command answers a list of (source, destination) pairs.
+     *
+     * @return true if the command is a batch command, false otherwise
+     */
+    public boolean isBatch() {
+        return pairCommand != null;
+    }
+
+    /**
+     * Gets the command that a batch command runs for each of its pairs.
+     *
+     * @return the command of a single pair, or null if the command is not a batch command
+     */
+    public @Nullable MatrixCommand getPairCommand() {
+        return pairCommand;
+    }
+
+    /**
+     * Finds the command with the given textual name.
+     *
+     * @param i_CommandName the name sent by the client
+     * @return the matching command, or null if there is no such command
+     */
+    public static @Nullable MatrixCommand fromName(@NotNull String i_CommandName) {
+        for (MatrixCommand command : values()) {
+            if (command.commandName.equals(i_CommandName)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the command with the given binary opcode.
+     *
+     * @param i_Opcode the opcode sent by the client
+     * @return the matching command, or null if there is no such command
+     */
+    public static @Nullable MatrixCommand fromOpcode(byte i_Opcode) {
+        for (MatrixCommand command : values()) {
+            if (command.opcode == i_Opcode) {
+                return command;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The file format of a matrix that is opened by mapping it rather than by reading it.
+ * All numbers are little-endian:
+ * <pre>
+ *   offset  0: the magic "MTRX"
+ *   offset  4: int  version (2)
+ *   offset  8: int  number of rows
+ *   offset 12: int  number of columns
+ *   offset 16: long high bits of the fingerprint
+ *   offset 24: long low bits of the fingerprint
+ *   offset 64: the cells, row by row, one int each
+ * </pre>
+ * The cells are mapped read-only and paged in by the operating system, and every process
+ * that opens the same file shares one copy of them in the page cache. The fingerprint keys
+ * the matrix registry and the result cache, so the one in the header is not trusted: opening
+ * a file hashes its cells once and refuses the file if they do not match the header.
+ * <p>
+ * A file is written to a temporary file next to it and moved into place, so a process
+ * that has the old file mapped keeps reading the old cells. Files must not be changed
+ * in place while they are mapped, since the check only covers the cells as they were opened.
+ */
+public final class MatrixFile {
+    /** The directory matrix files are opened from, unless a handler is given another one. */
+    public static final @NotNull Path DEFAULT_DIRECTORY = Path.of("matrices");
+    /** The number of bytes before the first cell. */
+    public static final int HEADER_BYTES = 64;
+    private static final int MAGIC = 'M' | 'T' << 8 | 'R' << 16 | 'X' << 24;
+    // version 1 files hold a fingerprint of the earlier, non-cryptographic hash
+    private static final int VERSION = 2;
+    // the size of the buffer the rows are written through, in pieces if a row is larger
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private MatrixFile() {
+    }
+
+    /**
+     * Writes a matrix to a file, replacing the file if it exists.
+     *
+     * @param i_File   the file
+     * @param i_Matrix the matrix
+     * @throws IOException if the file can not be written
+     */
+    public static void write(@NotNull Path i_File, @NotNull Matrix i_Matrix) throws IOException {
+        int columns = i_Matrix.getNumOfColumns();
+        Fingerprint fingerprint = i_Matrix.getFingerprint();
+        Path temporary = i_File.resolveSibling(i_File.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(i_Matrix.getNumOfRows()).putInt(columns)
+                    .putLong(fingerprint.high()).putLong(fingerprint.low());
+            header.clear();
+            writeFully(channel, header);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int[] row = new int[columns];
+            for (int rowIndex = 0; rowIndex < i_Matrix.getNumOfRows(); rowIndex++) {
+                i_Matrix.getRow(rowIndex, row);
+                // a row may be wider than the buffer, so it is copied as far as the buffer has room
+                for (int column = 0; column < columns; ) {
+                    if (buffer.remaining() < Integer.BYTES) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    int count = Math.min(columns - column, buffer.remaining() / Integer.BYTES);
+                    buffer.asIntBuffer().put(row, column, count);
+                    buffer.position(buffer.position() + count * Integer.BYTES);
+                    column += count;
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+        Files.move(temporary, i_File, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens a matrix file by mapping its cells, which are read once to check the fingerprint of the header.
+     *
+     * @param i_File the file
+     * @return the matrix, with its fingerprint
+     * @throws IOException if the file can not be opened, is not a matrix file or its cells do not match its fingerprint
+     */
+    public static @NotNull Matrix map(@NotNull Path i_File) throws IOException {
+        try (FileChannel channel = FileChannel.open(i_File, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new IOException(i_File + " is too short for a matrix file");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(i_File + " is not a matrix file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(i_File + " has version " + version + " instead of " + VERSION);
+            }
+            int rows = header.getInt();
+            int columns = header.getInt();
+            Fingerprint fingerprint = new Fingerprint(rows, columns, header.getLong(), header.getLong());
+            if (rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE - 8) {
+                throw new IOException(i_File + " has the illegal size " + rows + "x" + columns);
+            }
+            int numOfCells = rows * columns;
+            long expectedBytes = HEADER_BYTES + (long) numOfCells * Integer.BYTES;
+            if (channel.size() != expectedBytes) {
+                throw new IOException(i_File + " has " + channel.size() + " bytes instead of " + expectedBytes);
+            }
+            // the fingerprint is computed from the mapped cells, not taken from the header
+            Matrix matrix = new Matrix(rows, columns, OffHeapCells.map(channel, HEADER_BYTES, numOfCells), null);
+            if (!matrix.getFingerprint().equals(fingerprint)) {
+                throw new IOException(i_File + " does not hold the cells of its fingerprint");
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Finds a file by name in a directory, refusing names that lead out of it.
+     *
+     * @param i_Directory the directory
+     * @param i_Name      the name of the file, which may include subdirectories
+     * @return the real path of the file
+     * @throws IOException              if the file does not exist
+     * @throws IllegalArgumentException if the name leads out of the directory
+     */
+    public static @NotNull Path resolve(@NotNull Path i_Directory, @NotNull String i_Name) throws IOException {
+        Path directory = i_Directory.toRealPath();
+        Path named = directory.resolve(i_Name).normalize();
+        // checked before touching the file, so names outside do not tell whether a file exists there
+        if (!named.startsWith(directory) || named.equals(directory)) {
+            throw new IllegalArgumentException("no matrix file " + i_Name);
+        }
+        // the real path follows links, so a link can not lead out either
+        Path file = named.toRealPath();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("no matrix file " + i_Name);
+        }
+        return file;
+    }
+
+    private static void writeFully(@NotNull FileChannel i_Channel, @NotNull ByteBuffer i_Buffer) throws IOException {
+        while (i_Buffer.hasRemaining()) {
+            i_Channel.write(i_Buffer);
+        }
+    }
+}
@@ -1,24 +1,93 @@
 package pojo;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import server.FrameWriter;
+import server.Frames;
+import server.IFrameHandler;
 import server.IHandler;
+import server.IReplySink;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  *  This class handles Matrix-related tasks
  * Adapts the functionality  of IHandler to a Matrix object
  */
-public class MatrixHandler implements IHandler {
-    private Matrix matrix;
-    private Index sourceIndex;
-    private boolean doWork;
-    List<Index> indexList;
+public class MatrixHandler implements IHandler, IFrameHandler<MatrixSession> {
+    private final @Nullable ExecutorService computePool;
+    private final @NotNull ResultCache resultCache;
+    private final @NotNull MatrixRegistry matrixRegistry;
+    private final @NotNull SingleFlight<QueryKey> runningQueries;
+    // the directory the matrix files of LOAD_MATRIX are opened from
+    private final @NotNull Path dataDirectory;
 
+    /**
+     * Constructs a handler that runs the algorithms on the thread serving the client.
+     */
+    public MatrixHandler() {
+        this(null);
+    }
+
+    /**
+     * Constructs a handler that runs the algorithms on a separate pool, so the
+     * threads serving the clients only wait for the results, and pipelined
+     * frame requests of one client can run at the same time.
+     *
+     * @param i_ComputePool the pool that runs the algorithms, or null to run them in place
+     */
+    public MatrixHandler(@Nullable ExecutorService i_ComputePool) {
+        this(i_ComputePool, MatrixFile.DEFAULT_DIRECTORY);
+    }
+
+    /**
+     * Constructs a handler that runs the algorithms on a separate pool and
+     * opens the matrix files clients load from the given directory.
+     *
+     * @param i_ComputePool   the pool that runs the algorithms, or null to run them in place
+     * @param i_DataDirectory the directory of the matrix files
+     */
+    public MatrixHandler(@Nullable ExecutorService i_ComputePool, @NotNull Path i_DataDirectory) {
+        this.computePool = i_ComputePool;
+        this.dataDirectory = i_DataDirectory;
+        this.resultCache = ResultCache.getInstance();
+        this.matrixRegistry = MatrixRegistry.getInstance();
+        this.runningQueries = new SingleFlight<>();
+    }
+
+    /**
+     * Serves a client over a blocking stream. The first bytes decide the protocol:
+     * a Java serialization stream (0xACED) is served with the object protocol,
+     * anything else is read as length-prefixed frames (object or binary frames).
+     */
     @Override
     public void handleClient(InputStream fromClient, OutputStream toClient) throws IOException, ClassNotFoundException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(fromClient);
+        bufferedInput.mark(2);
+        int first = bufferedInput.read();
+        int second = bufferedInput.read();
+        bufferedInput.reset();
+        if (first < 0 || second < 0) {
+            return;
+        }
+
+        if (((first << 8) | second) == (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF)) {
+            handleObjectStream(bufferedInput, toClient);
+        } else {
+            handleFrameStream(bufferedInput, toClient);
+        }
+    }
+
+    /**
+     * Serves the object protocol: a command name followed by its arguments, all as serialized objects.
+     * Requests are answered one at a time. A request that fails is answered with an IllegalStateException
+     * that carries the reason, instead of a result.
+     */
+    private void handleObjectStream(InputStream fromClient, OutputStream toClient) throws IOException, ClassNotFoundException {
         /*
         data is sent eventually as bytes
         read data as bytes then transform to meaningful data
@@ -28,81 +97,681 @@ public class MatrixHandler implements IHandler {
 
         ObjectInputStream objectInputStream = new ObjectInputStream(fromClient);
         ObjectOutputStream objectOutputStream = new ObjectOutputStream(toClient);
-        indexList = new ArrayList<>();
-        doWork = true;
-
-        while(doWork)
-        {
-            switch (objectInputStream.readObject().toString()) {
-                case "matrix" -> {
-                    // expect to get a 2d array. handler will create a Matrix object
-                    int[][] anArray = (int[][]) objectInputStream.readObject();
-                    System.out.println("Got 2d array");
-                    this.matrix = new Matrix(anArray);
-                    this.matrix.printMatrix();
-                }
-                case "all connected components" -> {
-                    if (this.matrix != null) {
-                        TraversableMatrix matrixAsGraph = new BasicMatrix(this.matrix);
-                        matrixAsGraph.setRoot(new Index(0, 0));
-                        DfsVisit<Index> algorithm = DfsVisit.getInstance();
-                        initializeIndexList();
-                        HashSet<Set<Index>> allConnectedComponents = algorithm.traverseAllOver(matrixAsGraph, indexList);
-                        objectOutputStream.writeObject(allConnectedComponents);
-                    }
+        MatrixSession session = new MatrixSession(null);
+
+        try {
+            while (!session.isStopped()) {
+                MatrixCommand command = MatrixCommand.fromName(objectInputStream.readObject().toString());
+                if (command == null) {
+                    continue;
+                }
+                Object[] args = new Object[command.getArgCount()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = objectInputStream.readObject();
+                }
+                Object[] results;
+                try {
+                    // a batch has one reply per pair, in the order of the pairs
+                    results = command.isBatch()
+                            ? computeBatch(session.getMatrix(), command, (Index[][]) args[0])
+                            : new Object[]{compute(session, command, args)};
+                } catch (RuntimeException exception) {
+                    // the client is waiting for a reply: answer with the error and go on with the next request
+                    results = new Object[]{new IllegalStateException(
+                            "failed to execute " + command.getCommandName() + ": " + exception.getMessage())};
                 }
-                case "all shortest paths" -> {
-                    this.sourceIndex = (Index) objectInputStream.readObject();
-                    Index destinationIndex = (Index) objectInputStream.readObject();
-                    if (this.matrix != null) {
-                        TraversableMatrix matrixAsGraph = new BasicMatrix(this.matrix);
-                        matrixAsGraph.setRoot(this.sourceIndex);
-                        Bfs<Index> algorithm = Bfs.getInstance();
-                        HashSet<List<Index>> allShortestPaths = algorithm.findShortestPaths(matrixAsGraph, this.sourceIndex, destinationIndex);
-                        objectOutputStream.writeObject(allShortestPaths);
+                for (Object result : results) {
+                    if (result != null) {
+                        objectOutputStream.writeObject(result);
+                        // cached results are shared objects: send each reply in full and
+                        // do not keep every object ever sent referenced by the stream
+                        objectOutputStream.reset();
                     }
                 }
-                case "submarines" -> {
-                    if (this.matrix != null) {
-                        TraversableMatrix matrixAsGraph = new BasicMatrix(this.matrix);
-                        Submarines algorithm = Submarines.getInstance();
-                        if (indexList.size() == 0) {
-                            initializeIndexList();
-                        }
-                        int validSubmarines = algorithm.countValidSubmarines(matrixAsGraph, indexList);
-                        objectOutputStream.writeObject(validSubmarines);
+            }
+        } finally {
+            closeSession(session);
+        }
+    }
 
-                    }
+    /**
+     * Serves length-prefixed frames over a blocking stream. Frames are read ahead while
+     * earlier requests are still computing; replies are queued as they become ready and
+     * written by a FrameWriter, and no frame is read while the client is behind on its replies.
+     */
+    private void handleFrameStream(InputStream fromClient, OutputStream toClient) throws IOException, ClassNotFoundException {
+        DataInputStream dataInputStream = new DataInputStream(fromClient);
+        FrameWriter replies = new FrameWriter(toClient);
+        MatrixSession session = openSession(replies);
+
+        try {
+            while (!session.isStopped()) {
+                replies.awaitRoom();
+                byte[] frame = Frames.readFrame(dataInputStream);
+                if (frame == null) {
+                    break;
                 }
-                case "find the lowest weight paths" -> {
-                    this.sourceIndex = (Index) objectInputStream.readObject();
-                    Index destinationIndex = (Index) objectInputStream.readObject();
-                    if (this.matrix != null) {
-                        TraversableMatrix matrixAsGraph = new WeightedMatrix(matrix);
-                        LowestWeightPaths<Index> algorithm = LowestWeightPaths.getInstance();
-                        HashSet<List<Index>> allLowestWeightPaths = algorithm.FindLowestWeightPaths(matrixAsGraph, this.sourceIndex, destinationIndex);
-                        objectOutputStream.writeObject(allLowestWeightPaths);
+                handleFrame(session, frame);
+            }
+        } finally {
+            try {
+                session.awaitIdle();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                // the replies of the session are all queued now
+                replies.close();
+            } finally {
+                closeSession(session);
+            }
+        }
+    }
+
+    @Override
+    public @NotNull MatrixSession openSession(@NotNull IReplySink replySink) {
+        return new MatrixSession(replySink);
+    }
+
+    /**
+     * Handles either a binary protocol frame, or a frame holding a serialized Object[]
+     * of the command name followed by its arguments. The reply uses the protocol of the request.
+     * Commands that change the session run right away, in arrival order; algorithms run on
+     * the compute pool against the matrix that was current when they arrived. Binary replies
+     * are sent as soon as they are ready (they carry the request id), object replies are sent
+     * in the order of the requests. Once the session has MatrixSession.MAX_REQUESTS_IN_FLIGHT
+     * requests unanswered, this waits for earlier ones, so the connection is not read meanwhile.
+     */
+    @Override
+    public void handleFrame(@NotNull MatrixSession session, @NotNull byte[] frame) throws IOException, ClassNotFoundException {
+        if (session.isStopped()) {
+            return;
+        }
+
+        if (BinaryProtocol.isBinaryFrame(frame)) {
+            BinaryProtocol.Request request = BinaryProtocol.decodeRequest(frame, session.getNumOfColumns());
+            if (request.command().isBatch()) {
+                submitBatch(session, request.command(), (Index[][]) request.args()[0], false, (pair, ticket) -> new ReplyEncoder() {
+                    @Override
+                    public @NotNull byte[] encode(@NotNull Object result, int columns) throws IOException {
+                        return BinaryProtocol.encodePairReply(request.requestId(), pair,
+                                BinaryProtocol.encodeReply(request.requestId(), result, columns));
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Throwable cause) {
+                        session.completeRequest(ticket, BinaryProtocol.encodePairReply(request.requestId(), pair,
+                                BinaryProtocol.encodeError(request.requestId(), String.valueOf(cause.getMessage()))));
                     }
+                });
+                return;
+            }
+            long ticket = session.beginRequest(false);
+            submit(session, request.command(), request.args(), ticket, new ReplyEncoder() {
+                @Override
+                public @NotNull byte[] encode(@NotNull Object result, int columns) throws IOException {
+                    return BinaryProtocol.encodeReply(request.requestId(), result, columns);
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable cause) {
+                    session.completeRequest(ticket, BinaryProtocol.encodeError(request.requestId(), String.valueOf(cause.getMessage())));
+                }
+            });
+            return;
+        }
+
+        Object[] request = (Object[]) Frames.fromBytes(frame);
+        MatrixCommand command = MatrixCommand.fromName(request[0].toString());
+        if (command == null || request.length - 1 != command.getArgCount()) {
+            return;
+        }
+        if (command.isBatch()) {
+            submitBatch(session, command, (Index[][]) request[1], true, (pair, ticket) -> new ReplyEncoder() {
+                @Override
+                public @NotNull byte[] encode(@NotNull Object result, int columns) throws IOException {
+                    return Frames.toBytes(result);
+                }
+
+                @Override
+                public void onFailure(@NotNull Throwable cause) {
+                    session.failRequest(cause);
+                }
+            });
+            return;
+        }
+        long ticket = session.beginRequest(true);
+        submit(session, command, Arrays.copyOfRange(request, 1, request.length), ticket, new ReplyEncoder() {
+            @Override
+            public @NotNull byte[] encode(@NotNull Object result, int columns) throws IOException {
+                return Frames.toBytes(result);
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable cause) {
+                session.failRequest(cause);
+            }
+        });
+    }
+
+    @Override
+    public boolean isSessionOver(@NotNull MatrixSession session) {
+        return session.isFinished();
+    }
+
+    /**
+     * Gives back the session's reference to its registered matrix, if it has one.
+     */
+    @Override
+    public void closeSession(@NotNull MatrixSession session) {
+        dropUpload(session.endMatrixUpload());
+        release(session.close());
+    }
+
+    /**
+     * Turns the result of a pipelined request into its reply frame.
+     */
+    private interface ReplyEncoder {
+        @NotNull byte[] encode(@NotNull Object result, int columns) throws IOException;
+
+        void onFailure(@NotNull Throwable cause);
+    }
+
+    /**
+     * Makes the reply encoder of one pair of a batch request.
+     */
+    private interface PairReplyEncoder {
+        @NotNull ReplyEncoder forPair(int pair, long ticket);
+    }
+
+    /**
+     * Receives the results of the pairs of a batch as they are done, possibly on several threads at once.
+     */
+    private interface BatchSink {
+        void accept(int pair, @Nullable Object result);
+
+        void fail(int pair, @NotNull Throwable cause);
+    }
+
+    /**
+     * Runs a batch frame request. Every pair gets its own ticket, so its reply is sent as soon as
+     * it is allowed to: right away for unordered replies, after the pairs before it for ordered ones.
+     * Every pair counts against the requests the session may have in flight.
+     */
+    private void submitBatch(@NotNull MatrixSession i_Session, @NotNull MatrixCommand i_Command, @NotNull Index[][] i_Pairs,
+                             boolean i_Ordered, @NotNull PairReplyEncoder i_Encoders) throws InterruptedIOException {
+        Matrix matrix = i_Session.getMatrix();
+        int columns = matrix != null ? matrix.getNumOfColumns() : 0;
+        long[] tickets = new long[i_Pairs.length];
+        ReplyEncoder[] encoders = new ReplyEncoder[i_Pairs.length];
+        // the pairs are begun together: none of them runs before the last one is begun
+        long firstTicket = i_Session.beginRequests(i_Pairs.length, i_Ordered);
+        for (int pair = 0; pair < i_Pairs.length; pair++) {
+            tickets[pair] = i_Ordered ? firstTicket + pair : -1;
+            encoders[pair] = i_Encoders.forPair(pair, tickets[pair]);
+        }
+        Runnable task = () -> runBatch(matrix, i_Command, i_Pairs, new BatchSink() {
+            @Override
+            public void accept(int pair, @Nullable Object result) {
+                try {
+                    i_Session.completeRequest(tickets[pair], result != null ? encoders[pair].encode(result, columns) : null);
+                } catch (Exception exception) {
+                    encoders[pair].onFailure(exception);
+                }
+            }
+
+            @Override
+            public void fail(int pair, @NotNull Throwable cause) {
+                encoders[pair].onFailure(cause);
+            }
+        });
+
+        if (computePool != null) {
+            computePool.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs a batch command and waits for the results of all its pairs.
+     *
+     * @param i_Matrix  the matrix to work on, or null if the client did not upload one
+     * @param i_Command the batch command
+     * @param i_Pairs   the (source, destination) pairs
+     * @return the result of every pair, in the order of the pairs
+     * @throws IllegalStateException if a pair failed
+     */
+    private @NotNull Object[] computeBatch(@Nullable Matrix i_Matrix, @NotNull MatrixCommand i_Command, @NotNull Index[][] i_Pairs) {
+        Object[] results = new Object[i_Pairs.length];
+        Throwable[] failure = new Throwable[1];
+        runBatch(i_Matrix, i_Command, i_Pairs, new BatchSink() {
+            @Override
+            public void accept(int pair, @Nullable Object result) {
+                results[pair] = result;
+            }
+
+            @Override
+            public synchronized void fail(int pair, @NotNull Throwable cause) {
+                failure[0] = cause;
+            }
+        });
+        if (failure[0] != null) {
+            throw new IllegalStateException("a pair failed: " + failure[0].getMessage(), failure[0]);
+        }
+        return results;
+    }
+
+    /**
+     * Runs the pairs of a batch command. Pairs whose result is cached are answered right away.
+     * The other pairs are grouped by source, and every source runs a single search that answers
+     * all its destinations; different sources run at the same time on the ComputeScheduler.
+     * The result of every pair is added to the result cache as the result of its pair command.
+     *
+     * @param i_Matrix  the matrix to work on, or null if the client did not upload one
+     * @param i_Command the batch command
+     * @param i_Pairs   the (source, destination) pairs
+     * @param i_Sink    receives the result of every pair
+     */
+    private void runBatch(@Nullable Matrix i_Matrix, @NotNull MatrixCommand i_Command, @NotNull Index[][] i_Pairs,
+                          @NotNull BatchSink i_Sink) {
+        MatrixCommand pairCommand = i_Command.getPairCommand();
+        if (i_Matrix == null || pairCommand == null) {
+            for (int pair = 0; pair < i_Pairs.length; pair++) {
+                i_Sink.accept(pair, null);
+            }
+            return;
+        }
+
+        Map<Index, List<Integer>> pairsBySource = new LinkedHashMap<>();
+        for (int pair = 0; pair < i_Pairs.length; pair++) {
+            Index[] sourceAndDestination = i_Pairs[pair];
+            if (sourceAndDestination == null || sourceAndDestination.length != 2
+                    || sourceAndDestination[0] == null || sourceAndDestination[1] == null) {
+                i_Sink.fail(pair, new IllegalArgumentException("pair " + pair + " is not a source and a destination"));
+                continue;
+            }
+            Object cached = resultCache.get(new QueryKey(i_Matrix.getFingerprint(), pairCommand, sourceAndDestination));
+            if (cached != null) {
+                i_Sink.accept(pair, cached);
+            } else {
+                pairsBySource.computeIfAbsent(sourceAndDestination[0], source -> new ArrayList<>()).add(pair);
+            }
+        }
+
+        List<Index> sources = new ArrayList<>(pairsBySource.keySet());
+        ComputeScheduler.getInstance().forEach(sources.size(), part -> {
+            Index source = sources.get(part);
+            List<Integer> pairs = pairsBySource.get(source);
+            try {
+                List<Index> destinations = new ArrayList<>(pairs.size());
+                for (int pair : pairs) {
+                    destinations.add(i_Pairs[pair][1]);
+                }
+                List<HashSet<List<Index>>> results = pairCommand == MatrixCommand.ALL_SHORTEST_PATHS
+                        ? ShortestPaths.getInstance().findShortestPathsFrom(new BasicMatrix(i_Matrix), source, destinations, Integer.MAX_VALUE)
+                        : LightestPaths.getInstance().findLowestWeightPathsFrom(new WeightedMatrix(i_Matrix), source, destinations, Integer.MAX_VALUE);
+                for (int i = 0; i < pairs.size(); i++) {
+                    int pair = pairs.get(i);
+                    resultCache.put(new QueryKey(i_Matrix.getFingerprint(), pairCommand, i_Pairs[pair]), results.get(i));
+                    i_Sink.accept(pair, results.get(i));
                 }
-                case "stop" -> {
-                    doWork = false;
+            } catch (RuntimeException | StackOverflowError exception) {
+                for (int pair : pairs) {
+                    i_Sink.fail(pair, exception);
                 }
             }
+        });
+    }
+
+    /**
+     * Runs a frame request and completes its ticket with the encoded reply.
+     * Session commands run in place; algorithms run on the compute pool, if there is one.
+     */
+    private void submit(@NotNull MatrixSession i_Session, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args,
+                        long i_Ticket, @NotNull ReplyEncoder i_Encoder) {
+        Matrix matrix = i_Session.getMatrix();
+        Runnable task = () -> {
+            try {
+                Object result = i_Command.isComputation()
+                        ? query(matrix, i_Command, i_Args)
+                        : execute(i_Session, i_Command, i_Args);
+                int columns = matrix != null ? matrix.getNumOfColumns() : 0;
+                i_Session.completeRequest(i_Ticket, result != null ? i_Encoder.encode(result, columns) : null);
+            } catch (Exception | StackOverflowError exception) {
+                i_Encoder.onFailure(exception);
+            }
+        };
+
+        if (computePool != null && i_Command.isComputation()) {
+            computePool.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Executes a command and waits for its result, handing it to the compute pool if it runs an algorithm.
+     *
+     * @param i_Session the session the command was sent on
+     * @param i_Command the command to execute
+     * @param i_Args    the arguments that followed the command
+     * @return the result to send back to the client, or null if there is nothing to send
+     */
+    private @Nullable Object compute(@NotNull MatrixSession i_Session, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args) throws IOException {
+        if (computePool == null || !i_Command.isComputation()) {
+            return execute(i_Session, i_Command, i_Args);
+        }
+        Matrix matrix = i_Session.getMatrix();
+        try {
+            return computePool.submit(() -> query(matrix, i_Command, i_Args)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for " + i_Command.getCommandName());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                // a bad request, not a broken connection
+                throw failure;
+            }
+            throw new IOException("failed to execute " + i_Command.getCommandName(), e.getCause());
         }
     }
 
     /**
-     * Initializes the 'indexList' data member with the valid indices in the given matrix.
-     * ( their value equals to 1 )
+     * Executes a single command against the state of a session.
+     *
+     * @param i_Session the session the command was sent on
+     * @param i_Command the command to execute
+     * @param i_Args    the arguments that followed the command
+     * @return the result to send back to the client, or null if there is nothing to send
      */
-    private void initializeIndexList()
-    {
-        for (int i = 0; i < this.matrix.getNumOfRows(); i++) {
-            for (int j = 0; j < this.matrix.getNumOfColumns(); j++) {
-                if (this.matrix.primitiveMatrix[i][j] == 1) {
-                    indexList.add(new Index(i, j));
+    public @Nullable Object execute(@NotNull MatrixSession i_Session, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args) {
+        switch (i_Command) {
+            case MATRIX -> {
+                // expect to get a 2d array. handler will create a Matrix object
+                int[][] anArray = (int[][]) i_Args[0];
+                Matrix newMatrix = Matrix.of(anArray);
+                release(i_Session.setMatrix(newMatrix, false));
+            }
+            case UPLOAD_MATRIX -> {
+                // keep the matrix in the registry, so any session can use it by its handle
+                Matrix registered = matrixRegistry.acquire(Matrix.of((int[][]) i_Args[0]));
+                release(i_Session.setMatrix(registered, true));
+                return MatrixRegistry.handleOf(registered);
+            }
+            case LOAD_MATRIX -> {
+                // the cells are mapped, not copied, so any number of sessions and server processes share them
+                Matrix registered = matrixRegistry.acquire(loadMatrix(i_Args[0].toString()));
+                release(i_Session.setMatrix(registered, true));
+                return MatrixRegistry.handleOf(registered);
+            }
+            case USE_MATRIX -> {
+                Matrix registered = matrixRegistry.acquire(i_Args[0].toString());
+                if (registered == null) {
+                    return false;
                 }
+                release(i_Session.setMatrix(registered, true));
+                return true;
+            }
+            case BEGIN_SUBMARINE_STREAM -> {
+                i_Session.beginSubmarineStream(new SubmarineStream((Integer) i_Args[0]));
+            }
+            case SUBMARINE_ROWS -> {
+                // the rows are counted as they arrive and then dropped
+                SubmarineStream stream = i_Session.getSubmarineStream();
+                if (stream == null) {
+                    throw new IllegalStateException("begin a submarine stream before sending its rows");
+                }
+                stream.acceptRows((int[][]) i_Args[0]);
+            }
+            case END_SUBMARINE_STREAM -> {
+                SubmarineStream stream = i_Session.endSubmarineStream();
+                if (stream == null) {
+                    throw new IllegalStateException("there is no submarine stream to end");
+                }
+                return stream.finish();
+            }
+            case BEGIN_MATRIX_UPLOAD -> {
+                // an upload the client did not end is dropped before the memory of the new one is reserved
+                dropUpload(i_Session.endMatrixUpload());
+                i_Session.beginMatrixUpload(beginUpload((Integer) i_Args[0], (Integer) i_Args[1]));
+            }
+            case MATRIX_BAND -> {
+                MatrixUpload upload = i_Session.getMatrixUpload();
+                if (upload == null) {
+                    throw new IllegalStateException("begin a matrix upload before sending its bands");
+                }
+                upload.acceptRows((int[][]) i_Args[0]);
+            }
+            case END_MATRIX_UPLOAD -> {
+                MatrixUpload upload = i_Session.endMatrixUpload();
+                if (upload == null) {
+                    throw new IllegalStateException("there is no matrix upload to end");
+                }
+                Matrix uploaded;
+                try {
+                    uploaded = upload.finish();
+                    // the bands were labeled on arrival, so the submarines of the matrix are counted per component
+                    resultCache.put(new QueryKey(uploaded.getFingerprint(), MatrixCommand.SUBMARINES, new Object[0]),
+                            Submarines.getInstance().countValidSubmarines(uploaded));
+                } catch (RuntimeException e) {
+                    dropUpload(upload);
+                    throw e;
+                }
+                // the labels are on the heap and as large as the cells, and the count they were kept for is cached
+                uploaded.componentLabels = null;
+                // the reservation of the upload turns into the charge of the registered matrix
+                Matrix registered = matrixRegistry.acquire(uploaded, upload.getNumOfBytes());
+                release(i_Session.setMatrix(registered, true));
+            }
+            case STOP -> {
+                i_Session.stop();
+            }
+            case SERVER_STATS -> {
+                return serverStats();
+            }
+            default -> {
+                return query(i_Session.getMatrix(), i_Command, i_Args);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs an algorithm command. It only reads the given matrix, so several
+     * queries can run at the same time. Results are looked up in and added to
+     * the server-wide result cache, so a repeated query is not computed again,
+     * and a query that arrives while the identical query is still being computed
+     * waits for that computation instead of starting its own. Preparing landmarks
+     * changes the registry rather than answering a question, so it is not cached.
+     *
+     * @param i_Matrix  the matrix to work on, or null if the client did not upload one
+     * @param i_Command the command to execute
+     * @param i_Args    the arguments that followed the command
+     * @return the result to send back to the client, or null if there is nothing to send
+     */
+    public @Nullable Object query(@Nullable Matrix i_Matrix, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args) {
+        if (i_Matrix == null) {
+            return null;
+        }
+
+        QueryKey key = new QueryKey(i_Matrix.getFingerprint(), i_Command, i_Args);
+        if (i_Command == MatrixCommand.PREPARE_LANDMARKS) {
+            return runningQueries.run(key, () -> prepareLandmarks(i_Matrix, (Integer) i_Args[0]));
+        }
+        Object result = resultCache.get(key);
+        if (result == null) {
+            result = runningQueries.run(key, () -> {
+                Object computed = runAlgorithm(i_Matrix, i_Command, i_Args);
+                if (computed != null) {
+                    resultCache.put(key, computed);
+                }
+                return computed;
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Gets the counters of the server, such as the hits and misses of the result cache,
+     * the computations saved by coalescing identical queries and the matrices in the registry.
+     *
+     * @return the counters by name
+     */
+    public @NotNull Map<String, Long> serverStats() {
+        Map<String, Long> stats = new LinkedHashMap<>(resultCache.getStats());
+        stats.putAll(runningQueries.getStats());
+        stats.putAll(matrixRegistry.getStats());
+        stats.put("shortestPaths.expandedCells", ShortestPaths.getInstance().getNumOfExpandedCells());
+        stats.put("lightestPaths.expandedCells", LightestPaths.getInstance().getNumOfExpandedCells());
+        return stats;
+    }
+
+    /**
+     * Prepares the landmarks of a registered matrix, which its lowest weight path queries use from then on.
+     * A matrix that has landmarks already keeps them.
+     *
+     * @param i_Matrix         the registered matrix
+     * @param i_NumOfLandmarks the number of landmarks
+     * @return the counters of the landmarks of the matrix
+     * @throws IllegalStateException if the matrix was not uploaded to the registry
+     */
+    private @NotNull Map<String, Long> prepareLandmarks(@NotNull Matrix i_Matrix, int i_NumOfLandmarks) {
+        Landmarks landmarks = matrixRegistry.getLandmarks(i_Matrix);
+        if (landmarks == null) {
+            if (!matrixRegistry.contains(i_Matrix)) {
+                throw new IllegalStateException("upload the matrix before preparing landmarks");
+            }
+            landmarks = matrixRegistry.attachLandmarks(i_Matrix, Landmarks.select(new WeightedMatrix(i_Matrix), i_NumOfLandmarks));
+        }
+        return landmarks.getStats();
+    }
+
+    /**
+     * Starts a banded upload once its memory is reserved in the registry budget,
+     * so the shape a client declares can not take more memory than the server has.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @return the upload
+     * @throws IllegalArgumentException if the shape is illegal
+     * @throws IllegalStateException    if there is no room for the matrix
+     */
+    private @NotNull MatrixUpload beginUpload(int i_NumOfRows, int i_NumOfColumns) {
+        long bytes = MatrixUpload.numOfBytesOf(i_NumOfRows, i_NumOfColumns);
+        if (!matrixRegistry.reserve(bytes)) {
+            throw new IllegalStateException("no room to receive a " + i_NumOfRows + "x" + i_NumOfColumns + " matrix");
+        }
+        try {
+            return new MatrixUpload(i_NumOfRows, i_NumOfColumns);
+        } catch (OutOfMemoryError e) {
+            // the budget may be larger than the heap or the direct memory the JVM was given
+            matrixRegistry.unreserve(bytes);
+            throw new IllegalStateException("not enough memory to receive a " + i_NumOfRows + "x" + i_NumOfColumns + " matrix");
+        } catch (RuntimeException e) {
+            matrixRegistry.unreserve(bytes);
+            throw e;
+        }
+    }
+
+    /**
+     * Gives back the memory an upload reserved, once it failed or was dropped unfinished.
+     *
+     * @param i_Upload the upload, or null if there is none
+     */
+    private void dropUpload(@Nullable MatrixUpload i_Upload) {
+        if (i_Upload != null) {
+            matrixRegistry.unreserve(i_Upload.getNumOfBytes());
+        }
+    }
+
+    /**
+     * Opens a matrix file of the data directory.
+     *
+     * @param i_Name the name of the file in the data directory
+     * @return the matrix, mapped from the file
+     * @throws UncheckedIOException     if the file does not exist or is not a matrix file
+     * @throws IllegalArgumentException if the name leads out of the data directory
+     */
+    private @NotNull Matrix loadMatrix(@NotNull String i_Name) {
+        try {
+            return MatrixFile.map(MatrixFile.resolve(dataDirectory, i_Name));
+        } catch (IOException e) {
+            throw new UncheckedIOException("can not load matrix file " + i_Name, e);
+        }
+    }
+
+    /**
+     * Gives back a reference to a registered matrix.
+     *
+     * @param i_Matrix the matrix a session no longer uses, or null if there is none
+     */
+    private void release(@Nullable Matrix i_Matrix) {
+        if (i_Matrix != null) {
+            matrixRegistry.release(i_Matrix);
+        }
+    }
+
+    /**
+     * Runs the algorithm of a command.
+     *
+     * @param i_Matrix  the matrix to work on
+     * @param i_Command the command to execute
+     * @param i_Args    the arguments that followed the command
+     * @return the result of the algorithm, or null if the command has no result
+     */
+    private @Nullable Object runAlgorithm(@NotNull Matrix i_Matrix, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args) {
+        switch (i_Command) {
+            case ALL_CONNECTED_COMPONENTS -> {
+                ConnectedComponents algorithm = ConnectedComponents.getInstance();
+                HashSet<Set<Index>> allConnectedComponents = new HashSet<>(algorithm.label(i_Matrix).getComponents());
+                return allConnectedComponents;
+            }
+            case ALL_SHORTEST_PATHS -> {
+                Index sourceIndex = (Index) i_Args[0];
+                Index destinationIndex = (Index) i_Args[1];
+                ShortestPaths algorithm = ShortestPaths.getInstance();
+                HashSet<List<Index>> allShortestPaths = algorithm.findShortestPaths(new BasicMatrix(i_Matrix), sourceIndex, destinationIndex, Integer.MAX_VALUE);
+                return allShortestPaths;
+            }
+            case SHORTEST_PATHS -> {
+                Index sourceIndex = (Index) i_Args[0];
+                Index destinationIndex = (Index) i_Args[1];
+                int maxPaths = (Integer) i_Args[2];
+                ShortestPaths algorithm = ShortestPaths.getInstance();
+                HashSet<List<Index>> shortestPaths = algorithm.findShortestPaths(new BasicMatrix(i_Matrix), sourceIndex, destinationIndex, maxPaths);
+                return shortestPaths;
+            }
+            case SHORTEST_DISTANCE -> {
+                ShortestPaths algorithm = ShortestPaths.getInstance();
+                int distance = algorithm.findDistance(new BasicMatrix(i_Matrix), (Index) i_Args[0], (Index) i_Args[1]);
+                return distance;
+            }
+            case COUNT_SHORTEST_PATHS -> {
+                ShortestPaths algorithm = ShortestPaths.getInstance();
+                BigInteger numOfPaths = algorithm.countShortestPaths(new BasicMatrix(i_Matrix), (Index) i_Args[0], (Index) i_Args[1]);
+                return numOfPaths;
+            }
+            case SHORTEST_PATHS_SUMMARY -> {
+                ShortestPaths algorithm = ShortestPaths.getInstance();
+                PathSummary summary = algorithm.summarize(new BasicMatrix(i_Matrix), (Index) i_Args[0], (Index) i_Args[1]);
+                return summary;
+            }
+            case SUBMARINES -> {
+                Submarines algorithm = Submarines.getInstance();
+                int validSubmarines = algorithm.countValidSubmarines(i_Matrix);
+                return validSubmarines;
+            }
+            case LOWEST_WEIGHT_PATHS -> {
+                Index sourceIndex = (Index) i_Args[0];
+                Index destinationIndex = (Index) i_Args[1];
+                TraversableMatrix matrixAsGraph = new WeightedMatrix(i_Matrix);
+                LightestPaths algorithm = LightestPaths.getInstance();
+                HashSet<List<Index>> allLowestWeightPaths = algorithm.findLowestWeightPaths(matrixAsGraph, sourceIndex, destinationIndex,
+                        Integer.MAX_VALUE, matrixRegistry.getLandmarks(i_Matrix));
+                return allLowestWeightPaths;
             }
         }
+        return null;
     }
 }
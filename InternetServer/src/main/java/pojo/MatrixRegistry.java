@@ -0,0 +1,352 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A server-wide store of uploaded matrices. A matrix is uploaded once and gets a
+ * handle derived from its content; any session can then bind to it by handle
+ * instead of sending the matrix again. Uploading a matrix that is already
+ * registered returns the registered copy.
+ * <p>
+ * Every session bound to a matrix holds a reference to it. Matrices that no
+ * session references stay registered until they were idle for the idle timeout,
+ * or until their memory is needed for a new upload; the least recently released
+ * idle matrix is evicted first. A matrix that is referenced is never evicted, so
+ * an upload that does not fit into the memory budget is refused.
+ * <p>
+ * A registered matrix may also keep the Landmarks prepared for it, which speed up its
+ * lowest weight path queries. They count against the memory budget and are evicted
+ * together with the matrix.
+ */
+public final class MatrixRegistry {
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+    public static final long DEFAULT_IDLE_MILLIS = 10 * 60 * 1000;
+    // the memory of a registered matrix besides its cells
+    private static final int ENTRY_OVERHEAD = 128;
+    private volatile static MatrixRegistry instance;
+
+    // in the order the matrices became idle, so the first idle entry is the one to evict
+    private final @NotNull LinkedHashMap<String, Entry> entries;
+    private final long maxBytes;
+    private final long idleNanos;
+    private long bytes;
+    // the part of bytes reserved for matrices that are still being received
+    private long reservedBytes;
+    private long uploads;
+    private long reusedUploads;
+    private long evictions;
+
+    public static @NotNull MatrixRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MatrixRegistry.class) {
+                if (instance == null) {
+                    instance = new MatrixRegistry(DEFAULT_MAX_BYTES, DEFAULT_IDLE_MILLIS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a registry; the server uses the shared one from getInstance.
+     *
+     * @param i_MaxBytes   the memory the registered matrices may take
+     * @param i_IdleMillis how long a matrix no session references stays registered
+     */
+    public MatrixRegistry(long i_MaxBytes, long i_IdleMillis) {
+        this.maxBytes = i_MaxBytes;
+        this.idleNanos = i_IdleMillis * 1_000_000;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Gets the handle of a matrix, which is derived from its content.
+     *
+     * @param i_Matrix the matrix
+     * @return the handle the matrix is registered under
+     */
+    public static @NotNull String handleOf(@NotNull Matrix i_Matrix) {
+        return i_Matrix.getFingerprint().toString();
+    }
+
+    /**
+     * Gets the number of columns of the matrix a handle refers to, which clients need to pack indices.
+     *
+     * @param i_Handle the handle
+     * @return the number of columns, or 0 if the text is not a handle
+     */
+    public static int numOfColumnsOf(@NotNull String i_Handle) {
+        int times = i_Handle.indexOf('x');
+        int colon = i_Handle.indexOf(':');
+        if (times < 0 || colon < times) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(i_Handle.substring(times + 1, colon));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Registers a matrix, unless an equal one is registered already, and takes a reference to it.
+     *
+     * @param i_Matrix the uploaded matrix
+     * @return the registered matrix, which is the given one or an equal matrix uploaded before
+     * @throws IllegalStateException if the matrix does not fit into the memory budget
+     */
+    public @NotNull Matrix acquire(@NotNull Matrix i_Matrix) {
+        // hashing a new matrix reads every cell, so it is done before the registry is locked
+        String handle = handleOf(i_Matrix);
+        synchronized (this) {
+            return acquire(i_Matrix, handle);
+        }
+    }
+
+    /**
+     * Registers a matrix that was received into memory reserved with reserve, unless an equal one is
+     * registered already, and takes a reference to it. The reservation is given back in the same step,
+     * so no other upload takes the memory before the matrix is charged.
+     *
+     * @param i_Matrix        the received matrix
+     * @param i_ReservedBytes the memory that was reserved for it
+     * @return the registered matrix, which is the given one or an equal matrix uploaded before
+     * @throws IllegalStateException if the matrix does not fit into the memory budget; the reservation is given back anyway
+     */
+    public @NotNull Matrix acquire(@NotNull Matrix i_Matrix, long i_ReservedBytes) {
+        String handle = handleOf(i_Matrix);
+        synchronized (this) {
+            unreserve(i_ReservedBytes);
+            return acquire(i_Matrix, handle);
+        }
+    }
+
+    /**
+     * Registers a matrix under its handle, unless an equal one is registered already, and takes a reference to it.
+     *
+     * @param i_Matrix the uploaded matrix
+     * @param i_Handle the handle of the matrix
+     * @return the registered matrix
+     * @throws IllegalStateException if the matrix does not fit into the memory budget
+     */
+    private @NotNull Matrix acquire(@NotNull Matrix i_Matrix, @NotNull String i_Handle) {
+        evictIdle();
+        uploads++;
+        Entry entry = entries.get(i_Handle);
+        if (entry != null) {
+            reusedUploads++;
+            return reference(entry);
+        }
+
+        // mapped cells live in the page cache, which the system drops and reads back from the file as needed
+        long size = ENTRY_OVERHEAD + (i_Matrix.isMapped() ? 0 : i_Matrix.getNumOfBytes());
+        if (!makeRoom(size)) {
+            throw new IllegalStateException("no room to register a " + i_Matrix.getNumOfRows() + "x"
+                    + i_Matrix.getNumOfColumns() + " matrix");
+        }
+        entry = new Entry(i_Matrix, size);
+        entries.put(i_Handle, entry);
+        bytes += size;
+        return reference(entry);
+    }
+
+    /**
+     * Takes a reference to a registered matrix.
+     *
+     * @param i_Handle the handle of the matrix
+     * @return the registered matrix, or null if no matrix is registered under the handle
+     */
+    public synchronized @Nullable Matrix acquire(@NotNull String i_Handle) {
+        evictIdle();
+        Entry entry = entries.get(i_Handle);
+        return entry != null ? reference(entry) : null;
+    }
+
+    /**
+     * Checks if a matrix with the content of the given one is registered.
+     *
+     * @param i_Matrix the matrix
+     * @return true if it is registered
+     */
+    public synchronized boolean contains(@NotNull Matrix i_Matrix) {
+        return entries.containsKey(handleOf(i_Matrix));
+    }
+
+    /**
+     * Gets the landmarks prepared for a registered matrix.
+     *
+     * @param i_Matrix the matrix
+     * @return the landmarks, or null if the matrix is not registered or has none
+     */
+    public synchronized @Nullable Landmarks getLandmarks(@NotNull Matrix i_Matrix) {
+        Entry entry = entries.get(handleOf(i_Matrix));
+        return entry != null ? entry.landmarks : null;
+    }
+
+    /**
+     * Keeps landmarks with a registered matrix, unless it has landmarks already.
+     *
+     * @param i_Matrix    the registered matrix
+     * @param i_Landmarks the landmarks prepared for it
+     * @return the landmarks the matrix keeps, which are the given ones or those it had before
+     * @throws IllegalStateException if the matrix is not registered, or the landmarks do not fit into the memory budget
+     */
+    public synchronized @NotNull Landmarks attachLandmarks(@NotNull Matrix i_Matrix, @NotNull Landmarks i_Landmarks) {
+        Entry entry = entries.get(handleOf(i_Matrix));
+        if (entry == null) {
+            throw new IllegalStateException("the matrix is not registered");
+        }
+        if (entry.landmarks != null) {
+            return entry.landmarks;
+        }
+        long size = i_Landmarks.getNumOfBytes();
+        if (!makeRoom(size)) {
+            throw new IllegalStateException("no room for " + i_Landmarks.getNumOfLandmarks() + " landmarks");
+        }
+        entry.landmarks = i_Landmarks;
+        entry.bytes += size;
+        bytes += size;
+        return i_Landmarks;
+    }
+
+    /**
+     * Reserves memory of the budget for a matrix that is still being received,
+     * evicting idle matrices if needed. The memory is given back with unreserve.
+     *
+     * @param i_Bytes the memory to reserve
+     * @return true if the memory was reserved, false if it does not fit even with every idle matrix evicted
+     */
+    public synchronized boolean reserve(long i_Bytes) {
+        evictIdle();
+        if (!makeRoom(i_Bytes)) {
+            return false;
+        }
+        bytes += i_Bytes;
+        reservedBytes += i_Bytes;
+        return true;
+    }
+
+    /**
+     * Gives back memory reserved with reserve.
+     *
+     * @param i_Bytes the memory that was reserved
+     */
+    public synchronized void unreserve(long i_Bytes) {
+        bytes -= i_Bytes;
+        reservedBytes -= i_Bytes;
+    }
+
+    /**
+     * Gives back a reference taken with acquire.
+     *
+     * @param i_Matrix the registered matrix
+     */
+    public synchronized void release(@NotNull Matrix i_Matrix) {
+        String handle = handleOf(i_Matrix);
+        Entry entry = entries.get(handle);
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            entry.idleSince = System.nanoTime();
+            // move to the end: it is now the most recently idle matrix
+            entries.remove(handle);
+            entries.put(handle, entry);
+        }
+        evictIdle();
+    }
+
+    /**
+     * Gets the counters of the registry.
+     *
+     * @return the counters by name, in a fixed order
+     */
+    public synchronized @NotNull Map<String, Long> getStats() {
+        long references = 0;
+        long landmarkBytes = 0;
+        for (Entry entry : entries.values()) {
+            references += entry.references;
+            if (entry.landmarks != null) {
+                landmarkBytes += entry.landmarks.getNumOfBytes();
+            }
+        }
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("registry.matrices", (long) entries.size());
+        stats.put("registry.references", references);
+        stats.put("registry.bytes", bytes);
+        stats.put("registry.reservedBytes", reservedBytes);
+        stats.put("registry.maxBytes", maxBytes);
+        stats.put("registry.uploads", uploads);
+        stats.put("registry.reusedUploads", reusedUploads);
+        stats.put("registry.evictions", evictions);
+        stats.put("registry.landmarkBytes", landmarkBytes);
+        return stats;
+    }
+
+    /**
+     * Adds a reference to an entry.
+     *
+     * @param i_Entry the entry
+     * @return the registered matrix
+     */
+    private @NotNull Matrix reference(@NotNull Entry i_Entry) {
+        i_Entry.references++;
+        return i_Entry.matrix;
+    }
+
+    /**
+     * Evicts the least recently idle matrices until more memory fits into the budget.
+     *
+     * @param i_Bytes the memory that is needed
+     * @return true if it fits now, false if it does not fit even with every idle matrix evicted
+     */
+    private boolean makeRoom(long i_Bytes) {
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (bytes + i_Bytes > maxBytes && oldest.hasNext()) {
+            Entry candidate = oldest.next();
+            if (candidate.references == 0) {
+                oldest.remove();
+                bytes -= candidate.bytes;
+                evictions++;
+            }
+        }
+        return bytes + i_Bytes <= maxBytes;
+    }
+
+    /**
+     * Evicts the matrices that were idle for longer than the idle timeout.
+     */
+    private void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next();
+            if (entry.references == 0 && now - entry.idleSince > idleNanos) {
+                oldest.remove();
+                bytes -= entry.bytes;
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * A registered matrix, the sessions that use it and the landmarks prepared for it.
+     */
+    private static class Entry {
+        private final @NotNull Matrix matrix;
+        private long bytes;
+        private int references;
+        private @Nullable Landmarks landmarks;
+        private long idleSince;
+
+        Entry(@NotNull Matrix i_Matrix, long i_Bytes) {
+            this.matrix = i_Matrix;
+            this.bytes = i_Bytes;
+            this.idleSince = System.nanoTime();
+        }
+    }
+}
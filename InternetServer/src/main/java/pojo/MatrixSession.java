@@ -0,0 +1,357 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import server.IReplySink;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class holds the state of a single client connection to a MatrixHandler:
+ * the matrix the client uploaded (or bound from the matrix registry), whether the
+ * client asked to stop, the submarine stream or the banded upload it is feeding,
+ * and the requests that are still being computed.
+ * Keeping it per connection lets one handler serve many clients at once.
+ * <p>
+ * Pipelined requests may finish in any order. Replies of ordered requests are held
+ * back until every earlier ordered request was answered; unordered replies (which
+ * carry their own request id) are sent as soon as they are ready.
+ * <p>
+ * A session answers at most MAX_REQUESTS_IN_FLIGHT requests at a time, counting
+ * the replies that wait for an earlier one: beginRequest blocks the thread that hands
+ * in the frames until earlier requests were answered, so the connection is not read
+ * any further and one client can not queue unbounded work or replies.
+ * <p>
+ * The state is guarded by a ReentrantLock rather than a monitor, so a virtual thread
+ * that waits for room does not pin its carrier thread.
+ */
+public class MatrixSession {
+    // marks an ordered request that finished without a reply
+    private static final byte[] NO_REPLY = new byte[0];
+    /** The number of requests a session has begun and not answered yet, above which beginRequest waits. */
+    public static final int MAX_REQUESTS_IN_FLIGHT = 64;
+
+    private volatile @Nullable Matrix matrix;
+    // the current matrix if the session holds a reference to it in the matrix registry
+    private @Nullable Matrix registeredMatrix;
+    private @Nullable SubmarineStream submarineStream;
+    private @Nullable MatrixUpload matrixUpload;
+    private boolean closed;
+    private volatile boolean stopped;
+    private final @Nullable IReplySink replySink;
+    private int inFlight;
+    private long nextSequence;
+    private long nextToSend;
+    private final @NotNull Map<Long, byte[]> readyReplies;
+    private final @NotNull ReentrantLock lock;
+    // signalled whenever a request ends or the session closes
+    private final @NotNull Condition requestsChanged;
+
+    /**
+     * Constructs a session.
+     *
+     * @param i_ReplySink where replies of the session are sent, or null if the
+     *                    session writes its replies itself
+     */
+    public MatrixSession(@Nullable IReplySink i_ReplySink) {
+        this.replySink = i_ReplySink;
+        this.readyReplies = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.requestsChanged = lock.newCondition();
+    }
+
+    /**
+     * Gets the matrix the client is currently working on.
+     *
+     * @return the current matrix, or null if none was uploaded yet
+     */
+    public @Nullable Matrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Replaces the matrix the client is working on. Requests that are
+     * already running keep working on the matrix they started with.
+     *
+     * @param i_Matrix     the new matrix
+     * @param i_Registered true if the session took a reference to the matrix in the matrix registry
+     * @return the registered matrix whose reference the session no longer needs, or null if there is none
+     */
+    public @Nullable Matrix setMatrix(@NotNull Matrix i_Matrix, boolean i_Registered) {
+        lock.lock();
+        try {
+            if (closed) {
+                // the connection is gone: keep no reference
+                return i_Registered ? i_Matrix : null;
+            }
+            Matrix previous = registeredMatrix;
+            this.matrix = i_Matrix;
+            this.registeredMatrix = i_Registered ? i_Matrix : null;
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the session for good. Matrices bound afterwards are not kept, and requests no longer wait for room.
+     *
+     * @return the registered matrix whose reference the session no longer needs, or null if there is none
+     */
+    public @Nullable Matrix close() {
+        lock.lock();
+        try {
+            closed = true;
+            requestsChanged.signalAll();
+            Matrix previous = registeredMatrix;
+            registeredMatrix = null;
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts counting the submarines of a matrix sent row by row, dropping the stream
+     * the client was feeding before, if any.
+     *
+     * @param i_Stream the new stream
+     */
+    public void beginSubmarineStream(@NotNull SubmarineStream i_Stream) {
+        lock.lock();
+        try {
+            this.submarineStream = i_Stream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the submarine stream the client is feeding.
+     *
+     * @return the stream, or null if the client did not begin one
+     */
+    public @Nullable SubmarineStream getSubmarineStream() {
+        lock.lock();
+        try {
+            return submarineStream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the submarine stream the client is feeding.
+     *
+     * @return the stream, or null if the client did not begin one
+     */
+    public @Nullable SubmarineStream endSubmarineStream() {
+        lock.lock();
+        try {
+            SubmarineStream stream = submarineStream;
+            submarineStream = null;
+            return stream;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts the banded upload of a matrix, dropping the upload the client was feeding before, if any.
+     *
+     * @param i_Upload the new upload
+     */
+    public void beginMatrixUpload(@NotNull MatrixUpload i_Upload) {
+        lock.lock();
+        try {
+            this.matrixUpload = i_Upload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the banded upload the client is feeding.
+     *
+     * @return the upload, or null if the client did not begin one
+     */
+    public @Nullable MatrixUpload getMatrixUpload() {
+        lock.lock();
+        try {
+            return matrixUpload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the banded upload the client is feeding.
+     *
+     * @return the upload, or null if the client did not begin one
+     */
+    public @Nullable MatrixUpload endMatrixUpload() {
+        lock.lock();
+        try {
+            MatrixUpload upload = matrixUpload;
+            matrixUpload = null;
+            return upload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of columns of the current matrix, which binary clients need to pack indices.
+     *
+     * @return the number of columns, or 0 if no matrix was uploaded yet
+     */
+    public int getNumOfColumns() {
+        Matrix current = matrix;
+        return current != null ? current.getNumOfColumns() : 0;
+    }
+
+    /**
+     * Checks if the client asked to end the session.
+     *
+     * @return true if the client sent stop, false otherwise
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Marks the session as over. Requests that are still running are answered first.
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Checks if the session is over and every request was answered.
+     *
+     * @return true if the connection can be closed, false otherwise
+     */
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return stopped && inFlight == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a request that has just arrived, once there is room for it.
+     *
+     * @param i_Ordered true if the reply must be sent in arrival order
+     * @return the ticket to complete the request with
+     * @throws InterruptedIOException if the thread was interrupted while waiting for room
+     */
+    public long beginRequest(boolean i_Ordered) throws InterruptedIOException {
+        return beginRequests(1, i_Ordered);
+    }
+
+    /**
+     * Registers several requests that arrived together, such as the pairs of a batch, once there
+     * is room for all of them. A group larger than MAX_REQUESTS_IN_FLIGHT waits until the session is idle.
+     * Ordered requests get consecutive tickets.
+     *
+     * @param i_NumOfRequests the number of requests
+     * @param i_Ordered       true if the replies must be sent in arrival order
+     * @return the ticket of the first request, or -1 for unordered requests
+     * @throws InterruptedIOException if the thread was interrupted while waiting for room
+     */
+    public long beginRequests(int i_NumOfRequests, boolean i_Ordered) throws InterruptedIOException {
+        lock.lock();
+        try {
+            // replies held back for an earlier request still take memory, so they count as well
+            while (!closed && inFlight > 0 && inFlight + readyReplies.size() + i_NumOfRequests > MAX_REQUESTS_IN_FLIGHT) {
+                try {
+                    requestsChanged.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for earlier requests");
+                }
+            }
+            inFlight += i_NumOfRequests;
+            if (!i_Ordered) {
+                return -1;
+            }
+            long first = nextSequence;
+            nextSequence += i_NumOfRequests;
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes a request and sends every reply that is now allowed to go out.
+     *
+     * @param i_Ticket the ticket returned by beginRequest
+     * @param i_Reply  the reply payload, or null if the request has no reply
+     */
+    public void completeRequest(long i_Ticket, @Nullable byte[] i_Reply) {
+        lock.lock();
+        try {
+            inFlight--;
+            // sending while holding the lock keeps replies of concurrent completions in order;
+            // a reply sink only queues the reply, so no client can hold up the thread that completes
+            if (i_Ticket < 0) {
+                if (i_Reply != null && replySink != null) {
+                    replySink.send(i_Reply);
+                }
+            } else {
+                readyReplies.put(i_Ticket, i_Reply != null ? i_Reply : NO_REPLY);
+                byte[] next;
+                while ((next = readyReplies.remove(nextToSend)) != null) {
+                    nextToSend++;
+                    if (next != NO_REPLY && replySink != null) {
+                        replySink.send(next);
+                    }
+                }
+            }
+            // wakes both awaitIdle and the requests that wait for room
+            requestsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails a request; the connection is ended.
+     *
+     * @param i_Cause the reason of the failure
+     */
+    public void failRequest(@NotNull Throwable i_Cause) {
+        lock.lock();
+        try {
+            inFlight--;
+            stopped = true;
+            if (replySink != null) {
+                replySink.fail(i_Cause);
+            }
+            requestsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every request of the session was answered.
+     */
+    public void awaitIdle() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight > 0) {
+                requestsChanged.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A matrix that arrives in bands of rows, and is worked on while the later bands
+ * are still on their way. As soon as enough rows arrived, they are labeled as a band
+ * of their own on the ComputeScheduler, together with the size and bounding box of every
+ * component of the band, and they are added to the fingerprint of the matrix.
+ * <p>
+ * When the last band arrived, only the borders between the bands are left to join
+ * (ConnectedComponents.mergeBands), so the matrix comes out with its fingerprint and
+ * its component labels, and counting its submarines takes one step per component
+ * when its cells are all 0 or 1.
+ * The transfer and the labeling overlap, so the matrix is ready about when the slower
+ * of the two is done rather than after both.
+ * <p>
+ * Large matrices are received straight into cells off the heap (see Matrix.OFF_HEAP_THRESHOLD).
+ * The labels stay on the heap, so a server drops them from the matrix once it counted its submarines.
+ * <p>
+ * The whole matrix is allocated when the upload begins, so a server reserves getNumOfBytes
+ * of its memory budget first, and once the upload ends it registers the matrix, charged for
+ * its cells only, in place of the reservation (see MatrixHandler).
+ * <p>
+ * An upload belongs to one producer: bands must be given in order, by one thread at a time.
+ */
+public final class MatrixUpload {
+    private final int numOfRows;
+    private final int numOfColumns;
+    // the matrix being filled, without its fingerprint
+    private final @NotNull Matrix receiving;
+    private final @NotNull int[] labels;
+    // fewer rows are collected before they are labeled, so the work of a band outweighs its scheduling
+    private final int minBandRows;
+    private final @NotNull ComputeScheduler scheduler;
+    private final @NotNull Fingerprint.Hasher hasher;
+    private final @NotNull List<LabeledBand> bands;
+    // the fingerprint is a hash of the cells in order, so the bands are hashed one after the other
+    private @NotNull CompletableFuture<Void> hashed;
+    private int receivedRows;
+    private int labeledRows;
+
+    /**
+     * Starts the upload of a matrix of the given shape.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @throws IllegalArgumentException if the shape is empty or the matrix does not fit into an array
+     */
+    public MatrixUpload(int i_NumOfRows, int i_NumOfColumns) {
+        this(i_NumOfRows, i_NumOfColumns, ConnectedComponents.defaultBandRows(i_NumOfColumns), ComputeScheduler.getInstance());
+    }
+
+    /**
+     * Starts the upload of a matrix of the given shape, labeled in bands of at least the given height.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @param i_MinBandRows  the number of rows that are collected before they are labeled
+     * @param i_Scheduler    the scheduler that labels the bands
+     * @throws IllegalArgumentException if the shape is empty or the matrix does not fit into an array
+     */
+    MatrixUpload(int i_NumOfRows, int i_NumOfColumns, int i_MinBandRows, @NotNull ComputeScheduler i_Scheduler) {
+        numOfBytesOf(i_NumOfRows, i_NumOfColumns);
+        this.numOfRows = i_NumOfRows;
+        this.numOfColumns = i_NumOfColumns;
+        this.receiving = Matrix.allocate(i_NumOfRows, i_NumOfColumns);
+        this.labels = new int[i_NumOfRows * i_NumOfColumns];
+        this.minBandRows = Math.max(1, i_MinBandRows);
+        this.scheduler = i_Scheduler;
+        this.hasher = new Fingerprint.Hasher(i_NumOfRows, i_NumOfColumns);
+        this.bands = new ArrayList<>();
+        this.hashed = CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Gets the memory an upload of the given shape holds until it ends: the cells and their labels.
+     *
+     * @param i_NumOfRows    the number of rows
+     * @param i_NumOfColumns the number of columns
+     * @return the number of bytes
+     * @throws IllegalArgumentException if the shape is empty or the matrix does not fit into an array
+     */
+    public static long numOfBytesOf(int i_NumOfRows, int i_NumOfColumns) {
+        if (i_NumOfRows <= 0 || i_NumOfColumns <= 0 || (long) i_NumOfRows * i_NumOfColumns > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("illegal matrix size " + i_NumOfRows + "x" + i_NumOfColumns);
+        }
+        return 2L * Integer.BYTES * i_NumOfRows * i_NumOfColumns;
+    }
+
+    /**
+     * Gets the memory the upload holds until it ends.
+     *
+     * @return the number of bytes
+     */
+    public long getNumOfBytes() {
+        return numOfBytesOf(numOfRows, numOfColumns);
+    }
+
+    /**
+     * Gets the number of columns of the matrix.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return numOfColumns;
+    }
+
+    /**
+     * Gets the number of rows that arrived so far.
+     *
+     * @return the number of rows
+     */
+    public int getNumOfReceivedRows() {
+        return receivedRows;
+    }
+
+    /**
+     * Adds the next band of rows, and starts working on the rows that arrived if there are enough of them.
+     *
+     * @param i_Rows the rows that follow the rows that arrived so far
+     * @throws IllegalArgumentException if a row does not have the width of the matrix, or the matrix has no room for the rows
+     */
+    public void acceptRows(@NotNull int[][] i_Rows) {
+        if (i_Rows.length > numOfRows - receivedRows) {
+            throw new IllegalArgumentException("the matrix has room for " + (numOfRows - receivedRows)
+                    + " more rows, not " + i_Rows.length);
+        }
+        for (int[] row : i_Rows) {
+            if (row.length != numOfColumns) {
+                throw new IllegalArgumentException("row " + receivedRows + " has " + row.length
+                        + " columns instead of " + numOfColumns);
+            }
+        }
+        for (int[] row : i_Rows) {
+            receiving.setRow(receivedRows++, row);
+        }
+        if (receivedRows - labeledRows >= minBandRows) {
+            startBand();
+        }
+    }
+
+    /**
+     * Ends the upload once every row arrived: waits for the bands, joins them and builds the matrix.
+     *
+     * @return the matrix, with its fingerprint and its component labels
+     * @throws IllegalStateException if rows are missing
+     */
+    public @NotNull Matrix finish() {
+        if (receivedRows != numOfRows) {
+            throw new IllegalStateException("only " + receivedRows + " of " + numOfRows + " rows arrived");
+        }
+        if (labeledRows < receivedRows) {
+            startBand();
+        }
+        int numOfBands = bands.size();
+        int[] bandStarts = new int[numOfBands + 1];
+        int[] bandComponents = new int[numOfBands];
+        for (int band = 0; band < numOfBands; band++) {
+            LabeledBand labeled = bands.get(band);
+            labeled.done.join();
+            bandStarts[band] = labeled.firstRow;
+            bandComponents[band] = labeled.numOfComponents;
+        }
+        bandStarts[numOfBands] = numOfRows;
+        hashed.join();
+
+        ConnectedComponents.BandMerge merge = ConnectedComponents.getInstance()
+                .mergeBands(labels, numOfColumns, bandStarts, bandComponents, scheduler);
+        int numOfComponents = merge.numOfComponents();
+        int[] sizes = new int[numOfComponents + 1];
+        int[] boxes = new int[4 * (numOfComponents + 1)];
+        for (int band = 0; band < numOfBands; band++) {
+            LabeledBand labeled = bands.get(band);
+            int offset = merge.bandOffsets()[band] - 1;
+            for (int label = 1; label <= labeled.numOfComponents; label++) {
+                int component = merge.finalLabels()[offset + label];
+                int box = 4 * component;
+                int bandBox = 4 * label;
+                // the bands are joined from the top down, and the labels of a band in scan order,
+                // so the first label of a component opens its box; several labels of one band
+                // may belong to the same component through a band below
+                if (sizes[component] == 0) {
+                    boxes[box] = labeled.boxes[bandBox];
+                    boxes[box + 1] = labeled.boxes[bandBox + 1];
+                    boxes[box + 2] = labeled.boxes[bandBox + 2];
+                    boxes[box + 3] = labeled.boxes[bandBox + 3];
+                } else {
+                    boxes[box + 1] = Math.max(boxes[box + 1], labeled.boxes[bandBox + 1]);
+                    boxes[box + 2] = Math.min(boxes[box + 2], labeled.boxes[bandBox + 2]);
+                    boxes[box + 3] = Math.max(boxes[box + 3], labeled.boxes[bandBox + 3]);
+                }
+                sizes[component] += labeled.sizes[label];
+            }
+        }
+
+        Matrix matrix = receiving.withFingerprint(hasher.finish());
+        matrix.componentLabels = new ComponentLabels(numOfRows, numOfColumns, labels, numOfComponents, sizes, boxes);
+        return matrix;
+    }
+
+    /**
+     * Starts labeling and hashing the rows that arrived since the last band.
+     */
+    private void startBand() {
+        LabeledBand band = new LabeledBand(labeledRows, receivedRows);
+        band.done = CompletableFuture.runAsync(band::label, scheduler.getPool());
+        bands.add(band);
+        hashed = hashed.thenRunAsync(() -> {
+            int[] values = new int[numOfColumns];
+            for (int row = band.firstRow; row < band.endRow; row++) {
+                receiving.getRow(row, values);
+                hasher.update(values, 0, numOfColumns);
+            }
+        }, scheduler.getPool());
+        labeledRows = receivedRows;
+    }
+
+    /**
+     * A band of rows that is labeled on its own.
+     */
+    private final class LabeledBand {
+        private final int firstRow;
+        private final int endRow;
+        private @NotNull CompletableFuture<Void> done;
+        // written by label, read once done completed
+        private int numOfComponents;
+        private @NotNull int[] sizes;
+        private @NotNull int[] boxes;
+
+        private LabeledBand(int i_FirstRow, int i_EndRow) {
+            this.firstRow = i_FirstRow;
+            this.endRow = i_EndRow;
+            this.done = CompletableFuture.completedFuture(null);
+            this.sizes = new int[0];
+            this.boxes = new int[0];
+        }
+
+        /**
+         * Labels the band and gathers the size and bounding box of every component of the band.
+         */
+        private void label() {
+            numOfComponents = ConnectedComponents.getInstance().labelBand(receiving, labels, firstRow, endRow);
+            sizes = new int[numOfComponents + 1];
+            boxes = new int[4 * (numOfComponents + 1)];
+            ComponentLabels.gather(labels, numOfColumns, firstRow, endRow, sizes, boxes);
+        }
+    }
+}
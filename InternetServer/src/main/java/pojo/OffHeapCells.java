@@ -0,0 +1,173 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The cells of a matrix kept outside the Java heap, in direct little-endian buffers of
+ * at most 1 GB each (a single buffer can not pass 2 GB). The garbage collector never
+ * copies or scans them, and loading a matrix needs no second on-heap copy of it.
+ * The memory is given back when the cells are no longer reachable.
+ * <p>
+ * The cells may also be a read-only mapping of a file (see MatrixFile), in which case
+ * they live in the page cache of the operating system, shared by every process that maps
+ * the same file, and are read from the file as they are first touched.
+ * <p>
+ * The buffers are only read through absolute gets, so any number of threads may read
+ * the cells at once.
+ */
+public final class OffHeapCells {
+    // 2^28 ints are 1 GB
+    static final int CHUNK_SHIFT = 28;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final @NotNull ByteBuffer[] chunks;
+    private final int numOfCells;
+    private final boolean mapped;
+
+    /**
+     * Constructs the cells over buffers that hold them, 1 << CHUNK_SHIFT cells per buffer
+     * except for the last one.
+     *
+     * @param i_Chunks     the buffers, in little-endian order
+     * @param i_NumOfCells the number of cells
+     * @param i_Mapped     whether the buffers map a file
+     */
+    private OffHeapCells(@NotNull ByteBuffer[] i_Chunks, int i_NumOfCells, boolean i_Mapped) {
+        this.chunks = i_Chunks;
+        this.numOfCells = i_NumOfCells;
+        this.mapped = i_Mapped;
+    }
+
+    /**
+     * Allocates zeroed cells outside the heap.
+     *
+     * @param i_NumOfCells the number of cells
+     * @return the cells
+     */
+    public static @NotNull OffHeapCells allocate(int i_NumOfCells) {
+        int numOfChunks = (int) (((long) i_NumOfCells + CHUNK_MASK) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[numOfChunks];
+        for (int chunk = 0; chunk < numOfChunks; chunk++) {
+            int chunkCells = Math.min(CHUNK_MASK + 1, i_NumOfCells - (chunk << CHUNK_SHIFT));
+            chunks[chunk] = ByteBuffer.allocateDirect(chunkCells * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapCells(chunks, i_NumOfCells, false);
+    }
+
+    /**
+     * Maps little-endian cells of a file, read-only. The mapping stays valid after the channel is closed.
+     *
+     * @param i_Channel    the channel of the file
+     * @param i_Position   the position of the first cell in the file
+     * @param i_NumOfCells the number of cells
+     * @return the cells
+     * @throws IOException if the file can not be mapped
+     */
+    static @NotNull OffHeapCells map(@NotNull FileChannel i_Channel, long i_Position, int i_NumOfCells) throws IOException {
+        int numOfChunks = (int) (((long) i_NumOfCells + CHUNK_MASK) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[numOfChunks];
+        for (int chunk = 0; chunk < numOfChunks; chunk++) {
+            int chunkCells = Math.min(CHUNK_MASK + 1, i_NumOfCells - (chunk << CHUNK_SHIFT));
+            long position = i_Position + ((long) chunk << CHUNK_SHIFT) * Integer.BYTES;
+            chunks[chunk] = i_Channel.map(FileChannel.MapMode.READ_ONLY, position, (long) chunkCells * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new OffHeapCells(chunks, i_NumOfCells, true);
+    }
+
+    /**
+     * Gets the number of cells.
+     *
+     * @return the number of cells
+     */
+    public int size() {
+        return numOfCells;
+    }
+
+    /**
+     * Checks if the cells are a mapping of a file.
+     *
+     * @return true if the cells map a file, false if they were allocated
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Gets the memory the cells take outside the heap.
+     *
+     * @return the number of bytes
+     */
+    public long getNumOfBytes() {
+        return (long) Integer.BYTES * numOfCells;
+    }
+
+    /**
+     * Gets the value of a cell.
+     *
+     * @param i_CellId the id of the cell
+     * @return the value of the cell
+     */
+    public int get(int i_CellId) {
+        return chunks[i_CellId >>> CHUNK_SHIFT].getInt((i_CellId & CHUNK_MASK) << 2);
+    }
+
+    /**
+     * Sets the value of a cell. Cells are set while a matrix is filled, before it is shared;
+     * mapped cells are read-only.
+     *
+     * @param i_CellId the id of the cell
+     * @param i_Value  the new value
+     */
+    void set(int i_CellId, int i_Value) {
+        chunks[i_CellId >>> CHUNK_SHIFT].putInt((i_CellId & CHUNK_MASK) << 2, i_Value);
+    }
+
+    /**
+     * Copies consecutive cells into an array, a chunk at a time.
+     *
+     * @param i_FirstCell   the id of the first cell
+     * @param i_Destination the array to copy to
+     * @param i_Position    the position of the first copied cell in the array
+     * @param i_Length      the number of cells
+     */
+    void copyTo(int i_FirstCell, @NotNull int[] i_Destination, int i_Position, int i_Length) {
+        int cell = i_FirstCell;
+        int position = i_Position;
+        int end = i_Position + i_Length;
+        while (position < end) {
+            int inChunk = cell & CHUNK_MASK;
+            int count = Math.min(end - position, CHUNK_MASK + 1 - inChunk);
+            // a view of the chunk, so concurrent readers do not share a position
+            chunks[cell >>> CHUNK_SHIFT].asIntBuffer().get(inChunk, i_Destination, position, count);
+            cell += count;
+            position += count;
+        }
+    }
+
+    /**
+     * Copies consecutive cells from an array, a chunk at a time.
+     *
+     * @param i_Source    the array to copy from
+     * @param i_Position  the position of the first cell in the array
+     * @param i_FirstCell the id of the first cell to set
+     * @param i_Length    the number of cells
+     */
+    void copyFrom(@NotNull int[] i_Source, int i_Position, int i_FirstCell, int i_Length) {
+        int cell = i_FirstCell;
+        int position = i_Position;
+        int end = i_Position + i_Length;
+        while (position < end) {
+            int inChunk = cell & CHUNK_MASK;
+            int count = Math.min(end - position, CHUNK_MASK + 1 - inChunk);
+            chunks[cell >>> CHUNK_SHIFT].asIntBuffer().put(inChunk, i_Source, position, count);
+            cell += count;
+            position += count;
+        }
+    }
+}
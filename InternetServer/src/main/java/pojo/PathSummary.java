@@ -0,0 +1,17 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * The length and the number of the shortest paths between two cells.
+ *
+ * @param distance the number of steps of a shortest path, or -1 if there is no path
+ * @param count    the number of shortest paths, which is 0 if there is no path
+ */
+public record PathSummary(int distance, @NotNull BigInteger count) implements Serializable {
+    /** The summary of a destination that can not be reached. */
+    public static final @NotNull PathSummary UNREACHABLE = new PathSummary(-1, BigInteger.ZERO);
+}
@@ -0,0 +1,70 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identifies the result of a query: the content of the matrix it ran on,
+ * the command and the arguments of the command.
+ */
+public final class QueryKey {
+    private final @NotNull Fingerprint fingerprint;
+    private final @NotNull MatrixCommand command;
+    private final @NotNull Object[] args;
+    private final int hash;
+
+    /**
+     * Constructs the key of a query.
+     *
+     * @param i_Fingerprint the fingerprint of the matrix
+     * @param i_Command     the command
+     * @param i_Args        the arguments of the command (indices and numbers), which must not change afterwards
+     */
+    public QueryKey(@NotNull Fingerprint i_Fingerprint, @NotNull MatrixCommand i_Command, @NotNull Object[] i_Args) {
+        this.fingerprint = i_Fingerprint;
+        this.command = i_Command;
+        this.args = i_Args;
+        this.hash = 31 * Objects.hash(i_Fingerprint, i_Command) + Arrays.hashCode(i_Args);
+    }
+
+    /**
+     * Gets the fingerprint of the matrix the query ran on.
+     *
+     * @return the fingerprint
+     */
+    public @NotNull Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the command of the query.
+     *
+     * @return the command
+     */
+    public @NotNull MatrixCommand getCommand() {
+        return command;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QueryKey other)) return false;
+        return hash == other.hash &&
+                command == other.command &&
+                fingerprint.equals(other.fingerprint) &&
+                Arrays.equals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return command.getCommandName() + Arrays.toString(args) + "@" + fingerprint;
+    }
+}
@@ -0,0 +1,164 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A server-wide cache of query results, shared by all sessions.
+ * Results are keyed by the fingerprint of the matrix, the command and its
+ * arguments, so a client that uploads a matrix some client already asked about
+ * gets the stored answer. The cache is bounded by the estimated memory of the
+ * results it holds and evicts the least recently used result first.
+ * <p>
+ * Cached results are shared between clients and must not be modified.
+ */
+public final class ResultCache {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    // rough JVM sizes used to estimate the memory of a result
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int COLLECTION_OVERHEAD = 64;
+    private static final int ELEMENT_OVERHEAD = 48;
+    private volatile static ResultCache instance;
+
+    private final @NotNull LinkedHashMap<QueryKey, CachedResult> entries;
+    private long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public static @NotNull ResultCache getInstance() {
+        if (instance == null) {
+            synchronized (ResultCache.class) {
+                if (instance == null) {
+                    instance = new ResultCache(DEFAULT_MAX_BYTES);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Constructs a cache; the server uses the shared one from getInstance.
+     *
+     * @param i_MaxBytes the estimated memory the cached results may take
+     */
+    public ResultCache(long i_MaxBytes) {
+        this.maxBytes = Math.max(0, i_MaxBytes);
+        // access order makes the first entry the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Looks up the result of a query.
+     *
+     * @param i_Key the query
+     * @return the cached result, or null if it is not cached
+     */
+    public synchronized @Nullable Object get(@NotNull QueryKey i_Key) {
+        CachedResult cached = entries.get(i_Key);
+        if (cached == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.result;
+    }
+
+    /**
+     * Stores the result of a query, evicting the least recently used results if the cache is full.
+     * A result larger than the whole cache is not stored.
+     *
+     * @param i_Key    the query
+     * @param i_Result the result, which must not be modified afterwards
+     */
+    public void put(@NotNull QueryKey i_Key, @NotNull Object i_Result) {
+        // a result may hold many paths, so it is measured before taking the lock every lookup needs
+        long size = ENTRY_OVERHEAD + estimateBytes(i_Result);
+        synchronized (this) {
+            if (size > maxBytes) {
+                return;
+            }
+            CachedResult previous = entries.put(i_Key, new CachedResult(i_Result, size));
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += size;
+            evictWhileFull();
+        }
+    }
+
+    /**
+     * Changes the memory bound of the cache, evicting results if it shrinks.
+     *
+     * @param i_MaxBytes the estimated memory the cached results may take
+     */
+    public synchronized void setMaxBytes(long i_MaxBytes) {
+        this.maxBytes = Math.max(0, i_MaxBytes);
+        evictWhileFull();
+    }
+
+    /**
+     * Removes every cached result. The counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Gets the counters of the cache.
+     *
+     * @return the counters by name, in a fixed order
+     */
+    public synchronized @NotNull Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("cache.hits", hits);
+        stats.put("cache.misses", misses);
+        stats.put("cache.evictions", evictions);
+        stats.put("cache.entries", (long) entries.size());
+        stats.put("cache.bytes", bytes);
+        stats.put("cache.maxBytes", maxBytes);
+        return stats;
+    }
+
+    /**
+     * Evicts the least recently used results until the cache fits its bound.
+     */
+    private void evictWhileFull() {
+        Iterator<CachedResult> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Estimates the memory of a result: numbers, and (nested) collections of indices or numbers.
+     *
+     * @param i_Result the result
+     * @return the estimated number of bytes
+     */
+    static long estimateBytes(@NotNull Object i_Result) {
+        if (i_Result instanceof Collection<?> collection) {
+            long size = COLLECTION_OVERHEAD;
+            for (Object element : collection) {
+                size += ELEMENT_OVERHEAD + (element instanceof Collection<?> ? estimateBytes(element) : 0);
+            }
+            return size;
+        }
+        if (i_Result instanceof Map<?, ?> map) {
+            return COLLECTION_OVERHEAD + 2L * ELEMENT_OVERHEAD * map.size();
+        }
+        return ELEMENT_OVERHEAD;
+    }
+
+    /**
+     * A cached result and its estimated memory.
+     */
+    private record CachedResult(@NotNull Object result, long bytes) {
+    }
+}
@@ -0,0 +1,253 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The scratch space of one search: visited marks, per-element values and an id
+ * stack/queue. Every thread keeps one context and reuses
+ * its buffers from search to search, so the algorithm engines hold no state of
+ * their own and can run on all pool threads at once without locks.
+ * <p>
+ * A context is taken with acquire and given back with close (use it in a
+ * try-with-resources block). Marks and values are stamped with a generation
+ * number, so starting a new search does not clear the buffers. A search that
+ * runs while the thread's context is taken (a nested search) gets a fresh one.
+ * A search from both ends keeps the other end in the reverse side of the context.
+ * <p>
+ * A search that splits its work over pool threads shares the context of the thread
+ * that acquired it. Its parts claim elements with markAtomically, and publish values
+ * with setValueReleased for parts that read them with getValueAcquired.
+ */
+public final class SearchContext implements AutoCloseable {
+    // buffers of larger graphs are dropped after the search instead of being kept by the thread
+    private static final int MAX_RETAINED_ELEMENTS = 1 << 22;
+    private static final @NotNull ThreadLocal<SearchContext> CONTEXTS = ThreadLocal.withInitial(SearchContext::new);
+    private static final @NotNull VarHandle MARKS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private @NotNull int[] marks;
+    private @NotNull int[] values;
+    private @NotNull int[] ids;
+    private @NotNull int[] scratch;
+    private @NotNull long[] longs;
+    private @Nullable SearchContext reverseSide;
+    private int generation;
+    private boolean inUse;
+    private boolean pooled;
+
+    private SearchContext() {
+        this.marks = new int[0];
+        this.values = new int[0];
+        this.ids = new int[0];
+        this.scratch = new int[0];
+        this.longs = new long[0];
+    }
+
+    /**
+     * Takes the context of the current thread for a search over a graph.
+     *
+     * @param i_NumOfElements the number of elements (ids) of the graph
+     * @return a context whose marks are all clear
+     */
+    public static @NotNull SearchContext acquire(int i_NumOfElements) {
+        SearchContext context = CONTEXTS.get();
+        if (context.inUse) {
+            context = new SearchContext();
+        } else {
+            context.pooled = true;
+        }
+        context.inUse = true;
+        context.ensureCapacity(i_NumOfElements);
+        context.nextGeneration();
+        return context;
+    }
+
+    /**
+     * Gives the context back to its thread.
+     */
+    @Override
+    public void close() {
+        inUse = false;
+        if (pooled && marks.length > MAX_RETAINED_ELEMENTS) {
+            marks = new int[0];
+            values = new int[0];
+            ids = new int[0];
+            generation = 0;
+        }
+        if (scratch.length > MAX_RETAINED_ELEMENTS) {
+            scratch = new int[0];
+        }
+        if (longs.length > MAX_RETAINED_ELEMENTS) {
+            longs = new long[0];
+        }
+        if (reverseSide != null && reverseSide.marks.length > MAX_RETAINED_ELEMENTS) {
+            reverseSide = null;
+        }
+    }
+
+    /**
+     * Clears every mark and value, so the context can start another search over the same graph.
+     */
+    public void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            // the stamps wrapped around: old marks could look current
+            Arrays.fill(marks, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Checks if an element was marked in the current search.
+     *
+     * @param i_Id the id of the element
+     * @return true if the element is marked, false otherwise
+     */
+    public boolean isMarked(int i_Id) {
+        return marks[i_Id] == generation;
+    }
+
+    /**
+     * Marks an element.
+     *
+     * @param i_Id the id of the element
+     * @return true if the element was not marked before, false otherwise
+     */
+    public boolean mark(int i_Id) {
+        if (marks[i_Id] == generation) {
+            return false;
+        }
+        marks[i_Id] = generation;
+        return true;
+    }
+
+    /**
+     * Marks an element, when several threads may try to mark it at the same time.
+     *
+     * @param i_Id the id of the element
+     * @return true if this caller marked the element, false if it was marked before
+     */
+    public boolean markAtomically(int i_Id) {
+        int mark;
+        do {
+            mark = (int) MARKS.getVolatile(marks, i_Id);
+            if (mark == generation) {
+                return false;
+            }
+        } while (!MARKS.compareAndSet(marks, i_Id, mark, generation));
+        return true;
+    }
+
+    /**
+     * Gets the value of an element.
+     *
+     * @param i_Id         the id of the element
+     * @param i_Unassigned the value of an element that was not given one in this search
+     * @return the value of the element
+     */
+    public int getValue(int i_Id, int i_Unassigned) {
+        return marks[i_Id] == generation ? values[i_Id] : i_Unassigned;
+    }
+
+    /**
+     * Gives an element a value, which also marks it.
+     *
+     * @param i_Id    the id of the element
+     * @param i_Value the value
+     */
+    public void setValue(int i_Id, int i_Value) {
+        marks[i_Id] = generation;
+        values[i_Id] = i_Value;
+    }
+
+    /**
+     * Gives an element a value and then marks it, so a thread that sees the mark with
+     * getValueAcquired also sees the value.
+     *
+     * @param i_Id    the id of the element
+     * @param i_Value the value
+     */
+    public void setValueReleased(int i_Id, int i_Value) {
+        values[i_Id] = i_Value;
+        MARKS.setRelease(marks, i_Id, generation);
+    }
+
+    /**
+     * Gets the value of an element that another thread may be giving a value with setValueReleased.
+     *
+     * @param i_Id         the id of the element
+     * @param i_Unassigned the value of an element that was not given one in this search
+     * @return the value of the element
+     */
+    public int getValueAcquired(int i_Id, int i_Unassigned) {
+        return (int) MARKS.getAcquire(marks, i_Id) == generation ? values[i_Id] : i_Unassigned;
+    }
+
+    /**
+     * Gets an array of at least one int per element, for a stack or a queue of ids.
+     *
+     * @return the id buffer, whose content is left from earlier searches
+     */
+    public @NotNull int[] getIds() {
+        return ids;
+    }
+
+    /**
+     * Gets an int array of at least the given length.
+     *
+     * @param i_Length the number of ints needed
+     * @return the scratch buffer, whose content is left from earlier searches
+     */
+    public @NotNull int[] getScratch(int i_Length) {
+        if (scratch.length < i_Length) {
+            scratch = new int[Math.max(i_Length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+
+    /**
+     * Gets a long array of at least one long per element, for example for distances that may not fit an int.
+     * Its content is left from earlier searches: use the marks to know which entries the search set.
+     *
+     * @return the long buffer
+     */
+    public @NotNull long[] getLongs() {
+        if (longs.length < marks.length) {
+            longs = new long[marks.length];
+        }
+        return longs;
+    }
+
+    /**
+     * Gets a second context for the same search, for the side that starts at the other end.
+     * It has buffers of its own, whose marks are all clear.
+     *
+     * @return the reverse side of the context
+     */
+    public @NotNull SearchContext getReverseSide() {
+        if (reverseSide == null) {
+            reverseSide = new SearchContext();
+        }
+        reverseSide.ensureCapacity(marks.length);
+        reverseSide.nextGeneration();
+        return reverseSide;
+    }
+
+    /**
+     * Grows the buffers to hold the given number of elements.
+     *
+     * @param i_NumOfElements the number of elements of the graph
+     */
+    private void ensureCapacity(int i_NumOfElements) {
+        if (marks.length < i_NumOfElements) {
+            marks = new int[i_NumOfElements];
+            values = new int[i_NumOfElements];
+            ids = new int[i_NumOfElements];
+            generation = 0;
+        }
+    }
+}
@@ -0,0 +1,757 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds the shortest paths between two cells of a matrix.
+ * A breadth-first search over the cell ids gives every cell its distance from
+ * the source, and every cell remembers the directions of its neighbours one
+ * step closer to the source. Those directions form the predecessor DAG: every walk
+ * back from the destination along them is a shortest path, so the paths are
+ * listed without dead ends and a query costs O(cells) plus the size of the output.
+ * The distance and the number of shortest paths are found without listing any
+ * path: the number is summed over the DAG in BFS order, in O(cells).
+ * <p>
+ * In the bidirectional mode a second search runs from the destination, and the
+ * side with the smaller frontier grows by one layer at a time. Once a new layer
+ * touches the other side, its touched cells are exactly the cells of the shortest
+ * paths at that distance, and every shortest path is a walk back to the source
+ * from one of them joined with a walk on to the destination. The distances and
+ * path sets are the same as those of the forward search, which usually expands
+ * far more cells when the destination is near.
+ * <p>
+ * In the parallel mode the search runs forward, level-synchronous: a large layer is
+ * split into parts that run on the ComputeScheduler. The parts claim the cells of
+ * the next layer atomically, and then every new cell collects its own predecessor
+ * directions from the layer before, so no mask is written by two threads. When the
+ * frontier grows large compared to the cells not reached yet, the layer is found
+ * bottom-up instead: every unreached cell checks whether it touches the frontier.
+ * The layer is then put in cell id order, so the results do not depend on the scheduling.
+ * <p>
+ * A path may only step between cells that are correct data of the traversable
+ * matrix, so a step can be taken in both directions. The distances and predecessor
+ * directions live in the SearchContext of the calling thread; a bidirectional search
+ * keeps the backward side in its reverse side, and the parts of a parallel search
+ * share the context of the thread that started it.
+ */
+public final class ShortestPaths {
+    private volatile static ShortestPaths instance;
+
+    /**
+     * How the engine searches from the source to the destination.
+     */
+    public enum SearchMode {
+        /** a single search from the source */
+        FORWARD,
+        /** searches from both ends that meet in the middle */
+        BIDIRECTIONAL,
+        /** a single search from the source that expands large layers on the compute pool */
+        PARALLEL
+    }
+
+    // layers smaller than this are expanded by the searching thread
+    private static final int PARALLEL_LAYER_CELLS = 1 << 12;
+    // the number of cells a part of a parallel layer handles
+    private static final int PART_CELLS = 1 << 10;
+    // the frontier/unreached ratio that switches to bottom-up, and the frontier/cells ratio that switches back
+    private static final int BOTTOM_UP_ALPHA = 14;
+    private static final int BOTTOM_UP_BETA = 24;
+
+    private volatile @NotNull SearchMode searchMode;
+    private final @NotNull LongAdder expandedCells;
+
+    private ShortestPaths() {
+        this.searchMode = SearchMode.BIDIRECTIONAL;
+        this.expandedCells = new LongAdder();
+    }
+
+    public static @NotNull ShortestPaths getInstance() {
+        if (instance == null) {
+            synchronized (ShortestPaths.class) {
+                if (instance == null) {
+                    instance = new ShortestPaths();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the way the searches run.
+     *
+     * @return the search mode
+     */
+    public @NotNull SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    /**
+     * Sets the way the searches run. Searches that are already running keep their mode.
+     *
+     * @param i_SearchMode the search mode
+     */
+    public void setSearchMode(@NotNull SearchMode i_SearchMode) {
+        this.searchMode = i_SearchMode;
+    }
+
+    /**
+     * Gets the number of cells whose neighbours were scanned by all searches so far.
+     *
+     * @return the number of expanded cells
+     */
+    public long getNumOfExpandedCells() {
+        return expandedCells.sum();
+    }
+
+    /**
+     * Finds the shortest paths from a source cell to a destination cell, up to a maximum number of paths.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @param i_MaxPaths    the maximum number of paths to return
+     * @return the shortest paths, or an empty set if the destination can not be reached
+     */
+    public @NotNull HashSet<List<Index>> findShortestPaths(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                           @NotNull Index i_Destination, int i_MaxPaths) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        HashSet<List<Index>> shortestPaths = new LinkedHashSet<>();
+        if (i_MaxPaths <= 0 || !matrix.contains(i_Source.getRow(), i_Source.getColumn())
+                || !matrix.contains(i_Destination.getRow(), i_Destination.getColumn())) {
+            return shortestPaths;
+        }
+
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            Meeting meeting = search(i_Traversable, matrix.getCellId(i_Source), matrix.getCellId(i_Destination), context);
+            if (meeting != null) {
+                collectPaths(matrix, meeting, i_MaxPaths, shortestPaths);
+            }
+        }
+        return shortestPaths;
+    }
+
+    /**
+     * Finds the shortest paths from one source cell to several destination cells with a single forward
+     * search, which stops once every destination is reached. Large layers run on the compute pool in the
+     * parallel mode; otherwise the search runs on the calling thread.
+     *
+     * @param i_Traversable  the matrix and the values a path may step on
+     * @param i_Source       the first cell of the paths
+     * @param i_Destinations the last cells of the paths
+     * @param i_MaxPaths     the maximum number of paths to return for each destination
+     * @return the shortest paths to every destination, in the order of the destinations
+     */
+    public @NotNull List<HashSet<List<Index>>> findShortestPathsFrom(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                                                     @NotNull List<Index> i_Destinations, int i_MaxPaths) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        List<HashSet<List<Index>>> shortestPaths = new ArrayList<>(i_Destinations.size());
+        // the destinations inside the matrix that were not reached yet
+        int[] pending = new int[i_Destinations.size()];
+        int numOfPending = 0;
+        for (Index destination : i_Destinations) {
+            shortestPaths.add(new LinkedHashSet<>());
+            if (matrix.contains(destination.getRow(), destination.getColumn())) {
+                pending[numOfPending++] = matrix.getCellId(destination);
+            }
+        }
+        if (i_MaxPaths <= 0 || numOfPending == 0 || !matrix.contains(i_Source.getRow(), i_Source.getColumn())) {
+            return shortestPaths;
+        }
+
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            Frontier forward = new Frontier(i_Traversable, context, matrix.getCellId(i_Source));
+            if (searchMode == SearchMode.PARALLEL && ComputeScheduler.getInstance().getRequestParallelism() > 1) {
+                forward.scheduler = ComputeScheduler.getInstance();
+            }
+            try {
+                do {
+                    int stillPending = 0;
+                    for (int i = 0; i < numOfPending; i++) {
+                        if (!context.isMarked(pending[i])) {
+                            pending[stillPending++] = pending[i];
+                        }
+                    }
+                    numOfPending = stillPending;
+                } while (numOfPending > 0 && forward.expand());
+            } finally {
+                expandedCells.add(forward.expanded);
+            }
+
+            for (int i = 0; i < i_Destinations.size(); i++) {
+                Index destination = i_Destinations.get(i);
+                if (!matrix.contains(destination.getRow(), destination.getColumn())) {
+                    continue;
+                }
+                int cell = matrix.getCellId(destination);
+                if (context.isMarked(cell)) {
+                    Meeting meeting = new Meeting(context.getValue(cell, 0), new int[]{cell}, forward, null);
+                    collectPaths(matrix, meeting, i_MaxPaths, shortestPaths.get(i));
+                }
+            }
+        }
+        return shortestPaths;
+    }
+
+    /**
+     * Finds the length of the shortest paths from a source cell to a destination cell.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the number of steps of a shortest path, or -1 if the destination can not be reached
+     */
+    public int findDistance(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        return summarize(i_Traversable, i_Source, i_Destination, false).distance();
+    }
+
+    /**
+     * Counts the shortest paths from a source cell to a destination cell without listing them.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the number of shortest paths, which is 0 if the destination can not be reached
+     */
+    public @NotNull BigInteger countShortestPaths(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        return summarize(i_Traversable, i_Source, i_Destination, true).count();
+    }
+
+    /**
+     * Finds both the length and the number of the shortest paths from a source cell to a destination cell.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the distance and the number of shortest paths
+     */
+    public @NotNull PathSummary summarize(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        return summarize(i_Traversable, i_Source, i_Destination, true);
+    }
+
+    /**
+     * Runs the search and optionally counts the paths.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @param i_Count       true to count the paths, false if only the distance is needed
+     * @return the distance and the number of shortest paths (1 for a reachable destination if not counted)
+     */
+    private @NotNull PathSummary summarize(@NotNull TraversableMatrix i_Traversable, @NotNull Index i_Source,
+                                           @NotNull Index i_Destination, boolean i_Count) {
+        Matrix matrix = i_Traversable.getInnerMatrix();
+        if (!matrix.contains(i_Source.getRow(), i_Source.getColumn())
+                || !matrix.contains(i_Destination.getRow(), i_Destination.getColumn())) {
+            return PathSummary.UNREACHABLE;
+        }
+
+        try (SearchContext context = SearchContext.acquire(matrix.getNumOfCells())) {
+            Meeting meeting = search(i_Traversable, matrix.getCellId(i_Source), matrix.getCellId(i_Destination), context);
+            if (meeting == null) {
+                return PathSummary.UNREACHABLE;
+            }
+            return new PathSummary(meeting.distance(), i_Count ? countPaths(matrix, meeting) : BigInteger.ONE);
+        }
+    }
+
+    /**
+     * Runs the search of the current mode.
+     *
+     * @param i_Traversable the matrix and the values a path may step on
+     * @param i_Source      the id of the source cell
+     * @param i_Destination the id of the destination cell
+     * @param i_Context     the context of the search
+     * @return where the sides of the search met, or null if the destination can not be reached
+     */
+    private @Nullable Meeting search(@NotNull TraversableMatrix i_Traversable, int i_Source, int i_Destination,
+                                     @NotNull SearchContext i_Context) {
+        Frontier forward = new Frontier(i_Traversable, i_Context, i_Source);
+        if (i_Source == i_Destination) {
+            return new Meeting(0, new int[]{i_Source}, forward, null);
+        }
+
+        Frontier backward = null;
+        try {
+            if (searchMode != SearchMode.BIDIRECTIONAL) {
+                if (searchMode == SearchMode.PARALLEL && ComputeScheduler.getInstance().getRequestParallelism() > 1) {
+                    forward.scheduler = ComputeScheduler.getInstance();
+                }
+                while (forward.expand()) {
+                    if (i_Context.isMarked(i_Destination)) {
+                        return new Meeting(forward.depth, new int[]{i_Destination}, forward, null);
+                    }
+                }
+                return null;
+            }
+
+            backward = new Frontier(i_Traversable, i_Context.getReverseSide(), i_Destination);
+            while (true) {
+                Frontier growing = forward.size() <= backward.size() ? forward : backward;
+                Frontier other = growing == forward ? backward : forward;
+                if (!growing.expand()) {
+                    return null;
+                }
+                int[] meetingCells = growing.touchedCells(other);
+                if (meetingCells.length > 0) {
+                    return new Meeting(forward.depth + backward.depth, meetingCells, forward, backward);
+                }
+            }
+        } finally {
+            expandedCells.add(forward.expanded + (backward != null ? backward.expanded : 0));
+        }
+    }
+
+    /**
+     * Lists the shortest paths: every walk from a meeting cell back to the source along the predecessors
+     * of the forward side, joined with every walk on to the destination along the backward side.
+     *
+     * @param i_Matrix   the matrix
+     * @param i_Meeting  where the sides of the search met
+     * @param i_MaxPaths the maximum number of paths to list
+     * @param i_Paths    the set to add the paths to
+     */
+    private void collectPaths(@NotNull Matrix i_Matrix, @NotNull Meeting i_Meeting, int i_MaxPaths,
+                              @NotNull HashSet<List<Index>> i_Paths) {
+        int distance = i_Meeting.distance();
+        // a forward search may have gone deeper than the destination when it had other destinations
+        int step = i_Meeting.backward() == null ? distance : i_Meeting.forward().depth;
+        int[] path = new int[distance + 1];
+        int[] forwardPending = new int[distance + 1];
+        int[] backwardPending = new int[distance + 1];
+        BooleanSupplier addPath = () -> {
+            i_Paths.add(toIndices(i_Matrix, path));
+            return i_Paths.size() < i_MaxPaths;
+        };
+        Frontier backward = i_Meeting.backward();
+        BooleanSupplier onForwardHalf = backward == null ? addPath
+                : () -> walk(i_Matrix, backward.predecessors, path, backwardPending, step, distance, addPath);
+
+        for (int cell : i_Meeting.cells()) {
+            path[step] = cell;
+            if (!walk(i_Matrix, i_Meeting.forward().predecessors, path, forwardPending, step, 0, onForwardHalf)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Walks the predecessor DAG of one side depth first, from a cell of a path to the end of the path
+     * the side started at.
+     *
+     * @param i_Matrix       the matrix
+     * @param i_Predecessors the predecessor directions of the side, per cell
+     * @param i_Path         the path, whose cell at the first step is set
+     * @param i_Pending      per step, the predecessors of the cell at that step not walked yet
+     * @param i_From         the step to start at
+     * @param i_To           the step of the end of the path
+     * @param i_OnWalk       called after every complete walk; returns false to stop
+     * @return false if the walk was stopped, true otherwise
+     */
+    private boolean walk(@NotNull Matrix i_Matrix, @NotNull int[] i_Predecessors, @NotNull int[] i_Path, @NotNull int[] i_Pending,
+                         int i_From, int i_To, @NotNull BooleanSupplier i_OnWalk) {
+        if (i_From == i_To) {
+            return i_OnWalk.getAsBoolean();
+        }
+        int columns = i_Matrix.getNumOfColumns();
+        int stride = i_To > i_From ? 1 : -1;
+        int step = i_From;
+        i_Pending[step] = i_Predecessors[i_Path[step]];
+        while (true) {
+            if (i_Pending[step] == 0) {
+                if (step == i_From) {
+                    return true;
+                }
+                step -= stride;
+                continue;
+            }
+            int direction = Integer.numberOfTrailingZeros(i_Pending[step]);
+            i_Pending[step] &= i_Pending[step] - 1;
+            int cell = i_Path[step];
+            int row = cell / columns;
+            int predecessor = i_Matrix.getNeighbor(cell, row, cell - row * columns, direction);
+            step += stride;
+            i_Path[step] = predecessor;
+            if (step == i_To) {
+                if (!i_OnWalk.getAsBoolean()) {
+                    return false;
+                }
+                step -= stride;
+            } else {
+                i_Pending[step] = i_Predecessors[predecessor];
+            }
+        }
+    }
+
+    /**
+     * Counts the shortest paths: the sum over the meeting cells of the number of walks back to the
+     * source times the number of walks on to the destination.
+     *
+     * @param i_Matrix  the matrix
+     * @param i_Meeting where the sides of the search met
+     * @return the number of shortest paths
+     */
+    private @NotNull BigInteger countPaths(@NotNull Matrix i_Matrix, @NotNull Meeting i_Meeting) {
+        BigInteger[] forwardCounts = i_Meeting.forward().countWalks(i_Matrix, i_Meeting.cells());
+        Frontier backward = i_Meeting.backward();
+        BigInteger[] backwardCounts = backward != null ? backward.countWalks(i_Matrix, i_Meeting.cells()) : null;
+        BigInteger count = BigInteger.ZERO;
+        for (int i = 0; i < forwardCounts.length; i++) {
+            count = count.add(backwardCounts != null ? forwardCounts[i].multiply(backwardCounts[i]) : forwardCounts[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Converts a path of cell ids to a path of indices.
+     *
+     * @param i_Matrix the matrix
+     * @param i_Path   the ids of the path
+     * @return the indices of the path
+     */
+    private @NotNull List<Index> toIndices(@NotNull Matrix i_Matrix, @NotNull int[] i_Path) {
+        List<Index> path = new ArrayList<>(i_Path.length);
+        for (int cell : i_Path) {
+            path.add(i_Matrix.getIndex(cell));
+        }
+        return path;
+    }
+
+    /**
+     * Where the sides of a search met.
+     *
+     * @param distance the length of the shortest paths
+     * @param cells    the cells at the depth of the forward side that all shortest paths go through
+     * @param forward  the side of the source
+     * @param backward the side of the destination, or null if the search ran forward only
+     */
+    private record Meeting(int distance, @NotNull int[] cells, @NotNull Frontier forward, @Nullable Frontier backward) {
+    }
+
+    /**
+     * One side of a search, grown one BFS layer at a time. The value of a reached cell in the
+     * context is its distance from the start of the side, the scratch buffer holds the directions
+     * of its neighbours one step closer to the start as a bit mask, and the id buffer holds the
+     * reached cells in BFS order, the last layer being the frontier.
+     */
+    private static class Frontier {
+        // set to expand large layers on the compute pool
+        private @Nullable ComputeScheduler scheduler;
+        private boolean bottomUp;
+        private final @NotNull TraversableMatrix traversable;
+        private final @NotNull Matrix matrix;
+        private final @NotNull SearchContext context;
+        private final @NotNull int[] order;
+        private final @NotNull int[] predecessors;
+        private int layerStart;
+        private int layerEnd;
+        private int depth;
+        private long expanded;
+
+        Frontier(@NotNull TraversableMatrix i_Traversable, @NotNull SearchContext i_Context, int i_Start) {
+            this.traversable = i_Traversable;
+            this.matrix = i_Traversable.getInnerMatrix();
+            this.context = i_Context;
+            this.order = i_Context.getIds();
+            this.predecessors = i_Context.getScratch(matrix.getNumOfCells());
+            i_Context.setValue(i_Start, 0);
+            predecessors[i_Start] = 0;
+            order[0] = i_Start;
+            layerEnd = 1;
+        }
+
+        /**
+         * Gets the number of cells of the frontier.
+         *
+         * @return the size of the last layer
+         */
+        int size() {
+            return layerEnd - layerStart;
+        }
+
+        /**
+         * Reaches the next layer from the frontier.
+         *
+         * @return true if the new layer has cells, false if the side reached everything it can
+         */
+        boolean expand() {
+            if (scheduler != null && size() >= PARALLEL_LAYER_CELLS) {
+                return expandInParallel(scheduler);
+            }
+            bottomUp = false;
+            int columns = matrix.getNumOfColumns();
+            int tail = layerEnd;
+            for (int position = layerStart; position < layerEnd; position++) {
+                int cell = order[position];
+                if (!traversable.correctData(matrix.getValue(cell))) {
+                    continue;
+                }
+                expanded++;
+                int row = cell / columns;
+                int column = cell - row * columns;
+                for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+                    int neighbor = matrix.getNeighbor(cell, row, column, direction);
+                    if (neighbor < 0 || !traversable.correctData(matrix.getValue(neighbor))) {
+                        continue;
+                    }
+                    int back = 1 << Matrix.getOppositeDirection(direction);
+                    int neighborDistance = context.getValue(neighbor, -1);
+                    if (neighborDistance < 0) {
+                        context.setValue(neighbor, depth + 1);
+                        predecessors[neighbor] = back;
+                        order[tail++] = neighbor;
+                    } else if (neighborDistance == depth + 1) {
+                        predecessors[neighbor] |= back;
+                    }
+                }
+            }
+            layerStart = layerEnd;
+            layerEnd = tail;
+            depth++;
+            return layerEnd > layerStart;
+        }
+
+        /**
+         * Reaches the next layer with parts that run on the compute pool, top-down or bottom-up.
+         *
+         * @param i_Scheduler the scheduler to run the parts on
+         * @return true if the new layer has cells, false if the side reached everything it can
+         */
+        private boolean expandInParallel(@NotNull ComputeScheduler i_Scheduler) {
+            int numOfCells = matrix.getNumOfCells();
+            if (bottomUp ? size() < numOfCells / BOTTOM_UP_BETA : size() > (numOfCells - layerEnd) / BOTTOM_UP_ALPHA) {
+                bottomUp = !bottomUp;
+            }
+
+            int tail;
+            if (bottomUp) {
+                tail = claimBottomUp(i_Scheduler);
+            } else {
+                tail = claimTopDown(i_Scheduler);
+                // the claims raced: give the layer a fixed order
+                Arrays.sort(order, layerEnd, tail);
+                int first = layerEnd;
+                int count = tail - layerEnd;
+                i_Scheduler.forEach(numOfParts(count), part -> {
+                    int end = Math.min(count, (part + 1) * PART_CELLS);
+                    for (int position = part * PART_CELLS; position < end; position++) {
+                        int cell = order[first + position];
+                        predecessors[cell] = frontierDirections(cell);
+                    }
+                });
+            }
+            layerStart = layerEnd;
+            layerEnd = tail;
+            depth++;
+            return layerEnd > layerStart;
+        }
+
+        /**
+         * Claims the unreached neighbours of the frontier cells, one part of the frontier per task.
+         *
+         * @param i_Scheduler the scheduler to run the parts on
+         * @return the end of the new layer in the order
+         */
+        private int claimTopDown(@NotNull ComputeScheduler i_Scheduler) {
+            int first = layerStart;
+            int count = size();
+            int numOfParts = numOfParts(count);
+            int[][] claimed = new int[numOfParts][];
+            int[] numOfClaimed = new int[numOfParts];
+            long[] expandedByPart = new long[numOfParts];
+            int columns = matrix.getNumOfColumns();
+            i_Scheduler.forEach(numOfParts, part -> {
+                int end = Math.min(count, (part + 1) * PART_CELLS);
+                int[] cells = new int[2 * (end - part * PART_CELLS)];
+                int numOfCells = 0;
+                for (int position = part * PART_CELLS; position < end; position++) {
+                    int cell = order[first + position];
+                    if (!traversable.correctData(matrix.getValue(cell))) {
+                        continue;
+                    }
+                    expandedByPart[part]++;
+                    int row = cell / columns;
+                    int column = cell - row * columns;
+                    for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+                        int neighbor = matrix.getNeighbor(cell, row, column, direction);
+                        if (neighbor >= 0 && traversable.correctData(matrix.getValue(neighbor)) && context.markAtomically(neighbor)) {
+                            context.setValue(neighbor, depth + 1);
+                            if (numOfCells == cells.length) {
+                                cells = Arrays.copyOf(cells, 2 * numOfCells);
+                            }
+                            cells[numOfCells++] = neighbor;
+                        }
+                    }
+                }
+                claimed[part] = cells;
+                numOfClaimed[part] = numOfCells;
+            });
+            return appendParts(claimed, numOfClaimed, expandedByPart);
+        }
+
+        /**
+         * Lets every unreached cell check whether it touches the frontier, one range of cells per task.
+         * A cell that does joins the new layer together with its predecessor directions.
+         *
+         * @param i_Scheduler the scheduler to run the parts on
+         * @return the end of the new layer in the order
+         */
+        private int claimBottomUp(@NotNull ComputeScheduler i_Scheduler) {
+            int numOfCells = matrix.getNumOfCells();
+            int numOfParts = numOfParts(numOfCells);
+            int[][] claimed = new int[numOfParts][];
+            int[] numOfClaimed = new int[numOfParts];
+            long[] expandedByPart = new long[numOfParts];
+            i_Scheduler.forEach(numOfParts, part -> {
+                int end = Math.min(numOfCells, (part + 1) * PART_CELLS);
+                int[] cells = new int[end - part * PART_CELLS];
+                int count = 0;
+                for (int cell = part * PART_CELLS; cell < end; cell++) {
+                    if (context.isMarked(cell) || !traversable.correctData(matrix.getValue(cell))) {
+                        continue;
+                    }
+                    expandedByPart[part]++;
+                    int directions = frontierDirections(cell);
+                    if (directions != 0) {
+                        predecessors[cell] = directions;
+                        context.setValueReleased(cell, depth + 1);
+                        cells[count++] = cell;
+                    }
+                }
+                claimed[part] = cells;
+                numOfClaimed[part] = count;
+            });
+            return appendParts(claimed, numOfClaimed, expandedByPart);
+        }
+
+        /**
+         * Gets the directions from a cell to its neighbours in the frontier.
+         *
+         * @param i_Cell the id of the cell
+         * @return the directions as a bit mask
+         */
+        private int frontierDirections(int i_Cell) {
+            int columns = matrix.getNumOfColumns();
+            int row = i_Cell / columns;
+            int column = i_Cell - row * columns;
+            int directions = 0;
+            for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+                int neighbor = matrix.getNeighbor(i_Cell, row, column, direction);
+                if (neighbor >= 0 && context.getValueAcquired(neighbor, -1) == depth
+                        && traversable.correctData(matrix.getValue(neighbor))) {
+                    directions |= 1 << direction;
+                }
+            }
+            return directions;
+        }
+
+        /**
+         * Appends the cells the parts claimed to the order, in the order of the parts.
+         *
+         * @param i_Claimed        the cells of every part
+         * @param i_NumOfClaimed   the number of cells of every part
+         * @param i_ExpandedByPart the number of cells every part expanded
+         * @return the end of the new layer in the order
+         */
+        private int appendParts(@NotNull int[][] i_Claimed, @NotNull int[] i_NumOfClaimed, @NotNull long[] i_ExpandedByPart) {
+            int tail = layerEnd;
+            for (int part = 0; part < i_Claimed.length; part++) {
+                System.arraycopy(i_Claimed[part], 0, order, tail, i_NumOfClaimed[part]);
+                tail += i_NumOfClaimed[part];
+                expanded += i_ExpandedByPart[part];
+            }
+            return tail;
+        }
+
+        /**
+         * Gets the number of parts a range of cells is split into.
+         *
+         * @param i_NumOfCells the number of cells
+         * @return the number of parts
+         */
+        private static int numOfParts(int i_NumOfCells) {
+            return (i_NumOfCells + PART_CELLS - 1) / PART_CELLS;
+        }
+
+        /**
+         * Finds the cells of the frontier that the other side reached.
+         *
+         * @param i_Other the other side of the search
+         * @return the touched cells, in BFS order
+         */
+        @NotNull int[] touchedCells(@NotNull Frontier i_Other) {
+            int count = 0;
+            int[] touched = new int[0];
+            for (int position = layerStart; position < layerEnd; position++) {
+                if (i_Other.context.isMarked(order[position])) {
+                    if (count == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.max(4, count * 2));
+                    }
+                    touched[count++] = order[position];
+                }
+            }
+            return Arrays.copyOf(touched, count);
+        }
+
+        /**
+         * Counts the walks from the start of the side to the given cells: in BFS order, the count of a
+         * cell is the sum of the counts of its predecessors, which all come earlier in the order.
+         * The counts are kept as longs while they fit. Replaces the values of the cells by their positions.
+         *
+         * @param i_Matrix  the matrix
+         * @param i_Targets reached cells
+         * @return the number of walks to each target
+         */
+        @NotNull BigInteger[] countWalks(@NotNull Matrix i_Matrix, @NotNull int[] i_Targets) {
+            for (int position = 0; position < layerEnd; position++) {
+                context.setValue(order[position], position);
+            }
+            int columns = i_Matrix.getNumOfColumns();
+            BigInteger[] targetCounts = new BigInteger[i_Targets.length];
+            long[] counts = new long[layerEnd];
+            counts[0] = 1;
+            try {
+                for (int position = 1; position < layerEnd; position++) {
+                    int cell = order[position];
+                    int row = cell / columns;
+                    long count = 0;
+                    for (int mask = predecessors[cell]; mask != 0; mask &= mask - 1) {
+                        int predecessor = i_Matrix.getNeighbor(cell, row, cell - row * columns, Integer.numberOfTrailingZeros(mask));
+                        count = Math.addExact(count, counts[context.getValue(predecessor, 0)]);
+                    }
+                    counts[position] = count;
+                }
+                for (int i = 0; i < i_Targets.length; i++) {
+                    targetCounts[i] = BigInteger.valueOf(counts[context.getValue(i_Targets[i], 0)]);
+                }
+            } catch (ArithmeticException overflow) {
+                // more walks than a long holds: count again with big integers
+                BigInteger[] bigCounts = new BigInteger[layerEnd];
+                bigCounts[0] = BigInteger.ONE;
+                for (int position = 1; position < layerEnd; position++) {
+                    int cell = order[position];
+                    int row = cell / columns;
+                    BigInteger count = BigInteger.ZERO;
+                    for (int mask = predecessors[cell]; mask != 0; mask &= mask - 1) {
+                        int predecessor = i_Matrix.getNeighbor(cell, row, cell - row * columns, Integer.numberOfTrailingZeros(mask));
+                        count = count.add(bigCounts[context.getValue(predecessor, 0)]);
+                    }
+                    bigCounts[position] = count;
+                }
+                for (int i = 0; i < i_Targets.length; i++) {
+                    targetCounts[i] = bigCounts[context.getValue(i_Targets[i], 0)];
+                }
+            }
+            return targetCounts;
+        }
+    }
+}
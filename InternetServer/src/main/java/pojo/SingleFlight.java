@@ -0,0 +1,95 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical computations that run at the same time. The first caller
+ * of a key runs the computation; callers that arrive with the same key while it
+ * is still running wait for its result instead of computing it again. Once the
+ * computation is done the key is forgotten, so a later call runs it anew (keeping
+ * results is the job of the ResultCache).
+ *
+ * @param <K> the type of the keys, which must implement equals and hashCode
+ */
+public final class SingleFlight<K> {
+    private final @NotNull ConcurrentHashMap<K, CompletableFuture<Object>> calls;
+    private final @NotNull LongAdder computations;
+    private final @NotNull LongAdder coalesced;
+
+    public SingleFlight() {
+        this.calls = new ConcurrentHashMap<>();
+        this.computations = new LongAdder();
+        this.coalesced = new LongAdder();
+    }
+
+    /**
+     * Runs a computation, or waits for the identical one that is already running.
+     * If the computation fails, every caller waiting for it gets its exception.
+     *
+     * @param i_Key         what identifies the computation
+     * @param i_Computation the computation, run by the first caller only
+     * @return the result of the computation
+     */
+    public @Nullable Object run(@NotNull K i_Key, @NotNull Supplier<?> i_Computation) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = calls.putIfAbsent(i_Key, call);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+
+        computations.increment();
+        try {
+            Object result = i_Computation.get();
+            call.complete(result);
+            return result;
+        } catch (RuntimeException | Error throwable) {
+            call.completeExceptionally(throwable);
+            throw throwable;
+        } finally {
+            calls.remove(i_Key, call);
+        }
+    }
+
+    /**
+     * Gets the counters of the coalescing.
+     *
+     * @return the counters by name, in a fixed order
+     */
+    public @NotNull Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("coalescing.computations", computations.sum());
+        stats.put("coalescing.saved", coalesced.sum());
+        stats.put("coalescing.inFlight", (long) calls.size());
+        return stats;
+    }
+
+    /**
+     * Waits for a running computation. Pool workers that wait are compensated by the pool.
+     *
+     * @param i_Call the running computation
+     * @return its result
+     */
+    private static @Nullable Object await(@NotNull CompletableFuture<Object> i_Call) {
+        try {
+            return i_Call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
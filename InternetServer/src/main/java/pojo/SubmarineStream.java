@@ -0,0 +1,343 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Counts the valid submarines of a matrix that arrives row by row, without ever
+ * holding more than two rows. A valid submarine is a connected component of 1 cells
+ * (touching horizontally, vertically or diagonally) that fills its bounding rectangle.
+ * <p>
+ * The rows must hold only 0 and 1 cells. In such a matrix a rectangle holds no 0 exactly
+ * when its component fills it, as Submarines counts it; a cell of another value would
+ * let a rectangle with no 0 be partly outside its component, and telling that apart needs
+ * rows that are gone by the time the component ends.
+ * <p>
+ * Every row is labeled against the labels of the row above, like the raster scan of
+ * ConnectedComponents, with a union-find over the components that are still open.
+ * Every open component carries its size and bounding box. A component with no cell in
+ * the newest row can not grow any more, so it is checked and dropped right away, and the
+ * components that go on are renumbered from 1. The state is therefore a few arrays of
+ * the width of a row, however many rows arrive.
+ * <p>
+ * A stream belongs to one producer: rows must be given in order, by one thread at a time.
+ */
+public final class SubmarineStream {
+    /** The widest row a stream accepts; its state takes about 80 bytes per column. */
+    public static final int MAX_NUM_OF_COLUMNS = 1 << 20;
+    // marks of the union-find representatives at the end of a row, next to the new labels 1..numOfOpen
+    private static final int GOES_ON = -1;
+    private static final int CLOSED = -2;
+
+    private final int numOfColumns;
+    // the open component of every cell of the last row, 1..numOfOpen, or 0
+    private @NotNull int[] previousLabels;
+    // the labels of the row being scanned: union-find elements plus one
+    private @NotNull int[] currentLabels;
+    private final @NotNull UnionFind sets;
+    // size and bounding box of every union-find element, valid for the representatives;
+    // the open components of the last row are the elements 0..numOfOpen-1
+    private @NotNull long[] sizes;
+    private @NotNull long[] firstRows;
+    private @NotNull int[] firstColumns;
+    private @NotNull int[] lastColumns;
+    // the aggregates of the components that go on are gathered here, then swapped in
+    private @NotNull long[] spareSizes;
+    private @NotNull long[] spareFirstRows;
+    private @NotNull int[] spareFirstColumns;
+    private @NotNull int[] spareLastColumns;
+    // per representative at the end of a row: GOES_ON, CLOSED or its new label, 0 until marked
+    private @NotNull int[] renumbered;
+    private int numOfOpen;
+    private long numOfRows;
+    private long numOfValidSubmarines;
+
+    /**
+     * Constructs a stream for a matrix of the given width.
+     *
+     * @param i_NumOfColumns the number of columns of every row
+     * @throws IllegalArgumentException if the number of columns is not positive or above MAX_NUM_OF_COLUMNS
+     */
+    public SubmarineStream(int i_NumOfColumns) {
+        if (i_NumOfColumns <= 0) {
+            throw new IllegalArgumentException("a row must have at least one column");
+        }
+        if (i_NumOfColumns > MAX_NUM_OF_COLUMNS) {
+            throw new IllegalArgumentException("a row may have at most " + MAX_NUM_OF_COLUMNS + " columns, not " + i_NumOfColumns);
+        }
+        this.numOfColumns = i_NumOfColumns;
+        this.previousLabels = new int[i_NumOfColumns];
+        this.currentLabels = new int[i_NumOfColumns];
+        // a row opens at most one element per cell, on top of at most one open component per two cells
+        int capacity = Math.addExact(Math.addExact(i_NumOfColumns, i_NumOfColumns / 2), 2);
+        this.sets = new UnionFind(capacity);
+        this.sizes = new long[capacity];
+        this.firstRows = new long[capacity];
+        this.firstColumns = new int[capacity];
+        this.lastColumns = new int[capacity];
+        this.spareSizes = new long[capacity];
+        this.spareFirstRows = new long[capacity];
+        this.spareFirstColumns = new int[capacity];
+        this.spareLastColumns = new int[capacity];
+        this.renumbered = new int[capacity];
+    }
+
+    /**
+     * Gets the number of columns of every row.
+     *
+     * @return the number of columns
+     */
+    public int getNumOfColumns() {
+        return numOfColumns;
+    }
+
+    /**
+     * Gets the number of rows given so far.
+     *
+     * @return the number of rows
+     */
+    public long getNumOfRows() {
+        return numOfRows;
+    }
+
+    /**
+     * Scans the next row.
+     *
+     * @param i_Row the values of the row
+     * @throws IllegalArgumentException if the row does not have the width of the stream,
+     *                                  or a cell is neither 0 nor 1
+     */
+    public void acceptRow(@NotNull int[] i_Row) {
+        if (i_Row.length != numOfColumns) {
+            throw new IllegalArgumentException("row " + numOfRows + " has " + i_Row.length
+                    + " columns instead of " + numOfColumns);
+        }
+        acceptRow(i_Row, 0);
+    }
+
+    /**
+     * Scans the next row, read from a larger array such as a band of rows.
+     *
+     * @param i_Values the array that holds the row
+     * @param i_Offset the position of the first value of the row
+     * @throws IllegalArgumentException if a cell is neither 0 nor 1; the row is not scanned then
+     */
+    public void acceptRow(@NotNull int[] i_Values, int i_Offset) {
+        checkCells(i_Values, i_Offset, numOfRows);
+        scanRow(i_Values, i_Offset);
+    }
+
+    /**
+     * Scans the rows of a band in order. The band is checked whole first, so a band
+     * that is refused leaves the stream as it was, and the stream may go on with another.
+     *
+     * @param i_Rows the rows
+     * @throws IllegalArgumentException if a row does not have the width of the stream, or a cell
+     *                                  is neither 0 nor 1; none of the rows is scanned then
+     */
+    public void acceptRows(@NotNull int[][] i_Rows) {
+        for (int i = 0; i < i_Rows.length; i++) {
+            if (i_Rows[i].length != numOfColumns) {
+                throw new IllegalArgumentException("row " + (numOfRows + i) + " has " + i_Rows[i].length
+                        + " columns instead of " + numOfColumns);
+            }
+            checkCells(i_Rows[i], 0, numOfRows + i);
+        }
+        for (int[] row : i_Rows) {
+            scanRow(row, 0);
+        }
+    }
+
+    /**
+     * Checks that the cells of a row are all 0 or 1.
+     *
+     * @param i_Values the array that holds the row
+     * @param i_Offset the position of the first value of the row
+     * @param i_Row    the number of the row in the matrix
+     * @throws IllegalArgumentException if a cell is neither 0 nor 1
+     */
+    private void checkCells(@NotNull int[] i_Values, int i_Offset, long i_Row) {
+        for (int column = 0; column < numOfColumns; column++) {
+            int value = i_Values[i_Offset + column];
+            if (value != 0 && value != 1) {
+                throw new IllegalArgumentException("cell (" + i_Row + ", " + column + ") is " + value
+                        + ", but a submarine stream holds only 0 and 1 cells");
+            }
+        }
+    }
+
+    /**
+     * Labels a row of 0 and 1 cells against the row above, and checks the components it ends.
+     *
+     * @param i_Values the array that holds the row
+     * @param i_Offset the position of the first value of the row
+     */
+    private void scanRow(@NotNull int[] i_Values, int i_Offset) {
+        sets.clear();
+        for (int open = 0; open < numOfOpen; open++) {
+            sets.makeSet();
+        }
+        long row = numOfRows;
+        for (int column = 0; column < numOfColumns; column++) {
+            if (i_Values[i_Offset + column] != 1) {
+                currentLabels[column] = 0;
+                continue;
+            }
+            int label = previousLabels[column];
+            if (label == 0) {
+                // without a north neighbour, north-west and west touch each other
+                // but north-east may belong to a different component
+                if (column > 0) {
+                    label = previousLabels[column - 1];
+                    if (label == 0) {
+                        label = currentLabels[column - 1];
+                    }
+                }
+                if (column + 1 < numOfColumns) {
+                    label = join(label, previousLabels[column + 1]);
+                }
+            }
+            if (label == 0) {
+                int element = sets.makeSet();
+                ensureCapacity(element + 1);
+                sizes[element] = 0;
+                firstRows[element] = row;
+                firstColumns[element] = column;
+                lastColumns[element] = column;
+                label = element + 1;
+            }
+            currentLabels[column] = label;
+            int root = sets.find(label - 1);
+            sizes[root]++;
+            firstColumns[root] = Math.min(firstColumns[root], column);
+            lastColumns[root] = Math.max(lastColumns[root], column);
+        }
+
+        // the open components that did not reach this row are complete
+        for (int column = 0; column < numOfColumns; column++) {
+            if (currentLabels[column] != 0) {
+                renumbered[sets.find(currentLabels[column] - 1)] = GOES_ON;
+            }
+        }
+        for (int open = 0; open < numOfOpen; open++) {
+            int root = sets.find(open);
+            if (renumbered[root] == 0) {
+                close(root, row - 1);
+                // closed once, even if several open components merged into it
+                renumbered[root] = CLOSED;
+            }
+        }
+
+        // number the components that go on 1..numOfOpen, in the order of their first cell in this row
+        int nextOpen = 0;
+        for (int column = 0; column < numOfColumns; column++) {
+            if (currentLabels[column] == 0) {
+                continue;
+            }
+            int root = sets.find(currentLabels[column] - 1);
+            if (renumbered[root] == GOES_ON) {
+                spareSizes[nextOpen] = sizes[root];
+                spareFirstRows[nextOpen] = firstRows[root];
+                spareFirstColumns[nextOpen] = firstColumns[root];
+                spareLastColumns[nextOpen] = lastColumns[root];
+                renumbered[root] = ++nextOpen;
+            }
+            currentLabels[column] = renumbered[root];
+        }
+        Arrays.fill(renumbered, 0, sets.size(), 0);
+        numOfOpen = nextOpen;
+
+        long[] longs = sizes;
+        sizes = spareSizes;
+        spareSizes = longs;
+        longs = firstRows;
+        firstRows = spareFirstRows;
+        spareFirstRows = longs;
+        int[] ints = firstColumns;
+        firstColumns = spareFirstColumns;
+        spareFirstColumns = ints;
+        ints = lastColumns;
+        lastColumns = spareLastColumns;
+        spareLastColumns = ints;
+        int[] scanned = currentLabels;
+        currentLabels = previousLabels;
+        previousLabels = scanned;
+        numOfRows++;
+    }
+
+    /**
+     * Ends the matrix: the components that are still open are complete.
+     * No more rows may be given afterwards.
+     *
+     * @return the number of valid submarines of the whole matrix
+     */
+    public long finish() {
+        for (int open = 0; open < numOfOpen; open++) {
+            close(open, numOfRows - 1);
+        }
+        numOfOpen = 0;
+        Arrays.fill(previousLabels, 0);
+        return numOfValidSubmarines;
+    }
+
+    /**
+     * Merges the component of a neighbour into the component a cell has so far.
+     *
+     * @param i_Label          the label the cell has so far, or 0
+     * @param i_NeighbourLabel the label of the neighbour, or 0 if it is not a 1 cell
+     * @return the label of the cell
+     */
+    private int join(int i_Label, int i_NeighbourLabel) {
+        if (i_NeighbourLabel == 0) {
+            return i_Label;
+        }
+        if (i_Label == 0) {
+            return i_NeighbourLabel;
+        }
+        int first = sets.find(i_Label - 1);
+        int second = sets.find(i_NeighbourLabel - 1);
+        if (first != second) {
+            int root = sets.union(first, second);
+            int merged = root == first ? second : first;
+            sizes[root] += sizes[merged];
+            firstRows[root] = Math.min(firstRows[root], firstRows[merged]);
+            firstColumns[root] = Math.min(firstColumns[root], firstColumns[merged]);
+            lastColumns[root] = Math.max(lastColumns[root], lastColumns[merged]);
+        }
+        return i_Label;
+    }
+
+    /**
+     * Counts a complete component if it fills its bounding rectangle.
+     *
+     * @param i_Element the representative of the component
+     * @param i_LastRow the last row of the component
+     */
+    private void close(int i_Element, long i_LastRow) {
+        long area = (i_LastRow - firstRows[i_Element] + 1) * (lastColumns[i_Element] - firstColumns[i_Element] + 1);
+        if (area == sizes[i_Element]) {
+            numOfValidSubmarines++;
+        }
+    }
+
+    /**
+     * Makes room for the aggregates of the given number of elements.
+     *
+     * @param i_Capacity the number of elements
+     */
+    private void ensureCapacity(int i_Capacity) {
+        if (i_Capacity > sizes.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(i_Capacity, 2L * sizes.length));
+            sizes = Arrays.copyOf(sizes, capacity);
+            firstRows = Arrays.copyOf(firstRows, capacity);
+            firstColumns = Arrays.copyOf(firstColumns, capacity);
+            lastColumns = Arrays.copyOf(lastColumns, capacity);
+            spareSizes = new long[capacity];
+            spareFirstRows = new long[capacity];
+            spareFirstColumns = new int[capacity];
+            spareLastColumns = new int[capacity];
+            renumbered = Arrays.copyOf(renumbered, capacity);
+        }
+    }
+}
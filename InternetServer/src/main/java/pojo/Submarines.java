@@ -2,21 +2,26 @@ package pojo;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
-import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * A class representing the counting of valid submarines.
+ * A valid submarine is a connected component of 1 cells whose bounding
+ * rectangle holds no 0 cell. Cells of other values do not belong to any component,
+ * but they do not spoil a rectangle either.
+ * Matrices too large to hold in memory are counted row by row with a SubmarineStream.
  */
 public class Submarines implements Serializable  {
     private static final @NotNull Long serialVersionUID = 1L;
-    @NotNull AtomicInteger validSubmarines;
-    TraversableMatrix matrix;
-    ExecutorService threadPool;
     private volatile static Submarines instance;
 
     public static Submarines getInstance() {
@@ -31,87 +36,70 @@ public class Submarines implements Serializable  {
     }
 
     private Submarines() {
-        this.validSubmarines = new AtomicInteger(0);
     }
 
     /**
      * Counts the number of valid submarines in the given matrix.
+     * The labeling keeps the size and the bounding box of every component. In a matrix
+     * of 0 and 1 cells a rectangle holds no 0 exactly when its component fills it, so
+     * every component is checked in constant time. Other matrices get a table of their
+     * 0 cells first (ZeroCounts), so a rectangle is checked for a 0 in constant time too.
      *
-     * @param matrix the traversable matrix
-     * @param indexList the list of valid indexes(not equals to 0)
+     * @param i_Matrix the matrix to scan
      * @return the count of valid submarines
      */
-    public int countValidSubmarines(@NotNull TraversableMatrix matrix, @NotNull List<Index> indexList) {
-
-        this.matrix=matrix;
-        matrix.setRoot(new Index(0, 0));
-        DfsVisit<Index> algorithm = DfsVisit.getInstance();
-        HashSet<Set<Index>> allConnectedComponents = algorithm.traverseAllOver(matrix, indexList);
-        threadPool = Executors.newFixedThreadPool(allConnectedComponents.size());
-
-        for (Set<Index> connectedComponent : allConnectedComponents) {
-            threadPool.execute(()-> {
-                boolean flag = checkConnectedComponents(connectedComponent);
-
-                //critical section
-                if(flag) {
-                    validSubmarines.incrementAndGet();
-                }
-            });
-        }
-
-        threadPool.shutdown();
-        try {
-            if (!threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
-                // Timeout elapsed before all tasks completed
-                System.err.println("Timeout elapsed before all tasks completed.");
+    public int countValidSubmarines(@NotNull Matrix i_Matrix) {
+        ComponentLabels labels = ConnectedComponents.getInstance().label(i_Matrix);
+        // the cells of a component are never 0, so a 0 in its rectangle lies outside the component
+        ZeroCounts zeros = i_Matrix.holdsOnlyZerosAndOnes() ? null : new ZeroCounts(i_Matrix);
+        int validSubmarines = 0;
+        for (int label = 1; label <= labels.getNumOfComponents(); label++) {
+            if (labels.fillsBoundingBox(label) || zeros != null && labels.boundingBoxHoldsNoZero(zeros, label)) {
+                validSubmarines++;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("InterruptedException occurred while waiting for thread pool termination.");
         }
-
-        return validSubmarines.get();
+        return validSubmarines;
     }
 
     /**
-     * Checks if a connected component of indices represents a valid submarine.
+     * Counts the number of valid submarines of a matrix read row by row from a stream
+     * of little-endian int cells, until the stream ends. Only one row is held at a time,
+     * so the matrix may be far larger than the memory.
      *
-     * @param connectedComponent the set of indexes representing a connected component
-     * @return true if the connected component represents a valid submarine, false otherwise
+     * @param i_Cells        the cells of the matrix, row by row
+     * @param i_NumOfColumns the number of columns of the matrix
+     * @return the count of valid submarines
+     * @throws EOFException              if the stream ends in the middle of a row
+     * @throws IllegalArgumentException if the number of columns is above SubmarineStream.MAX_NUM_OF_COLUMNS,
+     *                                  or a cell is neither 0 nor 1
      */
-    private boolean checkConnectedComponents(Set<Index> connectedComponent)
-    {
-        int maxX=Integer.MIN_VALUE ,maxY=Integer.MIN_VALUE, minX=Integer.MAX_VALUE, minY=Integer.MAX_VALUE;
-        for (Index index : connectedComponent) {
-
-            int currentX = index.getRow();
-            if (currentX > maxX) {
-                maxX = currentX;
-            }
-            if (currentX<minX){
-                minX = currentX;
-            }
-
-            int currentY=index.getColumn();
-            if(currentY>maxY){
-                maxY = currentY;
-            }
-            if (currentY<minY){
-                minY = currentY;
-            }
+    public long countValidSubmarines(@NotNull InputStream i_Cells, int i_NumOfColumns) throws IOException {
+        SubmarineStream stream = new SubmarineStream(i_NumOfColumns);
+        byte[] bytes = new byte[Math.multiplyExact(i_NumOfColumns, Integer.BYTES)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int[] row = new int[i_NumOfColumns];
+        int read;
+        while ((read = i_Cells.readNBytes(bytes, 0, bytes.length)) == bytes.length) {
+            buffer.asIntBuffer().get(row);
+            stream.acceptRow(row);
         }
-
-        boolean flag = true;
-        for (int i = minX; i < maxX + 1; i++) {
-            for (int j = minY; j < maxY + 1; j++) {
-                if (matrix.getInnerMatrix().primitiveMatrix[i][j] == 0) {
-                    flag=false;
-                    break;
-                }
-            }
+        if (read > 0) {
+            throw new EOFException("the stream ends in the middle of row " + stream.getNumOfRows());
         }
+        return stream.finish();
+    }
 
-        return flag;
+    /**
+     * Counts the number of valid submarines of a matrix stored in a file as little-endian
+     * int cells, row by row, without loading the file.
+     *
+     * @param i_File         the file of cells
+     * @param i_NumOfColumns the number of columns of the matrix
+     * @return the count of valid submarines
+     */
+    public long countValidSubmarines(@NotNull Path i_File, int i_NumOfColumns) throws IOException {
+        try (InputStream cells = new BufferedInputStream(Files.newInputStream(i_File), 1 << 16)) {
+            return countValidSubmarines(cells, i_NumOfColumns);
+        }
     }
-}
\ No newline at end of file
+}
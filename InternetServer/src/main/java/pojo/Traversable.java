@@ -1,9 +1,12 @@
 package pojo;
 
 import java.util.Collection;
+import java.util.function.IntConsumer;
 
 /**
- * This interface defines the common functionality required of all concrete graphs
+ * This interface defines the common functionality required of all concrete graphs.
+ * Every element also has an id between 0 and getNumOfElements() - 1, so the
+ * algorithms can keep their working state in primitive arrays.
  * @param <T> the type of elements in the graph
  */
 public interface Traversable<T> {
@@ -37,4 +40,44 @@ public interface Traversable<T> {
      * @return the data associated with the element
      */
     public abstract int getElementData(T element);
+
+    /**
+     * Gets the number of elements in the graph.
+     *
+     * @return the number of elements, which is also the first id that is not an element
+     */
+    public abstract int getNumOfElements();
+
+    /**
+     * Gets the id of an element.
+     *
+     * @param element the element
+     * @return the id of the element
+     */
+    public abstract int getId(T element);
+
+    /**
+     * Gets the element with the given id.
+     *
+     * @param id the id of the element
+     * @return the element
+     */
+    public abstract T getElement(int id);
+
+    /**
+     * Gets the data of the element with the given id.
+     *
+     * @param id the id of the element
+     * @return the data associated with the element
+     */
+    public abstract int getElementDataById(int id);
+
+    /**
+     * Calls a visitor with the id of every element that is reachable from the given
+     * element in one step, without allocating anything.
+     *
+     * @param id      the id of the element to get reachable elements from
+     * @param visitor the visitor to call with the id of every reachable element
+     */
+    public abstract void forEachReachable(int id, IntConsumer visitor);
 }
@@ -7,6 +7,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * This class uses the adapter pattern, also known as
@@ -47,9 +48,7 @@ public abstract class TraversableMatrix implements Traversable<Index>, Serializa
     public abstract boolean correctData(int aNumber);
     @Override
     public void setRoot(@NotNull Index source){
-        if((source.row >=0 && source.row<innerMatrix.primitiveMatrix.length)
-        && (source.column >=0 &&
-                source.column < innerMatrix.primitiveMatrix[0].length)){
+        if(innerMatrix.contains(source.row, source.column)){
             this.source = source;
         }
 
@@ -92,4 +91,46 @@ public abstract class TraversableMatrix implements Traversable<Index>, Serializa
         }
         return null;
     }
+
+    @Override
+    public int getNumOfElements() {
+        return innerMatrix.getNumOfCells();
+    }
+
+    @Override
+    public int getId(@NotNull Index i_Element) {
+        return innerMatrix.getCellId(i_Element);
+    }
+
+    @Override
+    public @NotNull Index getElement(int i_Id) {
+        return innerMatrix.getIndex(i_Id);
+    }
+
+    @Override
+    public int getElementDataById(int i_Id) {
+        return innerMatrix.getValue(i_Id);
+    }
+
+    /**
+     * Visits the neighbours of a cell whose value is correct data, if the cell itself is correct data.
+     *
+     * @param i_Id      the id of the cell
+     * @param i_Visitor the visitor to call with the id of every reachable cell
+     */
+    @Override
+    public void forEachReachable(int i_Id, @NotNull IntConsumer i_Visitor) {
+        if (!correctData(innerMatrix.getValue(i_Id))) {
+            return;
+        }
+        int columns = innerMatrix.getNumOfColumns();
+        int row = i_Id / columns;
+        int column = i_Id - row * columns;
+        for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+            int neighbor = innerMatrix.getNeighbor(i_Id, row, column, direction);
+            if (neighbor >= 0 && correctData(innerMatrix.getValue(neighbor))) {
+                i_Visitor.accept(neighbor);
+            }
+        }
+    }
 }
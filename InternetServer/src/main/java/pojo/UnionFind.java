@@ -0,0 +1,109 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A disjoint-set forest over the ints 0..size-1, kept in primitive arrays.
+ * Finding uses path compression (halving) and union goes by rank, so a
+ * sequence of operations runs in nearly linear time.
+ * New sets are added one at a time, which lets a labeler create provisional
+ * labels while it scans without knowing their number in advance.
+ */
+public final class UnionFind {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private @NotNull int[] parent;
+    private @NotNull byte[] rank;
+    private int size;
+
+    /**
+     * Constructs an empty forest.
+     */
+    public UnionFind() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty forest with room for the given number of sets.
+     *
+     * @param i_Capacity the expected number of sets
+     */
+    public UnionFind(int i_Capacity) {
+        this.parent = new int[Math.max(1, i_Capacity)];
+        this.rank = new byte[parent.length];
+    }
+
+    /**
+     * Gets the number of elements in the forest.
+     *
+     * @return the number of elements added so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a new singleton set.
+     *
+     * @return the element of the new set
+     */
+    public int makeSet() {
+        if (size == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+        }
+        parent[size] = size;
+        rank[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Removes every element, keeping the memory for the next use.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Finds the representative of the set that contains an element.
+     *
+     * @param i_Element the element to look up
+     * @return the representative element of its set
+     */
+    public int find(int i_Element) {
+        int element = i_Element;
+        while (parent[element] != element) {
+            // path halving: point every other node at its grandparent
+            parent[element] = parent[parent[element]];
+            element = parent[element];
+        }
+        return element;
+    }
+
+    /**
+     * Merges the sets that contain two elements.
+     *
+     * @param i_First  an element of the first set
+     * @param i_Second an element of the second set
+     * @return the representative of the merged set
+     */
+    public int union(int i_First, int i_Second) {
+        int first = find(i_First);
+        int second = find(i_Second);
+        if (first == second) {
+            return first;
+        }
+        if (rank[first] < rank[second]) {
+            parent[first] = second;
+            return second;
+        }
+        if (rank[first] == rank[second]) {
+            rank[first]++;
+        }
+        parent[second] = first;
+        return first;
+    }
+}
@@ -0,0 +1,62 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The number of 0 cells in every rectangle of a matrix that starts at its top left corner
+ * (a summed-area table), so whether any rectangle holds a 0 is answered from four entries.
+ * It is built in one pass over the cells, row by row.
+ */
+final class ZeroCounts {
+    private final int numOfColumns;
+    // row-major: the 0 cells of rows 0..row and columns 0..column are counted at row * numOfColumns + column
+    private final @NotNull int[] counts;
+
+    /**
+     * Counts the 0 cells of a matrix.
+     *
+     * @param i_Matrix the matrix
+     */
+    ZeroCounts(@NotNull Matrix i_Matrix) {
+        int rows = i_Matrix.getNumOfRows();
+        this.numOfColumns = i_Matrix.getNumOfColumns();
+        this.counts = new int[i_Matrix.getNumOfCells()];
+        int[] values = new int[numOfColumns];
+        for (int row = 0, cell = 0; row < rows; row++) {
+            i_Matrix.getRow(row, values);
+            int zerosOfRow = 0;
+            for (int column = 0; column < numOfColumns; column++, cell++) {
+                if (values[column] == 0) {
+                    zerosOfRow++;
+                }
+                counts[cell] = row > 0 ? counts[cell - numOfColumns] + zerosOfRow : zerosOfRow;
+            }
+        }
+    }
+
+    /**
+     * Checks if a rectangle of the matrix holds no 0 cell.
+     *
+     * @param i_FirstRow    the first row of the rectangle
+     * @param i_LastRow     the last row of the rectangle
+     * @param i_FirstColumn the first column of the rectangle
+     * @param i_LastColumn  the last column of the rectangle
+     * @return true if no cell of the rectangle is 0
+     */
+    boolean holdsNoZero(int i_FirstRow, int i_LastRow, int i_FirstColumn, int i_LastColumn) {
+        int zeros = countUpTo(i_LastRow, i_LastColumn) - countUpTo(i_FirstRow - 1, i_LastColumn)
+                - countUpTo(i_LastRow, i_FirstColumn - 1) + countUpTo(i_FirstRow - 1, i_FirstColumn - 1);
+        return zeros == 0;
+    }
+
+    /**
+     * Gets the number of 0 cells of the rectangle from the top left corner to a cell.
+     *
+     * @param i_Row    the last row of the rectangle, -1 for none
+     * @param i_Column the last column of the rectangle, -1 for none
+     * @return the number of 0 cells
+     */
+    private int countUpTo(int i_Row, int i_Column) {
+        return i_Row < 0 || i_Column < 0 ? 0 : counts[i_Row * numOfColumns + i_Column];
+    }
+}
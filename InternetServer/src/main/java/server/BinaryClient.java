@@ -0,0 +1,149 @@
+package server;
+
+import pojo.BinaryProtocol;
+import pojo.Index;
+import pojo.MatrixCommand;
+import pojo.MatrixRegistry;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * A client that talks to the server with the compact binary protocol
+ * instead of serialized objects.
+ */
+public class BinaryClient {
+    private final DataOutputStream toServer;
+    private final DataInputStream fromServer;
+    private int numOfColumns;
+    private int nextRequestId;
+    // the request that loads a matrix file, whose shape is known once its handle comes back
+    private int loadRequestId = -1;
+
+    public BinaryClient(InputStream i_FromServer, OutputStream i_ToServer) {
+        this.toServer = new DataOutputStream(new BufferedOutputStream(i_ToServer));
+        this.fromServer = new DataInputStream(new BufferedInputStream(i_FromServer));
+    }
+
+    /**
+     * Sends a command together with its arguments in one binary frame.
+     * Indices are packed against the last matrix this client uploaded, loaded or bound by handle.
+     *
+     * @param i_Command the command to send
+     * @param i_Args    the command arguments
+     * @return the request id the command was tagged with
+     */
+    public int send(MatrixCommand i_Command, Object... i_Args) throws IOException {
+        if (i_Command == MatrixCommand.MATRIX || i_Command == MatrixCommand.UPLOAD_MATRIX) {
+            numOfColumns = ((int[][]) i_Args[0])[0].length;
+        } else if (i_Command == MatrixCommand.BEGIN_MATRIX_UPLOAD) {
+            numOfColumns = (Integer) i_Args[1];
+        } else if (i_Command == MatrixCommand.USE_MATRIX) {
+            numOfColumns = MatrixRegistry.numOfColumnsOf((String) i_Args[0]);
+        }
+        int requestId = nextRequestId++;
+        if (i_Command == MatrixCommand.LOAD_MATRIX) {
+            loadRequestId = requestId;
+        }
+        Frames.writeFrame(toServer, BinaryProtocol.encodeRequest(i_Command, requestId, i_Args, numOfColumns));
+        return requestId;
+    }
+
+    /**
+     * Reads the next reply.
+     *
+     * @return the decoded reply
+     */
+    public BinaryProtocol.Reply receive() throws IOException {
+        byte[] frame = Frames.readFrame(fromServer);
+        if (frame == null) {
+            throw new EOFException("server closed the connection");
+        }
+        BinaryProtocol.Reply reply = BinaryProtocol.decodeReply(frame, numOfColumns);
+        if (reply.requestId() == loadRequestId && !reply.failed()) {
+            numOfColumns = MatrixRegistry.numOfColumnsOf((String) reply.value());
+        }
+        return reply;
+    }
+
+    public static void main(String[] args) {
+        try (Socket clientSocket = new Socket("127.0.0.1", 8010)) {
+            System.out.println("Socket created");
+            BinaryClient client = new BinaryClient(clientSocket.getInputStream(), clientSocket.getOutputStream());
+
+            int[][] sourceArray = {
+                    {1,1,1},
+                    {1,1,1},
+                    {1,1,1}
+            };
+            client.send(MatrixCommand.MATRIX, (Object) sourceArray);
+
+            client.send(MatrixCommand.ALL_CONNECTED_COMPONENTS);
+            System.out.println("all Connected Component are:  " + client.receive().value());
+
+            client.send(MatrixCommand.ALL_SHORTEST_PATHS, new Index(0,0), new Index(2,0));
+            System.out.println("all Shortest Paths:  " + client.receive().value());
+
+            client.send(MatrixCommand.SHORTEST_PATHS_SUMMARY, new Index(0,0), new Index(2,0));
+            System.out.println("shortest paths summary:  " + client.receive().value());
+
+            // one reply per pair, in the order the pairs are done
+            Index[][] pairs = {{new Index(0,0), new Index(2,0)}, {new Index(0,0), new Index(2,2)}, {new Index(1,1), new Index(0,2)}};
+            client.send(MatrixCommand.BATCH_ALL_SHORTEST_PATHS, (Object) pairs);
+            for (int i = 0; i < pairs.length; i++) {
+                BinaryProtocol.PairResult pairResult = (BinaryProtocol.PairResult) client.receive().value();
+                System.out.println("shortest paths of pair " + pairResult.pair() + ":  " + pairResult.value());
+            }
+
+            client.send(MatrixCommand.SUBMARINES);
+            System.out.println("valid Submarines is " + client.receive().value());
+
+            // the same count over a stream of row bands, which the server never holds whole;
+            // a stream takes only 0 and 1 cells, and a band with another value gets an error reply
+            client.send(MatrixCommand.BEGIN_SUBMARINE_STREAM, sourceArray[0].length);
+            for (int row = 0; row < sourceArray.length; row += 2) {
+                client.send(MatrixCommand.SUBMARINE_ROWS, (Object) Arrays.copyOfRange(sourceArray, row, Math.min(sourceArray.length, row + 2)));
+            }
+            client.send(MatrixCommand.END_SUBMARINE_STREAM);
+            System.out.println("valid Submarines of the stream is " + client.receive().value());
+
+            // a banded upload is labeled while it arrives, so the count that follows comes from the cache
+            client.send(MatrixCommand.BEGIN_MATRIX_UPLOAD, sourceArray.length, sourceArray[0].length);
+            for (int row = 0; row < sourceArray.length; row += 2) {
+                client.send(MatrixCommand.MATRIX_BAND, (Object) Arrays.copyOfRange(sourceArray, row, Math.min(sourceArray.length, row + 2)));
+            }
+            client.send(MatrixCommand.END_MATRIX_UPLOAD);
+            client.send(MatrixCommand.SUBMARINES);
+            System.out.println("valid Submarines of the banded upload is " + client.receive().value());
+
+            int[][] weightedArray = {
+                    {600,100,600},
+                    {100,100,100},
+                    {600,100,600}
+            };
+            client.send(MatrixCommand.UPLOAD_MATRIX, (Object) weightedArray);
+            String handle = (String) client.receive().value();
+            System.out.println("uploaded matrix " + handle);
+            client.send(MatrixCommand.PREPARE_LANDMARKS, 2);
+            System.out.println("landmarks: " + client.receive().value());
+
+            // a second connection works on the uploaded matrix without sending it again
+            try (Socket otherSocket = new Socket("127.0.0.1", 8010)) {
+                BinaryClient otherClient = new BinaryClient(otherSocket.getInputStream(), otherSocket.getOutputStream());
+                otherClient.send(MatrixCommand.USE_MATRIX, handle);
+                System.out.println("bound to " + handle + ": " + otherClient.receive().value());
+                otherClient.send(MatrixCommand.LOWEST_WEIGHT_PATHS, new Index(1,0), new Index(1,2));
+                System.out.println("all Lowest Weight Paths:  " + otherClient.receive().value());
+                otherClient.send(MatrixCommand.STOP);
+            }
+
+            client.send(MatrixCommand.SERVER_STATS);
+            System.out.println("server stats: " + client.receive().value());
+
+            client.send(MatrixCommand.STOP);
+        } catch (IOException ioException) {
+            ioException.printStackTrace();
+        }
+    }
+}
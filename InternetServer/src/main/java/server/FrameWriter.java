@@ -0,0 +1,174 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The reply sink of a blocking connection. Replies are queued and written by a virtual
+ * thread of the connection, so the compute threads that finish requests never wait for
+ * a client that does not read. Like the pending writes of NioInternetServer, the queue is
+ * bounded by the reader: once its bytes pass a high-water mark, awaitRoom holds the thread
+ * that reads the requests until the client took its replies down to the low-water mark.
+ */
+public final class FrameWriter implements IReplySink {
+    private final @NotNull OutputStream toClient;
+    private final @NotNull DataOutputStream output;
+    private final @NotNull ReentrantLock lock;
+    // signalled when a reply is queued or written, and when the writer stops
+    private final @NotNull Condition queueChanged;
+    private final @NotNull Queue<byte[]> pendingReplies;
+    // the bytes of pendingReplies, with their length prefixes
+    private long pendingBytes;
+    // true from the high-water mark down to the low-water mark of pendingBytes
+    private boolean backedUp;
+    // no more replies are queued: the writer stops once the queue is empty
+    private boolean closing;
+    private boolean failed;
+    private final @NotNull Thread writer;
+
+    /**
+     * Starts writing the replies of a connection.
+     *
+     * @param i_ToClient the stream of the connection; it is closed if a reply can not be written
+     */
+    public FrameWriter(@NotNull OutputStream i_ToClient) {
+        this.toClient = i_ToClient;
+        this.output = new DataOutputStream(new BufferedOutputStream(i_ToClient));
+        this.lock = new ReentrantLock();
+        this.queueChanged = lock.newCondition();
+        this.pendingReplies = new ArrayDeque<>();
+        this.writer = Thread.ofVirtual().name("frame-writer").start(this::writeReplies);
+    }
+
+    /**
+     * Queues a reply for writing. Never waits, so it may be called from a compute thread
+     * or while a session lock is held.
+     */
+    @Override
+    public void send(@NotNull byte[] reply) {
+        lock.lock();
+        try {
+            if (failed || closing) {
+                return;
+            }
+            pendingReplies.add(reply);
+            pendingBytes += Frames.HEADER_SIZE + reply.length;
+            if (pendingBytes > Frames.REPLY_HIGH_WATER) {
+                // the client does not keep up with its replies: take no more of its requests
+                backedUp = true;
+            }
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the queued replies and closes the connection, which also ends a blocked read of it.
+     */
+    @Override
+    public void fail(@NotNull Throwable cause) {
+        lock.lock();
+        try {
+            failed = true;
+            pendingReplies.clear();
+            pendingBytes = 0;
+            backedUp = false;
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            toClient.close();
+        } catch (IOException ignored) {
+            //..
+        }
+    }
+
+    /**
+     * Waits while the replies of the connection are backed up, so no more requests are read meanwhile.
+     *
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    public void awaitRoom() throws InterruptedIOException {
+        lock.lock();
+        try {
+            while (backedUp && !failed) {
+                queueChanged.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the client to read its replies");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the replies that are still queued and stops the writer. Replies queued afterwards are dropped.
+     *
+     * @throws InterruptedIOException if the thread was interrupted while waiting for the writer
+     */
+    public void close() throws InterruptedIOException {
+        lock.lock();
+        try {
+            closing = true;
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writing the last replies");
+        }
+    }
+
+    /**
+     * Writes the queued replies one by one, outside the lock, until the writer is closed or fails.
+     */
+    private void writeReplies() {
+        try {
+            while (true) {
+                byte[] reply;
+                lock.lock();
+                try {
+                    while (pendingReplies.isEmpty() && !closing && !failed) {
+                        queueChanged.awaitUninterruptibly();
+                    }
+                    if (failed || pendingReplies.isEmpty()) {
+                        return;
+                    }
+                    reply = pendingReplies.poll();
+                } finally {
+                    lock.unlock();
+                }
+
+                Frames.writeFrame(output, reply);
+
+                lock.lock();
+                try {
+                    pendingBytes -= Frames.HEADER_SIZE + reply.length;
+                    if (backedUp && pendingBytes <= Frames.REPLY_LOW_WATER) {
+                        backedUp = false;
+                        queueChanged.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException ioException) {
+            fail(ioException);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package server;
+
+import pojo.Index;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.*;
+
+/**
+ * A client for the NioInternetServer. Every request is sent as a single frame
+ * holding the command name followed by its arguments.
+ */
+public class FramedClient {
+    private final DataOutputStream toServer;
+    private final DataInputStream fromServer;
+
+    public FramedClient(Socket i_Socket) throws IOException {
+        this.toServer = new DataOutputStream(i_Socket.getOutputStream());
+        this.fromServer = new DataInputStream(i_Socket.getInputStream());
+    }
+
+    /**
+     * Sends a command together with its arguments in one frame.
+     *
+     * @param i_Command the command name
+     * @param i_Args    the command arguments
+     */
+    public void send(String i_Command, Object... i_Args) throws IOException {
+        Object[] request = new Object[i_Args.length + 1];
+        request[0] = i_Command;
+        System.arraycopy(i_Args, 0, request, 1, i_Args.length);
+        Frames.writeFrame(toServer, Frames.toBytes(request));
+    }
+
+    /**
+     * Reads the reply of the next request that has one.
+     *
+     * @return the deserialized reply
+     */
+    public Object receive() throws IOException, ClassNotFoundException {
+        byte[] frame = Frames.readFrame(fromServer);
+        if (frame == null) {
+            throw new IOException("server closed the connection");
+        }
+        return Frames.fromBytes(frame);
+    }
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        try (Socket clientSocket = new Socket("127.0.0.1", 8010)) {
+            System.out.println("Socket created");
+            FramedClient client = new FramedClient(clientSocket);
+
+            int[][] sourceArray = {
+                    {1,1,1},
+                    {1,1,1},
+                    {1,1,1}
+            };
+            client.send("matrix", (Object) sourceArray);
+
+            client.send("all connected components");
+            System.out.println("all Connected Component are:  " + client.receive());
+
+            client.send("all shortest paths", new Index(0,0), new Index(2,0));
+            System.out.println("all Shortest Paths:  " + client.receive());
+
+            client.send("submarines");
+            System.out.println("valid Submarines is " + client.receive());
+
+            int[][] weightedArray = {
+                    {600,100,600},
+                    {100,100,100},
+                    {600,100,600}
+            };
+            client.send("matrix", (Object) weightedArray);
+            client.send("find the lowest weight paths", new Index(1,0), new Index(1,2));
+            System.out.println("all Lowest Weight Paths:  " + client.receive());
+
+            client.send("stop");
+        } catch (IOException ioException) {
+            ioException.printStackTrace();
+        }
+    }
+}
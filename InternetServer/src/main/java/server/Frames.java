@@ -0,0 +1,104 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+
+/**
+ * Helpers for the length-prefixed framing shared by the servers and clients:
+ * every frame is a 4 byte big-endian payload length followed by the payload.
+ */
+public final class Frames {
+    /** Frames bigger than this are treated as a protocol error, unless a server is given another limit. */
+    public static final int MAX_FRAME_SIZE = 1 << 28;
+    public static final int HEADER_SIZE = Integer.BYTES;
+    // a connection whose unwritten replies pass this many bytes is not read from,
+    // until they drained below the low-water mark
+    static final long REPLY_HIGH_WATER = 4L * 1024 * 1024;
+    static final long REPLY_LOW_WATER = 1024L * 1024;
+
+    private Frames() {
+    }
+
+    /**
+     * Writes a single frame to the given stream.
+     *
+     * @param i_Output  the stream to write to
+     * @param i_Payload the frame payload
+     */
+    public static void writeFrame(@NotNull DataOutputStream i_Output, @NotNull byte[] i_Payload) throws IOException {
+        i_Output.writeInt(i_Payload.length);
+        i_Output.write(i_Payload);
+        i_Output.flush();
+    }
+
+    /**
+     * Reads a single frame from the given stream.
+     *
+     * @param i_Input the stream to read from
+     * @return the frame payload, or null if the stream ended between frames
+     */
+    public static @Nullable byte[] readFrame(@NotNull DataInputStream i_Input) throws IOException {
+        int length;
+        try {
+            length = i_Input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        checkLength(length);
+        // read in growing pieces, so a length alone does not reserve memory
+        byte[] payload = i_Input.readNBytes(length);
+        if (payload.length < length) {
+            throw new EOFException("the stream ended inside a frame");
+        }
+        return payload;
+    }
+
+    /**
+     * Validates a frame length read from the wire.
+     *
+     * @param i_Length the length to check
+     */
+    public static void checkLength(int i_Length) throws IOException {
+        checkLength(i_Length, MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Validates a frame length read from the wire against a limit.
+     *
+     * @param i_Length       the length to check
+     * @param i_MaxFrameSize the largest allowed length
+     */
+    public static void checkLength(int i_Length, int i_MaxFrameSize) throws IOException {
+        if (i_Length < 0 || i_Length > i_MaxFrameSize) {
+            throw new IOException("illegal frame length " + i_Length);
+        }
+    }
+
+    /**
+     * Serializes an object into a frame payload.
+     *
+     * @param i_Object the object to serialize
+     * @return the serialized bytes
+     */
+    public static @NotNull byte[] toBytes(@NotNull Object i_Object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes)) {
+            objectOutputStream.writeObject(i_Object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an object from a frame payload.
+     *
+     * @param i_Payload the serialized bytes
+     * @return the deserialized object
+     */
+    public static @NotNull Object fromBytes(@NotNull byte[] i_Payload) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(i_Payload))) {
+            return objectInputStream.readObject();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * This interface defines the functionality required for handling client requests
+ * that arrive as complete, length-prefixed frames instead of as a blocking stream.
+ * Since a frame handler never waits for more input, a single thread can serve
+ * many mostly idle connections.
+ * Frames of a connection are passed to the handler one at a time and in order,
+ * but the handler may reply later, through the reply sink of the session.
+ *
+ * @param <S> the type of the per-connection state kept between frames
+ */
+public interface IFrameHandler<S> {
+
+    /**
+     * Creates the state kept for a newly accepted connection.
+     *
+     * @param replySink where the replies of the connection are sent
+     * @return a fresh session
+     */
+    public abstract @NotNull S openSession(@NotNull IReplySink replySink);
+
+    /**
+     * Handles one complete request frame of a connection. The handler may send
+     * the reply before returning or later, from another thread.
+     *
+     * @param session the state of the connection the frame arrived on
+     * @param frame   the frame payload, without its length prefix
+     */
+    public abstract void handleFrame(@NotNull S session, @NotNull byte[] frame) throws IOException, ClassNotFoundException;
+
+    /**
+     * Checks if the client ended the session and all of its replies were sent,
+     * so the connection can be closed.
+     *
+     * @param session the state of the connection
+     * @return true if the connection should be closed, false otherwise
+     */
+    public abstract boolean isSessionOver(@NotNull S session);
+
+    /**
+     * Releases what the session holds once its connection is closed. Called once per session,
+     * possibly while a frame of the session is still being handled.
+     *
+     * @param session the state of the closed connection
+     */
+    public abstract void closeSession(@NotNull S session);
+}
@@ -0,0 +1,26 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This interface defines where a frame handler sends the replies of a connection.
+ * Replies may be sent from any thread and at any time after their request arrived,
+ * which lets a handler answer pipelined requests as their results become ready.
+ */
+public interface IReplySink {
+
+    /**
+     * Sends a reply frame to the client. Must not wait for the client: it is called from
+     * compute threads and while the state of a session is locked, so a sink only queues the reply.
+     *
+     * @param reply the reply payload, without its length prefix
+     */
+    public abstract void send(@NotNull byte[] reply);
+
+    /**
+     * Ends the connection because a request could not be served.
+     *
+     * @param cause the reason of the failure
+     */
+    public abstract void fail(@NotNull Throwable cause);
+}
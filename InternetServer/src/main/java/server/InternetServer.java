@@ -1,5 +1,6 @@
 package server;
 
+import pojo.ComputeScheduler;
 import pojo.MatrixHandler;
 
 import java.io.IOException;
@@ -11,9 +12,25 @@ import java.util.concurrent.*;
 /**
  * This class represents a TCP server that can handle multiple clients
  * concurrently. It can solve different algorithmic problems using
- * dedicated handler types
+ * dedicated handler types.
+ * In VIRTUAL_THREADS mode every client runs on its own virtual thread, which
+ * requires running on Java 19 with --enable-preview.
  */
 public class InternetServer {
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_CORE_POOL_SIZE = 10;
+    private static final int DEFAULT_MAX_POOL_SIZE = 15;
+
+    /**
+     * How an accepted connection is executed.
+     */
+    public enum ExecutionMode {
+        /** Clients share a bounded pool of platform threads. */
+        THREAD_POOL,
+        /** Every client gets its own virtual thread. */
+        VIRTUAL_THREADS
+    }
+
     private final int port;
     /*
      Happens-Before guarantee does NOT ensure thread-safety nor executed quickly.
@@ -21,11 +38,30 @@ public class InternetServer {
       access it
      */
     private volatile boolean stopServer; // TODO: transparency between threads
-    private ThreadPoolExecutor clientsPool; // handle multiple clients concurrently
+    private final ExecutionMode executionMode;
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private ExecutorService clientsPool; // handle multiple clients concurrently
+    private ServerSocket serverSocket;
     private IHandler requestHandler;
 
     public InternetServer(int port){
+        this(port, ExecutionMode.THREAD_POOL, DEFAULT_CORE_POOL_SIZE, DEFAULT_MAX_POOL_SIZE);
+    }
+
+    /**
+     * Constructs a server.
+     *
+     * @param port          the port to listen on
+     * @param executionMode how accepted connections are executed
+     * @param corePoolSize  the core size of the clients pool (THREAD_POOL mode only)
+     * @param maxPoolSize   the maximal size of the clients pool (THREAD_POOL mode only)
+     */
+    public InternetServer(int port, ExecutionMode executionMode, int corePoolSize, int maxPoolSize){
         this.port = port;
+        this.executionMode = executionMode;
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = Math.max(corePoolSize, maxPoolSize);
         this.clientsPool = null;
         this.requestHandler = null;
         this.stopServer = false; // if server should handle clients' requests
@@ -36,14 +72,45 @@ public class InternetServer {
             stopServer = true;
             if (clientsPool!=null)
                 clientsPool.shutdown();
+            try {
+                // unblocks the accepting thread
+                if (serverSocket != null)
+                    serverSocket.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
         }
 
     }
 
+    /**
+     * Starts the server. Optional arguments: execution mode (THREAD_POOL / VIRTUAL_THREADS),
+     * the number of compute threads that run the algorithms, the number of
+     * compute threads a single request may use, and the core and maximal sizes
+     * of the clients pool (THREAD_POOL mode only).
+     */
     public static void main(String[] args) {
-        InternetServer server = new InternetServer(8010);
-        server.supportClients(new MatrixHandler());
+        ExecutionMode mode = args.length > 0 ? ExecutionMode.valueOf(args[0]) : ExecutionMode.THREAD_POOL;
+        int computeThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int requestThreads = args.length > 2 ? Integer.parseInt(args[2]) : (computeThreads + 1) / 2;
+        int corePoolSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CORE_POOL_SIZE;
+        int maxPoolSize = args.length > 4 ? Integer.parseInt(args[4]) : Math.max(corePoolSize, DEFAULT_MAX_POOL_SIZE);
+
+        InternetServer server = new InternetServer(8010, mode, corePoolSize, maxPoolSize);
+        ComputeScheduler scheduler = ComputeScheduler.configure(computeThreads, requestThreads);
+        server.supportClients(new MatrixHandler(scheduler.getPool()));
+    }
+
+    private ExecutorService createClientsPool() {
+        if (executionMode == ExecutionMode.VIRTUAL_THREADS) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return new ThreadPoolExecutor(
+                corePoolSize, maxPoolSize, 200, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()
+        );
     }
+
     public void supportClients(IHandler concreteHandler) {
         this.requestHandler = concreteHandler;
 
@@ -54,59 +121,48 @@ public class InternetServer {
          */
 
         Runnable clientHandling = () -> {
-            this.clientsPool = new ThreadPoolExecutor(
-                    10, 15, 200, TimeUnit.MILLISECONDS,
-                    new LinkedBlockingQueue<>()
-            );
+            this.clientsPool = createClientsPool();
 
             try {
-                ServerSocket serverSocket = new ServerSocket(this.port, 50);
+                serverSocket = new ServerSocket(this.port, BACKLOG);
 
                 while (!stopServer) {
                     // listen + accept (phases 3+4) are done by accept method
-                    Runnable acceptThread = () -> {
+                    Socket clientToServerConnection = serverSocket.accept();
+
+                    // Once a client is accepted, pass it to the specific client handling thread
+                    Runnable specificClientHandling = () -> {
                         try {
-                            Socket clientToServerConnection = serverSocket.accept();
-                            System.out.println("Server: accepting client in " + Thread.currentThread().getName() + " Thread");
-
-
-                            // Once a client is accepted, pass it to the specific client handling thread
-                            Runnable specificClientHandling = () -> {
-                                System.out.println("Server: Handling a client in " + Thread.currentThread().getName() + " Thread");
-
-                                try {
-                                    requestHandler.handleClient(clientToServerConnection.getInputStream(),
-                                            clientToServerConnection.getOutputStream());
-                                } catch (IOException | ClassNotFoundException ioException) {
-                                    //ioException.printStackTrace();
-                                    try {
-                                        throw new ServerException("problem getting input or output stream.");
-                                    } catch (ServerException e) {
-                                        //..
-                                    }
-                                }
-
-                                // We stopped handling the specific client
-                                try {
-                                    clientToServerConnection.getOutputStream().close();
-                                    //clientToServerConnection.getInputStream().close();
-                                    clientToServerConnection.close();
-                                } catch (IOException ioException) {
-                                    ioException.printStackTrace();
-                                }
-                            };
-
-                            clientsPool.execute(specificClientHandling);
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
+                            requestHandler.handleClient(clientToServerConnection.getInputStream(),
+                                    clientToServerConnection.getOutputStream());
+                        } catch (IOException | ClassNotFoundException ioException) {
+                            //ioException.printStackTrace();
+                            try {
+                                throw new ServerException("problem getting input or output stream.");
+                            } catch (ServerException e) {
+                                //..
+                            }
+                        } catch (RuntimeException runtimeException) {
+                            runtimeException.printStackTrace();
+                        } finally {
+                            // We stopped handling the specific client, however it ended:
+                            // a connection left open keeps the client waiting for a reply.
+                            // Closing the socket closes its streams, even if one of them failed
+                            try {
+                                clientToServerConnection.close();
+                            } catch (IOException ioException) {
+                                ioException.printStackTrace();
+                            }
                         }
                     };
-                    new Thread(acceptThread).start();
+
+                    clientsPool.execute(specificClientHandling);
                 }
 
                 serverSocket.close();
             } catch (IOException ioException) {
-                ioException.printStackTrace();
+                if (!stopServer)
+                    ioException.printStackTrace();
             }
         };
 
@@ -0,0 +1,441 @@
+package server;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import pojo.ComputeScheduler;
+import pojo.MatrixHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents a non-blocking TCP server built on a Selector.
+ * A few event-loop threads accept connections and read their bytes; a request
+ * is handed to the frame pool only after its whole frame has arrived, so idle
+ * connections do not occupy any thread. Clients may pipeline requests: the
+ * handler gets the frames of a connection in order and replies whenever its
+ * results are ready. A client that does not read its replies stops being read
+ * from once its unwritten replies pass a high-water mark, so it can not make the
+ * server buffer replies without bound.
+ */
+public class NioInternetServer {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // stop reading from a connection that has this many frames waiting to be handled
+    private static final int MAX_PENDING_FRAMES = 64;
+
+    private final int port;
+    private final int numOfEventLoops;
+    private final int numOfFrameThreads;
+    private final int maxFrameSize;
+    private volatile boolean stopServer;
+    private @Nullable ServerSocketChannel serverChannel;
+    private @Nullable ExecutorService framePool;
+    private volatile @Nullable List<EventLoop<?>> eventLoops;
+    private final AtomicInteger nextEventLoop;
+
+    /**
+     * Constructs a server with one event loop and a frame thread per core.
+     *
+     * @param port the port to listen on
+     */
+    public NioInternetServer(int port) {
+        this(port, 1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a server.
+     *
+     * @param port              the port to listen on
+     * @param numOfEventLoops   the number of selector threads
+     * @param numOfFrameThreads the number of threads that pass frames to the handler
+     */
+    public NioInternetServer(int port, int numOfEventLoops, int numOfFrameThreads) {
+        this(port, numOfEventLoops, numOfFrameThreads, Frames.MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Constructs a server that refuses requests larger than the given size.
+     *
+     * @param port              the port to listen on
+     * @param numOfEventLoops   the number of selector threads
+     * @param numOfFrameThreads the number of threads that pass frames to the handler
+     * @param maxFrameSize      the largest request frame, in bytes; a client that sends a larger one is disconnected
+     */
+    public NioInternetServer(int port, int numOfEventLoops, int numOfFrameThreads, int maxFrameSize) {
+        this.port = port;
+        this.numOfEventLoops = Math.max(1, numOfEventLoops);
+        this.numOfFrameThreads = Math.max(1, numOfFrameThreads);
+        this.maxFrameSize = Math.max(0, maxFrameSize);
+        this.nextEventLoop = new AtomicInteger(0);
+        this.stopServer = false;
+    }
+
+    public void stop() {
+        if (!stopServer) {
+            stopServer = true;
+            List<EventLoop<?>> loops = eventLoops;
+            if (loops != null) {
+                for (EventLoop<?> eventLoop : loops) {
+                    eventLoop.selector.wakeup();
+                }
+            }
+            if (framePool != null)
+                framePool.shutdown();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        NioInternetServer server = new NioInternetServer(8010);
+        server.supportClients(new MatrixHandler(ComputeScheduler.getInstance().getPool()));
+    }
+
+    /**
+     * Opens the listening socket and starts the event-loop threads.
+     *
+     * @param concreteHandler the handler that serves the frames of every connection
+     */
+    public <S> void supportClients(@NotNull IFrameHandler<S> concreteHandler) throws IOException {
+        this.framePool = Executors.newFixedThreadPool(numOfFrameThreads);
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port), 50);
+
+        List<EventLoop<S>> loops = new ArrayList<>(numOfEventLoops);
+        for (int i = 0; i < numOfEventLoops; i++) {
+            loops.add(new EventLoop<>(concreteHandler, loops));
+        }
+        eventLoops = new ArrayList<>(loops);
+        // the first event loop also accepts new connections
+        serverChannel.register(loops.get(0).selector, SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < numOfEventLoops; i++) {
+            new Thread(loops.get(i), "nio-event-loop-" + i).start();
+        }
+    }
+
+    /**
+     * A selector thread that owns a set of connections. All changes to the
+     * connections it owns are made on this thread; other threads post them as tasks.
+     */
+    private class EventLoop<S> implements Runnable {
+        private final @NotNull Selector selector;
+        private final @NotNull IFrameHandler<S> handler;
+        // all event loops of the server, this one included, that accepted connections are spread over
+        private final @NotNull List<EventLoop<S>> siblings;
+        private final @NotNull Queue<Runnable> tasks;
+
+        EventLoop(@NotNull IFrameHandler<S> i_Handler, @NotNull List<EventLoop<S>> i_Siblings) throws IOException {
+            this.selector = Selector.open();
+            this.handler = i_Handler;
+            this.siblings = i_Siblings;
+            this.tasks = new ConcurrentLinkedQueue<>();
+        }
+
+        /**
+         * Runs a task on this event loop's thread.
+         *
+         * @param i_Task the task to run
+         */
+        void execute(@NotNull Runnable i_Task) {
+            tasks.add(i_Task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopServer) {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                    while (selectedKeys.hasNext()) {
+                        SelectionKey key = selectedKeys.next();
+                        selectedKeys.remove();
+                        try {
+                            if (!key.isValid()) {
+                                continue;
+                            }
+                            if (key.isAcceptable()) {
+                                accept();
+                                continue;
+                            }
+                            Connection<?> connection = (Connection<?>) key.attachment();
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (IOException | CancelledKeyException exception) {
+                            if (key.attachment() instanceof Connection<?> connection) {
+                                connection.close();
+                            }
+                        }
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
+
+        /**
+         * Accepts all pending connections and spreads them over the event loops.
+         */
+        private void accept() throws IOException {
+            SocketChannel clientChannel;
+            while ((clientChannel = serverChannel.accept()) != null) {
+                clientChannel.configureBlocking(false);
+                clientChannel.socket().setTcpNoDelay(true);
+                EventLoop<S> owner = siblings.get(Math.floorMod(nextEventLoop.getAndIncrement(), siblings.size()));
+                SocketChannel acceptedChannel = clientChannel;
+                owner.execute(() -> owner.register(acceptedChannel));
+            }
+        }
+
+        /**
+         * Starts serving a newly accepted connection on this event loop.
+         *
+         * @param i_Channel the connected channel
+         */
+        private void register(@NotNull SocketChannel i_Channel) {
+            try {
+                SelectionKey key = i_Channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection<>(this, key));
+            } catch (IOException ioException) {
+                try {
+                    i_Channel.close();
+                } catch (IOException ignored) {
+                    //..
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a single client connection. Frames of one connection are
+     * passed to the handler one at a time and in order; only the reading and
+     * writing is done on the event loop.
+     */
+    private class Connection<S> implements IReplySink {
+        private final @NotNull EventLoop<S> eventLoop;
+        private final @NotNull SelectionKey key;
+        private final @NotNull SocketChannel channel;
+        private final @NotNull S session;
+        private @NotNull ByteBuffer readBuffer;
+        private final @NotNull Queue<byte[]> pendingFrames;
+        private final @NotNull Queue<ByteBuffer> pendingWrites;
+        // the bytes of pendingWrites that are not written yet
+        private long pendingWriteBytes;
+        // true from the high-water mark down to the low-water mark of pendingWriteBytes
+        private boolean writesBackedUp;
+        private boolean busy;
+        private boolean closed;
+
+        Connection(@NotNull EventLoop<S> i_EventLoop, @NotNull SelectionKey i_Key) {
+            this.eventLoop = i_EventLoop;
+            this.key = i_Key;
+            this.channel = (SocketChannel) i_Key.channel();
+            this.session = i_EventLoop.handler.openSession(this);
+            this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            this.pendingFrames = new ArrayDeque<>();
+            this.pendingWrites = new ArrayDeque<>();
+        }
+
+        /**
+         * Reads whatever is available and queues every frame that is now complete.
+         */
+        void read() throws IOException {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Frames.HEADER_SIZE) {
+                int length = readBuffer.getInt(readBuffer.position());
+                Frames.checkLength(length, maxFrameSize);
+                if (readBuffer.remaining() < Frames.HEADER_SIZE + length) {
+                    if (readBuffer.remaining() == readBuffer.capacity()) {
+                        // the buffer is full of a frame larger than it: grow it with the bytes that
+                        // actually arrive, so a length alone does not reserve memory
+                        int capacity = (int) Math.min(Frames.HEADER_SIZE + (long) length, 2L * readBuffer.capacity());
+                        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                        bigger.put(readBuffer);
+                        bigger.flip();
+                        readBuffer = bigger;
+                    }
+                    break;
+                }
+                readBuffer.position(readBuffer.position() + Frames.HEADER_SIZE);
+                byte[] frame = new byte[length];
+                readBuffer.get(frame);
+                pendingFrames.add(frame);
+            }
+            readBuffer.compact();
+            if (readBuffer.position() == 0 && readBuffer.capacity() > READ_BUFFER_SIZE) {
+                readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            }
+
+            updateReadInterest();
+            dispatchNext();
+        }
+
+        /**
+         * Reads from the connection only while it has room for more frames and its replies are not backed up.
+         */
+        private void updateReadInterest() {
+            if (!key.isValid()) {
+                return;
+            }
+            if (pendingFrames.size() < MAX_PENDING_FRAMES && !writesBackedUp) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            } else {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        /**
+         * Hands the next complete frame to the frame pool, unless one is already being handled
+         * or the replies of the connection are backed up.
+         */
+        private void dispatchNext() {
+            if (busy || closed || writesBackedUp || pendingFrames.isEmpty()) {
+                return;
+            }
+            byte[] frame = pendingFrames.poll();
+            updateReadInterest();
+            busy = true;
+            framePool.execute(() -> {
+                boolean failed = true;
+                try {
+                    eventLoop.handler.handleFrame(session, frame);
+                    failed = false;
+                } catch (Exception exception) {
+                    // the connection is closed below
+                } finally {
+                    // also after an Error, or the connection would wait for this frame forever
+                    boolean finalFailed = failed;
+                    eventLoop.execute(() -> onFrameHandled(finalFailed));
+                }
+            });
+        }
+
+        /**
+         * Moves on to the next frame once the handler took the previous one.
+         * Runs on the event loop.
+         */
+        private void onFrameHandled(boolean i_Failed) {
+            busy = false;
+            if (closed) {
+                return;
+            }
+            if (i_Failed) {
+                close();
+                return;
+            }
+            try {
+                flush();
+            } catch (IOException ioException) {
+                close();
+                return;
+            }
+            dispatchNext();
+        }
+
+        /**
+         * Queues a reply of the handler for writing. May be called from any thread.
+         */
+        @Override
+        public void send(@NotNull byte[] reply) {
+            ByteBuffer buffer = ByteBuffer.allocate(Frames.HEADER_SIZE + reply.length);
+            buffer.putInt(reply.length).put(reply).flip();
+            eventLoop.execute(() -> {
+                if (closed) {
+                    return;
+                }
+                pendingWrites.add(buffer);
+                pendingWriteBytes += buffer.remaining();
+                if (pendingWriteBytes > Frames.REPLY_HIGH_WATER && !writesBackedUp) {
+                    // the client does not keep up with its replies: take no more of its requests
+                    writesBackedUp = true;
+                    updateReadInterest();
+                }
+                try {
+                    flush();
+                } catch (IOException ioException) {
+                    close();
+                }
+            });
+        }
+
+        @Override
+        public void fail(@NotNull Throwable cause) {
+            eventLoop.execute(this::close);
+        }
+
+        /**
+         * Writes as much of the queued replies as the socket accepts, and takes requests
+         * of the connection again once its replies drained below the low-water mark.
+         * Closes the connection once the session is over and everything was written.
+         */
+        void flush() throws IOException {
+            while (!pendingWrites.isEmpty()) {
+                ByteBuffer buffer = pendingWrites.peek();
+                pendingWriteBytes -= channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    resumeIfDrained();
+                    return;
+                }
+                pendingWrites.poll();
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            resumeIfDrained();
+            if (!busy && eventLoop.handler.isSessionOver(session)) {
+                close();
+            }
+        }
+
+        /**
+         * Takes requests of the connection again once its backed up replies drained below the low-water mark.
+         */
+        private void resumeIfDrained() {
+            if (writesBackedUp && pendingWriteBytes <= Frames.REPLY_LOW_WATER) {
+                writesBackedUp = false;
+                updateReadInterest();
+                dispatchNext();
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+            eventLoop.handler.closeSession(session);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package benchmark;
+
+import pojo.BinaryProtocol;
+import pojo.ComputeScheduler;
+import pojo.Matrix;
+import pojo.MatrixCommand;
+import pojo.MatrixHandler;
+import pojo.Submarines;
+import server.BinaryClient;
+import server.NioInternetServer;
+
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the end-to-end time from the first byte of a matrix to the submarine count
+ * of it, when the matrix is sent whole and when it is sent in bands that the server
+ * labels while the later bands are still on their way. Every run uses a new random
+ * matrix, so no result comes from the cache, and every count is checked against
+ * counting the matrix locally.
+ * <p>
+ * Usage: BandUploadBenchmark [size] [bandRows] [repetitions]
+ */
+public class BandUploadBenchmark {
+    private static final int PORT = 8019;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int bandRows = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 64;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        NioInternetServer server = new NioInternetServer(PORT);
+        server.supportClients(new MatrixHandler(ComputeScheduler.getInstance().getPool()));
+
+        Random random = new Random(42);
+        long bestWhole = Long.MAX_VALUE;
+        long bestBanded = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            bestWhole = Math.min(bestWhole, run(randomMatrix(random, size), 0));
+            bestBanded = Math.min(bestBanded, run(randomMatrix(random, size), bandRows));
+        }
+        System.out.printf("%dx%d matrix (%.1f MB), best of %d%n", size, size, (double) Integer.BYTES * size * size / 1e6, repetitions);
+        System.out.printf("sent whole, then counted:           %8.1f ms%n", bestWhole / 1e6);
+        System.out.printf("sent in bands of %4d rows, counted: %8.1f ms%n", bandRows, bestBanded / 1e6);
+
+        server.stop();
+    }
+
+    /**
+     * Sends a matrix and asks for its submarines.
+     *
+     * @param i_Matrix   the matrix
+     * @param i_BandRows the number of rows in a band, or 0 to send the matrix whole
+     * @return the time from sending the matrix to reading the count, in nanoseconds
+     */
+    private static long run(int[][] i_Matrix, int i_BandRows) throws Exception {
+        int expected = Submarines.getInstance().countValidSubmarines(new Matrix(i_Matrix));
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            BinaryClient client = new BinaryClient(socket.getInputStream(), socket.getOutputStream());
+            long start = System.nanoTime();
+            if (i_BandRows == 0) {
+                client.send(MatrixCommand.UPLOAD_MATRIX, (Object) i_Matrix);
+                check(client.receive());
+            } else {
+                client.send(MatrixCommand.BEGIN_MATRIX_UPLOAD, i_Matrix.length, i_Matrix[0].length);
+                for (int row = 0; row < i_Matrix.length; row += i_BandRows) {
+                    client.send(MatrixCommand.MATRIX_BAND,
+                            (Object) Arrays.copyOfRange(i_Matrix, row, Math.min(i_Matrix.length, row + i_BandRows)));
+                }
+                client.send(MatrixCommand.END_MATRIX_UPLOAD);
+            }
+            client.send(MatrixCommand.SUBMARINES);
+            BinaryProtocol.Reply reply = client.receive();
+            long elapsed = System.nanoTime() - start;
+            check(reply);
+            if ((Integer) reply.value() != expected) {
+                throw new IllegalStateException("the server counts " + reply.value() + " submarines instead of " + expected);
+            }
+            client.send(MatrixCommand.STOP);
+            return elapsed;
+        }
+    }
+
+    private static int[][] randomMatrix(Random i_Random, int i_Size) {
+        int[][] matrix = new int[i_Size][i_Size];
+        for (int[] row : matrix) {
+            for (int column = 0; column < i_Size; column++) {
+                row[column] = i_Random.nextInt(4) == 0 ? 1 : 0;
+            }
+        }
+        return matrix;
+    }
+
+    private static void check(BinaryProtocol.Reply i_Reply) {
+        if (i_Reply.failed()) {
+            throw new IllegalStateException("request " + i_Reply.requestId() + " failed: " + i_Reply.value());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import pojo.ComponentLabels;
+import pojo.ComputeScheduler;
+import pojo.ConnectedComponents;
+import pojo.Matrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reports how the banded connected-component labeling scales with the number
+ * of cores. It labels one random 0/1 matrix with pools of 1 to N threads and
+ * prints the best time of each run next to its speedup over one thread.
+ * Every parallel result is checked against a single scan of the matrix.
+ * <p>
+ * Usage: LabelingBenchmark [size] [bandRows] [maxThreads] [repetitions]
+ */
+public class LabelingBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int bandRows = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : ConnectedComponents.defaultBandRows(size);
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int repetitions = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Random random = new Random(42);
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            for (int column = 0; column < size; column++) {
+                row[column] = random.nextInt(2);
+            }
+        }
+        Matrix matrix = new Matrix(sourceArray);
+        ConnectedComponents algorithm = ConnectedComponents.getInstance();
+        int[][] expected = algorithm.label(matrix, size, ComputeScheduler.getInstance()).toLabelGrid();
+
+        System.out.printf("%dx%d matrix, bands of %d rows%n", size, size, bandRows);
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ComputeScheduler scheduler = new ComputeScheduler(threads, threads);
+            long best = Long.MAX_VALUE;
+            ComponentLabels labels = null;
+            for (int i = 0; i < repetitions; i++) {
+                long start = System.nanoTime();
+                labels = algorithm.label(matrix, bandRows, scheduler);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            scheduler.shutdown();
+            if (!Arrays.deepEquals(expected, labels.toLabelGrid())) {
+                throw new IllegalStateException("labels with " + threads + " threads differ from a single scan");
+            }
+            double millis = best / 1e6;
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%2d threads: %8.1f ms  speedup %.2fx  (%d components)%n",
+                    threads, millis, baseline / millis, labels.getNumOfComponents());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import pojo.Index;
+import pojo.Landmarks;
+import pojo.LightestPaths;
+import pojo.Matrix;
+import pojo.WeightedMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures what landmarks cost and what they save on repeated lowest weight path queries.
+ * It prepares landmarks for one large random weighted matrix, prints the preprocessing
+ * time and memory, and then runs the same random queries with Dijkstra's algorithm,
+ * with A* and with A* guided by the landmarks, printing the time and the number of cells
+ * each expanded. The paths of every run are checked against those of Dijkstra's algorithm.
+ * <p>
+ * Usage: LandmarkBenchmark [size] [queries] [numOfLandmarks] [maxWeight]
+ */
+public class LandmarkBenchmark {
+    // enough paths to compare the runs, without listing the ties of a flat matrix for ever
+    private static final int MAX_PATHS = 1000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int numOfLandmarks = args.length > 2 ? Integer.parseInt(args[2]) : Landmarks.DEFAULT_NUM_OF_LANDMARKS;
+        int maxWeight = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+
+        Random random = new Random(42);
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            for (int column = 0; column < size; column++) {
+                row[column] = 1 + random.nextInt(maxWeight);
+            }
+        }
+        WeightedMatrix matrix = new WeightedMatrix(new Matrix(sourceArray));
+        Index[] sources = new Index[queries];
+        Index[] destinations = new Index[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = new Index(random.nextInt(size), random.nextInt(size));
+            destinations[i] = new Index(random.nextInt(size), random.nextInt(size));
+        }
+
+        Landmarks landmarks = Landmarks.select(matrix, numOfLandmarks);
+        System.out.printf("%dx%d matrix, weights 1 to %d, %d random queries%n", size, size, maxWeight, queries);
+        System.out.printf("%d landmarks: %d ms preprocessing, %.1f MB (the matrix takes %.1f MB)%n",
+                landmarks.getNumOfLandmarks(), landmarks.getStats().get("landmarks.preprocessingMillis"),
+                landmarks.getNumOfBytes() / 1e6, (double) Integer.BYTES * size * size / 1e6);
+
+        LightestPaths algorithm = LightestPaths.getInstance();
+        LightestPaths.SearchMode initialMode = algorithm.getSearchMode();
+        // the paths the first search found for every query, which the other searches must find too
+        List<HashSet<List<Index>>> expected = new ArrayList<>(Collections.nCopies(queries, null));
+        double baseMillis = 0;
+        String[] names = {"DIJKSTRA", "A_STAR", "A_STAR+ALT"};
+        LightestPaths.SearchMode[] modes = {LightestPaths.SearchMode.DIJKSTRA, LightestPaths.SearchMode.A_STAR,
+                LightestPaths.SearchMode.A_STAR};
+        for (int run = 0; run < names.length; run++) {
+            algorithm.setSearchMode(modes[run]);
+            Landmarks guide = run == 2 ? landmarks : null;
+            long expandedBefore = algorithm.getNumOfExpandedCells();
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                HashSet<List<Index>> lightestPaths = algorithm.findLowestWeightPaths(matrix, sources[i], destinations[i],
+                        MAX_PATHS, guide);
+                if (expected.get(i) == null) {
+                    expected.set(i, lightestPaths);
+                } else if (!expected.get(i).equals(lightestPaths)) {
+                    throw new IllegalStateException(names[run] + " finds other paths from " + sources[i] + " to " + destinations[i]);
+                }
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            long expanded = algorithm.getNumOfExpandedCells() - expandedBefore;
+            if (run == 0) {
+                baseMillis = millis;
+            }
+            System.out.printf("%-11s %9.1f ms  %12d cells expanded  (%d per query, %.1fx faster than Dijkstra)%n",
+                    names[run], millis, expanded, expanded / queries, baseMillis / millis);
+        }
+        algorithm.setSearchMode(initialMode);
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import pojo.Index;
+import pojo.LightestPaths;
+import pojo.Matrix;
+import pojo.WeightedMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the search modes of the lowest weight path engine on point-to-point queries.
+ * It runs the same queries between nearby cells of one large random weighted matrix
+ * with every mode, and prints the time and the number of cells each mode expanded.
+ * The paths of every mode are checked against those of Dijkstra's algorithm.
+ * <p>
+ * Usage: LightestPathBenchmark [size] [queries] [maxOffset] [maxWeight]
+ */
+public class LightestPathBenchmark {
+    // enough paths to compare the modes, without listing the ties of a flat matrix for ever
+    private static final int MAX_PATHS = 1000;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxOffset = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int maxWeight = args.length > 3 ? Integer.parseInt(args[3]) : 9;
+
+        Random random = new Random(42);
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            for (int column = 0; column < size; column++) {
+                row[column] = 1 + random.nextInt(maxWeight);
+            }
+        }
+        WeightedMatrix matrix = new WeightedMatrix(new Matrix(sourceArray));
+        Index[] sources = new Index[queries];
+        Index[] destinations = new Index[queries];
+        for (int i = 0; i < queries; i++) {
+            int row = random.nextInt(size);
+            int column = random.nextInt(size);
+            sources[i] = new Index(row, column);
+            destinations[i] = new Index(clamp(row + random.nextInt(2 * maxOffset + 1) - maxOffset, size),
+                    clamp(column + random.nextInt(2 * maxOffset + 1) - maxOffset, size));
+        }
+
+        LightestPaths algorithm = LightestPaths.getInstance();
+        LightestPaths.SearchMode initialMode = algorithm.getSearchMode();
+        // the paths the first search found for every query, which the other searches must find too
+        List<HashSet<List<Index>>> expected = new ArrayList<>(Collections.nCopies(queries, null));
+        System.out.printf("%dx%d matrix, weights 1 to %d, %d queries at most %d rows/columns apart%n",
+                size, size, maxWeight, queries, maxOffset);
+        for (LightestPaths.SearchMode mode : LightestPaths.SearchMode.values()) {
+            algorithm.setSearchMode(mode);
+            long expandedBefore = algorithm.getNumOfExpandedCells();
+            long start = System.nanoTime();
+            long paths = 0;
+            for (int i = 0; i < queries; i++) {
+                HashSet<List<Index>> lightestPaths = algorithm.findLowestWeightPaths(matrix, sources[i], destinations[i], MAX_PATHS);
+                if (expected.get(i) == null) {
+                    expected.set(i, lightestPaths);
+                } else if (!expected.get(i).equals(lightestPaths)) {
+                    throw new IllegalStateException(mode + " finds other paths from " + sources[i] + " to " + destinations[i]);
+                }
+                paths += lightestPaths.size();
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            long expanded = algorithm.getNumOfExpandedCells() - expandedBefore;
+            System.out.printf("%-9s %9.1f ms  %12d cells expanded  (%d per query, %d paths)%n",
+                    mode, millis, expanded, expanded / queries, paths);
+        }
+        algorithm.setSearchMode(initialMode);
+    }
+
+    private static int clamp(int i_Value, int i_Size) {
+        return Math.max(0, Math.min(i_Size - 1, i_Value));
+    }
+}
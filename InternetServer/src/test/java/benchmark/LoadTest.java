@@ -0,0 +1,99 @@
+package benchmark;
+
+import pojo.Index;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A load generator for InternetServer. It opens many sessions at once, keeps them
+ * open between commands (with a think time in between) and reports the throughput
+ * and latency percentiles of the commands, so the execution modes of the server
+ * can be compared.
+ * <p>
+ * Usage: LoadTest [host] [port] [sessions] [requestsPerSession] [thinkTimeMillis]
+ * (runs its sessions on virtual threads, so it needs --enable-preview on Java 19)
+ */
+public class LoadTest {
+
+    public static void main(String[] args) {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8010;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int requestsPerSession = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long thinkTimeMillis = args.length > 4 ? Long.parseLong(args[4]) : 100;
+
+        int[][] sourceArray = {
+                {1,0,0,1,1},
+                {1,0,0,1,1},
+                {0,1,0,0,0},
+                {1,1,0,1,1}
+        };
+
+        AtomicLongArray latencies = new AtomicLongArray(sessions * requestsPerSession);
+        AtomicInteger completed = new AtomicInteger(0);
+        AtomicInteger failedSessions = new AtomicInteger(0);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < sessions; s++) {
+                executor.execute(() -> {
+                    try (Socket socket = new Socket(host, port)) {
+                        ObjectOutputStream toServer = new ObjectOutputStream(socket.getOutputStream());
+                        ObjectInputStream fromServer = new ObjectInputStream(socket.getInputStream());
+                        toServer.writeObject("matrix");
+                        toServer.writeObject(sourceArray);
+
+                        for (int r = 0; r < requestsPerSession; r++) {
+                            Thread.sleep(thinkTimeMillis);
+                            long requestStart = System.nanoTime();
+                            if (r % 2 == 0) {
+                                toServer.writeObject("submarines");
+                            } else {
+                                toServer.writeObject("all shortest paths");
+                                toServer.writeObject(new Index(0, 0));
+                                toServer.writeObject(new Index(3, 1));
+                            }
+                            toServer.flush();
+                            fromServer.readObject();
+                            latencies.set(completed.getAndIncrement(), System.nanoTime() - requestStart);
+                        }
+                        toServer.writeObject("stop");
+                        toServer.flush();
+                    } catch (IOException | ClassNotFoundException | InterruptedException e) {
+                        failedSessions.incrementAndGet();
+                    }
+                });
+            }
+        } // close() waits for all sessions to finish
+        long elapsed = System.nanoTime() - start;
+
+        int count = completed.get();
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+
+        System.out.println("sessions: " + sessions + " (failed " + failedSessions.get() + ")");
+        System.out.println("requests: " + count + " in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+        System.out.printf("throughput: %.1f requests/s%n", count / (elapsed / 1e9));
+        if (count > 0) {
+            System.out.printf("latency p50: %.3f ms, p99: %.3f ms, max: %.3f ms%n",
+                    percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.99) / 1e6, sorted[count - 1] / 1e6);
+        }
+    }
+
+    private static long percentile(long[] i_Sorted, double i_Fraction) {
+        int position = (int) Math.ceil(i_Fraction * i_Sorted.length) - 1;
+        return i_Sorted[Math.max(0, Math.min(position, i_Sorted.length - 1))];
+    }
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import pojo.BinaryProtocol;
+import pojo.ComputeScheduler;
+import pojo.Matrix;
+import pojo.MatrixCommand;
+import pojo.MatrixFile;
+import pojo.MatrixHandler;
+import pojo.Submarines;
+import server.BinaryClient;
+import server.NioInternetServer;
+
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long it takes until the server can work on a large matrix, when the
+ * matrix is sent over the socket (UPLOAD_MATRIX) and when the server maps it from a
+ * matrix file (LOAD_MATRIX). Every run uses a new random matrix, so the registry never
+ * has it already, and the submarine count of the loaded matrix is checked against
+ * counting the matrix locally. The files are written to a temporary data directory.
+ * <p>
+ * Usage: MatrixFileBenchmark [size] [repetitions]
+ */
+public class MatrixFileBenchmark {
+    private static final int PORT = 8020;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Path dataDirectory = Files.createTempDirectory("matrices");
+        NioInternetServer server = new NioInternetServer(PORT);
+        server.supportClients(new MatrixHandler(ComputeScheduler.getInstance().getPool(), dataDirectory));
+
+        Random random = new Random(42);
+        long bestUpload = Long.MAX_VALUE;
+        long bestLoad = Long.MAX_VALUE;
+        long bestWrite = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            bestUpload = Math.min(bestUpload, upload(randomMatrix(random, size)));
+
+            int[][] matrix = randomMatrix(random, size);
+            String name = "map" + i + ".mtrx";
+            long writeStart = System.nanoTime();
+            MatrixFile.write(dataDirectory.resolve(name), new Matrix(matrix));
+            bestWrite = Math.min(bestWrite, System.nanoTime() - writeStart);
+            bestLoad = Math.min(bestLoad, load(name, Submarines.getInstance().countValidSubmarines(new Matrix(matrix))));
+        }
+        System.out.printf("%dx%d matrix (%.1f MB), best of %d%n", size, size, (double) Integer.BYTES * size * size / 1e6, repetitions);
+        System.out.printf("sent over the socket:      %8.1f ms%n", bestUpload / 1e6);
+        System.out.printf("mapped from a file:        %8.1f ms%n", bestLoad / 1e6);
+        System.out.printf("(writing the file once:    %8.1f ms)%n", bestWrite / 1e6);
+
+        server.stop();
+        try (Stream<Path> files = Files.list(dataDirectory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dataDirectory);
+    }
+
+    /**
+     * Uploads a matrix.
+     *
+     * @param i_Matrix the matrix
+     * @return the time from sending the matrix to reading its handle, in nanoseconds
+     */
+    private static long upload(int[][] i_Matrix) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            BinaryClient client = new BinaryClient(socket.getInputStream(), socket.getOutputStream());
+            long start = System.nanoTime();
+            client.send(MatrixCommand.UPLOAD_MATRIX, (Object) i_Matrix);
+            check(client.receive());
+            long elapsed = System.nanoTime() - start;
+            client.send(MatrixCommand.STOP);
+            return elapsed;
+        }
+    }
+
+    /**
+     * Loads a matrix file and checks the submarines of it.
+     *
+     * @param i_Name     the name of the file in the data directory
+     * @param i_Expected the number of valid submarines of the matrix
+     * @return the time from sending the name to reading the handle, in nanoseconds
+     */
+    private static long load(String i_Name, int i_Expected) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            BinaryClient client = new BinaryClient(socket.getInputStream(), socket.getOutputStream());
+            long start = System.nanoTime();
+            client.send(MatrixCommand.LOAD_MATRIX, i_Name);
+            check(client.receive());
+            long elapsed = System.nanoTime() - start;
+            client.send(MatrixCommand.SUBMARINES);
+            BinaryProtocol.Reply reply = client.receive();
+            check(reply);
+            if ((Integer) reply.value() != i_Expected) {
+                throw new IllegalStateException("the server counts " + reply.value() + " submarines instead of " + i_Expected);
+            }
+            client.send(MatrixCommand.STOP);
+            return elapsed;
+        }
+    }
+
+    private static int[][] randomMatrix(Random i_Random, int i_Size) {
+        int[][] matrix = new int[i_Size][i_Size];
+        for (int[] row : matrix) {
+            for (int column = 0; column < i_Size; column++) {
+                row[column] = i_Random.nextInt(4) == 0 ? 1 : 0;
+            }
+        }
+        return matrix;
+    }
+
+    private static void check(BinaryProtocol.Reply i_Reply) {
+        if (i_Reply.failed()) {
+            throw new IllegalStateException("request " + i_Reply.requestId() + " failed: " + i_Reply.value());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import pojo.ConnectedComponents;
+import pojo.Matrix;
+import pojo.Submarines;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares a large matrix whose cells are on the heap with the same matrix off the heap.
+ * For both it prints the heap the matrix keeps alive, the collections it took to build
+ * it, the pause of a full collection while it is alive, and the time to label and to
+ * count the submarines of it. Both counts must agree.
+ * <p>
+ * Usage: OffHeapBenchmark [size]
+ */
+public class OffHeapBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+
+        Random random = new Random(42);
+        int[][] grid = new int[size][size];
+        for (int[] row : grid) {
+            for (int column = 0; column < size; column++) {
+                row[column] = random.nextInt(4) == 0 ? 1 : 0;
+            }
+        }
+        System.out.printf("%dx%d matrix, %.1f MB of cells%n", size, size, (double) Integer.BYTES * size * size / 1e6);
+
+        long heapCount = run("heap", () -> new Matrix(grid));
+        long offHeapCount = run("off heap", () -> Matrix.offHeap(grid));
+        if (heapCount != offHeapCount) {
+            throw new IllegalStateException("the off-heap matrix has " + offHeapCount + " submarines instead of " + heapCount);
+        }
+    }
+
+    /**
+     * Builds a matrix and measures it.
+     *
+     * @param i_Name    the name of the storage
+     * @param i_Builder builds the matrix from the grid
+     * @return the number of valid submarines of the matrix
+     */
+    private static long run(String i_Name, Supplier<Matrix> i_Builder) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long[] gcBefore = gcTotals();
+
+        Matrix matrix = i_Builder.get();
+        long[] gcAfter = gcTotals();
+        long fullStart = System.nanoTime();
+        System.gc();
+        long fullPause = System.nanoTime() - fullStart;
+        long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        long labelStart = System.nanoTime();
+        int components = ConnectedComponents.getInstance().label(matrix).getNumOfComponents();
+        long labelTime = System.nanoTime() - labelStart;
+        long countStart = System.nanoTime();
+        long validSubmarines = Submarines.getInstance().countValidSubmarines(matrix);
+        long countTime = System.nanoTime() - countStart;
+
+        System.out.printf("%-8s heap kept %7.1f MB, off heap %7.1f MB, %d collections (%d ms) while building, full collection %6.1f ms%n",
+                i_Name, Math.max(0, heapAfter - heapBefore) / 1e6, matrix.isOffHeap() ? matrix.getNumOfBytes() / 1e6 : 0.0,
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], fullPause / 1e6);
+        System.out.printf("%-8s labeled %d components in %.1f ms, counted %d valid submarines in %.1f ms%n",
+                i_Name, components, labelTime / 1e6, validSubmarines, countTime / 1e6);
+        return validSubmarines;
+    }
+
+    /**
+     * Sums the collections of all collectors so far.
+     *
+     * @return the number of collections and their time in milliseconds
+     */
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import pojo.BinaryProtocol;
+import pojo.ComputeScheduler;
+import pojo.Index;
+import pojo.MatrixCommand;
+import pojo.MatrixHandler;
+import server.BinaryClient;
+import server.NioInternetServer;
+
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Measures the wall-clock time of one session that sends a mix of queries on one
+ * matrix, first one request at a time and then pipelined (all requests sent before
+ * the first reply is read).
+ * <p>
+ * Usage: PipelineBenchmark [size] [requests]
+ */
+public class PipelineBenchmark {
+    private static final int PORT = 8018;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            Arrays.fill(row, 1);
+        }
+
+        NioInternetServer server = new NioInternetServer(PORT);
+        server.supportClients(new MatrixHandler(ComputeScheduler.getInstance().getPool()));
+
+        run(sourceArray, requests, false);
+        run(sourceArray, requests, true);
+        System.out.printf("one at a time: %.1f ms%n", run(sourceArray, requests, false) / 1e6);
+        System.out.printf("pipelined:     %.1f ms%n", run(sourceArray, requests, true) / 1e6);
+
+        server.stop();
+    }
+
+    private static long run(int[][] i_Matrix, int i_Requests, boolean i_Pipelined) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            BinaryClient client = new BinaryClient(socket.getInputStream(), socket.getOutputStream());
+            long start = System.nanoTime();
+            client.send(MatrixCommand.MATRIX, (Object) i_Matrix);
+            for (int i = 0; i < i_Requests; i++) {
+                send(client, i, i_Matrix.length);
+                if (!i_Pipelined) {
+                    check(client.receive());
+                }
+            }
+            if (i_Pipelined) {
+                for (int i = 0; i < i_Requests; i++) {
+                    check(client.receive());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            client.send(MatrixCommand.STOP);
+            return elapsed;
+        }
+    }
+
+    private static void send(BinaryClient i_Client, int i_Request, int i_Size) throws Exception {
+        switch (i_Request % 3) {
+            case 0 -> i_Client.send(MatrixCommand.ALL_CONNECTED_COMPONENTS);
+            case 1 -> i_Client.send(MatrixCommand.SUBMARINES);
+            default -> i_Client.send(MatrixCommand.ALL_SHORTEST_PATHS,
+                    new Index(0, i_Request % i_Size), new Index(i_Size - 1, (i_Request / i_Size) % i_Size));
+        }
+    }
+
+    private static void check(BinaryProtocol.Reply i_Reply) {
+        if (i_Reply.failed()) {
+            throw new IllegalStateException("request " + i_Reply.requestId() + " failed: " + i_Reply.value());
+        }
+    }
+}
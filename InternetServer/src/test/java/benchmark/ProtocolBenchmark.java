@@ -0,0 +1,140 @@
+package benchmark;
+
+import pojo.MatrixCommand;
+import pojo.MatrixHandler;
+import server.BinaryClient;
+import server.InternetServer;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Compares the object protocol with the binary protocol. It starts a server in
+ * this process, runs the same requests with both protocols and reports the bytes
+ * on the wire and the CPU time of the whole process (client and server) per request.
+ * <p>
+ * Usage: ProtocolBenchmark [size] [requests]
+ */
+public class ProtocolBenchmark {
+    private static final int PORT = 8019;
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            Arrays.fill(row, 1);
+        }
+
+        InternetServer server = new InternetServer(PORT);
+        server.supportClients(new MatrixHandler());
+        Thread.sleep(500);
+
+        // warm up both code paths before measuring
+        runObjectProtocol(sourceArray, requests / 10 + 1);
+        runBinaryProtocol(sourceArray, requests / 10 + 1);
+
+        report("object", runObjectProtocol(sourceArray, requests), requests);
+        report("binary", runBinaryProtocol(sourceArray, requests), requests);
+        server.stop();
+    }
+
+    private static long[] runObjectProtocol(int[][] i_Matrix, int i_Requests) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            CountingOutputStream out = new CountingOutputStream(socket.getOutputStream());
+            CountingInputStream in = new CountingInputStream(socket.getInputStream());
+            long cpuStart = processCpuTime();
+
+            ObjectOutputStream toServer = new ObjectOutputStream(out);
+            toServer.writeObject("matrix");
+            toServer.writeObject(i_Matrix);
+            ObjectInputStream fromServer = null;
+            for (int i = 0; i < i_Requests; i++) {
+                toServer.writeObject(i % 2 == 0 ? "submarines" : "all connected components");
+                toServer.flush();
+                if (fromServer == null) {
+                    fromServer = new ObjectInputStream(in);
+                }
+                fromServer.readObject();
+            }
+            toServer.writeObject("stop");
+            toServer.flush();
+            return new long[]{out.count, in.count, processCpuTime() - cpuStart};
+        }
+    }
+
+    private static long[] runBinaryProtocol(int[][] i_Matrix, int i_Requests) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            CountingOutputStream out = new CountingOutputStream(socket.getOutputStream());
+            CountingInputStream in = new CountingInputStream(socket.getInputStream());
+            long cpuStart = processCpuTime();
+
+            BinaryClient client = new BinaryClient(in, out);
+            client.send(MatrixCommand.MATRIX, (Object) i_Matrix);
+            for (int i = 0; i < i_Requests; i++) {
+                client.send(i % 2 == 0 ? MatrixCommand.SUBMARINES : MatrixCommand.ALL_CONNECTED_COMPONENTS);
+                client.receive();
+            }
+            client.send(MatrixCommand.STOP);
+            return new long[]{out.count, in.count, processCpuTime() - cpuStart};
+        }
+    }
+
+    private static void report(String i_Protocol, long[] i_Measures, int i_Requests) {
+        System.out.printf("%s protocol: %d bytes sent, %d bytes received, %.1f us CPU per request%n",
+                i_Protocol, i_Measures[0], i_Measures[1], i_Measures[2] / 1e3 / i_Requests);
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream i_Out) {
+            super(i_Out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream i_In) {
+            super(i_In);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
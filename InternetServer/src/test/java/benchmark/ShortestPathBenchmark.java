@@ -0,0 +1,78 @@
+package benchmark;
+
+import pojo.BasicMatrix;
+import pojo.Index;
+import pojo.Matrix;
+import pojo.PathSummary;
+import pojo.ShortestPaths;
+
+import java.util.Random;
+
+/**
+ * Compares the search modes of the shortest-path engine on point-to-point queries.
+ * It runs the same queries between nearby cells of one large random 0/1 matrix
+ * with every mode, and prints the time and the number of cells each mode expanded.
+ * The answers of every mode are checked against the forward search.
+ * <p>
+ * Usage: ShortestPathBenchmark [size] [queries] [maxOffset] [percentOfOnes]
+ */
+public class ShortestPathBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int maxOffset = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int percentOfOnes = args.length > 3 ? Integer.parseInt(args[3]) : 80;
+
+        Random random = new Random(42);
+        int[][] sourceArray = new int[size][size];
+        for (int[] row : sourceArray) {
+            for (int column = 0; column < size; column++) {
+                row[column] = random.nextInt(100) < percentOfOnes ? 1 : 0;
+            }
+        }
+        BasicMatrix matrix = new BasicMatrix(new Matrix(sourceArray));
+        Index[] sources = new Index[queries];
+        Index[] destinations = new Index[queries];
+        for (int i = 0; i < queries; i++) {
+            int row = random.nextInt(size);
+            int column = random.nextInt(size);
+            sources[i] = new Index(row, column);
+            destinations[i] = new Index(clamp(row + random.nextInt(2 * maxOffset + 1) - maxOffset, size),
+                    clamp(column + random.nextInt(2 * maxOffset + 1) - maxOffset, size));
+        }
+
+        ShortestPaths algorithm = ShortestPaths.getInstance();
+        ShortestPaths.SearchMode initialMode = algorithm.getSearchMode();
+        PathSummary[] expected = new PathSummary[queries];
+        System.out.printf("%dx%d matrix, %d%% ones, %d queries at most %d rows/columns apart%n",
+                size, size, percentOfOnes, queries, maxOffset);
+        for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+            algorithm.setSearchMode(mode);
+            long expandedBefore = algorithm.getNumOfExpandedCells();
+            long start = System.nanoTime();
+            int reachable = 0;
+            for (int i = 0; i < queries; i++) {
+                PathSummary summary = algorithm.summarize(matrix, sources[i], destinations[i]);
+                if (expected[i] == null) {
+                    expected[i] = summary;
+                } else if (!expected[i].equals(summary)) {
+                    throw new IllegalStateException(mode + " answers " + summary + " instead of " + expected[i]
+                            + " from " + sources[i] + " to " + destinations[i]);
+                }
+                if (summary.distance() >= 0) {
+                    reachable++;
+                }
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            long expanded = algorithm.getNumOfExpandedCells() - expandedBefore;
+            System.out.printf("%-13s %9.1f ms  %12d cells expanded  (%d per query, %d reachable)%n",
+                    mode, millis, expanded, expanded / queries, reachable);
+        }
+        algorithm.setSearchMode(initialMode);
+    }
+
+    private static int clamp(int i_Value, int i_Size) {
+        return Math.max(0, Math.min(i_Size - 1, i_Value));
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import pojo.Matrix;
+import pojo.SubmarineStream;
+import pojo.Submarines;
+
+import java.util.Random;
+
+/**
+ * Shows that counting submarines row by row keeps the memory flat however tall the matrix is.
+ * It generates a random sea map one band of rows at a time, feeds the bands to a
+ * SubmarineStream and prints the time, the rows per second and the heap in use next to
+ * the size the matrix would have as an int[][]. A first small map of the same width is
+ * checked against counting the whole matrix in memory.
+ * <p>
+ * Usage: SubmarineStreamBenchmark [rows] [columns] [bandRows]
+ */
+public class SubmarineStreamBenchmark {
+
+    public static void main(String[] args) {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int columns = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int bandRows = args.length > 2 ? Math.max(1, Integer.parseInt(args[2])) : 64;
+
+        Random random = new Random(42);
+        int[][] band = new int[bandRows][columns];
+        int[][] check = new int[Math.min(1024, (int) Math.min(rows, Integer.MAX_VALUE))][];
+        SubmarineStream checkStream = new SubmarineStream(columns);
+        for (int row = 0; row < check.length; row++) {
+            check[row] = randomRow(random, columns);
+            checkStream.acceptRow(check[row]);
+        }
+        if (checkStream.finish() != Submarines.getInstance().countValidSubmarines(new Matrix(check))) {
+            throw new IllegalStateException("the stream counts other submarines than the whole matrix");
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long maxHeap = heapBefore;
+        SubmarineStream stream = new SubmarineStream(columns);
+        long start = System.nanoTime();
+        for (long first = 0; first < rows; first += bandRows) {
+            int count = (int) Math.min(bandRows, rows - first);
+            for (int row = 0; row < count; row++) {
+                fillRow(random, band[row]);
+                stream.acceptRow(band[row]);
+            }
+            if ((first / bandRows) % 1024 == 0) {
+                maxHeap = Math.max(maxHeap, runtime.totalMemory() - runtime.freeMemory());
+            }
+        }
+        long validSubmarines = stream.finish();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%dx%d matrix in bands of %d rows: %d valid submarines%n", rows, columns, bandRows, validSubmarines);
+        System.out.printf("%.1f s, %.0f rows/s (generating the rows included)%n", seconds, rows / seconds);
+        System.out.printf("heap in use: %.1f MB before, at most %.1f MB while streaming; as an int[][] the matrix takes %.1f MB%n",
+                heapBefore / 1e6, maxHeap / 1e6, (double) Integer.BYTES * rows * columns / 1e6);
+    }
+
+    private static int[] randomRow(Random i_Random, int i_Columns) {
+        int[] row = new int[i_Columns];
+        fillRow(i_Random, row);
+        return row;
+    }
+
+    // a quarter of the cells are 1, so the map holds many small submarines and a few that are not rectangles;
+    // two random bits per cell keep the generator from dominating the time
+    private static void fillRow(Random i_Random, int[] i_Row) {
+        long bits = 0;
+        for (int column = 0; column < i_Row.length; column++) {
+            if (column % 32 == 0) {
+                bits = i_Random.nextLong();
+            }
+            i_Row[column] = (bits & 3) == 0 ? 1 : 0;
+            bits >>>= 2;
+        }
+    }
+}
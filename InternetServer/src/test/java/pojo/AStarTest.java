@@ -0,0 +1,59 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the A* mode of LightestPaths, whose order also counts a lower bound of
+ * the weight still to go, finds the paths and weights of Dijkstra's algorithm.
+ */
+class AStarTest {
+    private static final LightestPaths.SearchMode MODE = LightestPaths.SearchMode.A_STAR;
+
+    @Test
+    void findsAllLowestWeightPaths() {
+        LightestPathsTest.assertFindsAllLowestWeightPaths(MODE, 18);
+    }
+
+    @Test
+    void boundOfHeavyCellsKeepsALongDetour() {
+        // every cell weighs at least 50, so the bound per step is 50, and the straight line of 500 still loses
+        int[][] grid = {
+                {50, 200, 200, 50},
+                {50, 200, 200, 50},
+                {50, 50, 50, 50}
+        };
+        Index source = new Index(0, 0);
+        Index destination = new Index(0, 3);
+        assertEquals(Set.of(List.of(source, new Index(1, 0), new Index(2, 1), new Index(2, 2), new Index(1, 3), destination)),
+                LightestPathsTest.find(MODE, grid, source, destination));
+        assertEquals(300, LightestPathsTest.findLowestWeight(MODE, grid, source, destination));
+        LightestPathsTest.assertLowestWeightPaths(MODE, grid, source, destination, null);
+    }
+
+    @Test
+    void boundOfHugeWeightsDoesNotOverflow() {
+        int[][] grid = {
+                {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE},
+                {Integer.MAX_VALUE, -1, -1, Integer.MAX_VALUE}
+        };
+        assertEquals(4L * Integer.MAX_VALUE,
+                LightestPathsTest.findLowestWeight(MODE, grid, new Index(1, 0), new Index(1, 3)));
+    }
+
+    @Test
+    void destinationBehindTheSourceIsFound() {
+        // the bound points away from the only way round
+        int[][] grid = {
+                {1, 1, 1, 1},
+                {1, -1, -1, 1},
+                {1, -1, 1, 1}
+        };
+        LightestPathsTest.assertLowestWeightPaths(MODE, grid, new Index(2, 0), new Index(2, 2), null);
+        assertEquals(6, LightestPathsTest.findLowestWeight(MODE, grid, new Index(2, 0), new Index(2, 2)));
+    }
+}
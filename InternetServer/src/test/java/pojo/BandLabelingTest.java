@@ -0,0 +1,78 @@
+package pojo;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that labeling a matrix in bands of rows gives the labels of one scan.
+ */
+class BandLabelingTest {
+    private static final int CASES = 3000;
+    private static ComputeScheduler scheduler;
+
+    @BeforeAll
+    static void startScheduler() {
+        scheduler = new ComputeScheduler(3, 3);
+    }
+
+    @AfterAll
+    static void stopScheduler() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void bandsLabelLikeOneScan() {
+        Random random = new Random(2);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomBinaryGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(12), random.nextDouble());
+            Matrix matrix = new Matrix(grid);
+            ConnectedComponentsTest.assertLabels(grid, ConnectedComponents.getInstance().label(matrix, 1 + random.nextInt(4), scheduler));
+        }
+    }
+
+    @Test
+    void componentThroughEveryBandKeepsOneLabel() {
+        // one row per band: the column joins all of them, and the cells on its right stay apart
+        int[][] grid = new int[9][3];
+        for (int row = 0; row < grid.length; row++) {
+            grid[row][0] = 1;
+            grid[row][2] = row % 2;
+        }
+        ComponentLabels labels = ConnectedComponents.getInstance().label(new Matrix(grid), 1, scheduler);
+        ConnectedComponentsTest.assertLabels(grid, labels);
+        assertEquals(9, labels.getComponentSize(1));
+    }
+
+    @Test
+    void bandsJoinAcrossADiagonalBorder() {
+        int[][] grid = {
+                {0, 1, 0, 0},
+                {1, 0, 0, 1},
+                {0, 0, 1, 0},
+                {0, 1, 0, 0}
+        };
+        for (int bandRows = 1; bandRows <= grid.length; bandRows++) {
+            ComponentLabels labels = ConnectedComponents.getInstance().label(new Matrix(grid), bandRows, scheduler);
+            ConnectedComponentsTest.assertLabels(grid, labels);
+            assertEquals(2, labels.getNumOfComponents());
+        }
+    }
+
+    @Test
+    void largeMatrixIsLabeledInBands() {
+        Random random = new Random(3);
+        int size = 2100;
+        int[][] grid = Reference.randomBinaryGrid(random, size, size, 0.45);
+        Matrix matrix = new Matrix(grid);
+        ComponentLabels oneScan = ConnectedComponents.getInstance().label(matrix, size, ComputeScheduler.getInstance());
+        ComponentLabels bands = ConnectedComponents.getInstance().label(matrix);
+        assertEquals(oneScan.getNumOfComponents(), bands.getNumOfComponents());
+        assertArrayEquals(oneScan.toLabelGrid(), bands.toLabelGrid());
+    }
+}
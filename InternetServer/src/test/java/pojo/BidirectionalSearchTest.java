@@ -0,0 +1,56 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the searches from both ends of ShortestPaths find the paths of a single search.
+ */
+class BidirectionalSearchTest {
+    private static final ShortestPaths.SearchMode MODE = ShortestPaths.SearchMode.BIDIRECTIONAL;
+
+    @Test
+    void findsAllShortestPaths() {
+        ShortestPathsTest.assertFindsAllShortestPaths(MODE, 15);
+    }
+
+    @Test
+    void sidesMeetOnEveryMiddleCell() {
+        int[][] grid = new int[3][6];
+        for (int[] row : grid) {
+            Arrays.fill(row, 1);
+        }
+        // an odd and an even number of steps, so the sides meet on a layer and between two layers
+        for (int column = 1; column < 6; column++) {
+            Index source = new Index(1, 0);
+            Index destination = new Index(1, column);
+            assertEquals(Reference.shortestPaths(grid, source, destination),
+                    ShortestPathsTest.find(MODE, grid, source, destination, Integer.MAX_VALUE), "column " + column);
+        }
+    }
+
+    @Test
+    void adjacentEndsMeetAtOnce() {
+        int[][] grid = {{1, 1}};
+        assertEquals(Set.of(List.of(new Index(0, 0), new Index(0, 1))),
+                ShortestPathsTest.find(MODE, grid, new Index(0, 0), new Index(0, 1), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void enclosedEndStopsTheSearch() {
+        // the destination's side runs out after one layer, while the source's side could go on
+        int[][] grid = {
+                {1, 1, 1, 1, 0, 0},
+                {1, 1, 1, 1, 0, 1},
+                {1, 1, 1, 1, 0, 0}
+        };
+        assertTrue(ShortestPathsTest.find(MODE, grid, new Index(0, 0), new Index(1, 5), Integer.MAX_VALUE).isEmpty());
+        assertTrue(ShortestPathsTest.find(MODE, grid, new Index(1, 5), new Index(0, 0), Integer.MAX_VALUE).isEmpty());
+    }
+}
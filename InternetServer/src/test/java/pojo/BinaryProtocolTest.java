@@ -0,0 +1,129 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+import server.Frames;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that requests and replies of the binary protocol decode to what was encoded,
+ * and that the handler answers binary frames with the id of their request.
+ */
+class BinaryProtocolTest {
+    private static final int COLUMNS = 5;
+
+    @Test
+    void requestsComeBackTheSame() throws IOException {
+        int[][] grid = {{1, 0, 1, 1, 0}, {0, 1, 1, 0, 1}};
+        BinaryProtocol.Request matrix = roundTrip(MatrixCommand.MATRIX, 1, (Object) grid);
+        assertEquals(MatrixCommand.MATRIX, matrix.command());
+        assertEquals(1, matrix.requestId());
+        assertArrayEquals(grid, (int[][]) matrix.args()[0]);
+
+        BinaryProtocol.Request paths = roundTrip(MatrixCommand.SHORTEST_PATHS, 2, new Index(1, 4), new Index(0, 0), 10);
+        assertArrayEquals(new Object[]{new Index(1, 4), new Index(0, 0), 10}, paths.args());
+
+        BinaryProtocol.Request load = roundTrip(MatrixCommand.LOAD_MATRIX, 3, "maps/ürban.mtrx");
+        assertEquals("maps/ürban.mtrx", load.args()[0]);
+
+        Index[][] pairs = {{new Index(0, 0), new Index(1, 1)}, {new Index(1, 2), new Index(0, 3)}};
+        BinaryProtocol.Request batch = roundTrip(MatrixCommand.BATCH_ALL_SHORTEST_PATHS, 4, (Object) pairs);
+        assertTrue(Arrays.deepEquals(pairs, (Index[][]) batch.args()[0]));
+    }
+
+    @Test
+    void repliesComeBackTheSame() throws IOException {
+        assertEquals(42, replyValue(42));
+        assertEquals(1L << 40, replyValue(1L << 40));
+        assertEquals(true, replyValue(true));
+        assertEquals(BigInteger.TEN.pow(30), replyValue(BigInteger.TEN.pow(30)));
+        assertEquals(new PathSummary(7, BigInteger.valueOf(3)), replyValue(new PathSummary(7, BigInteger.valueOf(3))));
+        assertEquals("2x5:00ff", replyValue("2x5:00ff"));
+        List<List<Index>> groups = List.of(List.of(new Index(0, 0), new Index(1, 4)), List.of(), List.of(new Index(1, 1)));
+        assertEquals(groups, replyValue(groups));
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("cache.hits", 3L);
+        counters.put("cache.misses", 0L);
+        assertEquals(counters, replyValue(counters));
+    }
+
+    @Test
+    void errorsAndPairResultsNameTheirRequest() throws IOException {
+        BinaryProtocol.Reply error = BinaryProtocol.decodeReply(BinaryProtocol.encodeError(9, "no matrix"), COLUMNS);
+        assertEquals(9, error.requestId());
+        assertTrue(error.failed());
+        assertEquals("no matrix", error.value());
+
+        byte[] pairReply = BinaryProtocol.encodeReply(4, 12, COLUMNS);
+        BinaryProtocol.Reply pair = BinaryProtocol.decodeReply(BinaryProtocol.encodePairReply(4, 2, pairReply), COLUMNS);
+        assertEquals(4, pair.requestId());
+        assertFalse(pair.failed());
+        assertEquals(new BinaryProtocol.PairResult(2, 12), pair.value());
+
+        assertThrows(IOException.class, () -> BinaryProtocol.encodeReply(1, new Object(), COLUMNS));
+        byte[] truncated = Arrays.copyOf(BinaryProtocol.encodeReply(1, 1L, COLUMNS), BinaryProtocol.HEADER_SIZE + 2);
+        assertThrows(IOException.class, () -> BinaryProtocol.decodeReply(truncated, COLUMNS));
+    }
+
+    @Test
+    void handlerAnswersEveryBinaryRequestWithItsId() throws IOException, ClassNotFoundException {
+        int[][] grid = {{1, 1, 0, 0, 1}, {1, 1, 0, 0, 1}};
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream toServer = new DataOutputStream(requests);
+        Frames.writeFrame(toServer, BinaryProtocol.encodeRequest(MatrixCommand.MATRIX, 0, new Object[]{grid}, COLUMNS));
+        Frames.writeFrame(toServer, BinaryProtocol.encodeRequest(MatrixCommand.SUBMARINES, 1, new Object[0], COLUMNS));
+        Frames.writeFrame(toServer, BinaryProtocol.encodeRequest(MatrixCommand.SHORTEST_DISTANCE, 2,
+                new Object[]{new Index(0, 0), new Index(1, 1)}, COLUMNS));
+        Frames.writeFrame(toServer, BinaryProtocol.encodeRequest(MatrixCommand.END_MATRIX_UPLOAD, 3, new Object[0], COLUMNS));
+
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        new MatrixHandler().handleClient(new ByteArrayInputStream(requests.toByteArray()), replies);
+
+        DataInputStream fromServer = new DataInputStream(new ByteArrayInputStream(replies.toByteArray()));
+        List<BinaryProtocol.Reply> answers = new ArrayList<>();
+        byte[] frame;
+        while ((frame = Frames.readFrame(fromServer)) != null) {
+            answers.add(BinaryProtocol.decodeReply(frame, COLUMNS));
+        }
+        // binary replies are unordered, so they are matched by request id; MATRIX has no reply
+        answers.sort((first, second) -> Integer.compare(first.requestId(), second.requestId()));
+        assertEquals(3, answers.size());
+        assertEquals(new BinaryProtocol.Reply(1, false, 2), answers.get(0));
+        assertEquals(new BinaryProtocol.Reply(2, false, 1), answers.get(1));
+        assertEquals(3, answers.get(2).requestId());
+        assertTrue(answers.get(2).failed());
+    }
+
+    /**
+     * Encodes a request and decodes it again.
+     */
+    private static BinaryProtocol.Request roundTrip(MatrixCommand i_Command, int i_RequestId, Object... i_Args) throws IOException {
+        return BinaryProtocol.decodeRequest(BinaryProtocol.encodeRequest(i_Command, i_RequestId, i_Args, COLUMNS), COLUMNS);
+    }
+
+    /**
+     * Encodes a result as a reply and gets the value it decodes to.
+     */
+    private static Object replyValue(Object i_Result) throws IOException {
+        BinaryProtocol.Reply reply = BinaryProtocol.decodeReply(BinaryProtocol.encodeReply(17, i_Result, COLUMNS), COLUMNS);
+        assertEquals(17, reply.requestId());
+        assertFalse(reply.failed());
+        return reply.value();
+    }
+}
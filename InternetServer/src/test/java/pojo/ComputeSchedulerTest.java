@@ -0,0 +1,78 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the scheduler runs every part of a request once, and no more of them at once than a request may.
+ */
+class ComputeSchedulerTest {
+
+    @Test
+    void everyPartRunsOnce() {
+        ComputeScheduler scheduler = new ComputeScheduler(4, 3);
+        try {
+            for (int count : new int[]{0, 1, 2, 3, 7, 1000}) {
+                AtomicIntegerArray runs = new AtomicIntegerArray(count);
+                scheduler.forEach(count, runs::incrementAndGet);
+                for (int part = 0; part < count; part++) {
+                    assertEquals(1, runs.get(part));
+                }
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void requestRunsNoMorePartsAtOnceThanItMay() {
+        ComputeScheduler scheduler = new ComputeScheduler(4, 2);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger mostRunning = new AtomicInteger();
+            scheduler.forEach(16, part -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            });
+            assertTrue(mostRunning.get() <= 2);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void partsMaySplitTheirWorkAgain() {
+        ComputeScheduler scheduler = new ComputeScheduler(2, 2);
+        try {
+            AtomicInteger runs = new AtomicInteger();
+            // the inner parts are forked into the pool the outer parts run on
+            scheduler.forEach(8, outer -> scheduler.forEach(8, inner -> runs.incrementAndGet()));
+            assertEquals(64, runs.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void requestParallelismStaysWithinThePool() {
+        ComputeScheduler scheduler = new ComputeScheduler(3, 10);
+        try {
+            assertEquals(3, scheduler.getParallelism());
+            assertEquals(3, scheduler.getRequestParallelism());
+            scheduler.setRequestParallelism(0);
+            assertEquals(1, scheduler.getRequestParallelism());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the shared engines from many threads at once, and checks that every search still finds
+ * what it finds alone: no search sees the scratch space of another.
+ */
+class ConcurrentSearchTest {
+    private static final int THREADS = 8;
+    private static final int QUERIES = 200;
+
+    @Test
+    void sharedEnginesAnswerEveryThreadAlike() throws Exception {
+        Random random = new Random(8);
+        List<Query> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(randomQuery(random, i % 3));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> runs = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int first = thread * QUERIES / THREADS;
+                runs.add(threads.submit((Callable<Void>) () -> {
+                    start.await();
+                    // every thread starts elsewhere, so different searches overlap
+                    for (int i = 0; i < QUERIES; i++) {
+                        Query query = queries.get((first + i) % QUERIES);
+                        assertEquals(query.expected, query.search.call(), query.description);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Makes a random query of one of the engines, together with its expected answer.
+     */
+    private static Query randomQuery(Random i_Random, int i_Engine) throws Exception {
+        int rows = 2 + i_Random.nextInt(6);
+        int columns = 2 + i_Random.nextInt(6);
+        Index source = new Index(i_Random.nextInt(rows), i_Random.nextInt(columns));
+        Index destination = new Index(i_Random.nextInt(rows), i_Random.nextInt(columns));
+        switch (i_Engine) {
+            case 0 -> {
+                int[][] grid = Reference.randomGrid(i_Random, rows, columns, 0, 1, 1, 1);
+                Matrix matrix = new Matrix(grid);
+                return new Query("shortest paths " + source + " " + destination, Reference.shortestPaths(grid, source, destination),
+                        () -> ShortestPaths.getInstance().findShortestPaths(new BasicMatrix(matrix), source, destination, Integer.MAX_VALUE));
+            }
+            case 1 -> {
+                int[][] grid = Reference.randomGrid(i_Random, rows, columns, -1, 1, 2, 3, 5, 8);
+                Matrix matrix = new Matrix(grid);
+                return new Query("lowest weight paths " + source + " " + destination, Reference.lowestWeightPaths(grid, source, destination),
+                        () -> LightestPaths.getInstance().findLowestWeightPaths(new WeightedMatrix(matrix), source, destination));
+            }
+            default -> {
+                Matrix matrix = new Matrix(Reference.randomBinaryGrid(i_Random, rows, columns, 0.5));
+                Callable<Object> label = () -> new HashSet<>(ConnectedComponents.getInstance().label(matrix).getComponents());
+                return new Query("components", label.call(), label);
+            }
+        }
+    }
+
+    /**
+     * A search and the answer it gives when it runs alone.
+     */
+    private record Query(String description, Object expected, Callable<Object> search) {
+    }
+}
@@ -0,0 +1,68 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the labeling of ConnectedComponents in one scan with a flood fill.
+ */
+class ConnectedComponentsTest {
+    private static final int CASES = 3000;
+
+    @Test
+    void oneScanLabelsLikeAFloodFill() {
+        Random random = new Random(1);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(12), 1 + random.nextInt(12), 0, 1, 1, 2);
+            Matrix matrix = random.nextBoolean() ? new Matrix(grid) : Matrix.offHeap(grid);
+            assertLabels(grid, ConnectedComponents.getInstance().label(matrix, grid.length, ComputeScheduler.getInstance()));
+        }
+    }
+
+    @Test
+    void matrixWithoutOnesHasNoComponent() {
+        ComponentLabels labels = ConnectedComponents.getInstance().label(new Matrix(new int[][]{{0, 2}, {3, 0}}));
+        assertEquals(0, labels.getNumOfComponents());
+        assertArrayEquals(new int[2][2], labels.toLabelGrid());
+        assertTrue(labels.getComponents().isEmpty());
+    }
+
+    @Test
+    void singleRowAndSingleColumnAreScannedAlone() {
+        ComponentLabels row = ConnectedComponents.getInstance().label(new Matrix(new int[][]{{1, 1, 0, 1, 2, 1, 1}}));
+        assertArrayEquals(new int[][]{{1, 1, 0, 2, 0, 3, 3}}, row.toLabelGrid());
+        assertEquals(2, row.getComponentSize(3));
+
+        ComponentLabels column = ConnectedComponents.getInstance().label(new Matrix(new int[][]{{1}, {1}, {0}, {1}}));
+        assertArrayEquals(new int[][]{{1}, {1}, {0}, {2}}, column.toLabelGrid());
+    }
+
+    @Test
+    void labelsThatMeetBelowAreJoined() {
+        // the two arms of the V get their own labels until the row where they meet
+        int[][] grid = {
+                {1, 0, 0, 0, 1},
+                {0, 1, 0, 1, 0},
+                {0, 0, 1, 0, 0}
+        };
+        ComponentLabels labels = ConnectedComponents.getInstance().label(new Matrix(grid));
+        assertEquals(1, labels.getNumOfComponents());
+        assertEquals(5, labels.getComponentSize(1));
+        assertEquals(Set.of(new Index(0, 0), new Index(0, 4), new Index(1, 1), new Index(1, 3), new Index(2, 2)),
+                labels.getComponents().get(0));
+    }
+
+    static void assertLabels(int[][] i_Grid, ComponentLabels i_Labels) {
+        int[][] expected = Reference.labels(i_Grid);
+        assertArrayEquals(expected, i_Labels.toLabelGrid(), () -> Arrays.deepToString(i_Grid));
+        assertEquals(Arrays.stream(expected).flatMapToInt(Arrays::stream).max().orElse(0), i_Labels.getNumOfComponents(),
+                () -> Arrays.deepToString(i_Grid));
+    }
+}
@@ -0,0 +1,88 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the bounds of the landmarks keep the A* search exact, on random matrices
+ * and on matrices where the landmarks reach only a part of the cells.
+ */
+class LandmarksTest {
+    private static final int CASES = 3000;
+    // -1 is a cell no path steps on
+    private static final int[] WEIGHTS = {-1, 1, 2, 3, 4, 5, 6, 7, 8, 9, 1, 1};
+
+    @Test
+    void landmarksKeepTheLowestWeightPaths() {
+        Random random = new Random(11);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(7), 1 + random.nextInt(7), WEIGHTS);
+            grid[0][0] = 1;
+            Landmarks landmarks = Landmarks.select(new WeightedMatrix(new Matrix(grid)), 1 + random.nextInt(4));
+            for (int j = 0; j < 4; j++) {
+                LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid,
+                        LightestPathsTest.randomIndex(random, grid), LightestPathsTest.randomIndex(random, grid), landmarks);
+            }
+        }
+    }
+
+    @Test
+    void regionWithoutLandmarksIsStillSearched() {
+        // the landmarks are looked for from the middle, so they all fall right of the wall
+        int[][] grid = {
+                {1, 3, -1, 1, 2},
+                {2, 1, -1, 5, 1}
+        };
+        Landmarks landmarks = Landmarks.select(new WeightedMatrix(new Matrix(grid)), 3);
+        assertEquals(3, landmarks.getNumOfLandmarks());
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(0, 0), new Index(1, 1), landmarks);
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(1, 3), new Index(0, 4), landmarks);
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(0, 0), new Index(0, 4), landmarks);
+    }
+
+    @Test
+    void moreLandmarksThanReachableCells() {
+        int[][] grid = {
+                {-1, -1, -1},
+                {-1, 4, 2},
+                {-1, -1, -1}
+        };
+        Landmarks landmarks = Landmarks.select(new WeightedMatrix(new Matrix(grid)), 5);
+        assertEquals(5, landmarks.getNumOfLandmarks());
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(1, 1), new Index(1, 2), landmarks);
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(1, 2), new Index(1, 2), landmarks);
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(1, 1), new Index(0, 0), landmarks);
+    }
+
+    @Test
+    void matrixWithoutCorrectCellsHasNoLandmarks() {
+        int[][] grid = {{-1, -1}, {-1, -1}};
+        Landmarks landmarks = Landmarks.select(new WeightedMatrix(new Matrix(grid)), 4);
+        assertEquals(0, landmarks.getNumOfLandmarks());
+        assertEquals(0, landmarks.getNumOfBytes());
+        LightestPathsTest.assertLowestWeightPaths(LightestPaths.SearchMode.A_STAR, grid, new Index(0, 0), new Index(1, 1), landmarks);
+    }
+
+    @Test
+    void numberOfLandmarksMustBeInRange() {
+        WeightedMatrix matrix = new WeightedMatrix(new Matrix(new int[][]{{1, 2}}));
+        assertThrows(IllegalArgumentException.class, () -> Landmarks.select(matrix, 0));
+        assertThrows(IllegalArgumentException.class, () -> Landmarks.select(matrix, Landmarks.MAX_NUM_OF_LANDMARKS + 1));
+        assertEquals(Landmarks.MAX_NUM_OF_LANDMARKS, Landmarks.select(matrix, Landmarks.MAX_NUM_OF_LANDMARKS).getNumOfLandmarks());
+    }
+
+    @Test
+    void landmarksBelongToTheContentOfTheirMatrix() {
+        int[][] grid = {{1, 2}, {3, 4}};
+        Landmarks landmarks = Landmarks.select(new WeightedMatrix(new Matrix(grid)), 2);
+        assertTrue(landmarks.isFor(new Matrix(new int[][]{{1, 2}, {3, 4}})));
+        assertFalse(landmarks.isFor(new Matrix(new int[][]{{1, 2}, {3, 5}})));
+        assertFalse(landmarks.isFor(new Matrix(new int[][]{{1, 2, 3, 4}})));
+    }
+}
@@ -0,0 +1,137 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares Dijkstra's algorithm with a relaxation of every cell until nothing changes,
+ * which lists all the lowest weight paths.
+ */
+class LightestPathsTest {
+    private static final int CASES = 3000;
+    private static final int MAX_PATHS = 3;
+    // -1 is a cell no path steps on
+    private static final int[] WEIGHTS = {-1, 1, 2, 3, 4, 5, 6, 7, 8, 9, 1, 1};
+
+    @Test
+    void findsAllLowestWeightPaths() {
+        assertFindsAllLowestWeightPaths(LightestPaths.SearchMode.DIJKSTRA, 10);
+    }
+
+    @Test
+    void wallOfNegativeCellsLeavesNoPath() {
+        int[][] grid = {
+                {1, -1, 1},
+                {1, -1, 1}
+        };
+        assertLowestWeightPaths(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(1, 2), null);
+        assertEquals(-1, findLowestWeight(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(1, 2)));
+        assertEquals(-1, findLowestWeight(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 1), new Index(1, 0)));
+    }
+
+    @Test
+    void sourceWeighsItsOwnValue() {
+        int[][] grid = {{7, 1}};
+        assertLowestWeightPaths(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(0, 0), null);
+        assertEquals(7, findLowestWeight(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(0, 0)));
+    }
+
+    @Test
+    void lightDetourBeatsAHeavyShortcut() {
+        int[][] grid = {
+                {1, 9, 1},
+                {1, 9, 1},
+                {1, 1, 1}
+        };
+        assertEquals(Set.of(List.of(new Index(0, 0), new Index(1, 0), new Index(2, 1), new Index(1, 2), new Index(0, 2))),
+                find(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(0, 2)));
+        assertEquals(5, findLowestWeight(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(0, 2)));
+    }
+
+    @Test
+    void weightsAddUpPastAnInt() {
+        int[][] grid = {{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE}};
+        assertEquals(3L * Integer.MAX_VALUE,
+                findLowestWeight(LightestPaths.SearchMode.DIJKSTRA, grid, new Index(0, 0), new Index(0, 2)));
+    }
+
+    /**
+     * Compares the paths and weights a search mode finds on small random matrices with those of the reference.
+     */
+    static void assertFindsAllLowestWeightPaths(LightestPaths.SearchMode i_Mode, long i_Seed) {
+        Random random = new Random(i_Seed);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(6), 1 + random.nextInt(6), WEIGHTS);
+            assertLowestWeightPaths(i_Mode, grid, randomIndex(random, grid), randomIndex(random, grid), null);
+        }
+    }
+
+    /**
+     * Compares the paths and the weight a search mode finds for one query with those of the reference,
+     * and restores the mode of the engine.
+     */
+    static void assertLowestWeightPaths(LightestPaths.SearchMode i_Mode, int[][] i_Grid, Index i_Source, Index i_Destination,
+                                        Landmarks i_Landmarks) {
+        LightestPaths engine = LightestPaths.getInstance();
+        LightestPaths.SearchMode initialMode = engine.getSearchMode();
+        WeightedMatrix matrix = new WeightedMatrix(new Matrix(i_Grid));
+        String query = i_Mode + (i_Landmarks != null ? "+ALT " : " ") + Arrays.deepToString(i_Grid) + " " + i_Source + " " + i_Destination;
+        try {
+            engine.setSearchMode(i_Mode);
+            Set<List<Index>> expected = Reference.lowestWeightPaths(i_Grid, i_Source, i_Destination);
+            assertEquals(expected, engine.findLowestWeightPaths(matrix, i_Source, i_Destination, Integer.MAX_VALUE, i_Landmarks), query);
+            HashSet<List<Index>> capped = engine.findLowestWeightPaths(matrix, i_Source, i_Destination, MAX_PATHS, i_Landmarks);
+            assertEquals(Math.min(MAX_PATHS, expected.size()), capped.size(), query);
+            assertTrue(expected.containsAll(capped), query);
+
+            long weight = i_Source.equals(i_Destination) ? i_Grid[i_Source.getRow()][i_Source.getColumn()]
+                    : Reference.lowestWeights(i_Grid, i_Source)[i_Destination.getRow()][i_Destination.getColumn()];
+            assertEquals(weight, engine.findLowestWeight(matrix, i_Source, i_Destination), query);
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+
+    /**
+     * Finds all the lowest weight paths in a search mode, and restores the mode of the engine.
+     */
+    static HashSet<List<Index>> find(LightestPaths.SearchMode i_Mode, int[][] i_Grid, Index i_Source, Index i_Destination) {
+        LightestPaths engine = LightestPaths.getInstance();
+        LightestPaths.SearchMode initialMode = engine.getSearchMode();
+        try {
+            engine.setSearchMode(i_Mode);
+            return engine.findLowestWeightPaths(new WeightedMatrix(new Matrix(i_Grid)), i_Source, i_Destination);
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+
+    /**
+     * Finds the lowest weight of a path in a search mode, and restores the mode of the engine.
+     */
+    static long findLowestWeight(LightestPaths.SearchMode i_Mode, int[][] i_Grid, Index i_Source, Index i_Destination) {
+        LightestPaths engine = LightestPaths.getInstance();
+        LightestPaths.SearchMode initialMode = engine.getSearchMode();
+        try {
+            engine.setSearchMode(i_Mode);
+            return engine.findLowestWeight(new WeightedMatrix(new Matrix(i_Grid)), i_Source, i_Destination);
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+
+    /**
+     * Picks a random cell of a matrix.
+     */
+    static Index randomIndex(Random i_Random, int[][] i_Grid) {
+        return new Index(i_Random.nextInt(i_Grid.length), i_Random.nextInt(i_Grid[0].length));
+    }
+}
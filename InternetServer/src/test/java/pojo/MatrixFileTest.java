@@ -0,0 +1,82 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a matrix written to a matrix file is mapped back with the same cells and fingerprint,
+ * including rows that are wider than the buffer they are written through, and that a file whose
+ * cells do not match its fingerprint is refused.
+ */
+class MatrixFileTest {
+    // wider than the 1 MiB write buffer, so a row is written in pieces
+    private static final int WIDE = 300_001;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void smallMatricesComeBackTheSame() throws IOException {
+        Random random = new Random(25);
+        for (int i = 0; i < 50; i++) {
+            assertWrittenAndMapped(Reference.randomGrid(random, 1 + random.nextInt(9), 1 + random.nextInt(9), 0, 1, 2, -1, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void rowsWiderThanTheBufferComeBackTheSame() throws IOException {
+        Random random = new Random(26);
+        assertWrittenAndMapped(Reference.randomGrid(random, 1, WIDE, 0, 1, 7));
+        // the second row starts in the middle of the buffer, so both rows are split
+        assertWrittenAndMapped(Reference.randomGrid(random, 3, WIDE, 0, 1, 7));
+    }
+
+    @Test
+    void rowsThatFillTheBufferExactlyComeBackTheSame() throws IOException {
+        Random random = new Random(27);
+        // four rows of a quarter of the buffer each fill it to the last byte
+        assertWrittenAndMapped(Reference.randomGrid(random, 9, (1 << 20) / Integer.BYTES / 4, 0, 1));
+    }
+
+    @Test
+    void changedCellsAreRefused() throws IOException {
+        Path file = directory.resolve("changed.mtrx");
+        MatrixFile.write(file, new Matrix(new int[][]{{1, 0, 1}, {0, 1, 0}}));
+        // the last cell changes from 0 to 1, while the header keeps the fingerprint of the 0
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer cell = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(1).flip();
+            channel.write(cell, MatrixFile.HEADER_BYTES + 5L * Integer.BYTES);
+        }
+        assertThrows(IOException.class, () -> MatrixFile.map(file));
+    }
+
+    /**
+     * Writes a matrix to a file, maps it back and compares the cells and the fingerprint.
+     */
+    private void assertWrittenAndMapped(int[][] i_Grid) throws IOException {
+        Matrix matrix = new Matrix(i_Grid);
+        Path file = directory.resolve("matrix.mtrx");
+        MatrixFile.write(file, matrix);
+        Matrix mapped = MatrixFile.map(file);
+        assertEquals(i_Grid.length, mapped.getNumOfRows());
+        assertEquals(i_Grid[0].length, mapped.getNumOfColumns());
+        assertEquals(matrix.getFingerprint(), mapped.getFingerprint());
+        int[] row = new int[i_Grid[0].length];
+        for (int r = 0; r < i_Grid.length; r++) {
+            mapped.getRow(r, row);
+            assertArrayEquals(i_Grid[r], row);
+        }
+    }
+}
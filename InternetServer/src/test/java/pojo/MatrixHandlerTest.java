@@ -0,0 +1,40 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how the handler answers clients of the object protocol.
+ */
+class MatrixHandlerTest {
+
+    @Test
+    void failedRequestIsAnsweredAndTheNextOneServed() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        try (ObjectOutputStream toServer = new ObjectOutputStream(requests)) {
+            toServer.writeObject("matrix");
+            toServer.writeObject(new int[][]{{1, 1}, {1, 1}});
+            // there is no upload to end
+            toServer.writeObject("end matrix upload");
+            toServer.writeObject("submarines");
+            toServer.writeObject("stop");
+        }
+
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        new MatrixHandler().handleClient(new ByteArrayInputStream(requests.toByteArray()), replies);
+
+        ObjectInputStream fromServer = new ObjectInputStream(new ByteArrayInputStream(replies.toByteArray()));
+        IllegalStateException error = assertInstanceOf(IllegalStateException.class, fromServer.readObject());
+        assertTrue(error.getMessage().startsWith("failed to execute end matrix upload"));
+        assertEquals(1, fromServer.readObject());
+    }
+}
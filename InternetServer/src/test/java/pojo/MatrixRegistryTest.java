@@ -0,0 +1,103 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the references, the memory budget and the evictions of the matrix registry.
+ */
+class MatrixRegistryTest {
+    private static final long NEVER = Long.MAX_VALUE / 1_000_000;
+
+    @Test
+    void equalUploadsShareOneEntry() {
+        MatrixRegistry registry = new MatrixRegistry(MatrixRegistry.DEFAULT_MAX_BYTES, NEVER);
+        Matrix first = registry.acquire(Matrix.of(new int[][]{{1, 0}, {0, 1}}));
+        Matrix second = registry.acquire(Matrix.of(new int[][]{{1, 0}, {0, 1}}));
+        assertSame(first, second);
+        assertSame(first, registry.acquire(MatrixRegistry.handleOf(first)));
+        assertNull(registry.acquire("2x2:unknown"));
+        assertEquals(2, MatrixRegistry.numOfColumnsOf(MatrixRegistry.handleOf(first)));
+
+        assertEquals(1L, registry.getStats().get("registry.matrices"));
+        assertEquals(3L, registry.getStats().get("registry.references"));
+        assertEquals(2L, registry.getStats().get("registry.uploads"));
+        assertEquals(1L, registry.getStats().get("registry.reusedUploads"));
+    }
+
+    @Test
+    void referencedMatrixIsNeverEvicted() {
+        Matrix held = Matrix.of(new int[][]{{1, 1, 1}, {1, 1, 1}});
+        MatrixRegistry registry = new MatrixRegistry(sizeOf(held) + sizeOf(held) / 2, NEVER);
+        registry.acquire(held);
+        Matrix other = Matrix.of(new int[][]{{0, 1, 1}, {1, 1, 1}});
+        assertThrows(IllegalStateException.class, () -> registry.acquire(other));
+        assertTrue(registry.contains(held));
+
+        registry.release(held);
+        // a reference is given back only once
+        registry.release(held);
+        assertSame(other, registry.acquire(other));
+        assertFalse(registry.contains(held));
+        assertEquals(1L, registry.getStats().get("registry.evictions"));
+    }
+
+    @Test
+    void leastRecentlyReleasedMatrixIsEvictedFirst() {
+        Matrix first = Matrix.of(new int[][]{{1, 1}, {1, 1}});
+        Matrix second = Matrix.of(new int[][]{{2, 1}, {1, 1}});
+        Matrix third = Matrix.of(new int[][]{{3, 1}, {1, 1}});
+        MatrixRegistry registry = new MatrixRegistry(2 * sizeOf(first), NEVER);
+        registry.acquire(first);
+        registry.acquire(second);
+        // released in the opposite order of their uploads
+        registry.release(second);
+        registry.release(first);
+
+        registry.acquire(third);
+        assertFalse(registry.contains(second));
+        assertTrue(registry.contains(first));
+        assertTrue(registry.contains(third));
+    }
+
+    @Test
+    void idleMatrixIsEvictedAfterTheTimeout() throws InterruptedException {
+        MatrixRegistry registry = new MatrixRegistry(MatrixRegistry.DEFAULT_MAX_BYTES, 0);
+        Matrix matrix = registry.acquire(Matrix.of(new int[][]{{1, 2}, {3, 4}}));
+        Thread.sleep(5);
+        assertTrue(registry.contains(matrix));
+        registry.release(matrix);
+        Thread.sleep(5);
+        assertNull(registry.acquire(MatrixRegistry.handleOf(matrix)));
+        assertEquals(0L, registry.getStats().get("registry.bytes"));
+    }
+
+    @Test
+    void reservationTurnsIntoTheChargeOfTheMatrix() {
+        Matrix matrix = Matrix.of(new int[][]{{1, 0, 1}, {0, 1, 0}});
+        MatrixRegistry registry = new MatrixRegistry(sizeOf(matrix), NEVER);
+        assertFalse(registry.reserve(sizeOf(matrix) + 1));
+        assertTrue(registry.reserve(matrix.getNumOfBytes()));
+        assertFalse(registry.reserve(sizeOf(matrix)));
+        assertEquals(matrix.getNumOfBytes(), registry.getStats().get("registry.reservedBytes"));
+
+        registry.acquire(matrix, matrix.getNumOfBytes());
+        assertEquals(0L, registry.getStats().get("registry.reservedBytes"));
+        assertEquals(sizeOf(matrix), registry.getStats().get("registry.bytes"));
+    }
+
+    /**
+     * Gets the memory a registered matrix is charged with, its cells and the entry around them.
+     */
+    private static long sizeOf(Matrix i_Matrix) {
+        MatrixRegistry registry = new MatrixRegistry(MatrixRegistry.DEFAULT_MAX_BYTES, NEVER);
+        registry.acquire(i_Matrix);
+        return registry.getStats().get("registry.bytes");
+    }
+}
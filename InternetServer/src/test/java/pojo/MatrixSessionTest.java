@@ -0,0 +1,137 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import server.IReplySink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the order in which a session sends the replies of pipelined requests,
+ * and that it takes no more than MAX_REQUESTS_IN_FLIGHT requests at a time.
+ */
+class MatrixSessionTest {
+
+    @Test
+    void orderedRepliesGoOutInArrivalOrder() throws IOException {
+        Replies replies = new Replies();
+        MatrixSession session = new MatrixSession(replies);
+        long first = session.beginRequests(3, true);
+        session.completeRequest(first + 2, new byte[]{2});
+        session.completeRequest(first + 1, null);
+        assertTrue(replies.sent.isEmpty());
+        session.completeRequest(first, new byte[]{0});
+        // the request without a reply keeps its place but sends nothing
+        assertEquals(List.of(0, 2), replies.firstBytes());
+        assertFalse(session.isFinished());
+    }
+
+    @Test
+    void unorderedRepliesGoOutAsSoonAsTheyAreReady() throws Exception {
+        Replies replies = new Replies();
+        MatrixSession session = new MatrixSession(replies);
+        long ordered = session.beginRequest(true);
+        long unordered = session.beginRequest(false);
+        assertEquals(-1, unordered);
+        session.completeRequest(unordered, new byte[]{7});
+        assertEquals(List.of(7), replies.firstBytes());
+        session.completeRequest(ordered, new byte[]{1});
+        assertEquals(List.of(7, 1), replies.firstBytes());
+        session.awaitIdle();
+        session.stop();
+        assertTrue(session.isFinished());
+    }
+
+    @Test
+    void fullSessionWaitsUntilTheHeldBackRepliesGoOut() throws Exception {
+        MatrixSession session = new MatrixSession(new Replies());
+        long first = session.beginRequests(MatrixSession.MAX_REQUESTS_IN_FLIGHT, true);
+        CompletableFuture<Long> next = CompletableFuture.supplyAsync(() -> begin(session, true));
+        assertWaits(next);
+
+        // the last reply is held back for the first, so it still takes room
+        session.completeRequest(first + MatrixSession.MAX_REQUESTS_IN_FLIGHT - 1, new byte[]{1});
+        assertWaits(next);
+        session.completeRequest(first, new byte[]{0});
+        assertEquals(first + MatrixSession.MAX_REQUESTS_IN_FLIGHT, next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void closedSessionNoLongerWaits() throws Exception {
+        MatrixSession session = new MatrixSession(new Replies());
+        session.beginRequests(MatrixSession.MAX_REQUESTS_IN_FLIGHT, false);
+        CompletableFuture<Long> next = CompletableFuture.supplyAsync(() -> begin(session, false));
+        assertWaits(next);
+        session.close();
+        assertEquals(-1, next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failedRequestEndsTheConnection() throws Exception {
+        Replies replies = new Replies();
+        MatrixSession session = new MatrixSession(replies);
+        session.beginRequest(true);
+        session.failRequest(new IllegalStateException("no room"));
+        assertTrue(replies.failed);
+        assertTrue(session.isStopped());
+        session.awaitIdle();
+        assertTrue(session.isFinished());
+    }
+
+    /**
+     * Begins a request once the session has room for it.
+     */
+    private static long begin(MatrixSession i_Session, boolean i_Ordered) {
+        try {
+            return i_Session.beginRequest(i_Ordered);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks that a request is still waiting for room.
+     */
+    private static void assertWaits(CompletableFuture<Long> i_Request) {
+        assertThrows(TimeoutException.class, () -> i_Request.get(200, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * A reply sink that keeps what it was given.
+     */
+    private static final class Replies implements IReplySink {
+        private final List<byte[]> sent = new ArrayList<>();
+        private volatile boolean failed;
+
+        @Override
+        public synchronized void send(@NotNull byte[] reply) {
+            sent.add(reply);
+        }
+
+        @Override
+        public void fail(@NotNull Throwable cause) {
+            failed = true;
+        }
+
+        /**
+         * Gets the first byte of every reply sent so far.
+         */
+        synchronized List<Integer> firstBytes() {
+            List<Integer> firstBytes = new ArrayList<>();
+            for (byte[] reply : sent) {
+                firstBytes.add((int) reply[0]);
+            }
+            return firstBytes;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the flat grid of a matrix: its cells, cell ids and neighbors, and the arrays it is built from.
+ */
+class MatrixTest {
+    private static final int[][] GRID = {
+            {1, 2, 3, 4},
+            {5, 6, 7, 8},
+            {9, 10, 11, 12}
+    };
+
+    @Test
+    void cellsKeepTheirRowsAndColumns() {
+        for (Matrix matrix : List.of(new Matrix(GRID), Matrix.of(GRID), Matrix.offHeap(GRID))) {
+            assertEquals(3, matrix.getNumOfRows());
+            assertEquals(4, matrix.getNumOfColumns());
+            assertEquals(7, matrix.getValue(new Index(1, 2)));
+            assertEquals(7, matrix.getValue(matrix.getCellId(1, 2)));
+            assertEquals(new Index(2, 3), matrix.getIndex(matrix.getCellId(2, 3)));
+            assertArrayEquals(GRID, matrix.getPrimitiveMatrix());
+            assertTrue(matrix.contains(2, 3));
+            assertFalse(matrix.contains(3, 0));
+            assertFalse(matrix.contains(0, -1));
+        }
+        assertEquals(new Matrix(GRID).getFingerprint(), Matrix.offHeap(GRID).getFingerprint());
+    }
+
+    @Test
+    void neighborsStopAtTheEdges() {
+        Matrix matrix = new Matrix(GRID);
+        assertEquals(Set.of(new Index(0, 1), new Index(1, 0), new Index(1, 1)),
+                new HashSet<>(matrix.getNeighbors(new Index(0, 0))));
+        assertEquals(8, matrix.getNeighbors(new Index(1, 1)).size());
+        // the last cell of a row is not next to the first cell of the following row
+        assertEquals(Set.of(new Index(0, 2), new Index(1, 2), new Index(2, 2), new Index(2, 3), new Index(0, 3)),
+                new HashSet<>(matrix.getNeighbors(new Index(1, 3))));
+        for (int direction = 0; direction < Matrix.NUM_OF_DIRECTIONS; direction++) {
+            int neighbor = matrix.getNeighbor(matrix.getCellId(1, 1), 1, 1, direction);
+            Index index = matrix.getIndex(neighbor);
+            int back = matrix.getNeighbor(neighbor, index.row, index.column, Matrix.getOppositeDirection(direction));
+            assertEquals(matrix.getCellId(1, 1), back);
+        }
+    }
+
+    @Test
+    void raggedRowsAreRefused() {
+        int[][] shortRow = {{1, 1, 1}, {1, 1}, {1, 1, 1}};
+        int[][] longRow = {{1, 1}, {1, 1, 1}};
+        int[][] missingRow = {{1, 1}, null};
+        for (int[][] rows : List.of(shortRow, longRow, missingRow)) {
+            assertThrows(IllegalArgumentException.class, () -> new Matrix(rows));
+            assertThrows(IllegalArgumentException.class, () -> Matrix.of(rows));
+            assertThrows(IllegalArgumentException.class, () -> Matrix.offHeap(rows));
+        }
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class, () -> new Matrix(shortRow));
+        assertEquals("row 1 has 2 cells, but row 0 has 3", refused.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new Matrix(new int[0][]));
+    }
+}
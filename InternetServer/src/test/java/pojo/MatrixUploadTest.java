@@ -0,0 +1,112 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a matrix uploaded in bands comes out with the cells, the fingerprint, the labels
+ * and the submarine count of the same matrix built at once.
+ */
+class MatrixUploadTest {
+    private static final int CASES = 2000;
+
+    @Test
+    void bandsMakeTheSameMatrix() {
+        Random random = new Random(6);
+        ComputeScheduler scheduler = new ComputeScheduler(3, 3);
+        try {
+            for (int i = 0; i < CASES; i++) {
+                int[][] grid = random.nextBoolean()
+                        ? Reference.randomBinaryGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(12), random.nextDouble())
+                        : Reference.randomGrid(random, 1 + random.nextInt(20), 1 + random.nextInt(12), 0, 1, 1, 2);
+                MatrixUpload upload = new MatrixUpload(grid.length, grid[0].length, 1 + random.nextInt(5), scheduler);
+                for (int row = 0; row < grid.length; ) {
+                    int band = Math.min(grid.length - row, 1 + random.nextInt(4));
+                    upload.acceptRows(Arrays.copyOfRange(grid, row, row + band));
+                    row += band;
+                }
+                assertUploaded(grid, upload.finish());
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void singleRowsColumnsAndBands() {
+        int[][][] grids = {
+                {{1, 0, 1, 1, 0, 2, 1}},
+                {{1}, {1}, {0}, {2}, {1}},
+                {{1, 1, 0}, {1, 1, 0}, {0, 0, 1}}
+        };
+        for (int[][] grid : grids) {
+            // the whole matrix in one band, which the upload labels once it ends
+            MatrixUpload whole = new MatrixUpload(grid.length, grid[0].length, grid.length + 1, ComputeScheduler.getInstance());
+            whole.acceptRows(grid);
+            assertUploaded(grid, whole.finish());
+
+            // a band of a single row at a time, labeled as soon as it arrives
+            MatrixUpload byRow = new MatrixUpload(grid.length, grid[0].length, 1, ComputeScheduler.getInstance());
+            for (int[] row : grid) {
+                byRow.acceptRows(new int[][]{row});
+            }
+            byRow.acceptRows(new int[0][]);
+            assertUploaded(grid, byRow.finish());
+        }
+    }
+
+    @Test
+    void reservationTurnsIntoTheChargeOfTheCells() {
+        int[][] grid = {{1, 0, 1}, {0, 1, 0}};
+        MatrixRegistry registry = new MatrixRegistry(1 << 20, 60_000);
+        MatrixUpload upload = new MatrixUpload(grid.length, grid[0].length);
+        assertTrue(registry.reserve(upload.getNumOfBytes()));
+        upload.acceptRows(grid);
+        Matrix uploaded = upload.finish();
+        uploaded.componentLabels = null;
+        Matrix registered = registry.acquire(uploaded, upload.getNumOfBytes());
+        assertSame(uploaded, registered);
+
+        MatrixRegistry atOnce = new MatrixRegistry(1 << 20, 60_000);
+        atOnce.acquire(new Matrix(grid));
+        assertEquals(0L, registry.getStats().get("registry.reservedBytes"));
+        assertEquals(atOnce.getStats().get("registry.bytes"), registry.getStats().get("registry.bytes"));
+        assertEquals(1L, registry.getStats().get("registry.references"));
+        // the labels are dropped, so the matrix is labeled again like any other
+        assertArrayEquals(Reference.labels(grid), ConnectedComponents.getInstance().label(registered).toLabelGrid());
+    }
+
+    @Test
+    void refusesMissingAndExtraRows() {
+        MatrixUpload upload = new MatrixUpload(2, 2);
+        upload.acceptRows(new int[][]{{1, 0}});
+        assertThrows(IllegalStateException.class, upload::finish);
+        assertThrows(IllegalArgumentException.class, () -> upload.acceptRows(new int[][]{{1, 0}, {0, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> upload.acceptRows(new int[][]{{1, 0, 1}}));
+        assertThrows(IllegalArgumentException.class, () -> new MatrixUpload(0, 2));
+    }
+
+    /**
+     * Checks that an uploaded matrix has the cells, the fingerprint, the labels and the submarine count of a grid.
+     */
+    private static void assertUploaded(int[][] i_Grid, Matrix i_Uploaded) {
+        int[] row = new int[i_Grid[0].length];
+        for (int r = 0; r < i_Grid.length; r++) {
+            i_Uploaded.getRow(r, row);
+            assertArrayEquals(i_Grid[r], row);
+        }
+        assertEquals(new Matrix(i_Grid).getFingerprint(), i_Uploaded.getFingerprint());
+        assertArrayEquals(Reference.labels(i_Grid), ConnectedComponents.getInstance().label(i_Uploaded).toLabelGrid(),
+                () -> Arrays.deepToString(i_Grid));
+        assertEquals(Reference.validSubmarines(i_Grid), Submarines.getInstance().countValidSubmarines(i_Uploaded),
+                () -> Arrays.deepToString(i_Grid));
+    }
+}
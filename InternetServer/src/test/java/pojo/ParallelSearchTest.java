@@ -0,0 +1,92 @@
+package pojo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the search that expands large layers on the compute pool, top-down
+ * and bottom-up, finds the paths of the search on one thread.
+ */
+class ParallelSearchTest {
+    private int initialRequestParallelism;
+
+    @BeforeEach
+    void letRequestsRunInParallel() {
+        // layers are only expanded on the pool when a request may use more than one worker
+        initialRequestParallelism = ComputeScheduler.getInstance().getRequestParallelism();
+        ComputeScheduler.getInstance().setRequestParallelism(4);
+    }
+
+    @AfterEach
+    void restoreRequestParallelism() {
+        ComputeScheduler.getInstance().setRequestParallelism(initialRequestParallelism);
+    }
+
+    @Test
+    void findsAllShortestPaths() {
+        ShortestPathsTest.assertFindsAllShortestPaths(ShortestPaths.SearchMode.PARALLEL, 16);
+    }
+
+    @Test
+    void largeLayersFindThePathsOfOneThread() {
+        // from the middle of an open grid the layers grow by 8 cells a step, past the size that runs in parallel
+        Random random = new Random(17);
+        int size = 1400;
+        int[][] grid = Reference.randomGrid(random, size, size, 0, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        Index source = new Index(size / 2, size / 2);
+        Index destination = new Index(3, size / 3);
+        // a cell walled in by zeros, which the search only gives up on once it reached everything else
+        Index walledIn = new Index(size - 2, size - 2);
+        for (int row = walledIn.getRow() - 1; row <= walledIn.getRow() + 1; row++) {
+            for (int column = walledIn.getColumn() - 1; column <= walledIn.getColumn() + 1; column++) {
+                grid[row][column] = 0;
+            }
+        }
+        grid[source.getRow()][source.getColumn()] = 1;
+        grid[destination.getRow()][destination.getColumn()] = 1;
+        grid[walledIn.getRow()][walledIn.getColumn()] = 1;
+        assertModesAgree(grid, source, destination);
+        assertModesAgree(grid, source, walledIn);
+    }
+
+    @Test
+    void everyModeAgreesOnALargeMatrix() {
+        Random random = new Random(8);
+        int size = 600;
+        int[][] grid = Reference.randomGrid(random, size, size, 0, 1, 1, 1, 1);
+        grid[0][0] = 1;
+        assertModesAgree(grid, new Index(0, 0), new Index(size - 1, size - 1));
+    }
+
+    /**
+     * Checks that every mode finds the distance, the count and as many capped paths as the forward search.
+     */
+    private static void assertModesAgree(int[][] i_Grid, Index i_Source, Index i_Destination) {
+        ShortestPaths engine = ShortestPaths.getInstance();
+        ShortestPaths.SearchMode initialMode = engine.getSearchMode();
+        BasicMatrix matrix = new BasicMatrix(new Matrix(i_Grid));
+        try {
+            engine.setSearchMode(ShortestPaths.SearchMode.FORWARD);
+            PathSummary expected = engine.summarize(matrix, i_Source, i_Destination);
+            HashSet<List<Index>> expectedPaths = engine.findShortestPaths(matrix, i_Source, i_Destination, 50);
+            for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+                engine.setSearchMode(mode);
+                assertEquals(expected, engine.summarize(matrix, i_Source, i_Destination), mode.toString());
+                HashSet<List<Index>> paths = engine.findShortestPaths(matrix, i_Source, i_Destination, 50);
+                assertEquals(expectedPaths.size(), paths.size(), mode.toString());
+                for (List<Index> path : paths) {
+                    assertEquals(expected.distance() + 1, path.size(), mode.toString());
+                }
+            }
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+}
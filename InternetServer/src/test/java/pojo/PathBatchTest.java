@@ -0,0 +1,143 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the paths of a batch of queries from one source, found in a single search,
+ * with the paths the reference finds for every query on its own.
+ */
+class PathBatchTest {
+    private static final int CASES = 3000;
+    // -1 is a cell no path steps on
+    private static final int[] WEIGHTS = {-1, 1, 2, 3, 4, 5, 6, 7, 8, 9, 1, 1};
+
+    @Test
+    void batchFindsTheShortestPathsOfEveryQuery() {
+        Random random = new Random(9);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(6), 1 + random.nextInt(6), 0, 1, 1, 1, 1);
+            Index source = LightestPathsTest.randomIndex(random, grid);
+            List<Index> destinations = new ArrayList<>();
+            for (int j = 1 + random.nextInt(4); j > 0; j--) {
+                destinations.add(LightestPathsTest.randomIndex(random, grid));
+            }
+            // a destination outside the matrix has no paths
+            destinations.add(new Index(grid.length, 0));
+            assertShortestPathBatch(grid, source, destinations);
+        }
+    }
+
+    @Test
+    void batchFindsTheLowestWeightPathsOfEveryQuery() {
+        Random random = new Random(12);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(6), 1 + random.nextInt(6), WEIGHTS);
+            Index source = LightestPathsTest.randomIndex(random, grid);
+            List<Index> destinations = new ArrayList<>();
+            for (int j = 1 + random.nextInt(4); j > 0; j--) {
+                destinations.add(LightestPathsTest.randomIndex(random, grid));
+            }
+            // a destination outside the matrix has no paths
+            destinations.add(new Index(0, grid[0].length));
+            assertLowestWeightPathBatch(grid, source, destinations);
+        }
+    }
+
+    @Test
+    void repeatedDestinationsAndTheSourceGetTheirPaths() {
+        int[][] grid = {
+                {1, 1, 1},
+                {1, 1, 1},
+                {1, 1, 1}
+        };
+        List<Index> destinations = List.of(new Index(2, 2), new Index(0, 0), new Index(2, 2), new Index(0, 2), new Index(0, 0));
+        assertShortestPathBatch(grid, new Index(0, 0), destinations);
+        assertLowestWeightPathBatch(grid, new Index(0, 0), destinations);
+    }
+
+    @Test
+    void unreachableDestinationDoesNotHideTheOthers() {
+        int[][] binary = {{1, 1, 0, 1}};
+        assertShortestPathBatch(binary, new Index(0, 0), List.of(new Index(0, 3), new Index(0, 1), new Index(0, 2)));
+        int[][] weighted = {{1, 2, -1, 3}};
+        assertLowestWeightPathBatch(weighted, new Index(0, 0), List.of(new Index(0, 3), new Index(0, 1), new Index(0, 2)));
+    }
+
+    @Test
+    void emptyBatchesAndBatchesWithoutPathsGiveEmptySets() {
+        int[][] grid = {{1, 1}, {1, 1}};
+        BasicMatrix binary = new BasicMatrix(new Matrix(grid));
+        WeightedMatrix weighted = new WeightedMatrix(new Matrix(grid));
+        assertTrue(ShortestPaths.getInstance().findShortestPathsFrom(binary, new Index(0, 0), List.of(), Integer.MAX_VALUE).isEmpty());
+        assertTrue(LightestPaths.getInstance().findLowestWeightPathsFrom(weighted, new Index(0, 0), List.of(), Integer.MAX_VALUE).isEmpty());
+
+        List<Index> destinations = List.of(new Index(1, 1), new Index(0, 0));
+        List<Set<List<Index>>> none = List.of(Set.of(), Set.of());
+        assertEquals(none, ShortestPaths.getInstance().findShortestPathsFrom(binary, new Index(0, 0), destinations, 0));
+        assertEquals(none, LightestPaths.getInstance().findLowestWeightPathsFrom(weighted, new Index(0, 0), destinations, 0));
+        assertEquals(none, ShortestPaths.getInstance().findShortestPathsFrom(binary, new Index(-1, 0), destinations, Integer.MAX_VALUE));
+        assertEquals(none, LightestPaths.getInstance().findLowestWeightPathsFrom(weighted, new Index(-1, 0), destinations, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void cappedBatchKeepsShortestPathsOfEveryDestination() {
+        int[][] grid = {
+                {1, 1, 1},
+                {1, 1, 1},
+                {1, 1, 1}
+        };
+        List<Index> destinations = List.of(new Index(2, 0), new Index(2, 2), new Index(2, 0));
+        List<HashSet<List<Index>>> batch = ShortestPaths.getInstance()
+                .findShortestPathsFrom(new BasicMatrix(new Matrix(grid)), new Index(0, 0), destinations, 1);
+        for (int i = 0; i < destinations.size(); i++) {
+            assertEquals(1, batch.get(i).size());
+            assertTrue(Reference.shortestPaths(grid, new Index(0, 0), destinations.get(i)).containsAll(batch.get(i)));
+        }
+    }
+
+    /**
+     * Compares a batch of shortest path queries with the reference, query by query.
+     */
+    private static void assertShortestPathBatch(int[][] i_Grid, Index i_Source, List<Index> i_Destinations) {
+        List<HashSet<List<Index>>> batch = ShortestPaths.getInstance()
+                .findShortestPathsFrom(new BasicMatrix(new Matrix(i_Grid)), i_Source, i_Destinations, Integer.MAX_VALUE);
+        assertEquals(i_Destinations.size(), batch.size());
+        for (int i = 0; i < i_Destinations.size(); i++) {
+            Index destination = i_Destinations.get(i);
+            Set<List<Index>> expected = contains(i_Grid, destination) ? Reference.shortestPaths(i_Grid, i_Source, destination) : Set.of();
+            assertEquals(expected, batch.get(i), () -> Arrays.deepToString(i_Grid) + " " + i_Source + " " + destination);
+        }
+    }
+
+    /**
+     * Compares a batch of lowest weight path queries with the reference, query by query.
+     */
+    private static void assertLowestWeightPathBatch(int[][] i_Grid, Index i_Source, List<Index> i_Destinations) {
+        List<HashSet<List<Index>>> batch = LightestPaths.getInstance()
+                .findLowestWeightPathsFrom(new WeightedMatrix(new Matrix(i_Grid)), i_Source, i_Destinations, Integer.MAX_VALUE);
+        assertEquals(i_Destinations.size(), batch.size());
+        for (int i = 0; i < i_Destinations.size(); i++) {
+            Index destination = i_Destinations.get(i);
+            Set<List<Index>> expected = contains(i_Grid, destination) ? Reference.lowestWeightPaths(i_Grid, i_Source, destination) : Set.of();
+            assertEquals(expected, batch.get(i), () -> Arrays.deepToString(i_Grid) + " " + i_Source + " " + destination);
+        }
+    }
+
+    /**
+     * Checks if an index is a cell of a matrix.
+     */
+    private static boolean contains(int[][] i_Grid, Index i_Index) {
+        return i_Index.getRow() >= 0 && i_Index.getRow() < i_Grid.length
+                && i_Index.getColumn() >= 0 && i_Index.getColumn() < i_Grid[0].length;
+    }
+}
@@ -0,0 +1,92 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the distances and path counts of ShortestPaths, which never list the paths,
+ * with the paths a breadth first search lists.
+ */
+class PathSummaryTest {
+    private static final int CASES = 3000;
+
+    @Test
+    void everyModeCountsAllShortestPaths() {
+        for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+            Random random = new Random(13);
+            for (int i = 0; i < CASES; i++) {
+                int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(6), 1 + random.nextInt(6), 0, 1, 1, 1, 1, 2);
+                Index source = new Index(random.nextInt(grid.length), random.nextInt(grid[0].length));
+                Index destination = new Index(random.nextInt(grid.length), random.nextInt(grid[0].length));
+                Set<List<Index>> expected = Reference.shortestPaths(grid, source, destination);
+                int distance = expected.isEmpty() ? -1 : expected.iterator().next().size() - 1;
+                assertSummary(mode, grid, source, destination, new PathSummary(distance, BigInteger.valueOf(expected.size())));
+            }
+        }
+    }
+
+    @Test
+    void countsMoreShortestPathsThanALongHolds() {
+        // every step of a shortest path goes one column to the right, onto any row next to the current one
+        int columns = 101;
+        int[][] grid = new int[3][columns];
+        for (int[] row : grid) {
+            Arrays.fill(row, 1);
+        }
+        BigInteger[] walks = {BigInteger.ZERO, BigInteger.ONE, BigInteger.ZERO};
+        for (int column = 1; column < columns; column++) {
+            walks = new BigInteger[]{walks[0].add(walks[1]), walks[0].add(walks[1]).add(walks[2]), walks[1].add(walks[2])};
+        }
+        assertTrue(walks[1].bitLength() > Long.SIZE);
+        for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+            assertSummary(mode, grid, new Index(1, 0), new Index(1, columns - 1), new PathSummary(columns - 1, walks[1]));
+        }
+    }
+
+    @Test
+    void unreachableDestinationHasNoDistanceAndNoPaths() {
+        int[][] grid = {
+                {1, 1, 0, 1},
+                {1, 1, 0, 1}
+        };
+        for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+            assertSummary(mode, grid, new Index(0, 0), new Index(1, 3), PathSummary.UNREACHABLE);
+            assertSummary(mode, grid, new Index(0, 0), new Index(0, 2), PathSummary.UNREACHABLE);
+            assertSummary(mode, grid, new Index(0, 0), new Index(2, 0), PathSummary.UNREACHABLE);
+        }
+    }
+
+    @Test
+    void sourceIsOneShortestPathOfNoSteps() {
+        int[][] grid = {{1, 1}, {1, 1}};
+        for (ShortestPaths.SearchMode mode : ShortestPaths.SearchMode.values()) {
+            assertSummary(mode, grid, new Index(1, 1), new Index(1, 1), new PathSummary(0, BigInteger.ONE));
+            // the two cells touch, so the paths through the other cells are longer
+            assertSummary(mode, grid, new Index(0, 0), new Index(1, 1), new PathSummary(1, BigInteger.ONE));
+        }
+    }
+
+    private static void assertSummary(ShortestPaths.SearchMode i_Mode, int[][] i_Grid, Index i_Source, Index i_Destination,
+                                      PathSummary i_Expected) {
+        ShortestPaths engine = ShortestPaths.getInstance();
+        ShortestPaths.SearchMode initialMode = engine.getSearchMode();
+        BasicMatrix matrix = new BasicMatrix(new Matrix(i_Grid));
+        String query = i_Mode + " " + Arrays.deepToString(i_Grid) + " " + i_Source + " " + i_Destination;
+        try {
+            engine.setSearchMode(i_Mode);
+            assertEquals(i_Expected, engine.summarize(matrix, i_Source, i_Destination), query);
+            assertEquals(i_Expected.distance(), engine.findDistance(matrix, i_Source, i_Destination), query);
+            assertEquals(i_Expected.count(), engine.countShortestPaths(matrix, i_Source, i_Destination), query);
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package pojo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Naive versions of the engines, written for clarity rather than speed, that the
+ * tests compare the engines with on small random matrices. Cells are neighbours
+ * horizontally, vertically and diagonally, as in Matrix.
+ */
+final class Reference {
+
+    private Reference() {
+    }
+
+    /**
+     * Makes a random matrix.
+     *
+     * @param i_Random  the source of randomness
+     * @param i_Rows    the number of rows
+     * @param i_Columns the number of columns
+     * @param i_Values  the values to pick from, each equally likely
+     * @return the matrix
+     */
+    static @NotNull int[][] randomGrid(@NotNull Random i_Random, int i_Rows, int i_Columns, @NotNull int... i_Values) {
+        int[][] grid = new int[i_Rows][i_Columns];
+        for (int[] row : grid) {
+            for (int column = 0; column < i_Columns; column++) {
+                row[column] = i_Values[i_Random.nextInt(i_Values.length)];
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Makes a random 0/1 matrix.
+     *
+     * @param i_Random  the source of randomness
+     * @param i_Rows    the number of rows
+     * @param i_Columns the number of columns
+     * @param i_Ones    the chance of a cell to be 1
+     * @return the matrix
+     */
+    static @NotNull int[][] randomBinaryGrid(@NotNull Random i_Random, int i_Rows, int i_Columns, double i_Ones) {
+        int[][] grid = new int[i_Rows][i_Columns];
+        for (int[] row : grid) {
+            for (int column = 0; column < i_Columns; column++) {
+                row[column] = i_Random.nextDouble() < i_Ones ? 1 : 0;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Labels the components of 1 cells by flooding them one at a time, in the order they are first met.
+     *
+     * @param i_Grid the matrix
+     * @return the label of every cell, 0 for cells of no component
+     */
+    static @NotNull int[][] labels(@NotNull int[][] i_Grid) {
+        int rows = i_Grid.length;
+        int columns = i_Grid[0].length;
+        int[][] labels = new int[rows][columns];
+        int numOfComponents = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (i_Grid[row][column] != 1 || labels[row][column] != 0) {
+                    continue;
+                }
+                numOfComponents++;
+                labels[row][column] = numOfComponents;
+                ArrayDeque<int[]> queue = new ArrayDeque<>();
+                queue.add(new int[]{row, column});
+                while (!queue.isEmpty()) {
+                    int[] cell = queue.poll();
+                    for (int[] neighbour : neighbours(rows, columns, cell[0], cell[1])) {
+                        if (i_Grid[neighbour[0]][neighbour[1]] == 1 && labels[neighbour[0]][neighbour[1]] == 0) {
+                            labels[neighbour[0]][neighbour[1]] = numOfComponents;
+                            queue.add(neighbour);
+                        }
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Counts the components of 1 cells whose bounding rectangle holds no 0 cell.
+     *
+     * @param i_Grid the matrix
+     * @return the number of valid submarines
+     */
+    static int validSubmarines(@NotNull int[][] i_Grid) {
+        int[][] labels = labels(i_Grid);
+        int numOfComponents = Arrays.stream(labels).flatMapToInt(Arrays::stream).max().orElse(0);
+        int validSubmarines = 0;
+        for (int label = 1; label <= numOfComponents; label++) {
+            int firstRow = Integer.MAX_VALUE, lastRow = -1, firstColumn = Integer.MAX_VALUE, lastColumn = -1;
+            for (int row = 0; row < labels.length; row++) {
+                for (int column = 0; column < labels[row].length; column++) {
+                    if (labels[row][column] == label) {
+                        firstRow = Math.min(firstRow, row);
+                        lastRow = Math.max(lastRow, row);
+                        firstColumn = Math.min(firstColumn, column);
+                        lastColumn = Math.max(lastColumn, column);
+                    }
+                }
+            }
+            boolean valid = true;
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    if (i_Grid[row][column] == 0) {
+                        valid = false;
+                    }
+                }
+            }
+            if (valid) {
+                validSubmarines++;
+            }
+        }
+        return validSubmarines;
+    }
+
+    /**
+     * Finds all the shortest paths over 1 cells by a breadth first search and a walk back
+     * over the cells one step closer to the source.
+     *
+     * @param i_Grid        the matrix
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the shortest paths, or an empty set if the destination can not be reached
+     */
+    static @NotNull Set<List<Index>> shortestPaths(@NotNull int[][] i_Grid, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        int rows = i_Grid.length;
+        int columns = i_Grid[0].length;
+        Set<List<Index>> paths = new HashSet<>();
+        if (i_Source.equals(i_Destination)) {
+            paths.add(List.of(i_Source));
+            return paths;
+        }
+        int[][] distances = new int[rows][columns];
+        for (int[] row : distances) {
+            Arrays.fill(row, -1);
+        }
+        if (i_Grid[i_Source.getRow()][i_Source.getColumn()] == 1) {
+            distances[i_Source.getRow()][i_Source.getColumn()] = 0;
+            ArrayDeque<int[]> queue = new ArrayDeque<>();
+            queue.add(new int[]{i_Source.getRow(), i_Source.getColumn()});
+            while (!queue.isEmpty()) {
+                int[] cell = queue.poll();
+                for (int[] neighbour : neighbours(rows, columns, cell[0], cell[1])) {
+                    if (i_Grid[neighbour[0]][neighbour[1]] == 1 && distances[neighbour[0]][neighbour[1]] < 0) {
+                        distances[neighbour[0]][neighbour[1]] = distances[cell[0]][cell[1]] + 1;
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+        walkBack(rows, columns, i_Destination.getRow(), i_Destination.getColumn(), new ArrayList<>(), paths,
+                (row, column, previousRow, previousColumn) -> distances[previousRow][previousColumn] >= 0
+                        && distances[previousRow][previousColumn] + 1 == distances[row][column],
+                (row, column) -> distances[row][column] == 0);
+        return paths;
+    }
+
+    /**
+     * Finds all the lowest weight paths over cells that are not negative, where the weight of a path is
+     * the sum of its cells, by relaxing every cell until nothing changes and a walk back over the cells
+     * that lead to every cell with its lowest weight. The weights must be positive.
+     *
+     * @param i_Grid        the matrix
+     * @param i_Source      the first cell of the paths
+     * @param i_Destination the last cell of the paths
+     * @return the lowest weight paths, or an empty set if the destination can not be reached
+     */
+    static @NotNull Set<List<Index>> lowestWeightPaths(@NotNull int[][] i_Grid, @NotNull Index i_Source, @NotNull Index i_Destination) {
+        int rows = i_Grid.length;
+        int columns = i_Grid[0].length;
+        Set<List<Index>> paths = new HashSet<>();
+        if (i_Source.equals(i_Destination)) {
+            paths.add(List.of(i_Source));
+            return paths;
+        }
+        long[][] weights = lowestWeights(i_Grid, i_Source);
+        walkBack(rows, columns, i_Destination.getRow(), i_Destination.getColumn(), new ArrayList<>(), paths,
+                (row, column, previousRow, previousColumn) -> weights[row][column] >= 0 && weights[previousRow][previousColumn] >= 0
+                        && weights[previousRow][previousColumn] + i_Grid[row][column] == weights[row][column],
+                (row, column) -> weights[row][column] >= 0 && row == i_Source.getRow() && column == i_Source.getColumn());
+        return paths;
+    }
+
+    /**
+     * Finds the lowest weight of a path from a source cell to every cell.
+     *
+     * @param i_Grid   the matrix
+     * @param i_Source the first cell of the paths
+     * @return the lowest weight of every cell, or -1 for cells that can not be reached
+     */
+    static @NotNull long[][] lowestWeights(@NotNull int[][] i_Grid, @NotNull Index i_Source) {
+        int rows = i_Grid.length;
+        int columns = i_Grid[0].length;
+        long[][] weights = new long[rows][columns];
+        for (long[] row : weights) {
+            Arrays.fill(row, -1);
+        }
+        if (i_Grid[i_Source.getRow()][i_Source.getColumn()] < 0) {
+            return weights;
+        }
+        weights[i_Source.getRow()][i_Source.getColumn()] = i_Grid[i_Source.getRow()][i_Source.getColumn()];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    if (weights[row][column] < 0) {
+                        continue;
+                    }
+                    for (int[] neighbour : neighbours(rows, columns, row, column)) {
+                        int value = i_Grid[neighbour[0]][neighbour[1]];
+                        long weight = weights[row][column] + value;
+                        if (value >= 0 && (weights[neighbour[0]][neighbour[1]] < 0 || weight < weights[neighbour[0]][neighbour[1]])) {
+                            weights[neighbour[0]][neighbour[1]] = weight;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Tells if a neighbour comes right before a cell on a path.
+     */
+    private interface Step {
+        boolean precedes(int i_Row, int i_Column, int i_PreviousRow, int i_PreviousColumn);
+    }
+
+    /**
+     * Tells if a cell is the first cell of the paths.
+     */
+    private interface Start {
+        boolean isSource(int i_Row, int i_Column);
+    }
+
+    /**
+     * Lists every path that ends with a suffix by walking back from its first cell to the source.
+     *
+     * @param i_Rows    the number of rows
+     * @param i_Columns the number of columns
+     * @param i_Row     the row of the first cell of the suffix
+     * @param i_Column  the column of the first cell of the suffix
+     * @param i_Suffix  the rest of the suffix, restored on return
+     * @param i_Paths   the paths found so far
+     * @param i_Step    tells which neighbours come right before a cell
+     * @param i_Start   tells which cell is the source
+     */
+    private static void walkBack(int i_Rows, int i_Columns, int i_Row, int i_Column, @NotNull List<Index> i_Suffix,
+                                 @NotNull Set<List<Index>> i_Paths, @NotNull Step i_Step, @NotNull Start i_Start) {
+        i_Suffix.add(0, new Index(i_Row, i_Column));
+        if (i_Start.isSource(i_Row, i_Column)) {
+            i_Paths.add(List.copyOf(i_Suffix));
+        } else {
+            for (int[] neighbour : neighbours(i_Rows, i_Columns, i_Row, i_Column)) {
+                if (i_Step.precedes(i_Row, i_Column, neighbour[0], neighbour[1])) {
+                    walkBack(i_Rows, i_Columns, neighbour[0], neighbour[1], i_Suffix, i_Paths, i_Step, i_Start);
+                }
+            }
+        }
+        i_Suffix.remove(0);
+    }
+
+    private static @NotNull List<int[]> neighbours(int i_Rows, int i_Columns, int i_Row, int i_Column) {
+        List<int[]> neighbours = new ArrayList<>(8);
+        for (int rowStep = -1; rowStep <= 1; rowStep++) {
+            for (int columnStep = -1; columnStep <= 1; columnStep++) {
+                int row = i_Row + rowStep;
+                int column = i_Column + columnStep;
+                if ((rowStep != 0 || columnStep != 0) && row >= 0 && column >= 0 && row < i_Rows && column < i_Columns) {
+                    neighbours.add(new int[]{row, column});
+                }
+            }
+        }
+        return neighbours;
+    }
+}
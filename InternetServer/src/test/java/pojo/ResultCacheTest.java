@@ -0,0 +1,103 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks the keys, the memory bound and the least recently used eviction of the result cache.
+ */
+class ResultCacheTest {
+    private static final Fingerprint MATRIX = Matrix.of(new int[][]{{1, 1}, {0, 1}}).getFingerprint();
+    // the estimated memory of a cached number, its entry included
+    private static final long NUMBER_BYTES = entryBytes(1);
+
+    @Test
+    void equalQueriesOnEqualMatricesShareTheResult() {
+        ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+        Object result = Set.of(List.of(new Index(0, 0), new Index(1, 1)));
+        cache.put(pathQuery(MATRIX, 1), result);
+
+        // another upload of the same cells, and new but equal indices
+        Fingerprint sameCells = Matrix.of(new int[][]{{1, 1}, {0, 1}}).getFingerprint();
+        assertSame(result, cache.get(pathQuery(sameCells, 1)));
+        assertNull(cache.get(pathQuery(sameCells, 0)));
+        assertNull(cache.get(pathQuery(Matrix.of(new int[][]{{1, 1}, {1, 1}}).getFingerprint(), 1)));
+        assertNull(cache.get(new QueryKey(MATRIX, MatrixCommand.LOWEST_WEIGHT_PATHS,
+                new Object[]{new Index(0, 0), new Index(1, 1)})));
+
+        assertEquals(1L, cache.getStats().get("cache.hits"));
+        assertEquals(3L, cache.getStats().get("cache.misses"));
+    }
+
+    @Test
+    void leastRecentlyUsedResultIsEvictedFirst() {
+        ResultCache cache = new ResultCache(3 * NUMBER_BYTES);
+        cache.put(numberQuery(1), 1);
+        cache.put(numberQuery(2), 2);
+        cache.put(numberQuery(3), 3);
+        // used again, so the second result is now the least recently used one
+        cache.get(numberQuery(1));
+        cache.put(numberQuery(4), 4);
+
+        assertNull(cache.get(numberQuery(2)));
+        assertEquals(1, cache.get(numberQuery(1)));
+        assertEquals(3, cache.get(numberQuery(3)));
+        assertEquals(4, cache.get(numberQuery(4)));
+        assertEquals(1L, cache.getStats().get("cache.evictions"));
+        assertEquals(3 * NUMBER_BYTES, cache.getStats().get("cache.bytes"));
+    }
+
+    @Test
+    void cacheStaysWithinItsBound() {
+        ResultCache cache = new ResultCache(2 * NUMBER_BYTES);
+        Set<Integer> large = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            large.add(i);
+        }
+        // larger than the whole cache: not stored, and nothing is evicted for it
+        cache.put(numberQuery(1), 1);
+        cache.put(numberQuery(2), large);
+        assertNull(cache.get(numberQuery(2)));
+        assertEquals(1, cache.get(numberQuery(1)));
+
+        cache.put(numberQuery(3), 3);
+        cache.setMaxBytes(NUMBER_BYTES);
+        assertEquals(1L, cache.getStats().get("cache.entries"));
+        assertEquals(3, cache.get(numberQuery(3)));
+
+        cache.clear();
+        assertEquals(0L, cache.getStats().get("cache.bytes"));
+        assertNull(cache.get(numberQuery(3)));
+    }
+
+    /**
+     * Makes the key of a shortest paths query from the top left cell.
+     */
+    private static QueryKey pathQuery(Fingerprint i_Matrix, int i_Destination) {
+        return new QueryKey(i_Matrix, MatrixCommand.ALL_SHORTEST_PATHS,
+                new Object[]{new Index(0, 0), new Index(i_Destination, i_Destination)});
+    }
+
+    /**
+     * Makes the key of a query that tells results apart by a number.
+     */
+    private static QueryKey numberQuery(int i_Number) {
+        return new QueryKey(MATRIX, MatrixCommand.PREPARE_LANDMARKS, new Object[]{i_Number});
+    }
+
+    /**
+     * Gets the memory the cache is charged with for a result.
+     */
+    private static long entryBytes(Object i_Result) {
+        ResultCache cache = new ResultCache(ResultCache.DEFAULT_MAX_BYTES);
+        cache.put(numberQuery(0), i_Result);
+        return cache.getStats().get("cache.bytes");
+    }
+}
@@ -0,0 +1,115 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the forward search of ShortestPaths with a breadth first search that lists all the paths.
+ */
+class ShortestPathsTest {
+    private static final int CASES = 3000;
+    private static final int MAX_PATHS = 3;
+
+    @Test
+    void findsAllShortestPaths() {
+        assertFindsAllShortestPaths(ShortestPaths.SearchMode.FORWARD, 7);
+    }
+
+    @Test
+    void unreachableDestinationHasNoPath() {
+        int[][] grid = {
+                {1, 0, 1},
+                {1, 0, 1},
+                {1, 0, 1}
+        };
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(2, 2), Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void endOnAZeroHasNoPath() {
+        int[][] grid = {{1, 1, 0}};
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(0, 2), Integer.MAX_VALUE).isEmpty());
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 2), new Index(0, 0), Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void sourceIsItsOwnShortestPath() {
+        int[][] grid = {{1, 1}};
+        assertEquals(Set.of(List.of(new Index(0, 1))),
+                find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 1), new Index(0, 1), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void singleRowHasOnePath() {
+        int[][] grid = {{1, 1, 1, 1}};
+        assertEquals(Set.of(List.of(new Index(0, 0), new Index(0, 1), new Index(0, 2), new Index(0, 3))),
+                find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(0, 3), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void diagonalStepsCountAsOneStep() {
+        int[][] grid = {
+                {1, 1, 1},
+                {1, 1, 1},
+                {1, 1, 1}
+        };
+        assertEquals(Set.of(List.of(new Index(0, 0), new Index(1, 0), new Index(2, 0)),
+                        List.of(new Index(0, 0), new Index(1, 1), new Index(2, 0))),
+                find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(2, 0), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void indicesOutsideTheMatrixOrNoPathsAskedForGiveNothing() {
+        int[][] grid = {{1, 1}, {1, 1}};
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(2, 0), Integer.MAX_VALUE).isEmpty());
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, -1), new Index(0, 0), Integer.MAX_VALUE).isEmpty());
+        assertTrue(find(ShortestPaths.SearchMode.FORWARD, grid, new Index(0, 0), new Index(1, 1), 0).isEmpty());
+    }
+
+    /**
+     * Compares the paths a search mode finds on small random matrices with the paths of the reference,
+     * all of them and capped, and restores the mode of the engine.
+     */
+    static void assertFindsAllShortestPaths(ShortestPaths.SearchMode i_Mode, long i_Seed) {
+        Random random = new Random(i_Seed);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(6), 1 + random.nextInt(6), 0, 1, 1, 1, 1, 2);
+            Index source = randomIndex(random, grid);
+            Index destination = randomIndex(random, grid);
+            String query = i_Mode + " " + Arrays.deepToString(grid) + " " + source + " " + destination;
+
+            Set<List<Index>> expected = Reference.shortestPaths(grid, source, destination);
+            assertEquals(expected, find(i_Mode, grid, source, destination, Integer.MAX_VALUE), query);
+            HashSet<List<Index>> capped = find(i_Mode, grid, source, destination, MAX_PATHS);
+            assertEquals(Math.min(MAX_PATHS, expected.size()), capped.size(), query);
+            assertTrue(expected.containsAll(capped), query);
+        }
+    }
+
+    /**
+     * Finds shortest paths in a search mode, and restores the mode of the engine.
+     */
+    static HashSet<List<Index>> find(ShortestPaths.SearchMode i_Mode, int[][] i_Grid, Index i_Source, Index i_Destination,
+                                     int i_MaxPaths) {
+        ShortestPaths engine = ShortestPaths.getInstance();
+        ShortestPaths.SearchMode initialMode = engine.getSearchMode();
+        try {
+            engine.setSearchMode(i_Mode);
+            return engine.findShortestPaths(new BasicMatrix(new Matrix(i_Grid)), i_Source, i_Destination, i_MaxPaths);
+        } finally {
+            engine.setSearchMode(initialMode);
+        }
+    }
+
+    private static Index randomIndex(Random i_Random, int[][] i_Grid) {
+        return new Index(i_Random.nextInt(i_Grid.length), i_Random.nextInt(i_Grid[0].length));
+    }
+}
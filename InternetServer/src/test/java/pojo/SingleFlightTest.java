@@ -0,0 +1,100 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that identical computations running at the same time are computed once, and that a key is forgotten once done.
+ */
+class SingleFlightTest {
+
+    @Test
+    void callerThatArrivesWhileTheComputationRunsGetsItsResult() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flights.run("query", () -> {
+            started.countDown();
+            await(release);
+            return result;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> flights.run("query", () -> {
+            throw new AssertionError("computed twice");
+        }));
+        awaitCoalesced(flights, 1);
+        release.countDown();
+
+        assertSame(result, first.get(5, TimeUnit.SECONDS));
+        assertSame(result, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, flights.getStats().get("coalescing.computations"));
+        assertEquals(0L, flights.getStats().get("coalescing.inFlight"));
+    }
+
+    @Test
+    void failureReachesEveryWaitingCaller() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> flights.run("query", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("no room");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> flights.run("query", () -> 1));
+        awaitCoalesced(flights, 1);
+        release.countDown();
+
+        for (CompletableFuture<Object> caller : List.of(first, second)) {
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+    }
+
+    @Test
+    void finishedComputationRunsAgain() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        assertEquals(1, flights.run("query", () -> 1));
+        assertEquals(2, flights.run("query", () -> 2));
+        assertEquals(3, flights.run("other", () -> 3));
+        assertEquals(3L, flights.getStats().get("coalescing.computations"));
+        assertEquals(0L, flights.getStats().get("coalescing.saved"));
+    }
+
+    /**
+     * Waits until the given number of callers waits for a running computation.
+     */
+    private static void awaitCoalesced(SingleFlight<?> i_Flights, long i_Callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (i_Flights.getStats().get("coalescing.saved") < i_Callers && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(i_Callers, i_Flights.getStats().get("coalescing.saved"));
+    }
+
+    /**
+     * Waits for a latch inside a computation.
+     */
+    private static void await(CountDownLatch i_Latch) {
+        try {
+            i_Latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares the submarine count of a stream of rows with a count over the bounding rectangle
+ * of every flooded component, and checks the rows a stream refuses.
+ */
+class SubmarineStreamTest {
+    private static final int CASES = 5000;
+
+    @Test
+    void countsLikeTheMatrix() throws IOException {
+        Random random = new Random(5);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = Reference.randomBinaryGrid(random, 1 + random.nextInt(14), 1 + random.nextInt(14), random.nextDouble());
+            int columns = grid[0].length;
+            long expected = Reference.validSubmarines(grid);
+
+            SubmarineStream stream = new SubmarineStream(columns);
+            stream.acceptRows(grid);
+            assertEquals(expected, stream.finish(), () -> Arrays.deepToString(grid));
+
+            ByteBuffer cells = ByteBuffer.allocate(grid.length * columns * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int[] row : grid) {
+                for (int cell : row) {
+                    cells.putInt(cell);
+                }
+            }
+            assertEquals(expected, Submarines.getInstance().countValidSubmarines(new ByteArrayInputStream(cells.array()), columns),
+                    () -> Arrays.deepToString(grid));
+        }
+    }
+
+    @Test
+    void refusesCellsOtherThanZeroAndOne() {
+        SubmarineStream stream = new SubmarineStream(3);
+        stream.acceptRow(new int[]{1, 0, 1});
+        assertThrows(IllegalArgumentException.class, () -> stream.acceptRow(new int[]{1, 2, 1}));
+        // the refused row was not scanned, so the stream goes on from the rows before it
+        stream.acceptRow(new int[]{0, 0, 1});
+        assertEquals(2, stream.finish());
+    }
+
+    @Test
+    void refusedBandLeavesTheStreamAsItWas() {
+        SubmarineStream stream = new SubmarineStream(3);
+        stream.acceptRows(new int[][]{{1, 0, 1}});
+        // the bad cell is in the last row of the band, so the rows before it must not be scanned either
+        assertThrows(IllegalArgumentException.class, () -> stream.acceptRows(new int[][]{{1, 1, 0}, {0, 3, 0}}));
+        assertThrows(IllegalArgumentException.class, () -> stream.acceptRows(new int[][]{{1, 1, 0}, {0, 0}}));
+        assertEquals(1, stream.getNumOfRows());
+        stream.acceptRows(new int[][]{{0, 0, 1}});
+        assertEquals(2, stream.finish());
+    }
+
+    @Test
+    void singleColumnAndSingleRow() {
+        SubmarineStream column = new SubmarineStream(1);
+        column.acceptRows(new int[][]{{1}, {1}, {0}, {1}});
+        assertEquals(2, column.finish());
+
+        SubmarineStream row = new SubmarineStream(7);
+        row.acceptRow(new int[]{1, 1, 0, 1, 0, 0, 1});
+        assertEquals(3, row.finish());
+
+        assertEquals(0, new SubmarineStream(4).finish());
+    }
+
+    @Test
+    void componentOverManyRowsIsCheckedWhenItEnds() {
+        int rows = 10_000;
+        SubmarineStream bar = new SubmarineStream(4);
+        SubmarineStream steps = new SubmarineStream(4);
+        for (int row = 0; row < rows; row++) {
+            bar.acceptRow(new int[]{0, 1, 1, 0});
+            // a diagonal step halfway down leaves 0 cells in the rectangle
+            steps.acceptRow(row < rows / 2 ? new int[]{1, 0, 0, 0} : new int[]{0, 1, 0, 0});
+        }
+        assertEquals(1, bar.finish());
+        assertEquals(0, steps.finish());
+
+        // a bar that ends before the last row is checked as soon as a row misses it
+        SubmarineStream closed = new SubmarineStream(2);
+        for (int row = 0; row < rows; row++) {
+            closed.acceptRow(new int[]{1, 1});
+        }
+        closed.acceptRow(new int[]{0, 0});
+        closed.acceptRow(new int[]{1, 0});
+        assertEquals(2, closed.finish());
+    }
+
+    @Test
+    void refusesRowsOfAnotherWidth() {
+        assertThrows(IllegalArgumentException.class, () -> new SubmarineStream(0));
+        assertThrows(IllegalArgumentException.class, () -> new SubmarineStream(SubmarineStream.MAX_NUM_OF_COLUMNS + 1));
+        assertThrows(IllegalArgumentException.class, () -> new SubmarineStream(3).acceptRow(new int[4]));
+    }
+}
@@ -0,0 +1,96 @@
+package pojo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the submarine count of a matrix with a count over the bounding rectangle
+ * of every flooded component.
+ */
+class SubmarinesTest {
+    private static final int CASES = 5000;
+
+    @Test
+    void countsComponentsWithNoZeroInTheirRectangle() {
+        Random random = new Random(4);
+        for (int i = 0; i < CASES; i++) {
+            int[][] grid = random.nextBoolean()
+                    ? Reference.randomBinaryGrid(random, 1 + random.nextInt(12), 1 + random.nextInt(12), random.nextDouble())
+                    : Reference.randomGrid(random, 1 + random.nextInt(12), 1 + random.nextInt(12), 0, 1, 1, 1, 2, 3);
+            Matrix matrix = random.nextBoolean() ? new Matrix(grid) : Matrix.offHeap(grid);
+            assertEquals(Reference.validSubmarines(grid), Submarines.getInstance().countValidSubmarines(matrix),
+                    () -> Arrays.deepToString(grid));
+        }
+    }
+
+    @Test
+    void cellsOfOtherValuesDoNotSpoilARectangle() {
+        int[][] grid = {
+                {1, 1, 0},
+                {1, 2, 0},
+                {0, 0, 1}
+        };
+        assertEquals(2, Submarines.getInstance().countValidSubmarines(new Matrix(grid)));
+    }
+
+    @Test
+    void zeroInsideTheRectangleSpoilsIt() {
+        int[][] grid = {
+                {1, 2, 1},
+                {1, 0, 1},
+                {1, 1, 1}
+        };
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(grid)));
+    }
+
+    @Test
+    void diagonalNeighboursSpanARectangleWithZeros() {
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1, 0}, {0, 1}})));
+        assertEquals(1, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1, 2}, {2, 1}})));
+    }
+
+    @Test
+    void singleCellsAndEmptyMatrices() {
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{0}})));
+        assertEquals(1, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1}})));
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{2, 3}, {0, 2}})));
+        assertEquals(3, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1, 0, 1, 0, 1}})));
+    }
+
+    @Test
+    void zeroInTheCornerOfTheRectangleSpoilsIt() {
+        // the component spans the whole matrix, so the rectangle starts at row and column 0
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1, 2, 0}, {2, 1, 2}, {1, 2, 1}})));
+        assertEquals(0, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{0, 2, 1}, {2, 1, 2}, {1, 2, 1}})));
+        assertEquals(1, Submarines.getInstance().countValidSubmarines(new Matrix(new int[][]{{1, 2, 3}, {2, 1, 2}, {1, 2, 1}})));
+    }
+
+    @Test
+    void zeroCountsAnswerEveryRectangle() {
+        Random random = new Random(6);
+        for (int i = 0; i < 500; i++) {
+            int[][] grid = Reference.randomGrid(random, 1 + random.nextInt(7), 1 + random.nextInt(7), 0, 1, 2, 2);
+            ZeroCounts zeros = new ZeroCounts(random.nextBoolean() ? new Matrix(grid) : Matrix.offHeap(grid));
+            for (int firstRow = 0; firstRow < grid.length; firstRow++) {
+                for (int lastRow = firstRow; lastRow < grid.length; lastRow++) {
+                    for (int firstColumn = 0; firstColumn < grid[0].length; firstColumn++) {
+                        for (int lastColumn = firstColumn; lastColumn < grid[0].length; lastColumn++) {
+                            boolean noZero = true;
+                            for (int row = firstRow; row <= lastRow; row++) {
+                                for (int column = firstColumn; column <= lastColumn; column++) {
+                                    noZero &= grid[row][column] != 0;
+                                }
+                            }
+                            assertEquals(noZero, zeros.holdsNoZero(firstRow, lastRow, firstColumn, lastColumn),
+                                    Arrays.deepToString(grid));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
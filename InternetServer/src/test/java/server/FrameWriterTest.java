@@ -0,0 +1,121 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that replies are queued without waiting for the client, written as frames in order,
+ * and that the reader is held once a client stops taking its replies.
+ */
+class FrameWriterTest {
+
+    @Test
+    void repliesAreWrittenAsFramesInOrder() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream toClient = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(toClient);
+        writer.send(new byte[]{1});
+        writer.send(new byte[0]);
+        writer.send(new byte[]{2, 3});
+        writer.close();
+        // replies of a closed writer are dropped
+        writer.send(new byte[]{4});
+
+        DataInputStream written = new DataInputStream(new ByteArrayInputStream(toClient.toByteArray()));
+        assertArrayEquals(new byte[]{1}, Frames.readFrame(written));
+        assertArrayEquals(new byte[0], Frames.readFrame(written));
+        assertArrayEquals(new byte[]{2, 3}, Frames.readFrame(written));
+        assertNull(Frames.readFrame(written));
+    }
+
+    @Test
+    void clientThatDoesNotReadHoldsTheReaderButNotTheSender() throws Exception {
+        StalledClient toClient = new StalledClient();
+        FrameWriter writer = new FrameWriter(toClient);
+        byte[] reply = new byte[64 * 1024];
+        // far more than the high-water mark, queued without waiting for the client
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 2 * Frames.REPLY_HIGH_WATER / reply.length; i++) {
+                writer.send(reply);
+            }
+        });
+
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try {
+                writer.awaitRoom();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> reader.get(200, TimeUnit.MILLISECONDS));
+        toClient.reads.countDown();
+        reader.get(10, TimeUnit.SECONDS);
+        writer.close();
+        assertTrue(toClient.written > 2 * Frames.REPLY_HIGH_WATER);
+    }
+
+    @Test
+    void failureClosesTheStreamAndReleasesTheReader() throws Exception {
+        StalledClient toClient = new StalledClient();
+        FrameWriter writer = new FrameWriter(toClient);
+        byte[] reply = new byte[1024 * 1024];
+        for (int i = 0; i < 8; i++) {
+            writer.send(reply);
+        }
+        writer.fail(new IOException("reset"));
+        assertTrue(toClient.closed);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            writer.awaitRoom();
+            writer.close();
+        });
+    }
+
+    /**
+     * A client stream whose writes wait until the client starts reading, or the stream is closed.
+     */
+    private static final class StalledClient extends OutputStream {
+        private final CountDownLatch reads = new CountDownLatch(1);
+        private volatile boolean closed;
+        private volatile long written;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                while (!closed && !reads.await(10, TimeUnit.MILLISECONDS)) {
+                    Thread.onSpinWait();
+                }
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (closed) {
+                throw new IOException("closed");
+            }
+            written += len;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
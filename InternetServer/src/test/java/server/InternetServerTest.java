@@ -0,0 +1,111 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pojo.MatrixHandler;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the blocking server serves many clients at once in both execution modes,
+ * and closes the connection of a client once it stopped.
+ */
+class InternetServerTest {
+    private static final int PORT = 8043;
+    private static final int CLIENTS = 40;
+
+    private InternetServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void virtualThreadsServeManyClientsAtOnce() throws Exception {
+        assertClientsServed(InternetServer.ExecutionMode.VIRTUAL_THREADS, PORT);
+    }
+
+    @Test
+    void threadPoolServesManyClientsAtOnce() throws Exception {
+        assertClientsServed(InternetServer.ExecutionMode.THREAD_POOL, PORT + 1);
+    }
+
+    /**
+     * Starts a server and lets many clients work on their own matrices at the same time.
+     */
+    private void assertClientsServed(InternetServer.ExecutionMode i_Mode, int i_Port) throws Exception {
+        // fewer pool threads than clients, so the pool queues the connections it can not serve yet
+        server = new InternetServer(i_Port, i_Mode, 4, 8);
+        server.supportClients(new MatrixHandler());
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> counts = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                int submarines = 1 + client % 3;
+                counts.add(clients.submit(() -> countSubmarines(i_Port, submarines)));
+            }
+            for (int client = 0; client < CLIENTS; client++) {
+                assertEquals(1 + client % 3, counts.get(client).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends a matrix with the given number of submarines, asks for their count and stops.
+     */
+    private static int countSubmarines(int i_Port, int i_Submarines) throws Exception {
+        int[][] grid = new int[2][3 * i_Submarines];
+        for (int submarine = 0; submarine < i_Submarines; submarine++) {
+            grid[0][3 * submarine] = grid[0][3 * submarine + 1] = 1;
+            grid[1][3 * submarine] = grid[1][3 * submarine + 1] = 1;
+        }
+        try (Socket socket = connect(i_Port)) {
+            ObjectOutputStream toServer = new ObjectOutputStream(socket.getOutputStream());
+            ObjectInputStream fromServer = new ObjectInputStream(socket.getInputStream());
+            toServer.writeObject("matrix");
+            toServer.writeObject(grid);
+            toServer.writeObject("submarines");
+            toServer.writeObject("stop");
+            toServer.flush();
+            int count = (Integer) fromServer.readObject();
+            // the server closes the connection of a stopped client
+            assertThrows(EOFException.class, fromServer::readObject);
+            return count;
+        }
+    }
+
+    /**
+     * Connects to the server, waiting until it listens.
+     */
+    private static Socket connect(int i_Port) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket("127.0.0.1", i_Port);
+            } catch (ConnectException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+}
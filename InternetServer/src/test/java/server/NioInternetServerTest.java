@@ -0,0 +1,62 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pojo.MatrixHandler;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that the non-blocking server answers pipelined frames in order, and drops a client that sends too much.
+ */
+class NioInternetServerTest {
+    private static final int PORT = 8041;
+
+    private NioInternetServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws IOException, ClassNotFoundException {
+        server = new NioInternetServer(PORT);
+        server.supportClients(new MatrixHandler());
+        try (Socket socket = new Socket("127.0.0.1", PORT)) {
+            FramedClient client = new FramedClient(socket);
+            // every request is sent before the first reply is read
+            client.send("matrix", (Object) new int[][]{{1, 1, 0, 0}, {1, 1, 0, 1}, {0, 0, 0, 1}});
+            client.send("submarines");
+            client.send("all connected components");
+            client.send("submarines");
+            client.send("stop");
+
+            assertEquals(2, client.receive());
+            assertEquals(2, ((Set<?>) client.receive()).size());
+            assertEquals(2, client.receive());
+            // the server closes the connection once the session stopped
+            assertThrows(IOException.class, client::receive);
+        }
+    }
+
+    @Test
+    void clientWithAnOversizedFrameIsDisconnected() throws IOException {
+        server = new NioInternetServer(PORT + 1, 1, 1, 64);
+        server.supportClients(new MatrixHandler());
+        try (Socket socket = new Socket("127.0.0.1", PORT + 1)) {
+            DataOutputStream toServer = new DataOutputStream(socket.getOutputStream());
+            toServer.writeInt(1024);
+            toServer.flush();
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+}